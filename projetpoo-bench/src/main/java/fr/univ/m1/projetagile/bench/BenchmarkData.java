@@ -0,0 +1,107 @@
+package fr.univ.m1.projetagile.bench;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import fr.univ.m1.projetagile.core.entity.AgentParticulier;
+import fr.univ.m1.projetagile.core.entity.Disponibilite;
+import fr.univ.m1.projetagile.core.entity.Location;
+import fr.univ.m1.projetagile.core.entity.Loueur;
+import fr.univ.m1.projetagile.core.entity.Vehicule;
+import fr.univ.m1.projetagile.core.entity.Ville;
+import fr.univ.m1.projetagile.enums.StatutLocation;
+import fr.univ.m1.projetagile.enums.TypeV;
+
+/**
+ * Génération déterministe (graine fixe) des jeux de données détachés utilisés par les benchmarks.
+ * Aucune connexion à la base n'est ouverte.
+ */
+final class BenchmarkData {
+
+  /** Graine commune à tous les jeux de données */
+  static final long GRAINE = 42L;
+
+  /** Date de référence fixe, pour que les résultats ne dépendent pas du jour d'exécution */
+  static final LocalDate REFERENCE = LocalDate.of(2030, 1, 1);
+
+  private BenchmarkData() {}
+
+  static AgentParticulier agent() {
+    return new AgentParticulier("Martin", "Paul", "paul.martin@bench.fr", "motdepasse");
+  }
+
+  static Loueur loueur() {
+    return new Loueur("Durand", "Claire", "claire.durand@bench.fr", "motdepasse");
+  }
+
+  static Vehicule vehicule(double prixJ) {
+    return new Vehicule(TypeV.voiture, "Renault", "Clio", "bleu", "Paris", prixJ, agent());
+  }
+
+  /**
+   * Génère {@code nombre} communes réparties sur l'emprise de la France métropolitaine. Les noms
+   * sont de la forme {@code Commune-<index>}.
+   */
+  static List<Ville> communes(int nombre) {
+    Random random = new Random(GRAINE);
+    List<Ville> villes = new ArrayList<>(nombre);
+    for (int i = 0; i < nombre; i++) {
+      double latitude = 42.3 + random.nextDouble() * 8.8;
+      double longitude = -4.8 + random.nextDouble() * 13.0;
+      villes.add(new Ville("Commune-" + i, latitude, longitude));
+    }
+    return villes;
+  }
+
+  /**
+   * Génère des disponibilités consécutives (séparées d'un jour de trou) à partir de la date de
+   * référence.
+   */
+  static List<LocalDate[]> disponibilites(int nombre, int dureeJours) {
+    List<LocalDate[]> dispos = new ArrayList<>(nombre);
+    LocalDate debut = REFERENCE;
+    for (int i = 0; i < nombre; i++) {
+      LocalDate fin = debut.plusDays(dureeJours - 1L);
+      dispos.add(new LocalDate[] {debut, fin});
+      debut = fin.plusDays(2);
+    }
+    return dispos;
+  }
+
+  /**
+   * Génère des réservations [dateDebut, dateFin] (LocalDateTime) aléatoires dans l'horizon donné,
+   * dans un ordre quelconque comme celui retourné par la base.
+   */
+  static List<Object[]> reservations(int nombre, int horizonJours) {
+    Random random = new Random(GRAINE);
+    List<Object[]> reservations = new ArrayList<>(nombre);
+    for (int i = 0; i < nombre; i++) {
+      LocalDateTime debut = REFERENCE.plusDays(random.nextInt(horizonJours)).atStartOfDay();
+      reservations.add(new Object[] {debut, debut.plusDays(1 + random.nextInt(6))});
+    }
+    return reservations;
+  }
+
+  /**
+   * Construit un véhicule détaché portant {@code nbDispos} disponibilités et {@code nbLocations}
+   * locations, dont une partie terminées ou annulées.
+   */
+  static Vehicule vehiculeAvecHistorique(int nbDispos, int nbLocations) {
+    Vehicule vehicule = vehicule(50.0);
+    for (LocalDate[] dispo : disponibilites(nbDispos, 10)) {
+      vehicule.ajouterDisponibilite(new Disponibilite(vehicule, dispo[0], dispo[1]));
+    }
+
+    Loueur loueur = loueur();
+    StatutLocation[] statuts = StatutLocation.values();
+    for (Object[] reservation : reservations(nbLocations, nbDispos * 12)) {
+      Location location = new Location((LocalDateTime) reservation[0],
+          (LocalDateTime) reservation[1], vehicule, loueur);
+      location.setStatut(statuts[vehicule.getLocations().size() % statuts.length]);
+      vehicule.ajouterLocation(location);
+    }
+    return vehicule;
+  }
+}
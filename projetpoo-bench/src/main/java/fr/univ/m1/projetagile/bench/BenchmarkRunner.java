@@ -0,0 +1,34 @@
+package fr.univ.m1.projetagile.bench;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Point d'entrée des benchmarks. Accepte les mêmes arguments que la ligne de commande JMH ; sauf
+ * indication contraire ({@code -rf}/{@code -rff}), les résultats sont écrits en JSON dans
+ * {@value #RESULTAT_PAR_DEFAUT} pour pouvoir suivre les régressions.
+ */
+public class BenchmarkRunner {
+
+  /** Fichier de résultats utilisé si aucun n'est précisé */
+  public static final String RESULTAT_PAR_DEFAUT = "target/jmh-result.json";
+
+  public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+    CommandLineOptions ligneCommande = new CommandLineOptions(args);
+    ChainedOptionsBuilder options = new OptionsBuilder().parent(ligneCommande);
+
+    if (!ligneCommande.getResultFormat().hasValue()) {
+      options.resultFormat(ResultFormatType.JSON);
+    }
+    if (!ligneCommande.getResult().hasValue()) {
+      options.result(RESULTAT_PAR_DEFAUT);
+    }
+
+    new Runner(options.build()).run();
+  }
+}
@@ -0,0 +1,65 @@
+package fr.univ.m1.projetagile.bench;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import fr.univ.m1.projetagile.core.entity.Vehicule;
+import fr.univ.m1.projetagile.core.service.VehiculeService;
+
+/**
+ * Filtrage des disponibilités par les réservations actives
+ * ({@link VehiculeService#decouperDisponibilites}) et test de disponibilité en mémoire
+ * ({@link Vehicule#csDisponible}).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DisponibiliteBenchmark {
+
+  @Param({"10", "200"})
+  public int nombreDisponibilites;
+
+  @Param({"10", "1000"})
+  public int nombreReservations;
+
+  private List<LocalDate[]> disponibilites;
+  private List<Object[]> reservations;
+  private Vehicule vehicule;
+  private LocalDate debutDemande;
+  private LocalDate finDemande;
+
+  @Setup
+  public void setup() {
+    disponibilites = BenchmarkData.disponibilites(nombreDisponibilites, 10);
+    reservations = BenchmarkData.reservations(nombreReservations, nombreDisponibilites * 12);
+    vehicule = BenchmarkData.vehiculeAvecHistorique(nombreDisponibilites, nombreReservations);
+
+    // Période demandée en fin d'horizon : parcours complet des disponibilités
+    debutDemande = BenchmarkData.REFERENCE.plusDays(nombreDisponibilites * 12L);
+    finDemande = debutDemande.plusDays(3);
+  }
+
+  @Benchmark
+  public List<LocalDate[]> filtrerDisponibilitesAvecReservations() {
+    return VehiculeService.decouperDisponibilites(disponibilites, reservations);
+  }
+
+  @Benchmark
+  public boolean csDisponible() {
+    return vehicule.csDisponible(debutDemande, finDemande);
+  }
+}
@@ -0,0 +1,59 @@
+package fr.univ.m1.projetagile.bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import fr.univ.m1.projetagile.assurance.entity.GrilleTarif;
+import fr.univ.m1.projetagile.assurance.entity.TarifVehicule;
+import fr.univ.m1.projetagile.enums.TypeV;
+
+/**
+ * Recherche d'un tarif véhicule dans une grande grille tarifaire : modèle présent en fin de grille
+ * et modèle absent (pire cas).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GrilleTarifBenchmark {
+
+  @Param({"100", "10000"})
+  public int tailleGrille;
+
+  private GrilleTarif grille;
+  private TypeV dernierType;
+  private String dernierModele;
+
+  @Setup
+  public void setup() {
+    grille = new GrilleTarif();
+    TypeV[] types = TypeV.values();
+    for (int i = 0; i < tailleGrille; i++) {
+      grille.ajouterTarifVehicule(
+          new TarifVehicule(types[i % types.length], "Modele " + i, 10.0 + i % 50, grille));
+    }
+    dernierType = types[(tailleGrille - 1) % types.length];
+    dernierModele = " modele " + (tailleGrille - 1) + " ";
+  }
+
+  @Benchmark
+  public TarifVehicule trouverTarifVehiculePresent() {
+    return grille.trouverTarifVehicule(dernierType, dernierModele);
+  }
+
+  @Benchmark
+  public TarifVehicule trouverTarifVehiculeAbsent() {
+    return grille.trouverTarifVehicule(TypeV.voiture, "Inexistant");
+  }
+}
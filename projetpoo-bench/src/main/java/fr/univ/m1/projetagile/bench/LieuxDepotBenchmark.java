@@ -0,0 +1,135 @@
+package fr.univ.m1.projetagile.bench;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.hibernate.Hibernate;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.Transaction;
+import org.hibernate.stat.Statistics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import fr.univ.m1.projetagile.core.DatabaseConnection;
+import fr.univ.m1.projetagile.core.entity.Adresse;
+import fr.univ.m1.projetagile.core.entity.AgentParticulier;
+import fr.univ.m1.projetagile.core.entity.Location;
+import fr.univ.m1.projetagile.core.entity.Loueur;
+import fr.univ.m1.projetagile.core.entity.Vehicule;
+import fr.univ.m1.projetagile.core.persistence.LocationRepository;
+import fr.univ.m1.projetagile.enums.StatutLocation;
+import fr.univ.m1.projetagile.enums.TypeV;
+import fr.univ.m1.projetagile.parking.entity.Parking;
+import jakarta.persistence.EntityManager;
+
+/**
+ * Historique des locations d'un véhicule sur la base H2 embarquée : résolution du lieu de dépôt
+ * ({@code @Any} sur Adresse et Parking) location par location, comme le faisait le chargement
+ * immédiat de l'association, contre la résolution groupée de
+ * {@link LocationRepository#getHistoriqueLocations(Long)} (une requête par type de lieu).
+ *
+ * <p>
+ * Un tiers des locations n'a pas de lieu de dépôt, un tiers dépose à une adresse, un tiers dans
+ * un parking, chaque lieu étant distinct. Le nombre de requêtes SQL exécutées par opération est
+ * affiché à la fin de chaque benchmark.
+ * </p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dprojetagile.persistenceUnit=bench")
+@State(Scope.Benchmark)
+public class LieuxDepotBenchmark {
+
+  /** Nombre de locations de l'historique */
+  @Param({"500"})
+  public int locations;
+
+  private LocationRepository locationRepository;
+  private Statistics statistiques;
+  private Long vehiculeId;
+
+  /** Requêtes SQL préparées par la dernière opération mesurée */
+  private long requetes;
+
+  @Setup
+  public void setup() {
+    SessionFactory sessionFactory =
+        DatabaseConnection.getEntityManagerFactory().unwrap(SessionFactory.class);
+    LocalDateTime reference = BenchmarkData.REFERENCE.atTime(10, 0);
+
+    try (StatelessSession session = sessionFactory.openStatelessSession()) {
+      Transaction transaction = session.beginTransaction();
+      AgentParticulier agent = BenchmarkData.agent();
+      session.insert(agent);
+      Loueur loueur = BenchmarkData.loueur();
+      session.insert(loueur);
+      Vehicule vehicule =
+          new Vehicule(TypeV.voiture, "Renault", "Clio", "bleu", "Paris", 40.0, agent);
+      session.insert(vehicule);
+      vehiculeId = vehicule.getId();
+
+      for (int i = 0; i < locations; i++) {
+        LocalDateTime debut = reference.minusDays(4L * (locations - i));
+        Location location = new Location(debut, debut.plusDays(3), vehicule, loueur);
+        if (i % 3 == 1) {
+          Adresse adresse = new Adresse(i + " rue de la Paix", "75002", "Paris");
+          session.insert(adresse);
+          location.setLieuDepot(adresse);
+        } else if (i % 3 == 2) {
+          Parking parking = new Parking("Parking " + i, "1 rue du Port", "Paris", "75001", 5.0);
+          session.insert(parking);
+          location.setLieuDepot(parking);
+        }
+        location.setStatut(StatutLocation.TERMINE);
+        session.insert(location);
+      }
+      transaction.commit();
+    }
+
+    locationRepository = new LocationRepository();
+    statistiques = sessionFactory.getStatistics();
+    statistiques.setStatisticsEnabled(true);
+  }
+
+  @TearDown
+  public void tearDown() {
+    System.out.println("Requêtes SQL par opération : " + requetes);
+    DatabaseConnection.close();
+  }
+
+  @Benchmark
+  public List<Location> resolutionParLocation() {
+    statistiques.clear();
+    try (EntityManager em = DatabaseConnection.getEntityManager()) {
+      List<Location> historique = em.createQuery("SELECT l FROM Location l "
+          + "JOIN FETCH l.vehicule JOIN FETCH l.loueur WHERE l.vehicule.id = :vehiculeId "
+          + "ORDER BY l.dateDebut DESC", Location.class)
+          .setParameter("vehiculeId", vehiculeId).getResultList();
+      for (Location location : historique) {
+        Hibernate.initialize(location.getLieuDepot());
+      }
+      requetes = statistiques.getPrepareStatementCount();
+      return historique;
+    }
+  }
+
+  @Benchmark
+  public List<Location> resolutionGroupee() {
+    statistiques.clear();
+    List<Location> historique = locationRepository.getHistoriqueLocations(vehiculeId);
+    requetes = statistiques.getPrepareStatementCount();
+    return historique;
+  }
+}
@@ -0,0 +1,100 @@
+package fr.univ.m1.projetagile.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.hibernate.SessionFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import fr.univ.m1.projetagile.bench.seed.ConfigurationSeed;
+import fr.univ.m1.projetagile.bench.seed.GenerateurDonnees;
+import fr.univ.m1.projetagile.core.DatabaseConnection;
+import fr.univ.m1.projetagile.core.dto.VehiculeDTO;
+import fr.univ.m1.projetagile.core.entity.Vehicule;
+import fr.univ.m1.projetagile.core.persistence.VehiculeRepository;
+import fr.univ.m1.projetagile.core.service.VehiculeService;
+import fr.univ.m1.projetagile.notes.service.NoteService;
+
+/**
+ * Liste complète des véhicules (US.V.1) sur la base H2 embarquée : chargement d'entités gérées
+ * puis trois requêtes par véhicule (ancien chemin), contre la projection en DTO et les requêtes
+ * groupées de {@link VehiculeService#getVehicules()}.
+ *
+ * <p>
+ * À lancer avec le profileur GC pour comparer les octets alloués par page
+ * ({@code gc.alloc.rate.norm}) et le nombre de collections :
+ * {@code java -jar benchmarks.jar ListeVehiculesBenchmark -prof gc}.
+ * </p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dprojetagile.persistenceUnit=bench")
+@State(Scope.Benchmark)
+public class ListeVehiculesBenchmark {
+
+  /** Nombre d'agents générés ; la flotte compte environ trois véhicules par agent */
+  @Param({"50", "250"})
+  public int agents;
+
+  private VehiculeRepository vehiculeRepository;
+  private VehiculeService vehiculeService;
+  private NoteService noteService;
+
+  @Setup
+  public void setup() throws Exception {
+    ConfigurationSeed config = ConfigurationSeed.depuisArguments(new String[] {"--graine",
+        String.valueOf(BenchmarkData.GRAINE), "--agents-particuliers",
+        String.valueOf(agents * 4 / 5), "--agents-professionnels", String.valueOf(agents / 5),
+        "--loueurs", String.valueOf(agents * 4), "--annees-historique", "1", "--fils-messages",
+        "1", "--chaines-parrainage", "1"});
+    new GenerateurDonnees(config,
+        DatabaseConnection.getEntityManagerFactory().unwrap(SessionFactory.class)).generer();
+
+    vehiculeRepository = new VehiculeRepository();
+    vehiculeService = new VehiculeService(vehiculeRepository);
+    noteService = new NoteService();
+  }
+
+  @TearDown
+  public void tearDown() {
+    DatabaseConnection.close();
+  }
+
+  @Benchmark
+  public List<VehiculeDTO> entitesPuisRequetesParVehicule() {
+    List<VehiculeDTO> dtos = new ArrayList<>();
+    for (Vehicule vehicule : vehiculeRepository.findAll()) {
+      VehiculeDTO dto = new VehiculeDTO();
+      dto.setId(vehicule.getId());
+      dto.setType(vehicule.getType());
+      dto.setMarque(vehicule.getMarque());
+      dto.setModele(vehicule.getModele());
+      dto.setCouleur(vehicule.getCouleur());
+      dto.setVille(vehicule.getVille());
+      dto.setPrixJ(vehicule.getPrixJ());
+      dto.setDisponible(vehicule.isDisponible());
+      dto.setNoteMoyenne(noteService.getMoyenneVehicule(vehicule));
+      dto.setDatesDispo(VehiculeService.decouperDisponibilites(vehicule.getDatesDispo(),
+          vehiculeRepository.getDatesLocationsActives(vehicule.getId())));
+      dtos.add(dto);
+    }
+    return dtos;
+  }
+
+  @Benchmark
+  public List<VehiculeDTO> projectionDTO() {
+    return vehiculeService.getVehicules();
+  }
+}
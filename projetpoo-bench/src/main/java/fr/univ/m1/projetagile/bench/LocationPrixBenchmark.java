@@ -0,0 +1,60 @@
+package fr.univ.m1.projetagile.bench;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import fr.univ.m1.projetagile.core.entity.Adresse;
+import fr.univ.m1.projetagile.core.entity.Location;
+import fr.univ.m1.projetagile.core.entity.Vehicule;
+import fr.univ.m1.projetagile.core.persistence.LocationRepository;
+import fr.univ.m1.projetagile.core.service.LocationService;
+import fr.univ.m1.projetagile.parking.entity.Parking;
+
+/**
+ * Calcul du prix d'une location détachée (sans identifiant, donc sans recherche d'assurance en
+ * base) : location courte ou longue durée, dépôt à une adresse ou dans un parking.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LocationPrixBenchmark {
+
+  @Param({"3", "14"})
+  public int nombreJours;
+
+  @Param({"adresse", "parking"})
+  public String lieuDepot;
+
+  private LocationService locationService;
+  private Location location;
+
+  @Setup
+  public void setup() {
+    locationService = new LocationService(new LocationRepository());
+
+    Vehicule vehicule = BenchmarkData.vehicule(45.0);
+    LocalDateTime debut = BenchmarkData.REFERENCE.atTime(10, 0);
+    location = new Location(debut, debut.plusDays(nombreJours),
+        "parking".equals(lieuDepot) ? new Parking("Parking Centre", "1 rue du Port", "Paris",
+            "75001", 5.0) : new Adresse("1 rue de la Paix", "75002", "Paris"),
+        vehicule, BenchmarkData.loueur());
+  }
+
+  @Benchmark
+  public double getPrixLocation() {
+    return locationService.getPrixLocation(location);
+  }
+}
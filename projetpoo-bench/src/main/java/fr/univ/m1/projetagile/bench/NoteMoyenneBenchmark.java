@@ -0,0 +1,52 @@
+package fr.univ.m1.projetagile.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import fr.univ.m1.projetagile.notes.entity.Critere;
+import fr.univ.m1.projetagile.notes.entity.Note;
+import fr.univ.m1.projetagile.notes.entity.NoteVehicule;
+
+/**
+ * Calcul de la moyenne d'une note portant un grand nombre de critères.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class NoteMoyenneBenchmark {
+
+  @Param({"5", "100", "1000"})
+  public int nombreCriteres;
+
+  private Note note;
+
+  @Setup
+  public void setup() {
+    Random random = new Random(BenchmarkData.GRAINE);
+    List<Critere> criteres = new ArrayList<>(nombreCriteres);
+    for (int i = 0; i < nombreCriteres; i++) {
+      criteres.add(new Critere("Critère " + i, Math.round(random.nextDouble() * 100) / 10.0));
+    }
+    note = new NoteVehicule(BenchmarkData.vehicule(50.0), BenchmarkData.loueur(), criteres);
+  }
+
+  @Benchmark
+  public Double getNoteMoyenne() {
+    return note.getNoteMoyenne();
+  }
+}
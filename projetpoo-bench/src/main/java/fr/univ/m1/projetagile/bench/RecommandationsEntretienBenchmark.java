@@ -0,0 +1,146 @@
+package fr.univ.m1.projetagile.bench;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.Transaction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import fr.univ.m1.projetagile.VerificationLocation.entity.Verification;
+import fr.univ.m1.projetagile.core.DatabaseConnection;
+import fr.univ.m1.projetagile.core.entity.AgentParticulier;
+import fr.univ.m1.projetagile.core.entity.Location;
+import fr.univ.m1.projetagile.core.entity.Loueur;
+import fr.univ.m1.projetagile.core.entity.Vehicule;
+import fr.univ.m1.projetagile.entretienTechnique.entity.EntretienTechnique;
+import fr.univ.m1.projetagile.entretienTechnique.entity.TypeTechnique;
+import fr.univ.m1.projetagile.entretienTechnique.service.EntretienTechniqueService;
+import fr.univ.m1.projetagile.enums.StatutLocation;
+import fr.univ.m1.projetagile.enums.TypeV;
+import jakarta.persistence.EntityManager;
+
+/**
+ * Recommandations d'entretien technique de toute la flotte sur la base H2 embarquée : appel de
+ * {@link EntretienTechniqueService#genererRecommandationsEntretien(Long)} pour chaque véhicule
+ * (quatre requêtes par véhicule), contre le calcul groupé de
+ * {@link EntretienTechniqueService#genererRecommandationsFlotte()}.
+ *
+ * <p>
+ * Chaque véhicule a deux locations vérifiées ; un véhicule sur trois a déjà reçu un entretien. À
+ * 100 000 véhicules, le chemin par véhicule prend plusieurs minutes par opération :
+ * {@code java -jar benchmarks.jar RecommandationsEntretienBenchmark.lotFlotte -p vehicules=100000}
+ * ne mesure que le calcul groupé.
+ * </p>
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Dprojetagile.persistenceUnit=bench")
+@State(Scope.Benchmark)
+public class RecommandationsEntretienBenchmark {
+
+  private static final int VEHICULES_PAR_AGENT = 20;
+
+  /** Nom et kilométrage recommandé des types techniques générés */
+  private static final Object[][] TYPES = {{"Vidange", 15000}, {"Plaquettes de frein", 30000},
+      {"Pneumatiques", 40000}, {"Courroie de distribution", 60000}, {"Bougies", 80000},
+      {"Amortisseurs", 90000}, {"Embrayage", 120000}, {"Révision générale", 100000}};
+
+  @Param({"1000", "100000"})
+  public int vehicules;
+
+  private EntretienTechniqueService service;
+  private List<Long> idsVehicules;
+
+  @Setup
+  public void setup() {
+    SessionFactory sessionFactory =
+        DatabaseConnection.getEntityManagerFactory().unwrap(SessionFactory.class);
+    SplittableRandom random = new SplittableRandom(BenchmarkData.GRAINE);
+    LocalDateTime reference = BenchmarkData.REFERENCE.atStartOfDay();
+
+    try (StatelessSession session = sessionFactory.openStatelessSession()) {
+      Transaction transaction = session.beginTransaction();
+      TypeTechnique[] types = new TypeTechnique[TYPES.length];
+      for (int i = 0; i < TYPES.length; i++) {
+        types[i] = new TypeTechnique((String) TYPES[i][0], (Integer) TYPES[i][1]);
+        session.insert(types[i]);
+      }
+      Loueur loueur = BenchmarkData.loueur();
+      session.insert(loueur);
+
+      AgentParticulier agent = null;
+      for (int i = 0; i < vehicules; i++) {
+        if (i % VEHICULES_PAR_AGENT == 0) {
+          agent = new AgentParticulier("Agent", "Bench", "agent" + i + "@bench.fr", "motdepasse");
+          session.insert(agent);
+        }
+        Vehicule vehicule =
+            new Vehicule(TypeV.voiture, "Renault", "Clio", "bleu", "Paris", 40.0, agent);
+        session.insert(vehicule);
+
+        int kilometrage = random.nextInt(150_000);
+        for (int k = 0; k < 2; k++) {
+          LocalDateTime debut = reference.minusDays(30L * (2 - k));
+          Location location = new Location(debut, debut.plusDays(3), vehicule, loueur);
+          location.setStatut(StatutLocation.TERMINE);
+          session.insert(location);
+          Verification verification = new Verification(location, kilometrage);
+          kilometrage += 500 + random.nextInt(2000);
+          verification.setKilometrageFin(kilometrage);
+          session.insert(verification);
+        }
+        if (i % 3 == 0) {
+          session.insert(new EntretienTechnique(vehicule, types[random.nextInt(types.length)],
+              BenchmarkData.REFERENCE.minusMonths(6)));
+        }
+        if (i % 1000 == 999) {
+          transaction.commit();
+          transaction = session.beginTransaction();
+        }
+      }
+      transaction.commit();
+    }
+
+    service = new EntretienTechniqueService();
+    try (EntityManager em = DatabaseConnection.getEntityManager()) {
+      idsVehicules =
+          em.createQuery("SELECT v.id FROM Vehicule v ORDER BY v.id", Long.class).getResultList();
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    DatabaseConnection.close();
+  }
+
+  @Benchmark
+  public long requetesParVehicule() {
+    long recommandations = 0;
+    for (Long vehiculeId : idsVehicules) {
+      recommandations += service.genererRecommandationsEntretien(vehiculeId).size();
+    }
+    return recommandations;
+  }
+
+  @Benchmark
+  public long lotFlotte() {
+    return service.genererRecommandationsFlotte()
+        .collect(Collectors.summingLong(dto -> dto.getTypesTechniques().size()));
+  }
+}
@@ -0,0 +1,51 @@
+package fr.univ.m1.projetagile.bench;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import fr.univ.m1.projetagile.core.entity.Ville;
+import fr.univ.m1.projetagile.core.service.VilleService;
+
+/**
+ * Recherche des villes dans un rayon donné parmi ~35 000 communes (ordre de grandeur des communes
+ * françaises), générées de manière déterministe.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class VilleAutourBenchmark {
+
+  @Param({"35000"})
+  public int nombreCommunes;
+
+  @Param({"10", "50"})
+  public double rayonKm;
+
+  private VilleService villeService;
+  private String villeDepart;
+
+  @Setup
+  public void setup() {
+    villeService = new VilleService(BenchmarkData.communes(nombreCommunes));
+    // Ville de départ en fin de liste : la recherche par nom parcourt toute la liste
+    villeDepart = "Commune-" + (nombreCommunes - 1);
+  }
+
+  @Benchmark
+  public List<Ville> getVillesAutour() {
+    return villeService.getVillesAutour(villeDepart, rayonKm);
+  }
+}
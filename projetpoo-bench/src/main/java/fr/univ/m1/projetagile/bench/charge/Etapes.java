@@ -0,0 +1,37 @@
+package fr.univ.m1.projetagile.bench.charge;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Chronométrage des étapes (appels de service) d'une exécution de scénario.
+ */
+public class Etapes {
+
+  private final MesuresCharge mesures;
+  private final String scenario;
+
+  Etapes(MesuresCharge mesures, String scenario) {
+    this.mesures = mesures;
+    this.scenario = scenario;
+  }
+
+  /**
+   * Exécute et chronomètre un appel de service.
+   *
+   * @param etape le nom de l'étape, en général "Service.methode"
+   * @param appel l'appel à exécuter
+   * @return le résultat de l'appel
+   * @throws Exception l'exception levée par l'appel, après enregistrement de l'erreur
+   */
+  public <T> T mesurer(String etape, Callable<T> appel) throws Exception {
+    long debut = System.nanoTime();
+    boolean erreur = true;
+    try {
+      T resultat = appel.call();
+      erreur = false;
+      return resultat;
+    } finally {
+      mesures.enregistrerEtape(scenario, etape, System.nanoTime() - debut, erreur);
+    }
+  }
+}
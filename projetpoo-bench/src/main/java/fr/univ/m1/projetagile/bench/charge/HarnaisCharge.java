@@ -0,0 +1,159 @@
+package fr.univ.m1.projetagile.bench.charge;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import fr.univ.m1.projetagile.core.DatabaseConnection;
+import fr.univ.m1.projetagile.core.cache.CacheProfils;
+
+/**
+ * Harnais de charge : rejoue en parallèle les scénarios des user stories contre la base H2
+ * embarquée (unité de persistance "bench") et affiche latences par étape, débit et taux d'erreur.
+ *
+ * <p>
+ * Arguments (tous optionnels) : {@code --utilisateurs N} (utilisateurs simultanés, 16 par défaut),
+ * {@code --iterations M} (exécutions de chaque scénario par utilisateur, 20 par défaut),
+ * {@code --scenarios US.L.2,US.V.1} (sous-ensemble des scénarios). Un argument inconnu, sans
+ * valeur ou non positif arrête le harnais avec un message d'usage. Les utilisateurs tournent sur
+ * des threads virtuels si la JVM les propose (Java 21+), sinon sur un pool de threads de même
+ * taille.
+ * </p>
+ */
+public class HarnaisCharge {
+
+  private static final String USAGE = "Usage : java -cp benchmarks.jar "
+      + HarnaisCharge.class.getName()
+      + " [--utilisateurs N] [--iterations M] [--scenarios US.L.2,US.V.1]";
+
+  public static void main(String[] args) throws Exception {
+    int utilisateurs = 16;
+    int iterations = 20;
+    List<String> filtre = null;
+    try {
+      if (args.length % 2 != 0) {
+        throw new IllegalArgumentException("Argument sans valeur : " + args[args.length - 1]);
+      }
+      for (int i = 0; i < args.length; i += 2) {
+        switch (args[i]) {
+          case "--utilisateurs" -> utilisateurs = entierPositif(args[i], args[i + 1]);
+          case "--iterations" -> iterations = entierPositif(args[i], args[i + 1]);
+          case "--scenarios" -> filtre = Arrays.asList(args[i + 1].split(","));
+          default -> throw new IllegalArgumentException("Argument inconnu : " + args[i]);
+        }
+      }
+    } catch (IllegalArgumentException e) {
+      System.err.println(e.getMessage());
+      System.err.println(USAGE);
+      System.exit(2);
+      return;
+    }
+
+    if (System.getProperty(DatabaseConnection.PERSISTENCE_UNIT_PROPERTY) == null) {
+      System.setProperty(DatabaseConnection.PERSISTENCE_UNIT_PROPERTY, "bench");
+    }
+    DatabaseConnection.init();
+
+    Map<String, Scenario> scenarios = new ScenariosUserStories().getScenarios();
+    List<Map.Entry<String, Scenario>> selection = new ArrayList<>();
+    for (Map.Entry<String, Scenario> entree : scenarios.entrySet()) {
+      if (filtre == null || filtre.contains(entree.getKey())) {
+        selection.add(entree);
+      }
+    }
+    if (selection.isEmpty()) {
+      throw new IllegalArgumentException("Aucun scénario sélectionné parmi " + scenarios.keySet());
+    }
+
+    try {
+      long debut = System.nanoTime();
+      MesuresCharge mesures = executer(selection, utilisateurs, iterations);
+      System.out.println(mesures.genererRapport(System.nanoTime() - debut));
+      System.out.println(CacheProfils.genererRapport());
+    } finally {
+      DatabaseConnection.close();
+    }
+  }
+
+  private static int entierPositif(String argument, String valeur) {
+    try {
+      int entier = Integer.parseInt(valeur);
+      if (entier > 0) {
+        return entier;
+      }
+    } catch (NumberFormatException e) {
+      // Signalé ci-dessous avec le nom de l'argument
+    }
+    throw new IllegalArgumentException(
+        "Valeur invalide pour " + argument + " (entier positif attendu) : " + valeur);
+  }
+
+  /**
+   * Lance {@code utilisateurs} boucles concurrentes ; chacune exécute {@code iterations} fois
+   * chaque scénario sélectionné, dans un ordre décalé d'un utilisateur à l'autre.
+   */
+  private static MesuresCharge executer(List<Map.Entry<String, Scenario>> selection,
+      int utilisateurs, int iterations) throws Exception {
+    MesuresCharge mesures = new MesuresCharge();
+    AtomicLong compteur = new AtomicLong();
+
+    ExecutorService executor = creerExecutor(utilisateurs);
+    try {
+      List<Future<?>> boucles = new ArrayList<>();
+      for (int u = 0; u < utilisateurs; u++) {
+        int decalage = u;
+        boucles.add(executor.submit(() -> {
+          try {
+            for (int i = 0; i < iterations; i++) {
+              for (int s = 0; s < selection.size(); s++) {
+                Map.Entry<String, Scenario> entree =
+                    selection.get((s + decalage) % selection.size());
+                executerScenario(mesures, entree.getKey(), entree.getValue(),
+                    compteur.incrementAndGet());
+              }
+            }
+          } finally {
+            DatabaseConnection.closeEntityManager();
+          }
+        }));
+      }
+      for (Future<?> boucle : boucles) {
+        boucle.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+    return mesures;
+  }
+
+  private static void executerScenario(MesuresCharge mesures, String nom, Scenario scenario,
+      long numero) {
+    long debut = System.nanoTime();
+    boolean erreur = false;
+    try {
+      scenario.executer(new Etapes(mesures, nom), numero);
+    } catch (Exception e) {
+      erreur = true;
+      mesures.enregistrerErreur(nom, e);
+    } finally {
+      mesures.enregistrerScenario(nom, System.nanoTime() - debut, erreur);
+    }
+  }
+
+  /**
+   * Threads virtuels si disponibles (Java 21+), sinon pool fixe d'une taille égale au nombre
+   * d'utilisateurs simultanés.
+   */
+  private static ExecutorService creerExecutor(int utilisateurs) {
+    try {
+      return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor")
+          .invoke(null);
+    } catch (ReflectiveOperationException e) {
+      return Executors.newFixedThreadPool(utilisateurs);
+    }
+  }
+}
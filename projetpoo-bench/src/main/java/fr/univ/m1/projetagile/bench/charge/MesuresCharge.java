@@ -0,0 +1,190 @@
+package fr.univ.m1.projetagile.bench.charge;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collecte thread-safe des latences du harnais de charge, par scénario et par étape (appel de
+ * service), et génération du rapport : percentiles, débit, taux d'erreur, exceptions rencontrées
+ * et étape dominante de chaque scénario.
+ */
+public class MesuresCharge {
+
+  private final Map<String, Map<String, Serie>> etapesParScenario = new ConcurrentHashMap<>();
+  private final Map<String, Serie> scenarios = new ConcurrentHashMap<>();
+  private final Map<String, Map<String, Erreurs>> erreursParScenario = new ConcurrentHashMap<>();
+
+  /**
+   * Enregistre la durée d'une étape.
+   *
+   * @param scenario le nom du scénario
+   * @param etape le nom de l'étape (appel de service)
+   * @param dureeNanos la durée en nanosecondes
+   * @param erreur true si l'appel a levé une exception
+   */
+  public void enregistrerEtape(String scenario, String etape, long dureeNanos, boolean erreur) {
+    etapesParScenario.computeIfAbsent(scenario, s -> new ConcurrentHashMap<>())
+        .computeIfAbsent(etape, e -> new Serie()).ajouter(dureeNanos, erreur);
+  }
+
+  /**
+   * Enregistre la durée d'une exécution complète d'un scénario.
+   *
+   * @param scenario le nom du scénario
+   * @param dureeNanos la durée en nanosecondes
+   * @param erreur true si le scénario a échoué
+   */
+  public void enregistrerScenario(String scenario, long dureeNanos, boolean erreur) {
+    scenarios.computeIfAbsent(scenario, s -> new Serie()).ajouter(dureeNanos, erreur);
+  }
+
+  /**
+   * Compte une exception ayant fait échouer un scénario, par classe ; la première occurrence de
+   * chaque classe est aussi affichée sur la sortie d'erreur, avec sa pile.
+   *
+   * @param scenario le nom du scénario
+   * @param erreur l'exception levée
+   */
+  public void enregistrerErreur(String scenario, Throwable erreur) {
+    Erreurs erreurs = erreursParScenario.computeIfAbsent(scenario, s -> new ConcurrentHashMap<>())
+        .computeIfAbsent(erreur.getClass().getName(), c -> new Erreurs(erreur.getMessage()));
+    if (erreurs.nombre.getAndIncrement() == 0) {
+      System.err.println("Première erreur " + erreur.getClass().getSimpleName()
+          + " dans le scénario " + scenario + " :");
+      erreur.printStackTrace();
+    }
+  }
+
+  /**
+   * Génère le rapport texte.
+   *
+   * @param dureeTotaleNanos la durée murale totale du test (pour le débit)
+   * @return le rapport formaté
+   */
+  public String genererRapport(long dureeTotaleNanos) {
+    double dureeSecondes = dureeTotaleNanos / 1_000_000_000.0;
+    StringBuilder rapport = new StringBuilder();
+    rapport.append(String.format("=== RAPPORT DE CHARGE (%.1f s) ===%n", dureeSecondes));
+
+    for (Map.Entry<String, Serie> entree : new TreeMap<>(scenarios).entrySet()) {
+      String scenario = entree.getKey();
+      Resume total = entree.getValue().resumer();
+      rapport.append(String.format("%n%s : %d exécutions, %.1f/s, erreurs %.1f %%, p50=%.1f ms"
+          + " p95=%.1f ms p99=%.1f ms%n", scenario, total.nombre, total.nombre / dureeSecondes,
+          total.tauxErreur(), total.p50Ms, total.p95Ms, total.p99Ms));
+
+      for (Map.Entry<String, Erreurs> erreur : new TreeMap<>(
+          erreursParScenario.getOrDefault(scenario, Map.of())).entrySet()) {
+        rapport.append(String.format("  ! %s x%d : %s%n", erreur.getKey(),
+            erreur.getValue().nombre.get(), erreur.getValue().premierMessage));
+      }
+
+      Map<String, Serie> etapes = etapesParScenario.getOrDefault(scenario, Map.of());
+      List<Map.Entry<String, Resume>> resumes = new ArrayList<>();
+      for (Map.Entry<String, Serie> etape : etapes.entrySet()) {
+        resumes.add(Map.entry(etape.getKey(), etape.getValue().resumer()));
+      }
+      resumes.sort(Comparator.comparingDouble(
+          (Map.Entry<String, Resume> e) -> e.getValue().totalMs).reversed());
+
+      double totalEtapesMs = resumes.stream().mapToDouble(e -> e.getValue().totalMs).sum();
+      for (Map.Entry<String, Resume> etape : resumes) {
+        Resume r = etape.getValue();
+        rapport.append(String.format("  %-44s n=%-6d p50=%8.2f p95=%8.2f p99=%8.2f max=%8.2f ms"
+            + "  part=%5.1f %%  erreurs=%d%n", etape.getKey(), r.nombre, r.p50Ms, r.p95Ms,
+            r.p99Ms, r.maxMs, totalEtapesMs == 0 ? 0 : 100 * r.totalMs / totalEtapesMs,
+            r.erreurs));
+      }
+      if (!resumes.isEmpty()) {
+        rapport.append("  -> étape dominante : ").append(resumes.get(0).getKey()).append('\n');
+      }
+    }
+    return rapport.toString();
+  }
+
+  // =======================
+
+  /**
+   * Série de durées d'un même point de mesure.
+   */
+  private static final class Serie {
+
+    private long[] durees = new long[256];
+    private int taille;
+    private final AtomicLong erreurs = new AtomicLong();
+
+    private synchronized void ajouter(long dureeNanos, boolean erreur) {
+      if (taille == durees.length) {
+        durees = Arrays.copyOf(durees, taille * 2);
+      }
+      durees[taille++] = dureeNanos;
+      if (erreur) {
+        erreurs.incrementAndGet();
+      }
+    }
+
+    private Resume resumer() {
+      long[] triees;
+      synchronized (this) {
+        triees = Arrays.copyOf(durees, taille);
+      }
+      Arrays.sort(triees);
+      return new Resume(triees, erreurs.get());
+    }
+  }
+
+  /**
+   * Exceptions d'une même classe dans un scénario.
+   */
+  private static final class Erreurs {
+
+    private final String premierMessage;
+    private final AtomicLong nombre = new AtomicLong();
+
+    private Erreurs(String premierMessage) {
+      this.premierMessage = premierMessage;
+    }
+  }
+
+  /**
+   * Résumé statistique (en millisecondes) d'une série.
+   */
+  private static final class Resume {
+
+    private final int nombre;
+    private final long erreurs;
+    private final double p50Ms;
+    private final double p95Ms;
+    private final double p99Ms;
+    private final double maxMs;
+    private final double totalMs;
+
+    private Resume(long[] triees, long erreurs) {
+      this.nombre = triees.length;
+      this.erreurs = erreurs;
+      this.p50Ms = percentile(triees, 0.50);
+      this.p95Ms = percentile(triees, 0.95);
+      this.p99Ms = percentile(triees, 0.99);
+      this.maxMs = triees.length == 0 ? 0 : triees[triees.length - 1] / 1_000_000.0;
+      this.totalMs = Arrays.stream(triees).sum() / 1_000_000.0;
+    }
+
+    private double tauxErreur() {
+      return nombre == 0 ? 0 : 100.0 * erreurs / nombre;
+    }
+
+    private static double percentile(long[] triees, double rang) {
+      if (triees.length == 0) {
+        return 0;
+      }
+      int index = (int) Math.ceil(rang * triees.length) - 1;
+      return triees[Math.max(0, index)] / 1_000_000.0;
+    }
+  }
+}
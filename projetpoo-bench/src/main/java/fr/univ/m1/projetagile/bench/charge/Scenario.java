@@ -0,0 +1,18 @@
+package fr.univ.m1.projetagile.bench.charge;
+
+/**
+ * Scénario rejouable du harnais de charge, dérivé d'une user story de démonstration.
+ */
+@FunctionalInterface
+public interface Scenario {
+
+  /**
+   * Exécute une fois le scénario. Chaque appel de service doit passer par
+   * {@link Etapes#mesurer(String, java.util.concurrent.Callable)} pour être chronométré.
+   *
+   * @param etapes l'enregistreur d'étapes de cette exécution
+   * @param numero numéro unique de l'exécution (sert à générer des données distinctes)
+   * @throws Exception si une étape échoue
+   */
+  void executer(Etapes etapes, long numero) throws Exception;
+}
@@ -0,0 +1,198 @@
+package fr.univ.m1.projetagile.bench.charge;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import fr.univ.m1.projetagile.VerificationLocation.persistence.VerificationRepository;
+import fr.univ.m1.projetagile.VerificationLocation.service.VerificationService;
+import fr.univ.m1.projetagile.commentaire.service.CommentaireService;
+import fr.univ.m1.projetagile.core.DatabaseConnection;
+import fr.univ.m1.projetagile.core.entity.Agent;
+import fr.univ.m1.projetagile.core.entity.Location;
+import fr.univ.m1.projetagile.core.entity.Loueur;
+import fr.univ.m1.projetagile.core.entity.Vehicule;
+import fr.univ.m1.projetagile.core.persistence.AgentRepository;
+import fr.univ.m1.projetagile.core.persistence.LocationRepository;
+import fr.univ.m1.projetagile.core.persistence.LoueurRepository;
+import fr.univ.m1.projetagile.core.persistence.VehiculeRepository;
+import fr.univ.m1.projetagile.core.service.AgentService;
+import fr.univ.m1.projetagile.core.service.LocationService;
+import fr.univ.m1.projetagile.core.service.LoueurService;
+import fr.univ.m1.projetagile.core.service.VehiculeService;
+import fr.univ.m1.projetagile.enums.TypeV;
+import fr.univ.m1.projetagile.messagerie.persistence.MessageRepository;
+import fr.univ.m1.projetagile.messagerie.service.MessagerieService;
+import fr.univ.m1.projetagile.notes.entity.Critere;
+import fr.univ.m1.projetagile.notes.service.NoteService;
+
+/**
+ * Scénarios de charge reprenant les enchaînements des user stories de démonstration
+ * ({@code _demo/UserStories}). Chaque exécution crée ses propres utilisateurs (emails distincts
+ * grâce au numéro d'exécution) afin que les scénarios concurrents ne se gênent pas.
+ */
+public class ScenariosUserStories {
+
+  private static final String[] VILLES = {"Paris", "Lyon", "Marseille", "Toulouse", "Nantes"};
+  private static final String[] MARQUES = {"Renault", "Peugeot", "Citroen", "Toyota"};
+
+  private final VehiculeService vehiculeService = new VehiculeService(new VehiculeRepository());
+  private final AgentService agentService = new AgentService(new AgentRepository());
+  private final LoueurService loueurService = new LoueurService(new LoueurRepository());
+  private final LocationService locationService = new LocationService(new LocationRepository());
+  private final NoteService noteService = new NoteService();
+  private final MessagerieService messagerieService =
+      new MessagerieService(new MessageRepository());
+  private final VerificationService verificationService =
+      new VerificationService(new VerificationRepository(), new LocationRepository());
+
+  /**
+   * @return les scénarios disponibles, indexés par identifiant de user story
+   */
+  public Map<String, Scenario> getScenarios() {
+    Map<String, Scenario> scenarios = new LinkedHashMap<>();
+    scenarios.put("US.A.1", this::publierVehicule);
+    scenarios.put("US.L.2", this::louerVehicule);
+    scenarios.put("US.L.3", this::noterVehiculeEtAgent);
+    scenarios.put("US.L.4", this::contacterAgent);
+    scenarios.put("US.L.6", this::consulterProfilLoueur);
+    scenarios.put("US.L.10", this::enregistrerKilometrage);
+    scenarios.put("US.V.1", this::consulterVehicules);
+    scenarios.put("US.V.2", this::filtrerVehicules);
+    scenarios.put("US.V.3", this::consulterProfilAgent);
+    scenarios.put("PROFIL", this::consulterProfilCommente);
+    return Collections.unmodifiableMap(scenarios);
+  }
+
+  // ==================== SCÉNARIOS ====================
+
+  /** US.A.1 : ajout puis modification d'un véhicule */
+  private void publierVehicule(Etapes etapes, long numero) throws Exception {
+    Agent agent = creerAgent(etapes, numero);
+    Vehicule vehicule = creerVehiculeDisponible(etapes, agent, numero);
+    etapes.mesurer("VehiculeService.updateVehiculePrixJ",
+        () -> vehiculeService.updateVehiculePrixJ(agent, vehicule.getId(), 55.0));
+  }
+
+  /** US.L.2 : location d'un véhicule et calcul de son prix */
+  private void louerVehicule(Etapes etapes, long numero) throws Exception {
+    Location location = creerLocation(etapes, numero);
+    etapes.mesurer("LocationService.getPrixLocation",
+        () -> locationService.getPrixLocation(location));
+  }
+
+  /** US.L.3 : notation d'un véhicule loué et de son agent */
+  private void noterVehiculeEtAgent(Etapes etapes, long numero) throws Exception {
+    Location location = creerLocation(etapes, numero);
+    etapes.mesurer("NoteService.noterVehicule",
+        () -> noteService.noterVehicule(location.getLoueur(), location.getVehicule(),
+            Arrays.asList(new Critere("Propreté", 8.0), new Critere("Confort", 7.5))));
+    etapes.mesurer("NoteService.noterAgent",
+        () -> noteService.noterAgent(location.getLoueur(),
+            location.getVehicule().getProprietaire(),
+            Arrays.asList(new Critere("Professionnalisme", 9.0))));
+    etapes.mesurer("NoteService.getMoyenneVehicule",
+        () -> noteService.getMoyenneVehicule(location.getVehicule()));
+  }
+
+  /** US.L.4 : message d'un loueur à un agent puis lecture de la messagerie */
+  private void contacterAgent(Etapes etapes, long numero) throws Exception {
+    Agent agent = creerAgent(etapes, numero);
+    Loueur loueur = creerLoueur(etapes, numero);
+    etapes.mesurer("MessagerieService.envoyerMessage", () -> messagerieService
+        .envoyerMessage(loueur, agent, "Bonjour, votre véhicule est-il disponible ?"));
+    etapes.mesurer("MessagerieService.getMessagesUtilisateur",
+        () -> messagerieService.getMessagesUtilisateur(agent));
+  }
+
+  /** US.L.6 : consultation du profil d'un loueur ayant une location */
+  private void consulterProfilLoueur(Etapes etapes, long numero) throws Exception {
+    Location location = creerLocation(etapes, numero);
+    etapes.mesurer("LoueurService.getLoueurProfile",
+        () -> loueurService.getLoueurProfile(location.getLoueur()));
+  }
+
+  /** US.L.10 : kilométrage au départ puis fin de location avec photo */
+  private void enregistrerKilometrage(Etapes etapes, long numero) throws Exception {
+    Location location = creerLocation(etapes, numero);
+    etapes.mesurer("VerificationService.creerVerification",
+        () -> verificationService.creerVerification(location.getId(), 1560));
+    etapes.mesurer("LocationService.terminer", () -> {
+      locationService.terminer(location, 1800,
+          new ByteArrayInputStream("photo_tableau_bord.jpg".getBytes(StandardCharsets.UTF_8)));
+      return null;
+    });
+  }
+
+  /** US.V.1 : consultation de tous les véhicules */
+  private void consulterVehicules(Etapes etapes, long numero) throws Exception {
+    etapes.mesurer("VehiculeService.getVehicules", vehiculeService::getVehicules);
+  }
+
+  /** US.V.2 : recherche filtrée de véhicules */
+  private void filtrerVehicules(Etapes etapes, long numero) throws Exception {
+    LocalDate debut = LocalDate.now().plusDays(5);
+    etapes.mesurer("VehiculeService.searchVehiculesWithFilters",
+        () -> vehiculeService.searchVehiculesWithFilters(debut, debut.plusDays(3),
+            VILLES[(int) (numero % VILLES.length)], null, null, null, null, 80.0, TypeV.voiture,
+            null));
+  }
+
+  /** US.V.3 : consultation du profil d'un agent et de ses véhicules */
+  private void consulterProfilAgent(Etapes etapes, long numero) throws Exception {
+    Agent agent = creerAgent(etapes, numero);
+    creerVehiculeDisponible(etapes, agent, numero);
+    etapes.mesurer("AgentService.getAgentProfile", () -> agentService.getAgentProfile(agent));
+  }
+
+  /** Profil public d'un agent commenté par un loueur (UtilisateurService.getProfil) */
+  private void consulterProfilCommente(Etapes etapes, long numero) throws Exception {
+    Agent agent = creerAgent(etapes, numero);
+    creerVehiculeDisponible(etapes, agent, numero);
+    Loueur loueur = creerLoueur(etapes, numero);
+    etapes.mesurer("CommentaireService.posterCommentaire",
+        () -> new CommentaireService(DatabaseConnection.getEntityManager())
+            .posterCommentaire(loueur, agent, "Très bon contact", 4));
+    etapes.mesurer("AgentService.getProfil",
+        () -> agentService.getProfil(agent, DatabaseConnection.getEntityManager()));
+  }
+
+  // ==================== DONNÉES ====================
+
+  private Agent creerAgent(Etapes etapes, long numero) throws Exception {
+    return etapes.mesurer("AgentService.createAgentParticulier",
+        () -> agentService.createAgentParticulier("Agent" + numero, "Jean",
+            "agent" + numero + "@charge.fr", "motdepasse123"));
+  }
+
+  private Loueur creerLoueur(Etapes etapes, long numero) throws Exception {
+    return etapes.mesurer("LoueurService.createLoueur", () -> loueurService
+        .createLoueur("Loueur" + numero, "Sophie", "loueur" + numero + "@charge.fr",
+            "motdepasse123"));
+  }
+
+  private Vehicule creerVehiculeDisponible(Etapes etapes, Agent agent, long numero)
+      throws Exception {
+    Vehicule vehicule = etapes.mesurer("VehiculeService.createVehicule",
+        () -> vehiculeService.createVehicule(TypeV.voiture,
+            MARQUES[(int) (numero % MARQUES.length)], "Modele" + (numero % 20), "bleu",
+            VILLES[(int) (numero % VILLES.length)], 30.0 + numero % 50, agent));
+    etapes.mesurer("VehiculeService.createDisponibilite",
+        () -> vehiculeService.createDisponibilite(agent, vehicule.getId(), LocalDate.now(),
+            LocalDate.now().plusDays(60)));
+    return vehicule;
+  }
+
+  private Location creerLocation(Etapes etapes, long numero) throws Exception {
+    Agent agent = creerAgent(etapes, numero);
+    Loueur loueur = creerLoueur(etapes, numero);
+    Vehicule vehicule = creerVehiculeDisponible(etapes, agent, numero);
+    LocalDateTime debut = LocalDate.now().plusDays(5).atStartOfDay();
+    return etapes.mesurer("LocationService.creerLocation",
+        () -> locationService.creerLocation(debut, debut.plusDays(5), vehicule, loueur));
+  }
+}
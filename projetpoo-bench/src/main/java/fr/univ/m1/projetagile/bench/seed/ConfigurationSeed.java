@@ -0,0 +1,123 @@
+package fr.univ.m1.projetagile.bench.seed;
+
+import java.time.LocalDate;
+
+/**
+ * Paramètres du générateur de données. Les valeurs par défaut produisent quelques centaines de
+ * milliers de lignes ; multiplier les volumes (ou utiliser {@code --echelle}) pour atteindre
+ * plusieurs millions.
+ */
+public class ConfigurationSeed {
+
+  /** Date de référence par défaut, fixe pour que les données ne dépendent pas du jour du lancement */
+  static final LocalDate DATE_REFERENCE_DEFAUT = LocalDate.of(2026, 1, 1);
+
+  /** Graine : deux exécutions avec la même graine et la même date produisent les mêmes données */
+  long graine = 42L;
+
+  /**
+   * Date de référence ("aujourd'hui" pour les données générées) ; {@code --date-reference} la
+   * remplace, par exemple par la date du jour pour des locations à venir
+   */
+  LocalDate dateReference = DATE_REFERENCE_DEFAUT;
+
+  int agentsParticuliers = 2_000;
+  int agentsProfessionnels = 500;
+  int loueurs = 20_000;
+
+  /** Nombre moyen de véhicules par agent (les professionnels en ont cinq fois plus) */
+  int vehiculesParAgent = 2;
+
+  /** Nombre moyen de fenêtres de disponibilité par véhicule */
+  int disponibilitesParVehicule = 8;
+
+  /** Profondeur de l'historique des locations, en années */
+  int anneesHistorique = 3;
+
+  /** Proportion des locations terminées qui reçoivent une note véhicule et une note agent */
+  double tauxNotation = 0.35;
+
+  int filsMessages = 10_000;
+  int messagesParFil = 6;
+
+  /** Nombre de chaînes de parrainage et longueur de chaque chaîne */
+  int chainesParrainage = 1_000;
+  int longueurChaine = 4;
+
+  int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+  /** Nombre d'éléments traités par transaction */
+  int tailleLot = 500;
+
+  /**
+   * Construit la configuration à partir des arguments de la ligne de commande
+   * ({@code --graine 7 --loueurs 100000 --echelle 10 ...}).
+   *
+   * @param args les arguments
+   * @return la configuration
+   * @throws IllegalArgumentException si un argument est inconnu ou invalide
+   */
+  public static ConfigurationSeed depuisArguments(String[] args) {
+    ConfigurationSeed config = new ConfigurationSeed();
+    for (int i = 0; i + 1 < args.length; i += 2) {
+      String valeur = args[i + 1];
+      switch (args[i]) {
+        case "--graine" -> config.graine = Long.parseLong(valeur);
+        case "--date-reference" -> config.dateReference = LocalDate.parse(valeur);
+        case "--agents-particuliers" -> config.agentsParticuliers = Integer.parseInt(valeur);
+        case "--agents-professionnels" -> config.agentsProfessionnels = Integer.parseInt(valeur);
+        case "--loueurs" -> config.loueurs = Integer.parseInt(valeur);
+        case "--vehicules-par-agent" -> config.vehiculesParAgent = Integer.parseInt(valeur);
+        case "--disponibilites-par-vehicule" -> config.disponibilitesParVehicule =
+            Integer.parseInt(valeur);
+        case "--annees-historique" -> config.anneesHistorique = Integer.parseInt(valeur);
+        case "--taux-notation" -> config.tauxNotation = Double.parseDouble(valeur);
+        case "--fils-messages" -> config.filsMessages = Integer.parseInt(valeur);
+        case "--messages-par-fil" -> config.messagesParFil = Integer.parseInt(valeur);
+        case "--chaines-parrainage" -> config.chainesParrainage = Integer.parseInt(valeur);
+        case "--longueur-chaine" -> config.longueurChaine = Integer.parseInt(valeur);
+        case "--threads" -> config.threads = Integer.parseInt(valeur);
+        case "--taille-lot" -> config.tailleLot = Integer.parseInt(valeur);
+        case "--echelle" -> config.multiplier(Integer.parseInt(valeur));
+        default -> throw new IllegalArgumentException("Argument inconnu : " + args[i]);
+      }
+    }
+    config.valider();
+    return config;
+  }
+
+  private void multiplier(int facteur) {
+    agentsParticuliers *= facteur;
+    agentsProfessionnels *= facteur;
+    loueurs *= facteur;
+    filsMessages *= facteur;
+    chainesParrainage *= facteur;
+  }
+
+  private void valider() {
+    if (agentsParticuliers + agentsProfessionnels <= 0 || loueurs <= 0) {
+      throw new IllegalArgumentException("Il faut au moins un agent et un loueur.");
+    }
+    if (threads <= 0 || tailleLot <= 0) {
+      throw new IllegalArgumentException("Le nombre de threads et la taille des lots doivent "
+          + "être strictement positifs.");
+    }
+    if (longueurChaine < 2) {
+      throw new IllegalArgumentException("Une chaîne de parrainage compte au moins 2 maillons.");
+    }
+    if (tauxNotation < 0 || tauxNotation > 1) {
+      throw new IllegalArgumentException("Le taux de notation doit être compris entre 0 et 1.");
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "ConfigurationSeed{graine=" + graine + ", dateReference=" + dateReference
+        + ", agentsParticuliers=" + agentsParticuliers + ", agentsProfessionnels="
+        + agentsProfessionnels + ", loueurs=" + loueurs + ", vehiculesParAgent="
+        + vehiculesParAgent + ", disponibilitesParVehicule=" + disponibilitesParVehicule
+        + ", anneesHistorique=" + anneesHistorique + ", filsMessages=" + filsMessages
+        + ", chainesParrainage=" + chainesParrainage + ", threads=" + threads + ", tailleLot="
+        + tailleLot + "}";
+  }
+}
@@ -0,0 +1,492 @@
+package fr.univ.m1.projetagile.bench.seed;
+
+import java.sql.PreparedStatement;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.Transaction;
+import fr.univ.m1.projetagile.core.DatabaseConnection;
+import fr.univ.m1.projetagile.core.entity.Agent;
+import fr.univ.m1.projetagile.core.entity.AgentParticulier;
+import fr.univ.m1.projetagile.core.entity.AgentProfessionnel;
+import fr.univ.m1.projetagile.core.entity.Disponibilite;
+import fr.univ.m1.projetagile.core.entity.Location;
+import fr.univ.m1.projetagile.core.entity.Loueur;
+import fr.univ.m1.projetagile.core.entity.Utilisateur;
+import fr.univ.m1.projetagile.core.entity.Vehicule;
+import fr.univ.m1.projetagile.enums.StatutLocation;
+import fr.univ.m1.projetagile.enums.TypeV;
+import fr.univ.m1.projetagile.messagerie.entity.Message;
+import fr.univ.m1.projetagile.notes.entity.Critere;
+import fr.univ.m1.projetagile.notes.entity.Note;
+import fr.univ.m1.projetagile.notes.entity.NoteAgent;
+import fr.univ.m1.projetagile.notes.entity.NoteVehicule;
+import fr.univ.m1.projetagile.parrainage.entity.Crédit;
+import fr.univ.m1.projetagile.parrainage.entity.Parrainage;
+
+/**
+ * Générateur de jeux de données volumineux et reproductibles : agents particuliers et
+ * professionnels, véhicules répartis dans de vraies villes, disponibilités fragmentées, plusieurs
+ * années de locations dans tous les statuts, notes avec critères, fils de messages, chaînes de
+ * parrainage et crédits.
+ *
+ * <p>
+ * Les insertions passent par des {@link StatelessSession} (pas de contexte de persistance), en
+ * parallèle sur plusieurs threads, une transaction par lot. Chaque élément est tiré d'un générateur
+ * aléatoire dérivé de la graine et de son index : le contenu ne dépend donc pas de l'ordonnancement
+ * des threads (seuls les identifiants techniques peuvent différer d'une exécution à l'autre).
+ * </p>
+ *
+ * <p>
+ * Usage : {@code java -cp benchmarks.jar fr.univ.m1.projetagile.bench.seed.GenerateurDonnees
+ * --graine 42 --echelle 10}. L'unité de persistance se choisit avec
+ * {@code -Dprojetagile.persistenceUnit} ("default" par défaut). L'unité "bench" est une base H2 en
+ * mémoire recréée à chaque lancement : les données générées y disparaissent avec le processus, elle
+ * ne sert qu'aux benchmarks qui appellent le générateur eux-mêmes.
+ * </p>
+ */
+public class GenerateurDonnees {
+
+  /** Villes classées par population décroissante (les premières sont tirées plus souvent) */
+  private static final String[] VILLES = {"Paris", "Marseille", "Lyon", "Toulouse", "Nice",
+      "Nantes", "Montpellier", "Strasbourg", "Bordeaux", "Lille", "Rennes", "Reims", "Toulon",
+      "Saint-Étienne", "Le Havre", "Grenoble", "Dijon", "Angers", "Nîmes", "Villeurbanne",
+      "Clermont-Ferrand", "Le Mans", "Aix-en-Provence", "Brest", "Tours", "Amiens", "Limoges",
+      "Annecy", "Perpignan", "Metz", "Besançon", "Orléans", "Rouen", "Mulhouse", "Caen", "Nancy",
+      "Avignon", "Poitiers", "La Rochelle", "Pau"};
+
+  private static final String[][] MODELES = {{"Renault", "Clio"}, {"Renault", "Mégane"},
+      {"Renault", "Captur"}, {"Peugeot", "208"}, {"Peugeot", "308"}, {"Peugeot", "3008"},
+      {"Citroën", "C3"}, {"Citroën", "C4"}, {"Dacia", "Sandero"}, {"Dacia", "Duster"},
+      {"Toyota", "Yaris"}, {"Volkswagen", "Golf"}, {"Tesla", "Model 3"}, {"Fiat", "500"}};
+  private static final String[][] MODELES_CAMION =
+      {{"Renault", "Master"}, {"Peugeot", "Boxer"}, {"Ford", "Transit"}};
+  private static final String[][] MODELES_MOTO =
+      {{"Yamaha", "MT-07"}, {"Honda", "CB500"}, {"Kawasaki", "Z650"}};
+  private static final String[] COULEURS =
+      {"blanc", "noir", "gris", "bleu", "rouge", "vert", "jaune"};
+  private static final String[] NOMS = {"Martin", "Bernard", "Dubois", "Thomas", "Robert",
+      "Richard", "Petit", "Durand", "Leroy", "Moreau", "Simon", "Laurent", "Lefebvre", "Michel",
+      "Garcia", "David", "Bertrand", "Roux", "Vincent", "Fournier"};
+  private static final String[] PRENOMS = {"Jean", "Marie", "Pierre", "Sophie", "Lucas", "Emma",
+      "Louis", "Chloé", "Hugo", "Léa", "Paul", "Camille", "Jules", "Manon", "Nathan", "Inès"};
+  private static final String[] CRITERES_VEHICULE = {"Propreté", "Confort", "Fiabilité"};
+  private static final String[] CRITERES_AGENT = {"Communication", "Ponctualité"};
+  private static final String[] PHRASES = {"Bonjour, le véhicule est-il disponible ?",
+      "Oui, il est disponible aux dates indiquées.", "Parfait, je réserve.",
+      "Où dois-je récupérer les clés ?", "Devant l'agence, à partir de 9h.",
+      "Merci, à bientôt !", "Le plein est-il inclus ?", "Non, il faut le rendre plein."};
+
+  /** Écart moyen (en jours) entre deux locations d'un même véhicule */
+  private static final int ECART_MOYEN_JOURS = 10;
+
+  private static final String INSERT_NOTE_CRITERE =
+      "INSERT INTO note_criteres (note_id, critere_id) VALUES (?, ?)";
+
+  private final ConfigurationSeed config;
+  private final SessionFactory sessionFactory;
+  private final Map<String, LongAdder> lignes = new ConcurrentHashMap<>();
+
+  private ExecutorService executor;
+  private long[] idsAgents;
+  private long[] idsLoueurs;
+  private long[] idsVehicules;
+  private int[] agentDuVehicule;
+
+  public GenerateurDonnees(ConfigurationSeed config, SessionFactory sessionFactory) {
+    this.config = config;
+    this.sessionFactory = sessionFactory;
+  }
+
+  public static void main(String[] args) throws Exception {
+    ConfigurationSeed config = ConfigurationSeed.depuisArguments(args);
+    System.out.println(config);
+    try {
+      SessionFactory sessionFactory =
+          DatabaseConnection.getEntityManagerFactory().unwrap(SessionFactory.class);
+      new GenerateurDonnees(config, sessionFactory).generer();
+    } finally {
+      DatabaseConnection.close();
+    }
+  }
+
+  /**
+   * Génère l'ensemble du jeu de données, phase par phase (chaque phase dépend des identifiants
+   * produits par les précédentes).
+   *
+   * @throws Exception si une insertion échoue
+   */
+  public void generer() throws Exception {
+    long debut = System.nanoTime();
+    executor = Executors.newFixedThreadPool(config.threads);
+    try {
+      int nombreAgents = config.agentsParticuliers + config.agentsProfessionnels;
+      idsAgents = new long[nombreAgents];
+      enParallele("agents", nombreAgents, this::insererAgents);
+
+      idsLoueurs = new long[config.loueurs];
+      enParallele("loueurs", config.loueurs, this::insererLoueurs);
+
+      repartirVehicules();
+      enParallele("vehicules", idsVehicules.length, this::insererVehicules);
+      enParallele("calendriers", idsVehicules.length, this::insererCalendriers);
+      enParallele("messages", config.filsMessages, this::insererFilsMessages);
+      enParallele("parrainages", nombreChaines(), this::insererChainesParrainage);
+    } finally {
+      executor.shutdown();
+    }
+
+    long total = 0;
+    System.out.println("=== LIGNES GÉNÉRÉES ===");
+    for (Map.Entry<String, LongAdder> entree : new TreeMap<>(lignes).entrySet()) {
+      System.out.printf("  %-16s %,12d%n", entree.getKey(), entree.getValue().sum());
+      total += entree.getValue().sum();
+    }
+    double secondes = (System.nanoTime() - debut) / 1_000_000_000.0;
+    System.out.printf("Total : %,d lignes en %.1f s (%,.0f lignes/s)%n", total, secondes,
+        total / secondes);
+  }
+
+  // ==================== PHASES ====================
+
+  private void insererAgents(StatelessSession session, int de, int a) {
+    for (int i = de; i < a; i++) {
+      SplittableRandom r = aleatoire(1, i);
+      String nom = choisir(r, NOMS);
+      String prenom = choisir(r, PRENOMS);
+      Agent agent;
+      if (i < config.agentsParticuliers) {
+        agent = new AgentParticulier(nom, prenom, "agent" + i + "@seed.fr", "motdepasse");
+      } else {
+        AgentProfessionnel pro = new AgentProfessionnel("agent" + i + "@seed.fr", "motdepasse",
+            String.format("%014d", r.nextLong(100_000_000_000_000L)), nom + " Location");
+        pro.setAdresse(r.nextInt(1, 200) + " avenue de la République, " + choisirVille(r));
+        agent = pro;
+      }
+      agent.setNomCommercial(nom + " " + prenom);
+      if (r.nextInt(4) == 0) {
+        agent.setBio("Loue ses véhicules depuis " + (2010 + r.nextInt(15)));
+      }
+      session.insert(agent);
+      idsAgents[i] = agent.getIdU();
+      compter("agents", 1);
+    }
+  }
+
+  private void insererLoueurs(StatelessSession session, int de, int a) {
+    for (int i = de; i < a; i++) {
+      SplittableRandom r = aleatoire(2, i);
+      Loueur loueur = new Loueur(choisir(r, NOMS), choisir(r, PRENOMS), "loueur" + i + "@seed.fr",
+          "motdepasse");
+      loueur.setAdresse(r.nextInt(1, 200) + " rue Victor Hugo, " + choisirVille(r));
+      session.insert(loueur);
+      idsLoueurs[i] = loueur.getIdU();
+      compter("loueurs", 1);
+    }
+  }
+
+  /**
+   * Tire (séquentiellement, pour rester déterministe) le nombre de véhicules de chaque agent : les
+   * professionnels ont une flotte cinq fois plus grande en moyenne.
+   */
+  private void repartirVehicules() {
+    int[] parAgent = new int[idsAgents.length];
+    int total = 0;
+    for (int i = 0; i < idsAgents.length; i++) {
+      SplittableRandom r = aleatoire(3, i);
+      int moyenne = config.vehiculesParAgent * (i < config.agentsParticuliers ? 1 : 5);
+      parAgent[i] = moyenne <= 0 ? 0 : r.nextInt(1, 2 * moyenne);
+      total += parAgent[i];
+    }
+    idsVehicules = new long[total];
+    agentDuVehicule = new int[total];
+    int j = 0;
+    for (int i = 0; i < parAgent.length; i++) {
+      for (int k = 0; k < parAgent[i]; k++) {
+        agentDuVehicule[j++] = i;
+      }
+    }
+  }
+
+  private void insererVehicules(StatelessSession session, int de, int a) {
+    for (int j = de; j < a; j++) {
+      SplittableRandom r = aleatoire(4, j);
+      int tirage = r.nextInt(20);
+      TypeV type = tirage < 16 ? TypeV.voiture : tirage < 18 ? TypeV.camion : TypeV.moto;
+      String[] modele = choisir(r,
+          type == TypeV.voiture ? MODELES : type == TypeV.camion ? MODELES_CAMION : MODELES_MOTO);
+      double prix = Math.round((type == TypeV.camion ? 60 : 25) + r.nextDouble() * 70);
+
+      Vehicule vehicule = new Vehicule(type, modele[0], modele[1], choisir(r, COULEURS),
+          choisirVille(r), prix, agent(agentDuVehicule[j]));
+      vehicule.setDisponible(r.nextInt(20) != 0);
+      session.insert(vehicule);
+      idsVehicules[j] = vehicule.getId();
+      compter("vehicules", 1);
+    }
+  }
+
+  /**
+   * Pour chaque véhicule : fenêtres de disponibilité fragmentées autour de la date de référence,
+   * historique de locations sur plusieurs années (tous statuts) et notes des locations terminées.
+   * Les liens note/critère sont insérés en un seul batch JDBC par lot.
+   */
+  private void insererCalendriers(StatelessSession session, int de, int a) {
+    List<long[]> liensCriteres = new ArrayList<>();
+    LocalDate reference = config.dateReference;
+
+    for (int j = de; j < a; j++) {
+      SplittableRandom r = aleatoire(5, j);
+      Vehicule vehicule = vehicule(j);
+      Agent proprietaire = agent(agentDuVehicule[j]);
+
+      // Disponibilités : fenêtres de 3 à 20 jours séparées de 1 à 10 jours
+      int nombreDispos = config.disponibilitesParVehicule <= 0 ? 0
+          : r.nextInt(Math.max(1, config.disponibilitesParVehicule / 2),
+              config.disponibilitesParVehicule * 3 / 2 + 1);
+      LocalDate curseurDispo = reference.minusDays(r.nextInt(30));
+      for (int k = 0; k < nombreDispos; k++) {
+        LocalDate fin = curseurDispo.plusDays(r.nextInt(2, 20));
+        session.insert(new Disponibilite(vehicule, curseurDispo, fin));
+        curseurDispo = fin.plusDays(r.nextInt(2, 11));
+      }
+      compter("disponibilites", nombreDispos);
+
+      // Locations : de (référence - historique) à (référence + 60 jours)
+      LocalDate curseur = reference.minusYears(config.anneesHistorique)
+          .plusDays(r.nextInt(ECART_MOYEN_JOURS));
+      LocalDate limite = reference.plusDays(60);
+      int nombreLocations = 0;
+      while (curseur.isBefore(limite)) {
+        int duree = r.nextInt(10) == 0 ? r.nextInt(7, 31) : r.nextInt(1, 8);
+        LocalDateTime debut = curseur.atTime(8 + r.nextInt(4), 0);
+        LocalDateTime fin = curseur.plusDays(duree).atTime(18, 0);
+        int loueurIndex = r.nextInt(idsLoueurs.length);
+
+        Location location = new Location(debut, fin, vehicule, loueur(loueurIndex));
+        location.setStatut(statut(r, curseur, curseur.plusDays(duree), reference));
+        location.setDateCreation(debut.minusDays(r.nextInt(1, 30)));
+        session.insert(location);
+        nombreLocations++;
+
+        if (location.getStatut() == StatutLocation.TERMINE
+            && r.nextDouble() < config.tauxNotation) {
+          LocalDate dateNote = curseur.plusDays(duree + 1L);
+          insererNote(session, new NoteVehicule(vehicule, loueur(loueurIndex), List.of()),
+              CRITERES_VEHICULE, dateNote, r, liensCriteres);
+          insererNote(session, new NoteAgent(proprietaire, loueur(loueurIndex), List.of()),
+              CRITERES_AGENT, dateNote, r, liensCriteres);
+        }
+        curseur = curseur.plusDays(duree + 1L + r.nextInt(2 * ECART_MOYEN_JOURS));
+      }
+      compter("locations", nombreLocations);
+    }
+
+    insererLiensCriteres(session, liensCriteres);
+  }
+
+  private void insererNote(StatelessSession session, Note note, String[] criteres, LocalDate date,
+      SplittableRandom r, List<long[]> liensCriteres) {
+    note.setDate(date);
+    session.insert(note);
+    compter("notes", 1);
+    for (String nom : criteres) {
+      // Notes sur 10, biaisées vers le haut, au demi-point
+      Critere critere = new Critere(nom, Math.min(10.0, 4.0 + r.nextInt(13) * 0.5));
+      session.insert(critere);
+      liensCriteres.add(new long[] {note.getId(), critere.getId()});
+    }
+    compter("criteres", criteres.length);
+  }
+
+  private void insererLiensCriteres(StatelessSession session, List<long[]> liens) {
+    if (liens.isEmpty()) {
+      return;
+    }
+    // Table de jointure (pas d'entité) : un batch JDBC unique pour tout le lot
+    session.doWork(connection -> {
+      try (PreparedStatement statement = connection.prepareStatement(INSERT_NOTE_CRITERE)) {
+        for (long[] lien : liens) {
+          statement.setLong(1, lien[0]);
+          statement.setLong(2, lien[1]);
+          statement.addBatch();
+        }
+        statement.executeBatch();
+      }
+    });
+    compter("note_criteres", liens.size());
+  }
+
+  private void insererFilsMessages(StatelessSession session, int de, int a) {
+    for (int f = de; f < a; f++) {
+      SplittableRandom r = aleatoire(6, f);
+      Utilisateur loueur = loueur(r.nextInt(idsLoueurs.length));
+      Utilisateur agent = agent(r.nextInt(idsAgents.length));
+      LocalDateTime date = config.dateReference
+          .minusDays(r.nextInt(365 * config.anneesHistorique + 1))
+          .atTime(8 + r.nextInt(12), r.nextInt(60));
+
+      int nombre = r.nextInt(1, 2 * config.messagesParFil);
+      for (int m = 0; m < nombre; m++) {
+        boolean duLoueur = m % 2 == 0;
+        Message message = new Message(PHRASES[(m + r.nextInt(2)) % PHRASES.length],
+            duLoueur ? loueur : agent, duLoueur ? agent : loueur);
+        message.setDateEnvoi(date);
+        session.insert(message);
+        date = date.plusMinutes(r.nextInt(5, 600));
+      }
+      compter("messages", nombre);
+    }
+  }
+
+  /**
+   * Nombre de chaînes effectivement générées : chaque utilisateur appartient à au plus une chaîne
+   * (un seul crédit par utilisateur).
+   */
+  private int nombreChaines() {
+    int maximum =
+        idsAgents.length / config.longueurChaine + idsLoueurs.length / config.longueurChaine;
+    return Math.min(config.chainesParrainage, maximum);
+  }
+
+  /**
+   * Chaîne c : maillons consécutifs pris chez les agents (premières chaînes) puis chez les loueurs.
+   * Chaque parrain de la chaîne reçoit un crédit.
+   */
+  private void insererChainesParrainage(StatelessSession session, int de, int a) {
+    int chainesAgents = idsAgents.length / config.longueurChaine;
+    for (int c = de; c < a; c++) {
+      SplittableRandom r = aleatoire(7, c);
+      boolean chaineAgents = c < chainesAgents;
+      int premier = (chaineAgents ? c : c - chainesAgents) * config.longueurChaine;
+
+      Utilisateur precedent = null;
+      for (int k = 0; k < config.longueurChaine; k++) {
+        Utilisateur maillon = chaineAgents ? agent(premier + k) : loueur(premier + k);
+        if (precedent != null) {
+          Parrainage parrainage = new Parrainage(precedent, maillon);
+          if (r.nextInt(10) < 6) {
+            parrainage.activer();
+          }
+          session.insert(parrainage);
+          session.insert(new Crédit(precedent, 5.0 * r.nextInt(0, 11)));
+          compter("parrainages", 1);
+          compter("credits", 1);
+        }
+        precedent = maillon;
+      }
+    }
+  }
+
+  // ==================== OUTILS ====================
+
+  @FunctionalInterface
+  private interface TraitementLot {
+    void traiter(StatelessSession session, int de, int a);
+  }
+
+  /**
+   * Découpe [0, nombre) en lots de {@code tailleLot} traités en parallèle, chacun dans sa propre
+   * session sans état et sa propre transaction.
+   */
+  private void enParallele(String phase, int nombre, TraitementLot traitement) throws Exception {
+    long debut = System.nanoTime();
+    List<Future<?>> lots = new ArrayList<>();
+    for (int debutLot = 0; debutLot < nombre; debutLot += config.tailleLot) {
+      int de = debutLot;
+      int a = Math.min(nombre, debutLot + config.tailleLot);
+      lots.add(executor.submit(() -> {
+        executerLot(traitement, de, a);
+        return null;
+      }));
+    }
+    for (Future<?> lot : lots) {
+      lot.get();
+    }
+    System.out.printf("Phase %-12s %,10d éléments en %6.1f s%n", phase, nombre,
+        (System.nanoTime() - debut) / 1_000_000_000.0);
+  }
+
+  private void executerLot(TraitementLot traitement, int de, int a) {
+    try (StatelessSession session = sessionFactory.openStatelessSession()) {
+      Transaction transaction = session.beginTransaction();
+      try {
+        traitement.traiter(session, de, a);
+        transaction.commit();
+      } catch (RuntimeException e) {
+        if (transaction.isActive()) {
+          transaction.rollback();
+        }
+        throw e;
+      }
+    }
+  }
+
+  /**
+   * Générateur aléatoire propre à un élément : ne dépend que de la graine, de la phase et de
+   * l'index.
+   */
+  private SplittableRandom aleatoire(int phase, long index) {
+    return new SplittableRandom(config.graine * 0x9E3779B97F4A7C15L + phase * 1_000_003L + index);
+  }
+
+  private static <T> T choisir(SplittableRandom r, T[] valeurs) {
+    return valeurs[r.nextInt(valeurs.length)];
+  }
+
+  /** Tirage biaisé vers les grandes villes (début du tableau) */
+  private static String choisirVille(SplittableRandom r) {
+    double u = r.nextDouble();
+    return VILLES[(int) (u * u * VILLES.length)];
+  }
+
+  private static StatutLocation statut(SplittableRandom r, LocalDate debut, LocalDate fin,
+      LocalDate reference) {
+    int tirage = r.nextInt(100);
+    if (fin.isBefore(reference)) {
+      return tirage < 90 ? StatutLocation.TERMINE : StatutLocation.ANNULE;
+    }
+    if (debut.isAfter(reference)) {
+      return tirage < 60 ? StatutLocation.ACCEPTE
+          : tirage < 85 ? StatutLocation.EN_ATTENTE_D_ACCEPTATION_PAR_L_AGENT
+              : StatutLocation.ANNULE;
+    }
+    return StatutLocation.ACCEPTE;
+  }
+
+  // Références détachées : seul l'identifiant est utilisé pour les clés étrangères
+
+  private Agent agent(int index) {
+    AgentParticulier agent = new AgentParticulier("-", "-", "-", "-");
+    agent.setIdU(idsAgents[index]);
+    return agent;
+  }
+
+  private Loueur loueur(int index) {
+    Loueur loueur = new Loueur("-", "-", "-", "-");
+    loueur.setIdU(idsLoueurs[index]);
+    return loueur;
+  }
+
+  private Vehicule vehicule(int index) {
+    Vehicule vehicule =
+        new Vehicule(TypeV.voiture, "-", "-", "-", "-", 0.0, agent(agentDuVehicule[index]));
+    vehicule.setId(idsVehicules[index]);
+    return vehicule;
+  }
+
+  private void compter(String table, long nombre) {
+    lignes.computeIfAbsent(table, t -> new LongAdder()).add(nombre);
+  }
+}
@@ -0,0 +1,75 @@
+package fr.univ.m1.projetagile.VerificationLocation.entity;
+
+import org.hibernate.annotations.ColumnDefault;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Lob;
+import jakarta.persistence.Table;
+
+/**
+ * Série chronologique des kilométrages relevés sur un véhicule, une ligne par véhicule. Les relevés
+ * (jour, kilométrage) sont triés par jour et stockés sous forme compacte : le premier en valeurs
+ * absolues, les suivants en écarts avec le précédent, chaque valeur codée sur un nombre variable
+ * d'octets (quelques octets par relevé au lieu d'une ligne de vérification). Une série marquée
+ * périmée est reconstruite à partir des vérifications au prochain chargement.
+ */
+@Entity
+@Table(name = "series_kilometriques")
+public class SerieKilometrique {
+
+  @Id
+  @Column(name = "vehicule_id")
+  private Long vehiculeId;
+
+  @Lob
+  @Column(nullable = false)
+  private byte[] releves;
+
+  @Column(name = "nombre_releves", nullable = false)
+  private int nombreReleves;
+
+  /** true entre l'écriture d'une vérification et celle de la série qui en tient compte */
+  @Column(nullable = false)
+  @ColumnDefault("0")
+  private boolean perimee;
+
+  // Constructeur JPA
+  protected SerieKilometrique() {}
+
+  public SerieKilometrique(Long vehiculeId, byte[] releves, int nombreReleves) {
+    this.vehiculeId = vehiculeId;
+    this.releves = releves;
+    this.nombreReleves = nombreReleves;
+  }
+
+  public Long getVehiculeId() {
+    return vehiculeId;
+  }
+
+  public byte[] getReleves() {
+    return releves;
+  }
+
+  public void setReleves(byte[] releves) {
+    this.releves = releves;
+  }
+
+  public int getNombreReleves() {
+    return nombreReleves;
+  }
+
+  public void setNombreReleves(int nombreReleves) {
+    this.nombreReleves = nombreReleves;
+  }
+
+  public boolean isPerimee() {
+    return perimee;
+  }
+
+  @Override
+  public String toString() {
+    return "SerieKilometrique{vehiculeId=" + vehiculeId + ", nombreReleves=" + nombreReleves
+        + ", octets=" + (releves != null ? releves.length : 0) + "}";
+  }
+}
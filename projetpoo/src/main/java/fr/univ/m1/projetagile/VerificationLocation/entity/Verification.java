@@ -28,6 +28,10 @@ public class Verification {
   @Column
   private Integer kilometrageFin;
 
+  /**
+   * Empreinte SHA-256 de la photo dans
+   * {@link fr.univ.m1.projetagile.VerificationLocation.service.PhotosVerification}
+   */
   @Column
   private String photo;
 
@@ -0,0 +1,130 @@
+package fr.univ.m1.projetagile.VerificationLocation.persistence;
+
+import java.util.Collection;
+import java.util.List;
+import org.hibernate.jpa.HibernateHints;
+import fr.univ.m1.projetagile.VerificationLocation.entity.SerieKilometrique;
+import fr.univ.m1.projetagile.core.DatabaseConnection;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityTransaction;
+import jakarta.persistence.TypedQuery;
+
+/**
+ * Repository responsable de la persistance des entités {@link SerieKilometrique}, et de la lecture
+ * des relevés de kilométrage des vérifications à partir desquels les séries sont construites.
+ */
+public class SerieKilometriqueRepository {
+
+  /** Nombre de séries écrites entre deux vidages du contexte de persistance */
+  private static final int TAILLE_LOT = 500;
+
+  /**
+   * Récupère toutes les séries kilométriques à jour (non périmées), en lecture seule.
+   *
+   * @return la liste des séries
+   */
+  public List<SerieKilometrique> findAll() {
+    try (EntityManager em = DatabaseConnection.getEntityManager()) {
+      TypedQuery<SerieKilometrique> query = em.createQuery(
+          "SELECT s FROM SerieKilometrique s WHERE s.perimee = false", SerieKilometrique.class);
+      query.setHint(HibernateHints.HINT_READ_ONLY, true);
+      query.setHint(HibernateHints.HINT_FETCH_SIZE, 1000);
+      return query.getResultList();
+    } catch (Exception e) {
+      throw new RuntimeException("Erreur lors de la récupération des séries kilométriques", e);
+    }
+  }
+
+  /**
+   * Récupère les kilométrages relevés par les vérifications, pour un véhicule ou pour tous les
+   * véhicules qui n'ont pas encore de série à jour.
+   *
+   * @param vehiculeId l'identifiant du véhicule (null pour les véhicules sans série, ou dont la
+   *        série est périmée)
+   * @return les lignes [vehiculeId, dateDebut, dateFin, kilometrageDebut, kilometrageFin], par
+   *         véhicule puis par date de début de location
+   */
+  public List<Object[]> findReleves(Long vehiculeId) {
+    try (EntityManager em = DatabaseConnection.getEntityManager()) {
+      TypedQuery<Object[]> query = em.createQuery(
+          "SELECT l.vehicule.id, l.dateDebut, l.dateFin, v.kilometrageDebut, v.kilometrageFin "
+              + "FROM Verification v JOIN v.location l "
+              + (vehiculeId != null ? "WHERE l.vehicule.id = :vehiculeId "
+                  : "WHERE NOT EXISTS (SELECT 1 FROM SerieKilometrique s "
+                      + "WHERE s.vehiculeId = l.vehicule.id AND s.perimee = false) ")
+              + "ORDER BY l.vehicule.id, l.dateDebut",
+          Object[].class);
+      if (vehiculeId != null) {
+        query.setParameter("vehiculeId", vehiculeId);
+      }
+      query.setHint(HibernateHints.HINT_READ_ONLY, true);
+      query.setHint(HibernateHints.HINT_FETCH_SIZE, 1000);
+      return query.getResultList();
+    } catch (Exception e) {
+      throw new RuntimeException("Erreur lors de la récupération des relevés de kilométrage", e);
+    }
+  }
+
+  /**
+   * Marque périmée la série d'un véhicule, avant l'écriture d'une vérification qui la modifie : si
+   * la série n'est pas réécrite ensuite, elle sera reconstruite au prochain chargement.
+   *
+   * @param vehiculeId l'identifiant du véhicule
+   */
+  public void marquerPerimee(Long vehiculeId) {
+    EntityTransaction transaction = null;
+    try (EntityManager em = DatabaseConnection.getEntityManager()) {
+      transaction = em.getTransaction();
+      transaction.begin();
+      em.createQuery(
+          "UPDATE SerieKilometrique s SET s.perimee = true WHERE s.vehiculeId = :vehiculeId")
+          .setParameter("vehiculeId", vehiculeId).executeUpdate();
+      transaction.commit();
+
+    } catch (Exception e) {
+      if (transaction != null && transaction.isActive()) {
+        transaction.rollback();
+      }
+      throw new RuntimeException(
+          "Erreur lors du marquage de la série kilométrique du véhicule " + vehiculeId, e);
+    }
+  }
+
+  /**
+   * Enregistre ou remplace des séries en une transaction, à jour (non périmées). Une série sans relevé est supprimée.
+   *
+   * @param series les séries à enregistrer
+   */
+  public void saveAll(Collection<SerieKilometrique> series) {
+    if (series.isEmpty()) {
+      return;
+    }
+    EntityTransaction transaction = null;
+    try (EntityManager em = DatabaseConnection.getEntityManager()) {
+      transaction = em.getTransaction();
+      transaction.begin();
+
+      int ecrites = 0;
+      for (SerieKilometrique serie : series) {
+        if (serie.getNombreReleves() > 0) {
+          em.merge(serie);
+        } else {
+          em.createQuery("DELETE FROM SerieKilometrique s WHERE s.vehiculeId = :vehiculeId")
+              .setParameter("vehiculeId", serie.getVehiculeId()).executeUpdate();
+        }
+        if (++ecrites % TAILLE_LOT == 0) {
+          em.flush();
+          em.clear();
+        }
+      }
+
+      transaction.commit();
+
+    } catch (Exception e) {
+      if (transaction != null && transaction.isActive()) {
+        transaction.rollback();
+      }
+      throw new RuntimeException("Erreur lors de l'enregistrement des séries kilométriques", e);
+    }
+  }
+}
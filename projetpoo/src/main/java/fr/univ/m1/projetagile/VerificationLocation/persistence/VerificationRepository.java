@@ -1,7 +1,10 @@
 package fr.univ.m1.projetagile.VerificationLocation.persistence;
 
+import java.util.List;
 import fr.univ.m1.projetagile.VerificationLocation.entity.Verification;
 import fr.univ.m1.projetagile.core.DatabaseConnection;
+import fr.univ.m1.projetagile.core.persistence.LocationRepository;
+import fr.univ.m1.projetagile.enums.StatutLocation;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityTransaction;
 import jakarta.persistence.TypedQuery;
@@ -72,7 +75,7 @@ public class VerificationRepository {
           em.createQuery("SELECT v FROM Verification v JOIN FETCH v.location WHERE v.id = :id",
               Verification.class);
       query.setParameter("id", id);
-      return query.getResultStream().findFirst().orElse(null);
+      return resoudreLieuDepot(em, query.getResultStream().findFirst().orElse(null));
     } catch (Exception e) {
       throw new RuntimeException("Erreur lors de la récupération de la vérification " + id, e);
     }
@@ -90,7 +93,7 @@ public class VerificationRepository {
           "SELECT v FROM Verification v JOIN FETCH v.location WHERE v.location.id = :locationId",
           Verification.class);
       query.setParameter("locationId", locationId);
-      return query.getResultStream().findFirst().orElse(null);
+      return resoudreLieuDepot(em, query.getResultStream().findFirst().orElse(null));
     } catch (Exception e) {
       throw new RuntimeException(
           "Erreur lors de la récupération de la vérification pour la location " + locationId, e);
@@ -126,6 +129,66 @@ public class VerificationRepository {
     }
   }
 
+  /**
+   * Termine une location en une seule transaction : lecture de sa vérification, enregistrement du
+   * kilométrage de fin et de la photo, puis passage de la location au statut TERMINE. Rien n'est
+   * écrit si la location n'est plus ACCEPTE ou si le kilométrage de fin n'est pas strictement
+   * supérieur au kilométrage de début.
+   *
+   * @param locationId l'identifiant de la location
+   * @param kilometrageFin le kilométrage de fin
+   * @param photo l'empreinte de la photo (peut être null)
+   * @return l'état lu avant écriture [verificationId, kilometrageDebut, kilometrageFin, statut],
+   *         le statut étant relu si la location a changé entre-temps ; null si la location n'a pas
+   *         de vérification
+   */
+  public Object[] terminerLocation(Long locationId, int kilometrageFin, String photo) {
+    EntityManager em = DatabaseConnection.getEntityManager();
+    EntityTransaction transaction = null;
+
+    try {
+      transaction = em.getTransaction();
+      transaction.begin();
+
+      Object[] etat = em.createQuery("SELECT v.id, v.kilometrageDebut, v.kilometrageFin, l.statut "
+          + "FROM Verification v JOIN v.location l WHERE l.id = :locationId", Object[].class)
+          .setParameter("locationId", locationId).getResultStream().findFirst().orElse(null);
+      Integer kilometrageDebut = etat != null ? (Integer) etat[1] : null;
+      if (etat == null || etat[3] != StatutLocation.ACCEPTE || kilometrageDebut == null
+          || kilometrageFin <= kilometrageDebut) {
+        transaction.rollback();
+        return etat;
+      }
+
+      // Le statut conditionne l'écriture : deux retours simultanés ne terminent qu'une fois
+      int terminees = em.createQuery("UPDATE Location l SET l.statut = :termine "
+          + "WHERE l.id = :locationId AND l.statut = :accepte")
+          .setParameter("termine", StatutLocation.TERMINE)
+          .setParameter("locationId", locationId)
+          .setParameter("accepte", StatutLocation.ACCEPTE).executeUpdate();
+      if (terminees == 0) {
+        transaction.rollback();
+        etat[3] = em.createQuery("SELECT l.statut FROM Location l WHERE l.id = :locationId",
+            StatutLocation.class).setParameter("locationId", locationId).getSingleResult();
+        return etat;
+      }
+      em.createQuery("UPDATE Verification v SET v.kilometrageFin = :kilometrageFin, "
+          + "v.photo = :photo WHERE v.id = :id")
+          .setParameter("kilometrageFin", kilometrageFin).setParameter("photo", photo)
+          .setParameter("id", etat[0]).executeUpdate();
+
+      transaction.commit();
+      return etat;
+    } catch (Exception e) {
+      if (transaction != null && transaction.isActive()) {
+        transaction.rollback();
+      }
+      throw new RuntimeException("Erreur lors de la fin de la location " + locationId, e);
+    } finally {
+      em.close();
+    }
+  }
+
   /**
    * Supprime une vérification de la base de données.
    *
@@ -155,4 +218,15 @@ public class VerificationRepository {
       em.close();
     }
   }
+
+  /**
+   * Résout le lieu de dépôt de la location de la vérification avant la fermeture de
+   * l'EntityManager (voir {@link LocationRepository#resoudreLieuxDepot}).
+   */
+  private static Verification resoudreLieuDepot(EntityManager em, Verification verification) {
+    if (verification != null) {
+      LocationRepository.resoudreLieuxDepot(em, List.of(verification.getLocation()));
+    }
+    return verification;
+  }
 }
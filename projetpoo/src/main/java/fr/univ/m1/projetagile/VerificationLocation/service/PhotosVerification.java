@@ -0,0 +1,286 @@
+package fr.univ.m1.projetagile.VerificationLocation.service;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Pattern;
+import javax.imageio.ImageIO;
+
+/**
+ * Stockage local des photos de vérification, adressé par contenu : chaque photo est enregistrée une
+ * seule fois sous son empreinte SHA-256 ({@code <dossier>/ab/abcd...}), et la vérification ne garde
+ * que cette empreinte. Deux photos identiques partagent le même fichier, et l'empreinte permet de
+ * contrôler l'intégrité du contenu à la relecture.
+ *
+ * <p>
+ * Les copies passent par des {@link FileChannel} ({@code transferTo}/{@code transferFrom}), sans
+ * charger l'image en mémoire. Une miniature d'au plus {@value #TAILLE_MINIATURE} pixels de côté est
+ * produite en arrière-plan après chaque nouvelle photo. Le dossier est donné par la propriété
+ * {@code projetagile.photos.dossier} ({@code ~/.projetagile/photos} par défaut, hors du dossier de
+ * lancement).
+ * </p>
+ */
+public final class PhotosVerification {
+
+  /** Plus grand côté des miniatures, en pixels */
+  public static final int TAILLE_MINIATURE = 200;
+
+  private static final Pattern EMPREINTE = Pattern.compile("[0-9a-f]{64}");
+
+  private static final int TAILLE_TAMPON = 64 * 1024;
+
+  private static final ExecutorService miniatures = Executors.newSingleThreadExecutor(tache -> {
+    Thread thread = new Thread(tache, "miniatures-photos");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  private PhotosVerification() {}
+
+  /**
+   * @return le dossier racine du stockage
+   */
+  public static Path getDossier() {
+    String dossier = System.getProperty("projetagile.photos.dossier");
+    return dossier != null
+        ? Paths.get(dossier)
+        : Paths.get(System.getProperty("user.home"), ".projetagile", "photos");
+  }
+
+  /**
+   * Enregistre le contenu d'un fichier, s'il n'est pas déjà stocké.
+   *
+   * @param fichier le fichier de la photo
+   * @return l'empreinte du contenu
+   * @throws RuntimeException si le fichier ne peut pas être lu ou copié
+   */
+  public static String enregistrer(Path fichier) {
+    try (FileChannel source = FileChannel.open(fichier, StandardOpenOption.READ)) {
+      String empreinte = hacher(source);
+      Path cible = getChemin(empreinte);
+      if (!Files.exists(cible)) {
+        Files.createDirectories(cible.getParent());
+        Path temporaire = Files.createTempFile(cible.getParent(), empreinte, ".tmp");
+        try (FileChannel sortie = FileChannel.open(temporaire, StandardOpenOption.WRITE)) {
+          long position = 0;
+          long taille = source.size();
+          while (position < taille) {
+            position += source.transferTo(position, taille - position, sortie);
+          }
+        }
+        publier(temporaire, empreinte);
+      }
+      return empreinte;
+    } catch (IOException e) {
+      throw new RuntimeException("Erreur lors de l'enregistrement de la photo " + fichier, e);
+    }
+  }
+
+  /**
+   * Enregistre le contenu d'un flux (photo téléversée), s'il n'est pas déjà stocké. Le flux est lu
+   * jusqu'au bout mais n'est pas fermé.
+   *
+   * @param contenu le contenu de la photo
+   * @return l'empreinte du contenu
+   * @throws RuntimeException si le flux ne peut pas être lu ou copié
+   */
+  public static String enregistrer(InputStream contenu) {
+    Path temporaire = null;
+    try {
+      Files.createDirectories(getDossier());
+      temporaire = Files.createTempFile(getDossier(), "photo", ".tmp");
+      MessageDigest digest = nouveauDigest();
+      ReadableByteChannel source = Channels.newChannel(new DigestInputStream(contenu, digest));
+      try (FileChannel sortie = FileChannel.open(temporaire, StandardOpenOption.WRITE)) {
+        long position = 0;
+        long copies;
+        while ((copies = sortie.transferFrom(source, position, Long.MAX_VALUE)) > 0) {
+          position += copies;
+        }
+      }
+
+      String empreinte = HexFormat.of().formatHex(digest.digest());
+      if (Files.exists(getChemin(empreinte))) {
+        Files.delete(temporaire);
+      } else {
+        Files.createDirectories(getChemin(empreinte).getParent());
+        publier(temporaire, empreinte);
+      }
+      return empreinte;
+    } catch (IOException e) {
+      supprimerTemporaire(temporaire);
+      throw new RuntimeException("Erreur lors de l'enregistrement de la photo", e);
+    }
+  }
+
+  /**
+   * Copie une photo stockée vers un canal (réponse HTTP, fichier...), sans passer par la mémoire.
+   *
+   * @param empreinte l'empreinte de la photo
+   * @param cible le canal de destination, qui n'est pas fermé
+   * @return le nombre d'octets copiés
+   * @throws IllegalArgumentException si aucune photo n'est stockée sous cette empreinte
+   * @throws RuntimeException si la copie échoue
+   */
+  public static long copier(String empreinte, WritableByteChannel cible) {
+    if (!estEnregistree(empreinte)) {
+      throw new IllegalArgumentException("Aucune photo enregistrée sous l'empreinte " + empreinte);
+    }
+    try (FileChannel source = FileChannel.open(getChemin(empreinte), StandardOpenOption.READ)) {
+      long position = 0;
+      long taille = source.size();
+      while (position < taille) {
+        position += source.transferTo(position, taille - position, cible);
+      }
+      return taille;
+    } catch (IOException e) {
+      throw new RuntimeException("Erreur lors de la lecture de la photo " + empreinte, e);
+    }
+  }
+
+  /**
+   * @param photo la valeur d'un champ photo
+   * @return true si c'est l'empreinte d'une photo présente dans le stockage
+   */
+  public static boolean estEnregistree(String photo) {
+    return photo != null && EMPREINTE.matcher(photo).matches() && Files.exists(getChemin(photo));
+  }
+
+  /**
+   * Recalcule l'empreinte d'une photo stockée pour vérifier que son contenu n'a pas été altéré.
+   *
+   * @param empreinte l'empreinte de la photo
+   * @return true si la photo est présente et intacte
+   */
+  public static boolean verifierIntegrite(String empreinte) {
+    if (!estEnregistree(empreinte)) {
+      return false;
+    }
+    try (FileChannel source = FileChannel.open(getChemin(empreinte), StandardOpenOption.READ)) {
+      return empreinte.equals(hacher(source));
+    } catch (IOException e) {
+      throw new RuntimeException("Erreur lors de la lecture de la photo " + empreinte, e);
+    }
+  }
+
+  /**
+   * @param empreinte l'empreinte de la photo
+   * @return le fichier de la photo
+   */
+  public static Path getChemin(String empreinte) {
+    return getDossier().resolve(empreinte.substring(0, 2)).resolve(empreinte);
+  }
+
+  /**
+   * @param empreinte l'empreinte de la photo
+   * @return le fichier PNG de sa miniature, ou null si elle n'est pas (encore) produite ou si le
+   *         contenu n'est pas une image lisible
+   */
+  public static Path getMiniature(String empreinte) {
+    Path miniature = cheminMiniature(empreinte);
+    return Files.exists(miniature) ? miniature : null;
+  }
+
+  // =======================
+  // Écriture
+  // =======================
+
+  /**
+   * Renomme le fichier temporaire sous son empreinte puis programme sa miniature. Si la même photo
+   * a été publiée entre-temps, le fichier temporaire est simplement supprimé.
+   */
+  private static void publier(Path temporaire, String empreinte) throws IOException {
+    try {
+      Files.move(temporaire, getChemin(empreinte), StandardCopyOption.ATOMIC_MOVE);
+    } catch (FileAlreadyExistsException e) {
+      Files.deleteIfExists(temporaire);
+      return;
+    }
+    miniatures.submit(() -> creerMiniature(empreinte));
+  }
+
+  private static void creerMiniature(String empreinte) {
+    try {
+      BufferedImage image = ImageIO.read(getChemin(empreinte).toFile());
+      if (image == null) {
+        return;
+      }
+      double echelle = Math.min(1.0,
+          (double) TAILLE_MINIATURE / Math.max(image.getWidth(), image.getHeight()));
+      int largeur = Math.max(1, (int) Math.round(image.getWidth() * echelle));
+      int hauteur = Math.max(1, (int) Math.round(image.getHeight() * echelle));
+      BufferedImage miniature = new BufferedImage(largeur, hauteur, BufferedImage.TYPE_INT_RGB);
+      Graphics2D graphics = miniature.createGraphics();
+      graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
+          RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+      graphics.drawImage(image, 0, 0, largeur, hauteur, null);
+      graphics.dispose();
+
+      Path cible = cheminMiniature(empreinte);
+      Files.createDirectories(cible.getParent());
+      Path temporaire = Files.createTempFile(cible.getParent(), empreinte, ".tmp");
+      ImageIO.write(miniature, "png", temporaire.toFile());
+      Files.move(temporaire, cible, StandardCopyOption.ATOMIC_MOVE,
+          StandardCopyOption.REPLACE_EXISTING);
+    } catch (IOException | RuntimeException e) {
+      System.err.println("Miniature de la photo " + empreinte + " impossible : " + e.getMessage());
+    }
+  }
+
+  private static Path cheminMiniature(String empreinte) {
+    return getDossier().resolve("miniatures").resolve(empreinte.substring(0, 2))
+        .resolve(empreinte + ".png");
+  }
+
+  private static String hacher(FileChannel source) throws IOException {
+    MessageDigest digest = nouveauDigest();
+    ByteBuffer tampon = ByteBuffer.allocateDirect(TAILLE_TAMPON);
+    long position = 0;
+    int lus;
+    while ((lus = source.read(tampon, position)) != -1) {
+      position += lus;
+      tampon.flip();
+      digest.update(tampon);
+      tampon.clear();
+    }
+    return HexFormat.of().formatHex(digest.digest());
+  }
+
+  private static MessageDigest nouveauDigest() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 indisponible", e);
+    }
+  }
+
+  private static void supprimerTemporaire(Path temporaire) {
+    if (temporaire == null) {
+      return;
+    }
+    try {
+      Files.deleteIfExists(temporaire);
+    } catch (IOException e) {
+      // Fichier temporaire orphelin, sans conséquence sur le stockage
+    }
+  }
+}
@@ -0,0 +1,437 @@
+package fr.univ.m1.projetagile.VerificationLocation.service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import fr.univ.m1.projetagile.VerificationLocation.entity.SerieKilometrique;
+import fr.univ.m1.projetagile.VerificationLocation.persistence.SerieKilometriqueRepository;
+
+/**
+ * Séries chronologiques des kilométrages de chaque véhicule, tenues en mémoire sous forme de
+ * tableaux d'entiers triés par jour (jour epoch, kilométrage). Le dernier kilométrage connu se lit
+ * en temps constant et le rythme d'utilisation (kilomètres par jour) par recherche dichotomique,
+ * sans relire les vérifications.
+ *
+ * <p>
+ * Les séries sont chargées au premier accès, en une requête ; celles des véhicules qui n'en ont pas
+ * encore sont construites à partir des vérifications et enregistrées. {@link VerificationService}
+ * ajoute ensuite un relevé à chaque kilométrage saisi (début puis fin de location) et reconstruit
+ * la série d'un véhicule quand un kilométrage passé est corrigé ou supprimé. Chaque série est
+ * persistée sous forme compacte (voir {@link SerieKilometrique}). Une série n'est jamais modifiée
+ * une fois publiée, les lectures ne prennent donc aucun verrou.
+ * </p>
+ *
+ * <p>
+ * La série est écrite après la vérification, dans sa propre transaction. Pour qu'elle ne reste pas
+ * en retard si cette écriture échoue (ou si le processus s'arrête entre les deux),
+ * {@link VerificationService} la marque périmée avant d'écrire la vérification
+ * ({@link #perimer(Long)}) : une série périmée est reconstruite au prochain chargement, et une
+ * série dont l'écriture a échoué est reconstruite à son prochain accès. Seuls les
+ * {@value #MAX_RELEVES} derniers relevés d'un véhicule sont conservés, ce qui borne la réécriture
+ * de la série à chaque ajout.
+ * </p>
+ */
+public final class SeriesKilometriques {
+
+  private static final SerieKilometriqueRepository repository = new SerieKilometriqueRepository();
+
+  /** Nombre maximal de relevés conservés par véhicule, les plus anciens étant oubliés */
+  public static final int MAX_RELEVES = 1000;
+
+  /** vehiculeId -> série de ses relevés */
+  private static final Map<Long, Serie> series = new ConcurrentHashMap<>();
+
+  /** Véhicules dont la série n'a pas pu être écrite, reconstruite au prochain accès */
+  private static final Set<Long> aReconstruire = ConcurrentHashMap.newKeySet();
+
+  private static volatile boolean charge;
+
+  private SeriesKilometriques() {}
+
+  /**
+   * @return le nombre de jours, avant le dernier relevé, sur lesquels le rythme d'utilisation est
+   *         mesuré (propriété {@code projetagile.kilometrage.fenetreJours}, 180 par défaut)
+   */
+  public static int getFenetreJours() {
+    return Integer.getInteger("projetagile.kilometrage.fenetreJours", 180);
+  }
+
+  /**
+   * @param vehiculeId l'identifiant du véhicule
+   * @return le dernier kilométrage relevé, ou null si aucune vérification n'en donne
+   */
+  public static Integer getDernierKilometrage(Long vehiculeId) {
+    Serie serie = getSerie(vehiculeId);
+    return serie != null ? serie.kilometrages[serie.taille() - 1] : null;
+  }
+
+  /**
+   * Derniers kilométrages de plusieurs véhicules, avec la même règle que
+   * {@link #getDernierKilometrage(Long)}, lus dans les séries en mémoire sans requête.
+   *
+   * @param vehiculeIds les identifiants des véhicules, ou null pour tous les véhicules relevés
+   * @return le dernier kilométrage par identifiant de véhicule croissant ; les véhicules sans
+   *         relevé sont absents
+   */
+  public static Map<Long, Integer> getDerniersKilometrages(Collection<Long> vehiculeIds) {
+    if (!charge) {
+      charger();
+    }
+    for (Long vehiculeId : aReconstruire) {
+      reconstruire(vehiculeId);
+    }
+    Map<Long, Integer> kilometrages = new TreeMap<>();
+    if (vehiculeIds == null) {
+      series.forEach((vehiculeId, serie) -> kilometrages.put(vehiculeId,
+          serie.kilometrages[serie.taille() - 1]));
+      return kilometrages;
+    }
+    for (Long vehiculeId : vehiculeIds) {
+      Serie serie = vehiculeId != null ? series.get(vehiculeId) : null;
+      if (serie != null) {
+        kilometrages.put(vehiculeId, serie.kilometrages[serie.taille() - 1]);
+      }
+    }
+    return kilometrages;
+  }
+
+  /**
+   * @param vehiculeId l'identifiant du véhicule
+   * @return le jour du dernier relevé, ou null si aucune vérification n'en donne
+   */
+  public static LocalDate getDateDernierReleve(Long vehiculeId) {
+    Serie serie = getSerie(vehiculeId);
+    return serie != null ? LocalDate.ofEpochDay(serie.jours[serie.taille() - 1]) : null;
+  }
+
+  /**
+   * Estime le rythme d'utilisation d'un véhicule : kilomètres parcourus par jour entre le dernier
+   * relevé et le plus ancien relevé de la fenêtre ({@link #getFenetreJours()}), ou le dernier relevé
+   * qui la précède si la fenêtre n'en contient qu'un jour.
+   *
+   * @param vehiculeId l'identifiant du véhicule
+   * @return le nombre moyen de kilomètres par jour, ou null si les relevés ne couvrent pas au
+   *         moins deux jours
+   */
+  public static Double getKilometresParJour(Long vehiculeId) {
+    Serie serie = getSerie(vehiculeId);
+    return serie != null ? serie.kilometresParJour(getFenetreJours()) : null;
+  }
+
+  /**
+   * Prévoit le jour où un véhicule atteindra un kilométrage, au rythme de
+   * {@link #getKilometresParJour(Long)} à partir du dernier relevé.
+   *
+   * @param vehiculeId l'identifiant du véhicule
+   * @param kilometrage le kilométrage visé
+   * @return le jour prévu ; le jour du premier relevé qui l'atteint s'il est déjà atteint ; null
+   *         si le véhicule n'a pas de relevé ou ne roule pas
+   */
+  public static LocalDate predireDate(Long vehiculeId, int kilometrage) {
+    Serie serie = getSerie(vehiculeId);
+    if (serie == null) {
+      return null;
+    }
+    int dernier = serie.taille() - 1;
+    if (serie.kilometrages[dernier] >= kilometrage) {
+      return LocalDate.ofEpochDay(serie.jours[serie.premierAtteignant(kilometrage)]);
+    }
+    Double rythme = serie.kilometresParJour(getFenetreJours());
+    if (rythme == null || rythme <= 0) {
+      return null;
+    }
+    long jours = (long) Math.ceil((kilometrage - serie.kilometrages[dernier]) / rythme);
+    return LocalDate.ofEpochDay(serie.jours[dernier] + jours);
+  }
+
+  /**
+   * Ajoute un relevé à la série d'un véhicule et l'enregistre, après l'enregistrement de la
+   * vérification qui le porte.
+   *
+   * @param vehiculeId l'identifiant du véhicule
+   * @param date la date du relevé
+   * @param kilometrage le kilométrage relevé
+   */
+  static synchronized void ajouterReleve(Long vehiculeId, LocalDateTime date, int kilometrage) {
+    if (vehiculeId == null || date == null) {
+      return;
+    }
+    if (!charge || aReconstruire.contains(vehiculeId)) {
+      // La vérification est déjà enregistrée : la série est relue depuis la base
+      reconstruire(vehiculeId);
+      return;
+    }
+    try {
+      Serie serie = series.getOrDefault(vehiculeId, Serie.VIDE)
+          .avec((int) date.toLocalDate().toEpochDay(), kilometrage).limiter(MAX_RELEVES);
+      repository.saveAll(List.of(serie.versEntite(vehiculeId)));
+      series.put(vehiculeId, serie);
+    } catch (RuntimeException e) {
+      abandonner(vehiculeId, e);
+    }
+  }
+
+  /**
+   * Marque périmée la série d'un véhicule, avant l'écriture d'une vérification qui porte un
+   * kilométrage (voir la description de la classe).
+   *
+   * @param vehiculeId l'identifiant du véhicule
+   */
+  static void perimer(Long vehiculeId) {
+    if (vehiculeId != null) {
+      repository.marquerPerimee(vehiculeId);
+    }
+  }
+
+  /**
+   * Reconstruit la série d'un véhicule à partir de ses vérifications, après la correction ou la
+   * suppression d'un kilométrage déjà relevé.
+   *
+   * @param vehiculeId l'identifiant du véhicule
+   */
+  static synchronized void reconstruire(Long vehiculeId) {
+    if (vehiculeId == null) {
+      return;
+    }
+    try {
+      Serie serie = Serie.VIDE;
+      for (Object[] ligne : repository.findReleves(vehiculeId)) {
+        serie = ajouterVerification(serie, ligne);
+      }
+      serie = serie.limiter(MAX_RELEVES);
+      repository.saveAll(List.of(serie.versEntite(vehiculeId)));
+      aReconstruire.remove(vehiculeId);
+      if (!charge) {
+        // La série sera relue avec les autres au premier accès
+        return;
+      }
+      if (serie.taille() == 0) {
+        series.remove(vehiculeId);
+      } else {
+        series.put(vehiculeId, serie);
+      }
+    } catch (RuntimeException e) {
+      abandonner(vehiculeId, e);
+    }
+  }
+
+  /**
+   * Retire de la mémoire une série qui n'a pas pu être écrite ; elle reste périmée en base.
+   */
+  private static void abandonner(Long vehiculeId, RuntimeException e) {
+    series.remove(vehiculeId);
+    aReconstruire.add(vehiculeId);
+    System.err.println("Série kilométrique du véhicule " + vehiculeId
+        + " non mise à jour, reconstruite au prochain accès : " + e.getMessage());
+  }
+
+  // =======================
+  // Séries
+  // =======================
+
+  private static Serie getSerie(Long vehiculeId) {
+    if (!charge) {
+      charger();
+    }
+    if (vehiculeId == null) {
+      return null;
+    }
+    if (aReconstruire.contains(vehiculeId)) {
+      reconstruire(vehiculeId);
+    }
+    return series.get(vehiculeId);
+  }
+
+  private static synchronized void charger() {
+    if (charge) {
+      return;
+    }
+    for (SerieKilometrique entite : repository.findAll()) {
+      series.put(entite.getVehiculeId(),
+          Serie.decoder(entite.getReleves(), entite.getNombreReleves()));
+    }
+
+    // Véhicules dont les vérifications n'ont pas encore de série : les lignes d'un véhicule se
+    // suivent
+    List<SerieKilometrique> construites = new ArrayList<>();
+    Long vehiculeCourant = null;
+    Serie serie = Serie.VIDE;
+    for (Object[] ligne : repository.findReleves(null)) {
+      Long vehiculeId = (Long) ligne[0];
+      if (!vehiculeId.equals(vehiculeCourant)) {
+        publier(vehiculeCourant, serie, construites);
+        vehiculeCourant = vehiculeId;
+        serie = Serie.VIDE;
+      }
+      serie = ajouterVerification(serie, ligne);
+    }
+    publier(vehiculeCourant, serie, construites);
+    repository.saveAll(construites);
+    charge = true;
+  }
+
+  private static void publier(Long vehiculeId, Serie serie, List<SerieKilometrique> construites) {
+    if (vehiculeId != null && serie.taille() > 0) {
+      serie = serie.limiter(MAX_RELEVES);
+      series.put(vehiculeId, serie);
+      construites.add(serie.versEntite(vehiculeId));
+    }
+  }
+
+  /**
+   * Ajoute les kilométrages de début et de fin d'une ligne de
+   * {@link SerieKilometriqueRepository#findReleves(Long)}.
+   */
+  private static Serie ajouterVerification(Serie serie, Object[] ligne) {
+    if (ligne[3] != null && ligne[1] != null) {
+      serie = serie.avec((int) ((LocalDateTime) ligne[1]).toLocalDate().toEpochDay(),
+          (Integer) ligne[3]);
+    }
+    if (ligne[4] != null && ligne[2] != null) {
+      serie = serie.avec((int) ((LocalDateTime) ligne[2]).toLocalDate().toEpochDay(),
+          (Integer) ligne[4]);
+    }
+    return serie;
+  }
+
+  /**
+   * Relevés d'un véhicule, en tableaux parallèles triés par jour (à jour égal, dans l'ordre de
+   * saisie). Jamais modifiée une fois publiée.
+   */
+  static final class Serie {
+    static final Serie VIDE = new Serie(new int[0], new int[0]);
+
+    final int[] jours;
+    final int[] kilometrages;
+
+    Serie(int[] jours, int[] kilometrages) {
+      this.jours = jours;
+      this.kilometrages = kilometrages;
+    }
+
+    int taille() {
+      return jours.length;
+    }
+
+    Serie avec(int jour, int kilometrage) {
+      // Un relevé saisi en retard est inséré à sa place, après ceux du même jour
+      int position = jours.length;
+      while (position > 0 && jours[position - 1] > jour) {
+        position--;
+      }
+      int[] nouveauxJours = new int[jours.length + 1];
+      int[] nouveauxKilometrages = new int[jours.length + 1];
+      System.arraycopy(jours, 0, nouveauxJours, 0, position);
+      System.arraycopy(kilometrages, 0, nouveauxKilometrages, 0, position);
+      nouveauxJours[position] = jour;
+      nouveauxKilometrages[position] = kilometrage;
+      System.arraycopy(jours, position, nouveauxJours, position + 1, jours.length - position);
+      System.arraycopy(kilometrages, position, nouveauxKilometrages, position + 1,
+          jours.length - position);
+      return new Serie(nouveauxJours, nouveauxKilometrages);
+    }
+
+    /**
+     * @return la série réduite à ses {@code max} derniers relevés (elle-même si elle est plus
+     *         courte)
+     */
+    Serie limiter(int max) {
+      if (taille() <= max) {
+        return this;
+      }
+      return new Serie(Arrays.copyOfRange(jours, taille() - max, taille()),
+          Arrays.copyOfRange(kilometrages, taille() - max, taille()));
+    }
+
+    Double kilometresParJour(int fenetreJours) {
+      int dernier = taille() - 1;
+      if (dernier < 1) {
+        return null;
+      }
+      // Premier relevé de la fenêtre, ou le précédent s'il est du même jour que le dernier
+      int debut = Arrays.binarySearch(jours, 0, dernier, jours[dernier] - fenetreJours);
+      debut = debut >= 0 ? debut : -debut - 1;
+      while (debut > 0 && jours[debut - 1] == jours[debut]) {
+        debut--;
+      }
+      if (jours[debut] == jours[dernier]) {
+        debut--;
+      }
+      if (debut < 0 || jours[debut] == jours[dernier]) {
+        return null;
+      }
+      return (double) (kilometrages[dernier] - kilometrages[debut])
+          / (jours[dernier] - jours[debut]);
+    }
+
+    /**
+     * @return la position du premier relevé d'au moins ce kilométrage, le compteur ne reculant pas
+     */
+    int premierAtteignant(int kilometrage) {
+      int bas = 0;
+      int haut = taille() - 1;
+      while (bas < haut) {
+        int milieu = (bas + haut) >>> 1;
+        if (kilometrages[milieu] >= kilometrage) {
+          haut = milieu;
+        } else {
+          bas = milieu + 1;
+        }
+      }
+      return bas;
+    }
+
+    // Forme compacte : écarts avec le relevé précédent, en entiers à longueur variable (zigzag)
+
+    SerieKilometrique versEntite(Long vehiculeId) {
+      byte[] tampon = new byte[taille() * 20];
+      int position = 0;
+      for (int i = 0; i < taille(); i++) {
+        position = ecrire(tampon, position, i == 0 ? jours[0] : (long) jours[i] - jours[i - 1]);
+        position = ecrire(tampon, position,
+            i == 0 ? kilometrages[0] : (long) kilometrages[i] - kilometrages[i - 1]);
+      }
+      return new SerieKilometrique(vehiculeId, Arrays.copyOf(tampon, position), taille());
+    }
+
+    static Serie decoder(byte[] octets, int nombre) {
+      int[] jours = new int[nombre];
+      int[] kilometrages = new int[nombre];
+      int[] position = {0};
+      for (int i = 0; i < nombre; i++) {
+        jours[i] = (int) ((i == 0 ? 0 : jours[i - 1]) + lire(octets, position));
+        kilometrages[i] = (int) ((i == 0 ? 0 : kilometrages[i - 1]) + lire(octets, position));
+      }
+      return new Serie(jours, kilometrages);
+    }
+
+    private static int ecrire(byte[] tampon, int position, long valeur) {
+      long zigzag = (valeur << 1) ^ (valeur >> 63);
+      while ((zigzag & ~0x7FL) != 0) {
+        tampon[position++] = (byte) ((zigzag & 0x7F) | 0x80);
+        zigzag >>>= 7;
+      }
+      tampon[position++] = (byte) zigzag;
+      return position;
+    }
+
+    private static long lire(byte[] octets, int[] position) {
+      long zigzag = 0;
+      int decalage = 0;
+      byte octet;
+      do {
+        octet = octets[position[0]++];
+        zigzag |= (long) (octet & 0x7F) << decalage;
+        decalage += 7;
+      } while ((octet & 0x80) != 0);
+      return (zigzag >>> 1) ^ -(zigzag & 1);
+    }
+  }
+}
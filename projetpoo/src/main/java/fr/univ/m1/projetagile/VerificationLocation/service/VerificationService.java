@@ -1,9 +1,12 @@
 package fr.univ.m1.projetagile.VerificationLocation.service;
 
+import java.io.InputStream;
+import java.nio.channels.WritableByteChannel;
 import fr.univ.m1.projetagile.VerificationLocation.entity.Verification;
 import fr.univ.m1.projetagile.VerificationLocation.persistence.VerificationRepository;
 import fr.univ.m1.projetagile.core.entity.Location;
 import fr.univ.m1.projetagile.core.persistence.LocationRepository;
+import fr.univ.m1.projetagile.enums.StatutLocation;
 
 /**
  * Service métier pour la gestion des vérifications de locations. Fournit les opérations CRUD et les
@@ -55,7 +58,11 @@ public class VerificationService {
     }
 
     Verification verification = new Verification(location, kilometrageDebut);
-    return verificationRepository.save(verification);
+    SeriesKilometriques.perimer(vehiculeId(verification));
+    verification = verificationRepository.save(verification);
+    SeriesKilometriques.ajouterReleve(vehiculeId(verification), location.getDateDebut(),
+        kilometrageDebut);
+    return verification;
   }
 
   /**
@@ -89,11 +96,18 @@ public class VerificationService {
     if (verificationExistante != null) {
       // Mettre à jour le kilométrage de début
       verificationExistante.setKilometrageDebut(kilometrageDebut);
-      return verificationRepository.save(verificationExistante);
+      SeriesKilometriques.perimer(vehiculeId(verificationExistante));
+      verificationExistante = verificationRepository.save(verificationExistante);
+      SeriesKilometriques.reconstruire(vehiculeId(verificationExistante));
+      return verificationExistante;
     } else {
       // Créer une nouvelle vérification
       Verification verification = new Verification(location, kilometrageDebut);
-      return verificationRepository.save(verification);
+      SeriesKilometriques.perimer(vehiculeId(verification));
+      verification = verificationRepository.save(verification);
+      SeriesKilometriques.ajouterReleve(vehiculeId(verification), location.getDateDebut(),
+          kilometrageDebut);
+      return verification;
     }
   }
 
@@ -150,7 +164,10 @@ public class VerificationService {
     }
 
     verification.setKilometrageFin(kilometrageFin);
-    return verificationRepository.save(verification);
+    SeriesKilometriques.perimer(vehiculeId(verification));
+    verification = verificationRepository.save(verification);
+    SeriesKilometriques.reconstruire(vehiculeId(verification));
+    return verification;
   }
 
   /**
@@ -178,16 +195,21 @@ public class VerificationService {
     }
 
     verification.setKilometrageDebut(kilometrageDebut);
-    return verificationRepository.save(verification);
+    SeriesKilometriques.perimer(vehiculeId(verification));
+    verification = verificationRepository.save(verification);
+    SeriesKilometriques.reconstruire(vehiculeId(verification));
+    return verification;
   }
 
   /**
-   * Met à jour la photo d'une vérification existante.
+   * Met à jour la photo d'une vérification existante avec une photo déjà stockée dans
+   * {@link PhotosVerification}.
    *
    * @param verificationId l'identifiant de la vérification
-   * @param photo la nouvelle photo (peut être null pour supprimer la photo)
+   * @param photo l'empreinte de la nouvelle photo (peut être null pour supprimer la photo)
    * @return la vérification mise à jour
-   * @throws IllegalArgumentException si l'identifiant est nul ou si la vérification n'existe pas
+   * @throws IllegalArgumentException si l'identifiant est nul, si la vérification n'existe pas ou
+   *         si la photo n'est pas l'empreinte d'une photo stockée
    */
   public Verification modifierPhoto(Long verificationId, String photo) {
     if (verificationId == null) {
@@ -200,21 +222,37 @@ public class VerificationService {
           "Aucune vérification trouvée avec l'identifiant " + verificationId);
     }
 
-    verification.setPhoto(photo);
+    verification.setPhoto(verifierEmpreinte(photo));
     return verificationRepository.save(verification);
   }
 
   /**
-   * Vérifie la fin d'une location en enregistrant le kilométrage de fin et la photo. Le kilométrage
-   * de fin doit être strictement supérieur au kilométrage de début.
+   * Met à jour la photo d'une vérification existante avec une photo téléversée, enregistrée dans
+   * {@link PhotosVerification} (la vérification n'en garde que l'empreinte).
+   *
+   * @param verificationId l'identifiant de la vérification
+   * @param photo le contenu de la nouvelle photo, lu jusqu'au bout mais pas fermé
+   * @return la vérification mise à jour
+   * @throws IllegalArgumentException si l'identifiant est nul, si la vérification n'existe pas ou
+   *         si le contenu est nul
+   */
+  public Verification modifierPhoto(Long verificationId, InputStream photo) {
+    return modifierPhoto(verificationId, enregistrerPhoto(photo));
+  }
+
+  /**
+   * Vérifie la fin d'une location en enregistrant le kilométrage de fin et la photo (déjà stockée
+   * dans {@link PhotosVerification}, la vérification n'en gardant que l'empreinte). Le kilométrage
+   * de fin doit être strictement supérieur au kilométrage de début. Le relevé est ajouté à la série
+   * kilométrique du véhicule ({@link SeriesKilometriques}).
    *
    * @param verificationId l'identifiant de la vérification
    * @param kilometrageFin le kilométrage de fin
-   * @param photo la nouvelle photo (peut être null)
+   * @param photo l'empreinte de la photo (peut être null)
    * @return la vérification mise à jour
    * @throws IllegalArgumentException si l'identifiant est nul, si le kilométrage est invalide, si
-   *         le kilométrage de fin n'est pas strictement supérieur au kilométrage de début, ou si la
-   *         vérification n'existe pas
+   *         le kilométrage de fin n'est pas strictement supérieur au kilométrage de début, si la
+   *         vérification n'existe pas ou si la photo n'est pas l'empreinte d'une photo stockée
    */
   public Verification verifierFinLocation(Long verificationId, Integer kilometrageFin,
       String photo) {
@@ -225,6 +263,7 @@ public class VerificationService {
       throw new IllegalArgumentException(
           "Le kilométrage de fin doit être un entier positif ou nul.");
     }
+    String empreinte = verifierEmpreinte(photo);
 
     Verification verification = verificationRepository.findById(verificationId);
     if (verification == null) {
@@ -246,9 +285,159 @@ public class VerificationService {
           + ").");
     }
 
+    // Une nouvelle vérification de fin remplace le relevé précédent au lieu de s'y ajouter
+    boolean dejaVerifiee = verification.getKilometrageFin() != null;
     verification.setKilometrageFin(kilometrageFin);
-    verification.setPhoto(photo);
-    return verificationRepository.save(verification);
+    verification.setPhoto(empreinte);
+    SeriesKilometriques.perimer(vehiculeId(verification));
+    verification = verificationRepository.save(verification);
+    if (dejaVerifiee) {
+      SeriesKilometriques.reconstruire(vehiculeId(verification));
+    } else {
+      SeriesKilometriques.ajouterReleve(vehiculeId(verification),
+          verification.getLocation().getDateFin(), kilometrageFin);
+    }
+    return verification;
+  }
+
+  /**
+   * Vérifie la fin d'une location avec une photo téléversée, enregistrée dans
+   * {@link PhotosVerification} (voir {@link #verifierFinLocation(Long, Integer, String)}).
+   *
+   * @param verificationId l'identifiant de la vérification
+   * @param kilometrageFin le kilométrage de fin
+   * @param photo le contenu de la photo, lu jusqu'au bout mais pas fermé
+   * @return la vérification mise à jour
+   * @throws IllegalArgumentException si un paramètre est invalide ou si la vérification n'existe
+   *         pas
+   */
+  public Verification verifierFinLocation(Long verificationId, Integer kilometrageFin,
+      InputStream photo) {
+    return verifierFinLocation(verificationId, kilometrageFin, enregistrerPhoto(photo));
+  }
+
+  /**
+   * Termine une location à son retour, en une seule transaction : kilométrage de fin et photo de
+   * la vérification, puis statut TERMINE de la location (voir
+   * {@link VerificationRepository#terminerLocation(Long, int, String)}). Le relevé est ajouté à la
+   * série kilométrique après la transaction ; la série est marquée périmée d'ici là, pour être
+   * reconstruite si cet ajout échoue (voir {@link SeriesKilometriques}).
+   *
+   * @param location la location à terminer (persistée)
+   * @param kilometrageFin le kilométrage de fin
+   * @param photo l'empreinte d'une photo déjà stockée (peut être null)
+   * @throws IllegalArgumentException si la photo n'est pas l'empreinte d'une photo stockée
+   * @throws IllegalStateException si la location n'a pas de vérification, n'est plus ACCEPTE, ou
+   *         si le kilométrage de fin n'est pas strictement supérieur au kilométrage de début
+   */
+  public void terminerLocation(Location location, int kilometrageFin, String photo) {
+    SeriesKilometriques.perimer(location.getVehicule().getId());
+    Object[] etat = verificationRepository.terminerLocation(location.getId(), kilometrageFin,
+        verifierEmpreinte(photo));
+    if (etat == null) {
+      throw new IllegalStateException(
+          "Impossible de terminer la location : aucune vérification trouvée pour cette location.");
+    }
+    if (etat[3] != StatutLocation.ACCEPTE) {
+      throw new IllegalStateException("Terminaison impossible : la location ne peut être terminée "
+          + "que si son statut est ACCEPTE.");
+    }
+    Integer kilometrageDebut = (Integer) etat[1];
+    if (kilometrageDebut == null) {
+      throw new IllegalStateException("Impossible de terminer la location : la vérification n'a "
+          + "pas pu être mise à jour. Le kilométrage de début n'est pas défini pour cette "
+          + "vérification.");
+    }
+    if (kilometrageFin <= kilometrageDebut) {
+      throw new IllegalStateException("Impossible de terminer la location : la vérification n'a "
+          + "pas pu être mise à jour. Le kilométrage de fin (" + kilometrageFin
+          + ") doit être strictement supérieur au kilométrage de début (" + kilometrageDebut
+          + ").");
+    }
+
+    if (etat[2] != null) {
+      // Fin déjà saisie : le relevé précédent est remplacé
+      SeriesKilometriques.reconstruire(location.getVehicule().getId());
+    } else {
+      SeriesKilometriques.ajouterReleve(location.getVehicule().getId(), location.getDateFin(),
+          kilometrageFin);
+    }
+  }
+
+  /**
+   * Termine une location avec une photo téléversée, stockée avant la transaction (voir
+   * {@link #terminerLocation(Location, int, String)}). La photo n'est stockée qu'une fois la
+   * terminaison vérifiée ({@link #verifierTerminaison(Long, int)}).
+   *
+   * @param location la location à terminer (persistée)
+   * @param kilometrageFin le kilométrage de fin
+   * @param photo le contenu de la photo, lu jusqu'au bout mais pas fermé
+   * @throws IllegalArgumentException si le contenu est nul
+   * @throws IllegalStateException si la location ne peut pas être terminée
+   */
+  public void terminerLocation(Location location, int kilometrageFin, InputStream photo) {
+    if (photo == null) {
+      throw new IllegalArgumentException("Le contenu de la photo ne peut pas être nul.");
+    }
+    verifierTerminaison(location.getId(), kilometrageFin);
+    terminerLocation(location, kilometrageFin, enregistrerPhoto(photo));
+  }
+
+  /**
+   * Vérifie, sans rien écrire, qu'une location peut être terminée avec ce kilométrage de fin :
+   * permet de refuser une demande avant d'en stocker la photo. Les mêmes contrôles sont refaits
+   * dans la transaction de {@link #terminerLocation(Location, int, String)}.
+   *
+   * @param locationId l'identifiant de la location
+   * @param kilometrageFin le kilométrage de fin
+   * @throws IllegalStateException si la location n'a pas de vérification, n'est pas ACCEPTE, ou
+   *         si le kilométrage de fin n'est pas strictement supérieur au kilométrage de début
+   */
+  public void verifierTerminaison(Long locationId, int kilometrageFin) {
+    Verification verification = verificationRepository.findByLocationId(locationId);
+    if (verification == null) {
+      throw new IllegalStateException(
+          "Impossible de terminer la location : aucune vérification trouvée pour cette location.");
+    }
+    if (verification.getLocation().getStatut() != StatutLocation.ACCEPTE) {
+      throw new IllegalStateException("Terminaison impossible : la location ne peut être terminée "
+          + "que si son statut est ACCEPTE.");
+    }
+    Integer kilometrageDebut = verification.getKilometrageDebut();
+    if (kilometrageDebut == null) {
+      throw new IllegalStateException("Impossible de terminer la location : la vérification n'a "
+          + "pas pu être mise à jour. Le kilométrage de début n'est pas défini pour cette "
+          + "vérification.");
+    }
+    if (kilometrageFin <= kilometrageDebut) {
+      throw new IllegalStateException("Impossible de terminer la location : la vérification n'a "
+          + "pas pu être mise à jour. Le kilométrage de fin (" + kilometrageFin
+          + ") doit être strictement supérieur au kilométrage de début (" + kilometrageDebut
+          + ").");
+    }
+  }
+
+  /**
+   * Copie la photo d'une vérification vers un canal (réponse HTTP, fichier...), directement depuis
+   * le stockage des photos.
+   *
+   * @param verificationId l'identifiant de la vérification
+   * @param cible le canal de destination, qui n'est pas fermé
+   * @return le nombre d'octets copiés
+   * @throws IllegalArgumentException si l'identifiant est nul ou si la vérification n'existe pas
+   * @throws IllegalStateException si la vérification n'a pas de photo stockée
+   */
+  public long envoyerPhoto(Long verificationId, WritableByteChannel cible) {
+    Verification verification = getVerification(verificationId);
+    if (verification == null) {
+      throw new IllegalArgumentException(
+          "Aucune vérification trouvée avec l'identifiant " + verificationId);
+    }
+    if (!PhotosVerification.estEnregistree(verification.getPhoto())) {
+      throw new IllegalStateException(
+          "La vérification " + verificationId + " n'a pas de photo enregistrée.");
+    }
+    return PhotosVerification.copier(verification.getPhoto(), cible);
   }
 
   /**
@@ -267,6 +456,33 @@ public class VerificationService {
       throw new IllegalArgumentException("Aucune vérification trouvée avec l'identifiant " + id);
     }
 
+    SeriesKilometriques.perimer(vehiculeId(verification));
     verificationRepository.delete(id);
+    SeriesKilometriques.reconstruire(vehiculeId(verification));
+  }
+
+  /**
+   * Une photo n'est désignée que par l'empreinte d'un contenu déjà stocké : une chaîne n'est
+   * jamais lue comme un chemin de fichier du serveur.
+   *
+   * @throws IllegalArgumentException si la photo n'est ni null ni une empreinte stockée
+   */
+  private static String verifierEmpreinte(String photo) {
+    if (photo != null && !PhotosVerification.estEnregistree(photo)) {
+      throw new IllegalArgumentException(
+          "La photo doit être l'empreinte d'une photo enregistrée : " + photo);
+    }
+    return photo;
+  }
+
+  private static String enregistrerPhoto(InputStream photo) {
+    if (photo == null) {
+      throw new IllegalArgumentException("Le contenu de la photo ne peut pas être nul.");
+    }
+    return PhotosVerification.enregistrer(photo);
+  }
+
+  private static Long vehiculeId(Verification verification) {
+    return verification.getLocation().getVehicule().getId();
   }
 }
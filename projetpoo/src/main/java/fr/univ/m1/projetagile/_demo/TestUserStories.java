@@ -1,5 +1,7 @@
 package fr.univ.m1.projetagile._demo;
 
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.Arrays;
@@ -344,7 +346,8 @@ public class TestUserStories {
       // Nécessite l'upload d'une photo du tableau de bord comme preuve justificative.
       location.setStatut(StatutLocation.ACCEPTE);
       verificationService.creerVerification(location.getId(), 1560);
-      locationService.terminer(location, 1800, "photo.jpg");
+      locationService.terminer(location, 1800,
+          new ByteArrayInputStream("photo.jpg".getBytes(StandardCharsets.UTF_8)));
 
       // -----------------------------------------------------------------------------
       // SECTION AGENT
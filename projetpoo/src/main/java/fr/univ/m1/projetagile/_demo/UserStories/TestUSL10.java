@@ -1,5 +1,7 @@
 package fr.univ.m1.projetagile._demo.UserStories;
 
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import fr.univ.m1.projetagile.VerificationLocation.persistence.VerificationRepository;
@@ -75,7 +77,8 @@ public class TestUSL10 {
       System.out.println("✓ Vérification au départ enregistrée");
 
       System.out.println("\nKilométrage au retour: 1800 km");
-      locationService.terminer(location, 1800, "photo_tableau_bord.jpg");
+      locationService.terminer(location, 1800,
+          new ByteArrayInputStream("photo_tableau_bord.jpg".getBytes(StandardCharsets.UTF_8)));
       System.out.println("✓ Kilométrage au retour enregistré avec photo");
 
       // Récupérer la vérification depuis la base de données pour vérifier qu'elle a été enregistrée
@@ -1,5 +1,7 @@
 package fr.univ.m1.projetagile._demo;
 
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
@@ -8,7 +10,9 @@ import fr.univ.m1.projetagile.VerificationLocation.persistence.VerificationRepos
 import fr.univ.m1.projetagile.VerificationLocation.service.VerificationService;
 import fr.univ.m1.projetagile.commentaire.entity.Commentaire;
 import fr.univ.m1.projetagile.commentaire.service.CommentaireService;
+import fr.univ.m1.projetagile.controleTechnique.service.EcheancesControles;
 import fr.univ.m1.projetagile.core.DatabaseConnection;
+import fr.univ.m1.projetagile.core.dto.FilCommentaireDTO;
 import fr.univ.m1.projetagile.core.dto.ProfilInfo;
 import fr.univ.m1.projetagile.core.entity.AgentParticulier;
 import fr.univ.m1.projetagile.core.entity.AgentProfessionnel;
@@ -45,6 +49,7 @@ public class _MainDemo {
       // -- // -- // -- // -- // -- // -- // -- //
       DatabaseConnection.init();
       System.out.println("✓ DB connectée");
+      EcheancesControles.demarrer();
 
       // -- // -- // -- // -- // -- // -- // -- //
       // Services
@@ -235,7 +240,8 @@ public class _MainDemo {
       System.out.println("✓ Vérification créée: " + verif4);
 
       // Terminer la location 4 (historique) avec kilométrage fin > début
-      locationService.terminer(loc4, 1150, "photo.jpg");
+      locationService.terminer(loc4, 1150,
+          new ByteArrayInputStream("photo.jpg".getBytes(StandardCharsets.UTF_8)));
       System.out.println("✓ Location terminée (historique): " + L_jane.getNomComplet() + " a loué "
           + V4.getMarque() + " " + V4.getModele() + " (1000 km → 1150 km)");
 
@@ -499,10 +505,9 @@ public class _MainDemo {
       System.out.println("\n" + profilBob);
       if (!profilBob.getCommentaires().isEmpty()) {
         System.out.println("Commentaires détaillés:");
-        for (Commentaire c : profilBob.getCommentaires()) {
-          System.out.println("  - " + c);
-          List<Commentaire> reponses = commentaireService.getReponses(c.getId());
-          for (Commentaire r : reponses) {
+        for (FilCommentaireDTO fil : profilBob.getFilsCommentaires()) {
+          System.out.println("  - " + fil.getCommentaire());
+          for (Commentaire r : fil.getReponses()) {
             System.out.println("    ↳ " + r);
           }
         }
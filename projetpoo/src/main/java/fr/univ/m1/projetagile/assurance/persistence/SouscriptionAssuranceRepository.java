@@ -3,6 +3,7 @@ package fr.univ.m1.projetagile.assurance.persistence;
 import java.util.List;
 import fr.univ.m1.projetagile.assurance.entity.SouscriptionAssurance;
 import fr.univ.m1.projetagile.core.DatabaseConnection;
+import fr.univ.m1.projetagile.core.persistence.LocationRepository;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityTransaction;
 import jakarta.persistence.TypedQuery;
@@ -64,7 +65,11 @@ public class SouscriptionAssuranceRepository {
           em.createQuery("SELECT s FROM SouscriptionAssurance s " + "JOIN FETCH s.location "
               + "JOIN FETCH s.assurance " + "WHERE s.id = :id", SouscriptionAssurance.class);
       query.setParameter("id", id);
-      return query.getResultStream().findFirst().orElse(null);
+      SouscriptionAssurance souscription = query.getResultStream().findFirst().orElse(null);
+      if (souscription != null) {
+        resoudreLieuxDepot(em, List.of(souscription));
+      }
+      return souscription;
     } catch (Exception e) {
       throw new RuntimeException(
           "Erreur lors de la récupération de la souscription d'assurance " + id, e);
@@ -135,7 +140,7 @@ public class SouscriptionAssuranceRepository {
               + "WHERE s.assurance.id = :assuranceId " + "ORDER BY s.location.dateDebut DESC",
           SouscriptionAssurance.class);
       query.setParameter("assuranceId", assuranceId);
-      return query.getResultList();
+      return resoudreLieuxDepot(em, query.getResultList());
     } catch (Exception e) {
       throw new RuntimeException(
           "Erreur lors de la récupération des souscriptions pour l'assurance " + assuranceId, e);
@@ -185,10 +190,21 @@ public class SouscriptionAssuranceRepository {
           "SELECT s FROM SouscriptionAssurance s " + "JOIN FETCH s.location "
               + "JOIN FETCH s.assurance " + "ORDER BY s.location.dateDebut DESC",
           SouscriptionAssurance.class);
-      return query.getResultList();
+      return resoudreLieuxDepot(em, query.getResultList());
     } catch (Exception e) {
       throw new RuntimeException(
           "Erreur lors de la récupération de toutes les souscriptions d'assurance", e);
     }
   }
+
+  /**
+   * Résout les lieux de dépôt des locations des souscriptions avant la fermeture de
+   * l'EntityManager (voir {@link LocationRepository#resoudreLieuxDepot}).
+   */
+  private static List<SouscriptionAssurance> resoudreLieuxDepot(EntityManager em,
+      List<SouscriptionAssurance> souscriptions) {
+    LocationRepository.resoudreLieuxDepot(em,
+        souscriptions.stream().map(SouscriptionAssurance::getLocation).toList());
+    return souscriptions;
+  }
 }
@@ -1,5 +1,7 @@
 package fr.univ.m1.projetagile.commentaire.persistence;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import fr.univ.m1.projetagile.commentaire.entity.Commentaire;
@@ -43,6 +45,63 @@ public class CommentaireRepository {
     return query.getResultList();
   }
 
+  /**
+   * Lit une page de fils de commentaires d'un profil : les {@code limite} commentaires de premier
+   * niveau qui suivent le curseur (du plus récent au plus ancien), leurs réponses, ainsi que le
+   * nombre de commentaires et la moyenne des notes de tout le profil. La page est choisie par une
+   * première requête bornée par {@code setMaxResults}, les fils sont lus par une seconde.
+   *
+   * @param profilId l'identifiant du profil
+   * @param apresDate date de création du dernier commentaire de la page précédente (null pour la
+   *        première page)
+   * @param apresId identifiant du dernier commentaire de la page précédente
+   * @param limite le nombre maximal de commentaires de premier niveau
+   * @return une ligne par couple [commentaire, réponse (ou null), nombre, moyenne (ou null)],
+   *         triée par commentaire puis par réponse chronologique ; vide si la page est vide
+   */
+  public List<Object[]> findFilsByProfilId(Long profilId, LocalDateTime apresDate, Long apresId,
+      int limite) {
+    String curseur = apresDate != null
+        ? " AND (p.dateCreation < :apresDate OR (p.dateCreation = :apresDate AND p.id < :apresId))"
+        : "";
+    TypedQuery<Long> page = em.createQuery("SELECT p.id FROM Commentaire p "
+        + "WHERE p.profilId = :profilId AND p.reponseId IS NULL" + curseur
+        + " ORDER BY p.dateCreation DESC, p.id DESC", Long.class);
+    page.setParameter("profilId", profilId);
+    if (apresDate != null) {
+      page.setParameter("apresDate", apresDate);
+      page.setParameter("apresId", apresId);
+    }
+    List<Long> ids = page.setMaxResults(limite).getResultList();
+    if (ids.isEmpty()) {
+      return new ArrayList<>();
+    }
+
+    TypedQuery<Object[]> query = em.createQuery("SELECT c, r, "
+        + "(SELECT COUNT(t) FROM Commentaire t WHERE t.profilId = :profilId "
+        + "AND t.reponseId IS NULL), "
+        + "(SELECT AVG(t.note) FROM Commentaire t WHERE t.profilId = :profilId AND t.note > 0) "
+        + "FROM Commentaire c LEFT JOIN Commentaire r ON r.reponseId = c.id "
+        + "WHERE c.id IN :ids "
+        + "ORDER BY c.dateCreation DESC, c.id DESC, r.dateCreation ASC, r.id ASC", Object[].class);
+    query.setParameter("profilId", profilId);
+    query.setParameter("ids", ids);
+    return query.getResultList();
+  }
+
+  /**
+   * Nombre de commentaires de premier niveau et moyenne des notes d'un profil, en une requête.
+   *
+   * @param profilId l'identifiant du profil
+   * @return [nombre, moyenne (ou null)]
+   */
+  public Object[] getStatistiques(Long profilId) {
+    return em.createQuery("SELECT COUNT(CASE WHEN c.reponseId IS NULL THEN 1 END), "
+        + "AVG(CASE WHEN c.note > 0 THEN c.note END) FROM Commentaire c "
+        + "WHERE c.profilId = :profilId", Object[].class)
+        .setParameter("profilId", profilId).getSingleResult();
+  }
+
   public Optional<Commentaire> findByAuteurAndProfil(Long auteurId, Long profilId) {
     TypedQuery<Commentaire> query = em.createQuery(
         "SELECT c FROM Commentaire c WHERE c.auteurId = :auteurId AND c.profilId = :profilId",
@@ -1,9 +1,15 @@
 package fr.univ.m1.projetagile.commentaire.service;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import fr.univ.m1.projetagile.commentaire.entity.Commentaire;
 import fr.univ.m1.projetagile.commentaire.persistence.CommentaireRepository;
+import fr.univ.m1.projetagile.core.dto.FilCommentaireDTO;
+import fr.univ.m1.projetagile.core.dto.PageCommentairesDTO;
 import fr.univ.m1.projetagile.core.entity.Utilisateur;
 import jakarta.persistence.EntityManager;
 
@@ -161,6 +167,64 @@ public class CommentaireService {
     return commentaireRepository.findByProfilId(profilId);
   }
 
+  /**
+   * Récupérer une page de fils de commentaires d'un profil (commentaires du plus récent au plus
+   * ancien, chacun avec ses réponses), avec le nombre de commentaires et la moyenne des notes du
+   * profil. La page suivante se lit en repassant le curseur de celle-ci
+   * ({@link PageCommentairesDTO#getCurseurDate()}, {@link PageCommentairesDTO#getCurseurId()}).
+   *
+   * @param profilId l'identifiant du profil
+   * @param apresDate la date du curseur de la page précédente, ou null pour la première page
+   * @param apresId l'identifiant du curseur de la page précédente
+   * @param taille le nombre maximal de fils de la page
+   * @return la page de fils
+   */
+  public PageCommentairesDTO getFilsCommentaires(Long profilId, LocalDateTime apresDate,
+      Long apresId, int taille) {
+    if (profilId == null) {
+      throw new IllegalArgumentException("Le profil doit être défini");
+    }
+    if (taille <= 0) {
+      throw new IllegalArgumentException("La taille de la page doit être strictement positive");
+    }
+    if (apresDate != null && apresId == null) {
+      throw new IllegalArgumentException("Le curseur doit contenir une date et un identifiant");
+    }
+
+    // Un fil de plus que demandé pour savoir s'il existe une page suivante
+    List<Object[]> lignes =
+        commentaireRepository.findFilsByProfilId(profilId, apresDate, apresId, taille + 1);
+    if (lignes.isEmpty()) {
+      Object[] statistiques = commentaireRepository.getStatistiques(profilId);
+      return new PageCommentairesDTO(new ArrayList<>(), ((Number) statistiques[0]).longValue(),
+          moyenne(statistiques[1]), false);
+    }
+
+    // Les lignes arrivent groupées par commentaire : un seul passage suffit
+    Map<Long, FilCommentaireDTO> fils = new LinkedHashMap<>();
+    for (Object[] ligne : lignes) {
+      Commentaire commentaire = (Commentaire) ligne[0];
+      FilCommentaireDTO fil = fils.computeIfAbsent(commentaire.getId(),
+          id -> new FilCommentaireDTO(commentaire));
+      if (ligne[1] != null) {
+        fil.getReponses().add((Commentaire) ligne[1]);
+      }
+    }
+
+    List<FilCommentaireDTO> page = new ArrayList<>(fils.values());
+    boolean pageSuivante = page.size() > taille;
+    if (pageSuivante) {
+      page = new ArrayList<>(page.subList(0, taille));
+    }
+    Object[] premiereLigne = lignes.get(0);
+    return new PageCommentairesDTO(page, ((Number) premiereLigne[2]).longValue(),
+        moyenne(premiereLigne[3]), pageSuivante);
+  }
+
+  private static double moyenne(Object valeur) {
+    return valeur != null ? ((Number) valeur).doubleValue() : 0.0;
+  }
+
   /**
    * Récupérer les réponses d'un commentaire
    */
@@ -7,12 +7,14 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.Table;
 
 @Entity
-@Table(name = "controles_techniques")
+@Table(name = "controles_techniques",
+    indexes = @Index(name = "idx_controles_date_limite", columnList = "date_prochain_controle"))
 public class ControleTechnique {
 
   @Id
@@ -37,7 +39,10 @@ public class ControleTechnique {
   private Integer kilometrageDernierControle; // mileage au dernier contrôle
 
   @Column(name = "date_prochain_controle")
-  private LocalDate dateLimite; // prochain contrôle technique (calculer automatiquement)
+  private LocalDate dateLimite; // prochain contrôle technique (tenu à jour à chaque écriture)
+
+  @Column(name = "date_limite_signalee")
+  private LocalDate dateLimiteSignalee; // dernière date limite ayant fait l'objet d'une alerte
 
   @Column(name = "date_dernier_entretien")
   private LocalDate dateDernierEntretien; // dernier entretien
@@ -109,6 +114,14 @@ public class ControleTechnique {
     this.dateLimite = dateLimite;
   }
 
+  public LocalDate getDateLimiteSignalee() {
+    return dateLimiteSignalee;
+  }
+
+  public void setDateLimiteSignalee(LocalDate dateLimiteSignalee) {
+    this.dateLimiteSignalee = dateLimiteSignalee;
+  }
+
   public LocalDate getDateDernierEntretien() {
     return dateDernierEntretien;
   }
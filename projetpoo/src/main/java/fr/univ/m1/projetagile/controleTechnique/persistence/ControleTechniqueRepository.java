@@ -1,9 +1,14 @@
 package fr.univ.m1.projetagile.controleTechnique.persistence;
 
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import org.hibernate.jpa.HibernateHints;
 import fr.univ.m1.projetagile.controleTechnique.entity.ControleTechnique;
 import fr.univ.m1.projetagile.core.DatabaseConnection;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityTransaction;
+import jakarta.persistence.Query;
 import jakarta.persistence.TypedQuery;
 
 /**
@@ -73,6 +78,115 @@ public class ControleTechniqueRepository {
     }
   }
 
+  /**
+   * Échéances de tous les contrôles techniques, pour construire l'index en mémoire.
+   *
+   * @return des lignes [vehiculeId, agentId, dateMiseEnCirculation, dateDernierControle,
+   *         dateLimite, dateLimiteSignalee]
+   */
+  public List<Object[]> findEcheances() {
+    try (EntityManager em = DatabaseConnection.getEntityManager()) {
+      return em
+          .createQuery("SELECT v.id, p.idU, ct.dateMiseEnCirculation, ct.date, ct.dateLimite, "
+              + "ct.dateLimiteSignalee FROM ControleTechnique ct JOIN ct.vehicule v "
+              + "LEFT JOIN v.proprietaire p", Object[].class)
+          .setHint(HibernateHints.HINT_READ_ONLY, true)
+          .setHint(HibernateHints.HINT_FETCH_SIZE, 1000).getResultList();
+    } catch (Exception e) {
+      throw new RuntimeException("Erreur lors de la récupération des échéances de contrôle", e);
+    }
+  }
+
+  /**
+   * Contrôles techniques dont la date limite tombe au plus tard à la date donnée (retards
+   * compris) : parcours de l'index sur la date du prochain contrôle.
+   *
+   * @param limite la date limite incluse
+   * @param agentId le propriétaire des véhicules (null pour toute la flotte)
+   * @return les contrôles techniques, véhicule chargé, par date limite croissante
+   */
+  public List<ControleTechnique> findByDateLimiteAvant(LocalDate limite, Long agentId) {
+    try (EntityManager em = DatabaseConnection.getEntityManager()) {
+      TypedQuery<ControleTechnique> query = em.createQuery(
+          "SELECT ct FROM ControleTechnique ct JOIN FETCH ct.vehicule v "
+              + "WHERE ct.dateLimite <= :limite"
+              + (agentId != null ? " AND v.proprietaire.idU = :agentId" : "")
+              + " ORDER BY ct.dateLimite",
+          ControleTechnique.class);
+      query.setParameter("limite", limite);
+      if (agentId != null) {
+        query.setParameter("agentId", agentId);
+      }
+      return query.getResultList();
+    } catch (Exception e) {
+      throw new RuntimeException("Erreur lors de la récupération des contrôles à prévoir", e);
+    }
+  }
+
+  /**
+   * Renseigne en une transaction la date limite des contrôles qui n'en avaient pas.
+   *
+   * @param datesLimites vehiculeId -> date du prochain contrôle
+   */
+  public void updateDatesLimites(Map<Long, LocalDate> datesLimites) {
+    if (datesLimites.isEmpty()) {
+      return;
+    }
+    EntityTransaction transaction = null;
+    try (EntityManager em = DatabaseConnection.getEntityManager()) {
+      transaction = em.getTransaction();
+      transaction.begin();
+
+      Query update = em.createQuery("UPDATE ControleTechnique ct SET ct.dateLimite = :dateLimite "
+          + "WHERE ct.vehicule.id = :vehiculeId AND ct.dateLimite IS NULL");
+      for (Map.Entry<Long, LocalDate> entree : datesLimites.entrySet()) {
+        update.setParameter("dateLimite", entree.getValue())
+            .setParameter("vehiculeId", entree.getKey()).executeUpdate();
+      }
+
+      transaction.commit();
+
+    } catch (Exception e) {
+      if (transaction != null && transaction.isActive()) {
+        transaction.rollback();
+      }
+      throw new RuntimeException("Erreur lors de l'enregistrement des dates limites", e);
+    }
+  }
+
+  /**
+   * Enregistre en une transaction les dates limites signalées, pour ne pas les signaler à nouveau
+   * après un redémarrage. Une date limite modifiée entre-temps n'est pas marquée.
+   *
+   * @param datesLimites vehiculeId -> date limite signalée
+   */
+  public void marquerSignalees(Map<Long, LocalDate> datesLimites) {
+    if (datesLimites.isEmpty()) {
+      return;
+    }
+    EntityTransaction transaction = null;
+    try (EntityManager em = DatabaseConnection.getEntityManager()) {
+      transaction = em.getTransaction();
+      transaction.begin();
+
+      Query update = em.createQuery("UPDATE ControleTechnique ct "
+          + "SET ct.dateLimiteSignalee = :dateLimite "
+          + "WHERE ct.vehicule.id = :vehiculeId AND ct.dateLimite = :dateLimite");
+      for (Map.Entry<Long, LocalDate> entree : datesLimites.entrySet()) {
+        update.setParameter("dateLimite", entree.getValue())
+            .setParameter("vehiculeId", entree.getKey()).executeUpdate();
+      }
+
+      transaction.commit();
+
+    } catch (Exception e) {
+      if (transaction != null && transaction.isActive()) {
+        transaction.rollback();
+      }
+      throw new RuntimeException("Erreur lors de l'enregistrement des alertes de contrôle", e);
+    }
+  }
+
   /**
    * Supprime un contrôle technique de la base de données
    *
@@ -5,7 +5,10 @@ import java.time.LocalDate;
 import java.time.Period;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import fr.univ.m1.projetagile.VerificationLocation.service.SeriesKilometriques;
 import fr.univ.m1.projetagile.controleTechnique.entity.ControleTechnique;
 import fr.univ.m1.projetagile.controleTechnique.persistence.ControleTechniqueRepository;
 import fr.univ.m1.projetagile.core.entity.Vehicule;
@@ -19,6 +22,16 @@ import fr.univ.m1.projetagile.core.persistence.VehiculeRepository;
 
 public class ControlTechniqueService {
 
+  /** Kilomètres parcourus depuis le dernier contrôle à partir desquels chaque entretien est dû */
+  private static final int[] SEUILS_ENTRETIEN_KM = {15000, 30000, 60000, 80000, 100000};
+
+  private static final String[] ENTRETIENS_PAR_KILOMETRAGE = {
+      "changer l'huile et le filtre (tous les 15 000 km)",
+      "vérifier les plaques de frein et les disques (tous les 30 000 km)",
+      "changer la courroie d'entraînement (tous les 60 000 km)",
+      "changer les bougies d'allumage (tous les 80 000 km)",
+      "vérifier l'état général du véhicule (tous les 100 000 km)"};
+
   private final VehiculeRepository vehiculeRepository;
   private final ControleTechniqueRepository controleTechniqueRepository;
 
@@ -94,7 +107,17 @@ public class ControlTechniqueService {
       ct.setResultat(resultat);
     }
 
-    return controleTechniqueRepository.save(ct);
+    // Date limite saisie, sinon recalculée si les dates dont elle dépend ont changé
+    if (dateProchainControle != null) {
+      ct.setDateLimite(dateProchainControle);
+    } else if (ct.getDateLimite() == null || dateMiseEnCirculation != null
+        || dateDernierControle != null) {
+      ct.setDateLimite(calculerDateLimite(ct.getDateMiseEnCirculation(), ct.getDate()));
+    }
+
+    ct = controleTechniqueRepository.save(ct);
+    indexerEcheance(ct);
+    return ct;
   }
 
   /**
@@ -122,19 +145,14 @@ public class ControlTechniqueService {
     // obtenir la date du prochain contrôle
     LocalDate dateProchainControle = calculerDateProchainControle(vehicule);
 
-    // Si la date n'a pas encore été calculée, on la calcule et on l'enregistre
-    if (dateProchainControle == null) {
-      dateProchainControle = calculerEtEnregistrerProchainControle(vehicule);
-    }
-
     // verifier si le contrôle est proche (dans les 30 jours)
-    return estProchainControleProche(dateProchainControle, 30);
+    return estProchainControleProche(dateProchainControle, EcheancesControles.JOURS_ALERTE);
   }
 
   /**
-   * Calculer et retourner la date du prochain contrôle (sans enregistrer). Suivant les
-   * réglementations françaises: - Nouveau véhicule (0-4 ans): premier contrôle à la 4ème année -
-   * 4-10 ans: contrôle tous les 2 ans - Plus de 10 ans: contrôle annuel
+   * Retourne la date du prochain contrôle, tenue à jour à chaque enregistrement du contrôle
+   * technique et lue dans l'index en mémoire des échéances ({@link EcheancesControles}), sans
+   * requête.
    *
    * @param vehicule le véhicule à vérifier
    * @return la date du prochain contrôle, ou null si elle ne peut pas être calculée
@@ -143,15 +161,20 @@ public class ControlTechniqueService {
     if (vehicule == null) {
       return null;
     }
+    return EcheancesControles.getDateLimite(vehicule.getId());
+  }
 
-    ControleTechnique ct = getControleTechniqueByVehiculeId(vehicule.getId());
-    if (ct == null) {
-      return null;
-    }
-
-    LocalDate dateDernierControle = ct.getDate();
-    LocalDate dateMiseEnCirculation = ct.getDateMiseEnCirculation();
-
+  /**
+   * Calcule la date du prochain contrôle. Suivant les réglementations françaises: - Nouveau
+   * véhicule (0-4 ans): premier contrôle à la 4ème année - 4-10 ans: contrôle tous les 2 ans - Plus
+   * de 10 ans: contrôle annuel
+   *
+   * @param dateMiseEnCirculation la date de première mise en circulation
+   * @param dateDernierControle la date du dernier contrôle (null si aucun)
+   * @return la date du prochain contrôle, ou null si elle ne peut pas être calculée
+   */
+  static LocalDate calculerDateLimite(LocalDate dateMiseEnCirculation,
+      LocalDate dateDernierControle) {
     if (dateMiseEnCirculation == null) {
       // si la date de mise en circulation est inconnue, on ne peut pas calculer
       return null;
@@ -182,17 +205,32 @@ public class ControlTechniqueService {
    * @return la date du prochain contrôle calculée
    */
   public LocalDate calculerEtEnregistrerProchainControle(Vehicule vehicule) {
-    LocalDate dateProchainControle = calculerDateProchainControle(vehicule);
+    ControleTechnique ct = vehicule != null ? getControleTechniqueByVehiculeId(vehicule.getId())
+        : null;
+    if (ct == null) {
+      return null;
+    }
 
+    LocalDate dateProchainControle =
+        calculerDateLimite(ct.getDateMiseEnCirculation(), ct.getDate());
     if (dateProchainControle != null) {
-      ControleTechnique ct = getOrCreateControleTechnique(vehicule.getId());
       ct.setDateLimite(dateProchainControle);
-      controleTechniqueRepository.save(ct);
+      indexerEcheance(controleTechniqueRepository.save(ct));
     }
 
     return dateProchainControle;
   }
 
+  /**
+   * Reporte la date limite enregistrée dans l'index des échéances.
+   */
+  private void indexerEcheance(ControleTechnique ct) {
+    Vehicule vehicule = ct.getVehicule();
+    EcheancesControles.mettreAJour(vehicule.getId(),
+        vehicule.getProprietaire() != null ? vehicule.getProprietaire().getIdU() : null,
+        ct.getDateLimite());
+  }
+
   /**
    * Vérifie si le prochain contrôle technique est proche dans un certain nombre de jours.
    *
@@ -231,8 +269,6 @@ public class ControlTechniqueService {
       return "Véhicule non spécifié";
     }
 
-    // Toujours recalculer pour s'assurer que les données sont fraîches (ne pas faire confiance à la
-    // dateLimite mise en cache)
     LocalDate dateProchainControle = calculerDateProchainControle(vehicule);
 
     if (dateProchainControle == null) {
@@ -400,7 +436,8 @@ public class ControlTechniqueService {
   // ==================== MAINTENANCE METHODS ====================
 
   /**
-   * For US.A.11: maintenance recommendations based on mileage.
+   * For US.A.11: maintenance recommendations based on mileage. The current mileage is the latest
+   * of the one entered on the inspection and the last reading of the rental verifications.
    *
    * @param vehicule the vehicle to check
    * @return a list of maintenance recommendations
@@ -413,41 +450,74 @@ public class ControlTechniqueService {
     }
 
     ControleTechnique ct = getControleTechniqueByVehiculeId(vehicule.getId());
-    if (ct == null || ct.getKilometrageActuel() == null
-        || ct.getKilometrageDernierControle() == null) {
+    Integer kilometrageActuel = getKilometrageActuel(vehicule.getId(), ct);
+    if (kilometrageActuel == null || ct.getKilometrageDernierControle() == null) {
       return recommandations;
     }
 
-    int kilometrageActuel = ct.getKilometrageActuel();
-    int kilometrageDernierControle = ct.getKilometrageDernierControle();
-    int kilometresParcourus = kilometrageActuel - kilometrageDernierControle;
+    int kilometresParcourus = kilometrageActuel - ct.getKilometrageDernierControle();
 
     if (kilometresParcourus <= 0) {
       return recommandations;
     }
 
-
-    if (kilometresParcourus >= 15000) {
-      recommandations.add("changer l'huile et le filtre (tous les 15 000 km)");
+    for (int i = 0; i < SEUILS_ENTRETIEN_KM.length; i++) {
+      if (kilometresParcourus >= SEUILS_ENTRETIEN_KM[i]) {
+        recommandations.add(ENTRETIENS_PAR_KILOMETRAGE[i]);
+      }
     }
 
-    if (kilometresParcourus >= 30000) {
-      recommandations.add("vérifier les plaques de frein et les disques (tous les 30 000 km)");
-    }
+    return recommandations;
+  }
+
+  /**
+   * Predicts when each mileage-based maintenance not yet due will be reached, at the usage rate
+   * measured on the vehicle's mileage series ({@link SeriesKilometriques#predireDate(Long, int)}),
+   * without reading the verifications.
+   *
+   * @param vehicule the vehicle to check
+   * @return the predicted date of each upcoming maintenance, in mileage order; empty when the
+   *         mileage at the last inspection or the usage rate is unknown
+   */
+  public Map<String, LocalDate> getPrevisionsEntretienParKilometrage(Vehicule vehicule) {
+    Map<String, LocalDate> previsions = new LinkedHashMap<>();
 
-    if (kilometresParcourus >= 60000) {
-      recommandations.add("changer la courroie d'entraînement (tous les 60 000 km)");
+    if (vehicule == null) {
+      return previsions;
     }
 
-    if (kilometresParcourus >= 80000) {
-      recommandations.add("changer les bougies d'allumage (tous les 80 000 km)");
+    ControleTechnique ct = getControleTechniqueByVehiculeId(vehicule.getId());
+    Integer kilometrageActuel = getKilometrageActuel(vehicule.getId(), ct);
+    if (kilometrageActuel == null || ct.getKilometrageDernierControle() == null) {
+      return previsions;
     }
 
-    if (kilometresParcourus >= 100000) {
-      recommandations.add("vérifier l'état général du véhicule (tous les 100 000 km)");
+    for (int i = 0; i < SEUILS_ENTRETIEN_KM.length; i++) {
+      int seuil = ct.getKilometrageDernierControle() + SEUILS_ENTRETIEN_KM[i];
+      if (seuil <= kilometrageActuel) {
+        continue;
+      }
+      LocalDate date = SeriesKilometriques.predireDate(vehicule.getId(), seuil);
+      if (date != null) {
+        previsions.put(ENTRETIENS_PAR_KILOMETRAGE[i], date);
+      }
     }
 
-    return recommandations;
+    return previsions;
+  }
+
+  /**
+   * @return the latest known mileage of the vehicle, or null without an inspection record
+   */
+  private static Integer getKilometrageActuel(Long vehiculeId, ControleTechnique ct) {
+    if (ct == null) {
+      return null;
+    }
+    Integer releve = SeriesKilometriques.getDernierKilometrage(vehiculeId);
+    if (ct.getKilometrageActuel() == null) {
+      return releve;
+    }
+    return releve != null ? Math.max(releve, ct.getKilometrageActuel()) : ct.getKilometrageActuel();
   }
 
   /**
@@ -475,12 +545,27 @@ public class ControlTechniqueService {
     ct.setKilometrageDernierControle(kilometrage);
     ct.setResultat(resultat);
 
-    // Recalculer la date du prochain contrôle
-    LocalDate nouveauProchainControle = calculerDateProchainControle(vehicule);
-    ct.setDateLimite(nouveauProchainControle);
+    // Recalculer la date du prochain contrôle à partir du contrôle qui vient d'être passé
+    ct.setDateLimite(calculerDateLimite(ct.getDateMiseEnCirculation(), dateControle));
 
     // Enregistrer les changements
-    controleTechniqueRepository.save(ct);
+    indexerEcheance(controleTechniqueRepository.save(ct));
+  }
+
+  /**
+   * Contrôles techniques à passer dans les prochains jours, retards compris : parcours de l'index
+   * sur la date limite plutôt qu'un calcul par véhicule.
+   *
+   * @param agentId le propriétaire des véhicules (null pour toute la flotte)
+   * @param jours le nombre de jours à partir d'aujourd'hui
+   * @return les contrôles techniques, véhicule chargé, par date limite croissante
+   */
+  public List<ControleTechnique> getControlesAPrevoir(Long agentId, int jours) {
+    if (jours < 0) {
+      throw new IllegalArgumentException("Le nombre de jours ne peut pas être négatif.");
+    }
+    return controleTechniqueRepository.findByDateLimiteAvant(LocalDate.now().plusDays(jours),
+        agentId);
   }
 
   // ==================== UTILITY METHODS ====================
@@ -492,12 +577,7 @@ public class ControlTechniqueService {
    * @return le nombre de jours restants, ou -1 si il ne peut pas être calculé
    */
   public long calculerJoursRestants(Vehicule vehicule) {
-    ControleTechnique ct = getControleTechniqueByVehiculeId(vehicule.getId());
-    LocalDate dateProchainControle = ct != null ? ct.getDateLimite() : null;
-    if (dateProchainControle == null) {
-      dateProchainControle = calculerDateProchainControle(vehicule);
-    }
-
+    LocalDate dateProchainControle = calculerDateProchainControle(vehicule);
     if (dateProchainControle == null) {
       return -1;
     }
@@ -513,8 +593,7 @@ public class ControlTechniqueService {
    * @return true si le contrôle est en retard, false sinon
    */
   public boolean estControleDepasse(Vehicule vehicule) {
-    ControleTechnique ct = getControleTechniqueByVehiculeId(vehicule.getId());
-    LocalDate dateProchainControle = ct != null ? ct.getDateLimite() : null;
+    LocalDate dateProchainControle = calculerDateProchainControle(vehicule);
     if (dateProchainControle == null) {
       return false;
     }
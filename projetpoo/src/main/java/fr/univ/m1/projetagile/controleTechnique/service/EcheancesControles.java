@@ -0,0 +1,240 @@
+package fr.univ.m1.projetagile.controleTechnique.service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import fr.univ.m1.projetagile.controleTechnique.persistence.ControleTechniqueRepository;
+import fr.univ.m1.projetagile.core.DatabaseConnection;
+import fr.univ.m1.projetagile.core.evenement.BusEvenements;
+import fr.univ.m1.projetagile.core.evenement.EvenementMetier;
+
+/**
+ * Index en mémoire des dates limites de contrôle technique (une par véhicule) et file de priorité
+ * des alertes à venir, ordonnée par date limite. Les méthodes d'information de
+ * {@link ControlTechniqueService} lisent la date limite dans l'index au lieu de recharger le
+ * contrôle et de recalculer l'échéance à chaque appel.
+ *
+ * <p>
+ * L'index est construit au premier accès, en une requête ; les dates limites encore absentes en
+ * base sont alors calculées et enregistrées. {@link ControlTechniqueService} le tient ensuite à
+ * jour à chaque enregistrement. Un ordonnanceur se réveille quand le véhicule en tête de file entre
+ * dans la fenêtre d'alerte ({@link #JOURS_ALERTE} jours avant la date limite) et publie
+ * {@link EvenementMetier#controleTechniqueProche} pour chaque véhicule concerné, une seule fois par
+ * date limite : la date signalée est enregistrée avec le contrôle, et les échéances déjà signalées
+ * ne sont pas remises en file au chargement suivant. L'application appelle {@link #demarrer()} à
+ * son lancement pour que les alertes partent même si aucune date limite n'est lue ; sinon l'index
+ * et l'ordonnanceur démarrent au premier appel de {@link #getDateLimite(Long)} ou de
+ * {@link #signalerEcheances()}. L'ordonnanceur peut être désactivé avec
+ * {@code projetagile.controles.alertes=false}.
+ * </p>
+ */
+public final class EcheancesControles {
+
+  /** Nombre de jours avant la date limite à partir duquel un contrôle est signalé */
+  public static final int JOURS_ALERTE = 30;
+
+  private static final ControleTechniqueRepository repository = new ControleTechniqueRepository();
+
+  private static final ScheduledExecutorService ordonnanceur =
+      Executors.newSingleThreadScheduledExecutor(tache -> {
+        Thread thread = new Thread(tache, "alertes-controles-techniques");
+        thread.setDaemon(true);
+        return thread;
+      });
+
+  /** vehiculeId -> échéance courante */
+  private static final Map<Long, Echeance> echeances = new ConcurrentHashMap<>();
+
+  /**
+   * Échéances pas encore signalées, la plus proche en tête ; une échéance remplacée dans l'index
+   * reste dans la file et est ignorée quand elle en sort
+   */
+  private static final PriorityQueue<Echeance> alertes =
+      new PriorityQueue<>(Comparator.comparing((Echeance echeance) -> echeance.dateLimite));
+
+  private static volatile boolean charge;
+  private static ScheduledFuture<?> prochainReveil;
+
+  private EcheancesControles() {}
+
+  /**
+   * @return true sauf si la propriété {@code projetagile.controles.alertes} vaut false
+   */
+  public static boolean estActif() {
+    return Boolean.parseBoolean(System.getProperty("projetagile.controles.alertes", "true"));
+  }
+
+  /**
+   * Construit l'index et programme la première alerte, si l'ordonnanceur est actif. Une erreur est
+   * signalée sans interrompre le démarrage : l'index sera alors construit au premier accès.
+   */
+  public static void demarrer() {
+    if (!estActif() || charge) {
+      return;
+    }
+    try {
+      charger();
+    } catch (RuntimeException e) {
+      System.err.println("Index des contrôles techniques non construit : " + e.getMessage());
+    }
+  }
+
+  /**
+   * @param vehiculeId l'identifiant du véhicule
+   * @return la date limite de son prochain contrôle, ou null si elle est inconnue
+   */
+  public static LocalDate getDateLimite(Long vehiculeId) {
+    if (!charge) {
+      charger();
+    }
+    Echeance echeance = echeances.get(vehiculeId);
+    return echeance != null ? echeance.dateLimite : null;
+  }
+
+  /**
+   * Enregistre la nouvelle date limite d'un véhicule, après son écriture en base.
+   *
+   * @param vehiculeId l'identifiant du véhicule
+   * @param agentId son propriétaire
+   * @param dateLimite la date du prochain contrôle (null si elle est inconnue)
+   */
+  static synchronized void mettreAJour(Long vehiculeId, Long agentId, LocalDate dateLimite) {
+    if (!charge || vehiculeId == null) {
+      // L'index sera construit à partir de la base au premier accès
+      return;
+    }
+    Echeance actuelle = echeances.get(vehiculeId);
+    if (actuelle != null && actuelle.dateLimite.equals(dateLimite)) {
+      return;
+    }
+    if (dateLimite == null) {
+      echeances.remove(vehiculeId);
+      return;
+    }
+    Echeance echeance = new Echeance(vehiculeId, agentId, dateLimite);
+    echeances.put(vehiculeId, echeance);
+    alertes.add(echeance);
+    reprogrammer();
+  }
+
+  /**
+   * Publie une alerte pour chaque véhicule entré dans la fenêtre d'alerte depuis le dernier
+   * passage. Appelé par l'ordonnanceur ; peut aussi être appelé directement.
+   *
+   * @return les véhicules signalés
+   */
+  public static List<Long> signalerEcheances() {
+    if (!charge) {
+      charger();
+    }
+    List<Echeance> entrees = depiler(LocalDate.now());
+    List<Long> vehiculeIds = new ArrayList<>();
+    Map<Long, LocalDate> signalees = new HashMap<>();
+    for (Echeance echeance : entrees) {
+      BusEvenements.publier(
+          EvenementMetier.controleTechniqueProche(echeance.vehiculeId, echeance.agentId));
+      vehiculeIds.add(echeance.vehiculeId);
+      signalees.put(echeance.vehiculeId, echeance.dateLimite);
+    }
+    repository.marquerSignalees(signalees);
+    return vehiculeIds;
+  }
+
+  // =======================
+  // Index et file
+  // =======================
+
+  private static synchronized void charger() {
+    if (charge) {
+      return;
+    }
+    Map<Long, LocalDate> calculees = new HashMap<>();
+    for (Object[] ligne : repository.findEcheances()) {
+      Long vehiculeId = (Long) ligne[0];
+      LocalDate dateLimite = (LocalDate) ligne[4];
+      if (dateLimite == null) {
+        dateLimite = ControlTechniqueService.calculerDateLimite((LocalDate) ligne[2],
+            (LocalDate) ligne[3]);
+        if (dateLimite == null) {
+          continue;
+        }
+        calculees.put(vehiculeId, dateLimite);
+      }
+      Echeance echeance = new Echeance(vehiculeId, (Long) ligne[1], dateLimite);
+      echeances.put(vehiculeId, echeance);
+      if (!dateLimite.equals(ligne[5])) {
+        alertes.add(echeance); // Pas encore signalée
+      }
+    }
+    repository.updateDatesLimites(calculees);
+    charge = true;
+    reprogrammer();
+  }
+
+  private static synchronized List<Echeance> depiler(LocalDate aujourdhui) {
+    List<Echeance> entrees = new ArrayList<>();
+    while (!alertes.isEmpty()
+        && !alertes.peek().dateLimite.minusDays(JOURS_ALERTE).isAfter(aujourdhui)) {
+      Echeance echeance = alertes.poll();
+      if (echeances.get(echeance.vehiculeId) == echeance) {
+        entrees.add(echeance);
+      }
+    }
+    reprogrammer();
+    return entrees;
+  }
+
+  /**
+   * Programme le prochain réveil à l'entrée dans la fenêtre d'alerte de l'échéance en tête.
+   */
+  private static synchronized void reprogrammer() {
+    if (!estActif()) {
+      return;
+    }
+    if (prochainReveil != null) {
+      prochainReveil.cancel(false);
+      prochainReveil = null;
+    }
+    Echeance tete = alertes.peek();
+    if (tete == null) {
+      return;
+    }
+    LocalDateTime entree = tete.dateLimite.minusDays(JOURS_ALERTE).atStartOfDay();
+    long delai = Math.max(0, Duration.between(LocalDateTime.now(), entree).toMillis());
+    prochainReveil = ordonnanceur.schedule(EcheancesControles::reveiller, delai,
+        TimeUnit.MILLISECONDS);
+  }
+
+  private static void reveiller() {
+    try {
+      signalerEcheances();
+    } catch (RuntimeException e) {
+      System.err.println("Signalement des contrôles techniques impossible : " + e.getMessage());
+    } finally {
+      DatabaseConnection.closeEntityManager();
+    }
+  }
+
+  private static final class Echeance {
+    private final Long vehiculeId;
+    private final Long agentId;
+    private final LocalDate dateLimite;
+
+    private Echeance(Long vehiculeId, Long agentId, LocalDate dateLimite) {
+      this.vehiculeId = vehiculeId;
+      this.agentId = agentId;
+      this.dateLimite = dateLimite;
+    }
+  }
+}
@@ -11,16 +11,36 @@ import jakarta.persistence.Persistence;
  */
 public class DatabaseConnection {
 
-  private static EntityManagerFactory emf;
+  /**
+   * Propriété système permettant de choisir l'unité de persistance ("default" par défaut), par
+   * exemple pour une base embarquée de test de charge
+   */
+  public static final String PERSISTENCE_UNIT_PROPERTY = "projetagile.persistenceUnit";
+
+  private static volatile EntityManagerFactory emf;
   private static final ThreadLocal<EntityManager> threadLocal = new ThreadLocal<>();
 
+  /** Échéance ({@link System#nanoTime()}) des requêtes du thread courant, si elle est bornée */
+  private static final ThreadLocal<Long> echeanceRequetes = new ThreadLocal<>();
+
   /**
    * Initialize the EntityManagerFactory (thread-safe, singleton)
    */
-  public static void init() {
+  public static synchronized void init() {
+    if (emf == null) {
+      emf = Persistence
+          .createEntityManagerFactory(System.getProperty(PERSISTENCE_UNIT_PROPERTY, "default"));
+    }
+  }
+
+  /**
+   * Retourne l'EntityManagerFactory partagée (initialisée si nécessaire)
+   */
+  public static EntityManagerFactory getEntityManagerFactory() {
     if (emf == null) {
-      emf = Persistence.createEntityManagerFactory("default");
+      init();
     }
+    return emf;
   }
 
   /**
@@ -39,18 +59,50 @@ public class DatabaseConnection {
       em = emf.createEntityManager();
       threadLocal.set(em);
     }
-
+    appliquerEcheance(em);
     return em;
   }
 
   /**
-   * Crée un nouvel EntityManager (pour les cas où on veut explicitement un nouveau)
+   * Borne les requêtes lancées ensuite par le thread courant, via l'EntityManager du thread ou
+   * ceux créés par {@link #createEntityManager()} : le pilote JDBC les interrompt une fois
+   * l'échéance passée.
+   *
+   * @param echeanceNanos l'échéance, en valeur de {@link System#nanoTime()}
+   */
+  public static void limiterRequetes(long echeanceNanos) {
+    echeanceRequetes.set(echeanceNanos);
+  }
+
+  /**
+   * Retire l'échéance posée par {@link #limiterRequetes(long)} pour le thread courant
+   */
+  public static void libererRequetes() {
+    echeanceRequetes.remove();
+  }
+
+  /**
+   * Crée un nouvel EntityManager (pour les cas où on veut explicitement un nouveau), borné comme
+   * celui du thread si {@link #limiterRequetes(long)} a été appelé
    */
   public static EntityManager createEntityManager() {
     if (emf == null) {
       init();
     }
-    return emf.createEntityManager();
+    EntityManager em = emf.createEntityManager();
+    appliquerEcheance(em);
+    return em;
+  }
+
+  private static void appliquerEcheance(EntityManager em) {
+    Long echeance = echeanceRequetes.get();
+    if (echeance != null) {
+      // Délai JDBC, arrondi à la seconde par le pilote : au moins une seconde pour ne pas le
+      // désactiver
+      long restantMs = Math.max(1000L, (echeance - System.nanoTime()) / 1_000_000L);
+      em.setProperty("jakarta.persistence.query.timeout", (int) Math.min(restantMs,
+          Integer.MAX_VALUE));
+    }
   }
 
   /**
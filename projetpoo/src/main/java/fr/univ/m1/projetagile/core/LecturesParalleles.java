@@ -0,0 +1,274 @@
+package fr.univ.m1.projetagile.core;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Exécution concurrente de lectures indépendantes (assemblage d'un profil : note, véhicules,
+ * commentaires...), avec une sémantique de portée structurée : toutes les branches lancées dans
+ * une instance sont attendues par {@link #joindre()}, la première branche en échec ou hors délai
+ * annule les autres et son erreur est propagée.
+ *
+ * <p>
+ * Chaque branche s'exécute sur un thread du pool partagé et ferme l'EntityManager de ce thread en
+ * fin de tâche. Le mode parallèle peut être désactivé avec la propriété système
+ * {@code projetagile.profil.parallele=false} : les branches sont alors exécutées immédiatement, les
+ * unes après les autres, dans le thread appelant. Le délai par défaut de chaque branche est fixé
+ * par {@code projetagile.profil.delaiBrancheMs} (2000 ms par défaut).
+ * </p>
+ *
+ * <p>
+ * Le délai d'une branche court à partir du début de son exécution, pour qu'une file chargée ne
+ * consomme pas le budget de la lecture ; l'attente d'un thread libre est bornée séparément par le
+ * même délai. Le délai borne l'attente, pas le travail : une branche hors délai ou annulée voit son
+ * thread interrompu, et ses requêtes JPA, sur l'EntityManager du thread comme sur un EntityManager
+ * dédié, reçoivent un délai JDBC calé sur la même échéance
+ * ({@link DatabaseConnection#limiterRequetes(long)}), mais une lecture qui ignore l'interruption
+ * garde son thread jusqu'à sa fin.
+ * </p>
+ *
+ * <pre>
+ * try (LecturesParalleles lectures = new LecturesParalleles()) {
+ *   Branche&lt;Double&gt; note = lectures.lancer("note", () -&gt; ...);
+ *   Branche&lt;List&lt;VehiculeDTO&gt;&gt; vehicules = lectures.lancer("vehicules", () -&gt; ...);
+ *   lectures.joindre();
+ *   dto.setNoteMoyenne(note.get());
+ * }
+ * </pre>
+ */
+public final class LecturesParalleles implements AutoCloseable {
+
+  /** Propriété système activant ou non l'exécution parallèle des branches */
+  public static final String PARALLELE_PROPERTY = "projetagile.profil.parallele";
+
+  /** Propriété système fixant le délai par défaut d'une branche, en millisecondes */
+  public static final String DELAI_PROPERTY = "projetagile.profil.delaiBrancheMs";
+
+  private static final AtomicInteger compteurThreads = new AtomicInteger();
+
+  private static final ExecutorService executor = Executors.newFixedThreadPool(
+      Math.max(4, 2 * Runtime.getRuntime().availableProcessors()), tache -> {
+        Thread thread = new Thread(tache, "lecture-profil-" + compteurThreads.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      });
+
+  private final boolean parallele;
+  private final List<Branche<?>> branches = new ArrayList<>();
+  private final AtomicReference<Branche<?>> premierEchec = new AtomicReference<>();
+
+  /**
+   * Crée une portée dont le mode (parallèle ou séquentiel) suit la propriété
+   * {@value #PARALLELE_PROPERTY}.
+   */
+  public LecturesParalleles() {
+    this(estActive());
+  }
+
+  /**
+   * @param parallele false pour exécuter les branches dans le thread appelant
+   */
+  public LecturesParalleles(boolean parallele) {
+    this.parallele = parallele;
+  }
+
+  /**
+   * @return true si l'exécution parallèle est activée (propriété {@value #PARALLELE_PROPERTY})
+   */
+  public static boolean estActive() {
+    return Boolean.parseBoolean(System.getProperty(PARALLELE_PROPERTY, "true"));
+  }
+
+  /**
+   * @return true si les branches de cette portée s'exécutent sur le pool de threads
+   */
+  public boolean isParallele() {
+    return parallele;
+  }
+
+  /**
+   * Lance une branche avec le délai par défaut.
+   *
+   * @see #lancer(String, Duration, Callable)
+   */
+  public <T> Branche<T> lancer(String nom, Callable<T> lecture) {
+    return lancer(nom, Duration.ofMillis(Long.getLong(DELAI_PROPERTY, 2000L)), lecture);
+  }
+
+  /**
+   * Lance une branche. En mode séquentiel, la lecture est exécutée immédiatement et son exception
+   * éventuelle est propagée directement.
+   *
+   * @param nom le nom de la branche (utilisé dans les messages d'erreur)
+   * @param delai le délai maximal de la branche, compté à partir du début de son exécution (il
+   *        borne aussi les requêtes JPA de la branche) ; une branche qui attend un thread libre
+   *        plus longtemps que ce délai échoue sans s'exécuter
+   * @param lecture la lecture à exécuter
+   * @return la branche, dont le résultat est disponible après {@link #joindre()}
+   */
+  public <T> Branche<T> lancer(String nom, Duration delai, Callable<T> lecture) {
+    if (nom == null || delai == null || lecture == null) {
+      throw new IllegalArgumentException("Le nom, le délai et la lecture sont obligatoires.");
+    }
+
+    CompletableFuture<T> future;
+    Future<?> tache = null;
+    if (parallele) {
+      CompletableFuture<T> resultat = new CompletableFuture<>();
+      AtomicBoolean demarree = new AtomicBoolean();
+      tache = executor.submit(() -> {
+        if (!demarree.compareAndSet(false, true) || resultat.isDone()) {
+          return; // Restée en file au-delà de son délai
+        }
+        // L'échéance part du début de l'exécution : l'attente dans la file n'est pas décomptée
+        long echeance = System.nanoTime() + delai.toNanos();
+        resultat.orTimeout(delai.toMillis(), TimeUnit.MILLISECONDS);
+        DatabaseConnection.limiterRequetes(echeance);
+        try {
+          resultat.complete(lecture.call());
+        } catch (Throwable e) {
+          resultat.completeExceptionally(e);
+        } finally {
+          DatabaseConnection.libererRequetes();
+          DatabaseConnection.closeEntityManager();
+        }
+      });
+      Future<?> enFile = tache;
+      CompletableFuture.delayedExecutor(delai.toMillis(), TimeUnit.MILLISECONDS).execute(() -> {
+        if (demarree.compareAndSet(false, true)) {
+          enFile.cancel(false);
+          resultat.completeExceptionally(new TimeoutException());
+        }
+      });
+      future = resultat;
+    } else {
+      try {
+        future = CompletableFuture.completedFuture(lecture.call());
+      } catch (RuntimeException e) {
+        throw e;
+      } catch (Exception e) {
+        throw new RuntimeException("Erreur lors de la lecture '" + nom + "'", e);
+      }
+    }
+
+    Branche<T> branche = new Branche<>(nom, delai, future, tache);
+    branches.add(branche);
+    future.whenComplete((resultat, erreur) -> {
+      if (erreur != null && premierEchec.compareAndSet(null, branche)) {
+        annuler();
+      }
+    });
+    return branche;
+  }
+
+  /**
+   * Attend la fin de toutes les branches lancées.
+   *
+   * @throws IllegalStateException si une branche a dépassé son délai ou si l'attente est
+   *         interrompue
+   * @throws RuntimeException l'erreur de la première branche en échec
+   */
+  public void joindre() {
+    try {
+      CompletableFuture.allOf(branches.stream().map(b -> b.future)
+          .toArray(CompletableFuture[]::new)).get();
+    } catch (InterruptedException e) {
+      annuler();
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Lecture du profil interrompue.", e);
+    } catch (ExecutionException | CancellationException e) {
+      annuler();
+      Branche<?> echec = premierEchec.get();
+      if (echec == null) {
+        echec = branches.stream().filter(b -> b.future.isCompletedExceptionally()).findFirst()
+            .orElseThrow(() -> new IllegalStateException("Lecture du profil en échec.", e));
+      }
+      Throwable cause = echec.erreur();
+      if (cause instanceof TimeoutException) {
+        throw new IllegalStateException("La lecture '" + echec.nom + "' a dépassé son délai de "
+            + echec.delai.toMillis() + " ms.", cause);
+      }
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new RuntimeException("Erreur lors de la lecture '" + echec.nom + "'", cause);
+    }
+  }
+
+  /**
+   * Annule les branches encore en cours (leur résultat est abandonné).
+   */
+  @Override
+  public void close() {
+    annuler();
+  }
+
+  private void annuler() {
+    for (Branche<?> branche : branches) {
+      // Annuler le CompletableFuture n'interrompt pas la tâche : c'est le Future du pool qui le fait
+      branche.future.cancel(true);
+      if (branche.tache != null) {
+        branche.tache.cancel(true);
+      }
+    }
+  }
+
+  // =======================
+
+  /**
+   * Résultat d'une branche lancée par {@link LecturesParalleles#lancer}.
+   *
+   * @param <T> le type du résultat
+   */
+  public static final class Branche<T> {
+
+    private final String nom;
+    private final Duration delai;
+    private final CompletableFuture<T> future;
+    private final Future<?> tache;
+
+    private Branche(String nom, Duration delai, CompletableFuture<T> future, Future<?> tache) {
+      this.nom = nom;
+      this.delai = delai;
+      this.future = future;
+      this.tache = tache;
+    }
+
+    /**
+     * @return le résultat de la branche
+     * @throws IllegalStateException si la branche n'est pas terminée avec succès (appeler
+     *         {@link LecturesParalleles#joindre()} d'abord)
+     */
+    public T get() {
+      if (!future.isDone() || future.isCompletedExceptionally()) {
+        throw new IllegalStateException("La lecture '" + nom + "' n'est pas terminée.");
+      }
+      return future.join();
+    }
+
+    private Throwable erreur() {
+      try {
+        future.join();
+        return null;
+      } catch (CompletionException e) {
+        return e.getCause();
+      } catch (CancellationException e) {
+        return e;
+      }
+    }
+  }
+}
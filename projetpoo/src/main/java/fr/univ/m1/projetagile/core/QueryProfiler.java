@@ -0,0 +1,290 @@
+package fr.univ.m1.projetagile.core;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.QueryStatistics;
+import org.hibernate.stat.Statistics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import jakarta.persistence.Parameter;
+import jakarta.persistence.TypedQuery;
+
+/**
+ * Surface de statistiques des requêtes JPQL.
+ *
+ * <p>
+ * S'appuie sur les statistiques Hibernate ({@code hibernate.generate_statistics}) pour agréger,
+ * par empreinte de requête (littéraux retirés, espaces normalisés), le nombre d'exécutions, le
+ * nombre de lignes et le temps total passé en base. Les requêtes exécutées via
+ * {@link #getResultList(TypedQuery)} ou {@link #getSingleResult(TypedQuery)} sont en plus
+ * chronométrées : si leur durée dépasse le seuil configuré, elles sont journalisées avec leurs
+ * paramètres liés.
+ * </p>
+ *
+ * <p>
+ * Le seuil se configure avec la propriété système {@value #SEUIL_PROPERTY} (en millisecondes, 200
+ * par défaut) ou via {@link #setSeuilRequeteLenteMs(long)}.
+ * </p>
+ */
+public final class QueryProfiler {
+
+  /** Propriété système permettant de fixer le seuil des requêtes lentes (ms) */
+  public static final String SEUIL_PROPERTY = "projetagile.slowQueryThresholdMs";
+
+  private static final Logger logger = LoggerFactory.getLogger(QueryProfiler.class);
+
+  private static final Pattern LITTERAL_CHAINE = Pattern.compile("'(?:[^']|'')*'");
+  private static final Pattern PARAMETRE_POSITIONNEL = Pattern.compile("\\?\\d+");
+  private static final Pattern LITTERAL_NUMERIQUE = Pattern.compile("\\b\\d+(?:\\.\\d+)?\\b");
+  private static final Pattern LISTE_IN =
+      Pattern.compile("(?i)\\bIN\\s*\\(\\s*(?:\\?|:\\w+)(?:\\s*,\\s*(?:\\?|:\\w+))*\\s*\\)");
+  private static final Pattern ESPACES = Pattern.compile("\\s+");
+
+  private static volatile long seuilRequeteLenteMs = Long.getLong(SEUIL_PROPERTY, 200L);
+
+  private QueryProfiler() {}
+
+  // ==================== CONFIGURATION ====================
+
+  /**
+   * Active la collecte des statistiques Hibernate sur la fabrique courante (équivalent à
+   * {@code hibernate.generate_statistics=true}).
+   */
+  public static void activer() {
+    getStatistics().setStatisticsEnabled(true);
+  }
+
+  /**
+   * Désactive la collecte des statistiques Hibernate.
+   */
+  public static void desactiver() {
+    getStatistics().setStatisticsEnabled(false);
+  }
+
+  /**
+   * Remet à zéro toutes les statistiques collectées.
+   */
+  public static void reinitialiser() {
+    getStatistics().clear();
+  }
+
+  /**
+   * @return le seuil (en millisecondes) au-delà duquel une requête est journalisée
+   */
+  public static long getSeuilRequeteLenteMs() {
+    return seuilRequeteLenteMs;
+  }
+
+  /**
+   * Modifie le seuil de journalisation des requêtes lentes.
+   *
+   * @param seuilMs le nouveau seuil en millisecondes
+   * @throws IllegalArgumentException si le seuil est négatif
+   */
+  public static void setSeuilRequeteLenteMs(long seuilMs) {
+    if (seuilMs < 0) {
+      throw new IllegalArgumentException("Le seuil des requêtes lentes doit être positif ou nul.");
+    }
+    seuilRequeteLenteMs = seuilMs;
+  }
+
+  // ==================== EXÉCUTION CHRONOMÉTRÉE ====================
+
+  /**
+   * Exécute la requête et journalise son texte, son empreinte et ses paramètres si elle dépasse le
+   * seuil des requêtes lentes.
+   *
+   * @param query la requête à exécuter
+   * @return la liste des résultats
+   */
+  public static <T> List<T> getResultList(TypedQuery<T> query) {
+    long debut = System.nanoTime();
+    List<T> resultats = query.getResultList();
+    journaliserSiLente(query, debut, resultats.size());
+    return resultats;
+  }
+
+  /**
+   * Exécute la requête (résultat unique) et la journalise si elle dépasse le seuil des requêtes
+   * lentes.
+   *
+   * @param query la requête à exécuter
+   * @return le résultat unique
+   */
+  public static <T> T getSingleResult(TypedQuery<T> query) {
+    long debut = System.nanoTime();
+    T resultat = query.getSingleResult();
+    journaliserSiLente(query, debut, 1);
+    return resultat;
+  }
+
+  private static void journaliserSiLente(TypedQuery<?> query, long debutNanos, int lignes) {
+    long dureeMs = (System.nanoTime() - debutNanos) / 1_000_000;
+    if (dureeMs < seuilRequeteLenteMs || !logger.isWarnEnabled()) {
+      return;
+    }
+    String jpql = getTexteRequete(query);
+    logger.warn("Requête lente ({} ms, {} ligne(s)) [{}] paramètres={}", dureeMs, lignes,
+        empreinte(jpql), getParametres(query));
+  }
+
+  private static String getTexteRequete(TypedQuery<?> query) {
+    try {
+      return query.unwrap(org.hibernate.query.Query.class).getQueryString();
+    } catch (Exception e) {
+      return query.toString();
+    }
+  }
+
+  private static Map<String, Object> getParametres(TypedQuery<?> query) {
+    Map<String, Object> parametres = new LinkedHashMap<>();
+    for (Parameter<?> parametre : query.getParameters()) {
+      String nom =
+          parametre.getName() != null ? parametre.getName() : "?" + parametre.getPosition();
+      parametres.put(nom, query.isBound(parametre) ? query.getParameterValue(parametre) : null);
+    }
+    return parametres;
+  }
+
+  // ==================== EMPREINTES ====================
+
+  /**
+   * Calcule l'empreinte d'une requête : les littéraux (chaînes, nombres) et les paramètres
+   * positionnels sont remplacés par {@code ?}, les listes {@code IN (...)} réduites à un seul
+   * élément et les espaces normalisés. Deux requêtes ne différant que par leurs valeurs ont donc
+   * la même empreinte.
+   *
+   * @param requete le texte JPQL/HQL
+   * @return l'empreinte normalisée
+   */
+  public static String empreinte(String requete) {
+    if (requete == null) {
+      return "";
+    }
+    String resultat = LITTERAL_CHAINE.matcher(requete).replaceAll("?");
+    resultat = PARAMETRE_POSITIONNEL.matcher(resultat).replaceAll("?");
+    resultat = LITTERAL_NUMERIQUE.matcher(resultat).replaceAll("?");
+    resultat = LISTE_IN.matcher(resultat).replaceAll("IN (?)");
+    return ESPACES.matcher(resultat).replaceAll(" ").trim();
+  }
+
+  // ==================== RAPPORT ====================
+
+  /**
+   * Agrège les statistiques Hibernate par empreinte et retourne les {@code n} empreintes qui
+   * consomment le plus de temps en base.
+   *
+   * @param n le nombre maximal d'entrées
+   * @return les entrées triées par temps total décroissant
+   * @throws IllegalArgumentException si n est négatif ou nul
+   */
+  public static List<EntreeRapport> getTopRequetes(int n) {
+    if (n <= 0) {
+      throw new IllegalArgumentException("Le nombre d'entrées doit être strictement positif.");
+    }
+
+    Statistics statistics = getStatistics();
+    Map<String, EntreeRapport> parEmpreinte = new LinkedHashMap<>();
+    for (String requete : statistics.getQueries()) {
+      QueryStatistics stats = statistics.getQueryStatistics(requete);
+      parEmpreinte.computeIfAbsent(empreinte(requete), EntreeRapport::new).ajouter(stats);
+    }
+
+    List<EntreeRapport> entrees = new ArrayList<>(parEmpreinte.values());
+    entrees.sort(Comparator.comparingLong(EntreeRapport::getTempsTotalMs).reversed()
+        .thenComparing(Comparator.comparingLong(EntreeRapport::getExecutions).reversed()));
+    return entrees.size() > n ? new ArrayList<>(entrees.subList(0, n)) : entrees;
+  }
+
+  /**
+   * Génère un rapport texte des {@code n} requêtes les plus coûteuses.
+   *
+   * @param n le nombre maximal d'entrées
+   * @return le rapport formaté
+   */
+  public static String genererRapport(int n) {
+    List<EntreeRapport> entrees = getTopRequetes(n);
+    StringBuilder rapport = new StringBuilder();
+    rapport.append("=== TOP ").append(n).append(" DES REQUÊTES (temps total) ===\n");
+    if (!getStatistics().isStatisticsEnabled()) {
+      rapport.append("(statistiques Hibernate désactivées)\n");
+    }
+    if (entrees.isEmpty()) {
+      rapport.append("Aucune requête enregistrée.\n");
+      return rapport.toString();
+    }
+    int rang = 1;
+    for (EntreeRapport entree : entrees) {
+      rapport.append(String.format("%2d. total=%d ms | exécutions=%d | lignes=%d | moy=%d ms"
+          + " | max=%d ms%n    %s%n", rang++, entree.getTempsTotalMs(), entree.getExecutions(),
+          entree.getLignes(), entree.getTempsMoyenMs(), entree.getTempsMaxMs(),
+          entree.getEmpreinte()));
+    }
+    return rapport.toString();
+  }
+
+  private static Statistics getStatistics() {
+    return DatabaseConnection.getEntityManagerFactory().unwrap(SessionFactory.class)
+        .getStatistics();
+  }
+
+  // =======================
+
+  /**
+   * Statistiques agrégées pour une empreinte de requête.
+   */
+  public static final class EntreeRapport {
+
+    private final String empreinte;
+    private long executions;
+    private long lignes;
+    private long tempsTotalMs;
+    private long tempsMaxMs;
+
+    private EntreeRapport(String empreinte) {
+      this.empreinte = empreinte;
+    }
+
+    private void ajouter(QueryStatistics stats) {
+      executions += stats.getExecutionCount();
+      lignes += stats.getExecutionRowCount();
+      tempsTotalMs += stats.getExecutionTotalTime();
+      tempsMaxMs = Math.max(tempsMaxMs, stats.getExecutionMaxTime());
+    }
+
+    public String getEmpreinte() {
+      return empreinte;
+    }
+
+    public long getExecutions() {
+      return executions;
+    }
+
+    public long getLignes() {
+      return lignes;
+    }
+
+    public long getTempsTotalMs() {
+      return tempsTotalMs;
+    }
+
+    public long getTempsMaxMs() {
+      return tempsMaxMs;
+    }
+
+    public long getTempsMoyenMs() {
+      return executions == 0 ? 0 : tempsTotalMs / executions;
+    }
+
+    @Override
+    public String toString() {
+      return "EntreeRapport{empreinte='" + empreinte + "', executions=" + executions + ", lignes="
+          + lignes + ", tempsTotalMs=" + tempsTotalMs + ", tempsMaxMs=" + tempsMaxMs + "}";
+    }
+  }
+}
@@ -0,0 +1,313 @@
+package fr.univ.m1.projetagile.core.cache;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+
+/**
+ * Cache borné de DTO, avec éviction LRU au-delà de la taille maximale et expiration des entrées
+ * après une durée de vie fixe. Thread-safe.
+ *
+ * <p>
+ * Les valeurs renvoyées sont partagées entre les appelants et ne doivent pas être modifiées. Une
+ * valeur chargée pendant qu'une invalidation de sa clé a lieu n'est pas mise en cache, pour ne pas
+ * y réinstaller une donnée lue avant l'écriture ; les invalidations des autres clés ne la
+ * concernent pas. Les invalidations par condition ({@link #invaliderSi}) et {@link #vider()}
+ * écartent tous les chargements en cours.
+ * </p>
+ *
+ * @param <K> le type de la clé (identifiant de l'entité)
+ * @param <V> le type du DTO
+ */
+public class CacheDTO<K, V> {
+
+  private final String nom;
+  private final int tailleMax;
+  private final long dureeVieNanos;
+  private final LinkedHashMap<K, Entree<V>> entrees;
+
+  /** Incrémenté à chaque invalidation, pour écarter les chargements concurrents */
+  private long generation;
+
+  /** Dernière invalidation touchant toutes les clés ({@link #invaliderSi}, {@link #vider()}) */
+  private long generationGlobale;
+
+  /**
+   * Génération de la dernière invalidation de chaque clé, bornée à la taille du cache : une clé
+   * oubliée relève d'autant {@link #generationGlobale}
+   */
+  private final LinkedHashMap<K, Long> generationsParCle;
+
+  private long succes;
+  private long echecs;
+  private long evictions;
+  private long expirations;
+  private long invalidations;
+
+  /**
+   * @param nom le nom du cache (rapports)
+   * @param tailleMax le nombre maximal d'entrées
+   * @param dureeVie la durée de vie d'une entrée
+   */
+  public CacheDTO(String nom, int tailleMax, Duration dureeVie) {
+    if (tailleMax <= 0) {
+      throw new IllegalArgumentException("La taille maximale doit être strictement positive.");
+    }
+    if (dureeVie == null || dureeVie.isNegative() || dureeVie.isZero()) {
+      throw new IllegalArgumentException("La durée de vie doit être strictement positive.");
+    }
+    this.nom = nom;
+    this.tailleMax = tailleMax;
+    this.dureeVieNanos = dureeVie.toNanos();
+    this.entrees = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<K, Entree<V>> plusAncienne) {
+        if (size() > CacheDTO.this.tailleMax) {
+          evictions++;
+          return true;
+        }
+        return false;
+      }
+    };
+    this.generationsParCle = new LinkedHashMap<>(16, 0.75f, false) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<K, Long> plusAncienne) {
+        if (size() > CacheDTO.this.tailleMax) {
+          generationGlobale = Math.max(generationGlobale, plusAncienne.getValue());
+          return true;
+        }
+        return false;
+      }
+    };
+  }
+
+  /**
+   * @param cle la clé
+   * @return la valeur en cache, ou null si absente ou expirée
+   */
+  public synchronized V get(K cle) {
+    Entree<V> entree = entrees.get(cle);
+    if (entree != null && System.nanoTime() - entree.creeeA > dureeVieNanos) {
+      entrees.remove(cle);
+      expirations++;
+      entree = null;
+    }
+    if (entree == null) {
+      echecs++;
+      return null;
+    }
+    succes++;
+    return entree.valeur;
+  }
+
+  /**
+   * Renvoie la valeur en cache ou la charge (hors verrou) puis la met en cache.
+   *
+   * @param cle la clé
+   * @param chargeur le calcul de la valeur en cas d'absence
+   * @return la valeur
+   */
+  public V getOuCharger(K cle, Function<K, V> chargeur) {
+    long generationAvant;
+    synchronized (this) {
+      V valeur = get(cle);
+      if (valeur != null) {
+        return valeur;
+      }
+      generationAvant = generation;
+    }
+
+    V valeur = chargeur.apply(cle);
+
+    synchronized (this) {
+      if (valeur != null && estAJour(cle, generationAvant)) {
+        entrees.put(cle, new Entree<>(valeur, System.nanoTime()));
+      }
+    }
+    return valeur;
+  }
+
+  /**
+   * @param cle la clé
+   * @param valeur la valeur à mettre en cache
+   */
+  public synchronized void put(K cle, V valeur) {
+    if (cle != null && valeur != null) {
+      entrees.put(cle, new Entree<>(valeur, System.nanoTime()));
+    }
+  }
+
+  /**
+   * Met une valeur en cache seulement si aucune invalidation de sa clé (ou de toutes les clés) n'a
+   * eu lieu depuis la lecture de la génération {@code generationLecture}, relevée avant de charger
+   * la valeur.
+   *
+   * @param cle la clé
+   * @param valeur la valeur chargée
+   * @param generationLecture la génération relevée par {@link #getGeneration()} avant le
+   *        chargement
+   */
+  public synchronized void put(K cle, V valeur, long generationLecture) {
+    if (estAJour(cle, generationLecture)) {
+      put(cle, valeur);
+    }
+  }
+
+  private boolean estAJour(K cle, long generationLecture) {
+    return generationGlobale <= generationLecture
+        && generationsParCle.getOrDefault(cle, 0L) <= generationLecture;
+  }
+
+  /**
+   * @return le compteur d'invalidations, à relever avant un chargement (voir
+   *         {@link #put(Object, Object, long)})
+   */
+  public synchronized long getGeneration() {
+    return generation;
+  }
+
+  /**
+   * @param cle la clé à retirer (sans effet si null)
+   */
+  public synchronized void invalider(K cle) {
+    generation++;
+    if (cle != null) {
+      generationsParCle.put(cle, generation);
+    }
+    if (cle != null && entrees.remove(cle) != null) {
+      invalidations++;
+    }
+  }
+
+  /**
+   * Retire toutes les entrées qui satisfont la condition (parcours complet du cache).
+   *
+   * @param condition la condition sur la clé et la valeur
+   */
+  public synchronized void invaliderSi(BiPredicate<K, V> condition) {
+    generation++;
+    generationGlobale = generation;
+    Iterator<Map.Entry<K, Entree<V>>> iterateur = entrees.entrySet().iterator();
+    while (iterateur.hasNext()) {
+      Map.Entry<K, Entree<V>> entree = iterateur.next();
+      if (condition.test(entree.getKey(), entree.getValue().valeur)) {
+        iterateur.remove();
+        invalidations++;
+      }
+    }
+  }
+
+  /**
+   * Vide le cache sans remettre les statistiques à zéro.
+   */
+  public synchronized void vider() {
+    generation++;
+    generationGlobale = generation;
+    generationsParCle.clear();
+    invalidations += entrees.size();
+    entrees.clear();
+  }
+
+  /**
+   * @return un instantané des statistiques du cache
+   */
+  public synchronized Statistiques getStatistiques() {
+    return new Statistiques(nom, entrees.size(), tailleMax, succes, echecs, evictions, expirations,
+        invalidations);
+  }
+
+  public String getNom() {
+    return nom;
+  }
+
+  // =======================
+
+  private static final class Entree<V> {
+
+    private final V valeur;
+    private final long creeeA;
+
+    private Entree(V valeur, long creeeA) {
+      this.valeur = valeur;
+      this.creeeA = creeeA;
+    }
+  }
+
+  /**
+   * Statistiques d'un cache : taux de succès, évictions (taille), expirations (durée de vie) et
+   * invalidations (écritures).
+   */
+  public static final class Statistiques {
+
+    private final String nom;
+    private final int taille;
+    private final int tailleMax;
+    private final long succes;
+    private final long echecs;
+    private final long evictions;
+    private final long expirations;
+    private final long invalidations;
+
+    private Statistiques(String nom, int taille, int tailleMax, long succes, long echecs,
+        long evictions, long expirations, long invalidations) {
+      this.nom = nom;
+      this.taille = taille;
+      this.tailleMax = tailleMax;
+      this.succes = succes;
+      this.echecs = echecs;
+      this.evictions = evictions;
+      this.expirations = expirations;
+      this.invalidations = invalidations;
+    }
+
+    /**
+     * @return la proportion de lectures servies par le cache (0 si aucune lecture)
+     */
+    public double getTauxSucces() {
+      long lectures = succes + echecs;
+      return lectures == 0 ? 0 : (double) succes / lectures;
+    }
+
+    public String getNom() {
+      return nom;
+    }
+
+    public int getTaille() {
+      return taille;
+    }
+
+    public int getTailleMax() {
+      return tailleMax;
+    }
+
+    public long getSucces() {
+      return succes;
+    }
+
+    public long getEchecs() {
+      return echecs;
+    }
+
+    public long getEvictions() {
+      return evictions;
+    }
+
+    public long getExpirations() {
+      return expirations;
+    }
+
+    public long getInvalidations() {
+      return invalidations;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%s : %d/%d entrées, taux de succès %.1f %% (%d/%d), évictions %d, "
+          + "expirations %d, invalidations %d", nom, taille, tailleMax, 100 * getTauxSucces(),
+          succes, succes + echecs, evictions, expirations, invalidations);
+    }
+  }
+}
@@ -0,0 +1,114 @@
+package fr.univ.m1.projetagile.core.cache;
+
+import java.time.Duration;
+import java.util.List;
+import fr.univ.m1.projetagile.core.dto.AgentDTO;
+import fr.univ.m1.projetagile.core.dto.LocationDTO;
+import fr.univ.m1.projetagile.core.dto.LoueurDTO;
+import fr.univ.m1.projetagile.core.dto.VehiculeDTO;
+import fr.univ.m1.projetagile.core.evenement.BusEvenements;
+import fr.univ.m1.projetagile.core.evenement.EvenementMetier;
+
+/**
+ * Caches des pages de profil (LoueurDTO, AgentDTO) et des VehiculeDTO enrichis, indexés par
+ * identifiant d'entité et invalidés par les événements métier publiés par les services.
+ *
+ * <p>
+ * Taille et durée de vie réglables par les propriétés système {@code projetagile.cache.tailleMax}
+ * (10000 entrées par cache par défaut) et {@code projetagile.cache.dureeVieSecondes} (300 par
+ * défaut). Le cache peut être désactivé avec {@code projetagile.cache.actif=false}.
+ * </p>
+ */
+public final class CacheProfils {
+
+  private static final int TAILLE_MAX = Integer.getInteger("projetagile.cache.tailleMax", 10_000);
+  private static final Duration DUREE_VIE =
+      Duration.ofSeconds(Long.getLong("projetagile.cache.dureeVieSecondes", 300L));
+
+  private static final CacheDTO<Long, LoueurDTO> loueurs =
+      new CacheDTO<>("LoueurDTO", TAILLE_MAX, DUREE_VIE);
+  private static final CacheDTO<Long, AgentDTO> agents =
+      new CacheDTO<>("AgentDTO", TAILLE_MAX, DUREE_VIE);
+  private static final CacheDTO<Long, VehiculeDTO> vehicules =
+      new CacheDTO<>("VehiculeDTO", TAILLE_MAX, DUREE_VIE);
+
+  static {
+    BusEvenements.abonner(CacheProfils::invalider);
+  }
+
+  private CacheProfils() {}
+
+  /**
+   * @return true sauf si la propriété {@code projetagile.cache.actif} vaut false
+   */
+  public static boolean estActif() {
+    return Boolean.parseBoolean(System.getProperty("projetagile.cache.actif", "true"));
+  }
+
+  public static CacheDTO<Long, LoueurDTO> loueurs() {
+    return loueurs;
+  }
+
+  public static CacheDTO<Long, AgentDTO> agents() {
+    return agents;
+  }
+
+  public static CacheDTO<Long, VehiculeDTO> vehicules() {
+    return vehicules;
+  }
+
+  /**
+   * Vide les trois caches.
+   */
+  public static void vider() {
+    loueurs.vider();
+    agents.vider();
+    vehicules.vider();
+  }
+
+  /**
+   * @return les statistiques des trois caches, une ligne par cache
+   */
+  public static String genererRapport() {
+    return "=== CACHES DE PROFILS ===\n" + loueurs.getStatistiques() + "\n"
+        + agents.getStatistiques() + "\n" + vehicules.getStatistiques() + "\n";
+  }
+
+  /**
+   * Retire les entrées que l'écriture décrite par l'événement a pu rendre obsolètes.
+   */
+  private static void invalider(EvenementMetier evenement) {
+    Long vehiculeId = evenement.getVehiculeId();
+    switch (evenement.getType()) {
+      case UTILISATEUR_MODIFIE -> {
+        loueurs.invalider(evenement.getLoueurId());
+        agents.invalider(evenement.getAgentId());
+      }
+      case LOCATION_MODIFIEE -> {
+        // Locations du loueur, disponibilités du véhicule (dans le profil de l'agent aussi)
+        loueurs.invalider(evenement.getLoueurId());
+        agents.invalider(evenement.getAgentId());
+        vehicules.invalider(vehiculeId);
+      }
+      case NOTE_MODIFIEE, VEHICULE_MODIFIE -> {
+        // La note et les propriétés du véhicule apparaissent aussi dans les locations des loueurs
+        loueurs.invalider(evenement.getLoueurId());
+        agents.invalider(evenement.getAgentId());
+        if (vehiculeId != null) {
+          vehicules.invalider(vehiculeId);
+          loueurs.invaliderSi((id, dto) -> contientVehicule(dto.getCurrentLocations(), vehiculeId)
+              || contientVehicule(dto.getOldLocations(), vehiculeId));
+        }
+      }
+    }
+  }
+
+  private static boolean contientVehicule(List<LocationDTO> locations, Long vehiculeId) {
+    for (LocationDTO location : locations) {
+      if (location.getVehicule() != null && vehiculeId.equals(location.getVehicule().getId())) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -0,0 +1,60 @@
+package fr.univ.m1.projetagile.core.dto;
+
+/**
+ * Devis d'une entreprise d'entretien pour un véhicule : le prix qu'elle pratique pour son type et
+ * son modèle.
+ */
+public class DevisEntretienDTO {
+  private Long prixEntretienId;
+  private Long entretienId;
+  private String nomEntreprise;
+  private Double prix;
+
+  public DevisEntretienDTO() {}
+
+  public DevisEntretienDTO(Long prixEntretienId, Long entretienId, String nomEntreprise,
+      Double prix) {
+    this.prixEntretienId = prixEntretienId;
+    this.entretienId = entretienId;
+    this.nomEntreprise = nomEntreprise;
+    this.prix = prix;
+  }
+
+  public Long getPrixEntretienId() {
+    return prixEntretienId;
+  }
+
+  public void setPrixEntretienId(Long prixEntretienId) {
+    this.prixEntretienId = prixEntretienId;
+  }
+
+  public Long getEntretienId() {
+    return entretienId;
+  }
+
+  public void setEntretienId(Long entretienId) {
+    this.entretienId = entretienId;
+  }
+
+  public String getNomEntreprise() {
+    return nomEntreprise;
+  }
+
+  public void setNomEntreprise(String nomEntreprise) {
+    this.nomEntreprise = nomEntreprise;
+  }
+
+  public Double getPrix() {
+    return prix;
+  }
+
+  public void setPrix(Double prix) {
+    this.prix = prix;
+  }
+
+  @Override
+  public String toString() {
+    return "DevisEntretienDTO{prixEntretienId=" + prixEntretienId + ", entretienId=" + entretienId
+        + ", nomEntreprise=" + nomEntreprise + ", prix=" + prix + "}";
+  }
+}
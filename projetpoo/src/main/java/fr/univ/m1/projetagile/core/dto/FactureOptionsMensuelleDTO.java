@@ -7,6 +7,17 @@ public class FactureOptionsMensuelleDTO {
   private int mois;
   private double montantTotalOptions;
 
+  public FactureOptionsMensuelleDTO() {}
+
+  public FactureOptionsMensuelleDTO(Long loueurId, String nomLoueur, int annee, int mois,
+      double montantTotalOptions) {
+    this.loueurId = loueurId;
+    this.nomLoueur = nomLoueur;
+    this.annee = annee;
+    this.mois = mois;
+    this.montantTotalOptions = montantTotalOptions;
+  }
+
   public Long getLoueurId() {
     return loueurId;
   }
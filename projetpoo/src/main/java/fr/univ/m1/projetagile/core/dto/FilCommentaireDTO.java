@@ -0,0 +1,46 @@
+package fr.univ.m1.projetagile.core.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+import fr.univ.m1.projetagile.commentaire.entity.Commentaire;
+
+/**
+ * DTO pour représenter un fil de discussion : un commentaire de profil et ses réponses, dans
+ * l'ordre chronologique
+ */
+public class FilCommentaireDTO {
+
+  private Commentaire commentaire;
+  private List<Commentaire> reponses;
+
+  public FilCommentaireDTO() {
+    this.reponses = new ArrayList<>();
+  }
+
+  public FilCommentaireDTO(Commentaire commentaire) {
+    this.commentaire = commentaire;
+    this.reponses = new ArrayList<>();
+  }
+
+  // Getters et Setters
+  public Commentaire getCommentaire() {
+    return commentaire;
+  }
+
+  public void setCommentaire(Commentaire commentaire) {
+    this.commentaire = commentaire;
+  }
+
+  public List<Commentaire> getReponses() {
+    return reponses;
+  }
+
+  public void setReponses(List<Commentaire> reponses) {
+    this.reponses = reponses != null ? reponses : new ArrayList<>();
+  }
+
+  @Override
+  public String toString() {
+    return "FilCommentaireDTO{commentaire=" + commentaire + ", reponses=" + reponses.size() + "}";
+  }
+}
@@ -0,0 +1,96 @@
+package fr.univ.m1.projetagile.core.dto;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * DTO pour représenter une page de fils de commentaires d'un profil (du plus récent au plus
+ * ancien), avec les statistiques de tout le profil.
+ *
+ * <p>
+ * La page suivante se lit en repassant le curseur ({@link #getCurseurDate()},
+ * {@link #getCurseurId()}), qui désigne le dernier commentaire de cette page (pagination par clé).
+ * </p>
+ */
+public class PageCommentairesDTO {
+
+  private List<FilCommentaireDTO> fils;
+  private long nombreCommentaires; // Commentaires de premier niveau de tout le profil
+  private double moyenneNotes; // Moyenne de tout le profil
+  private boolean pageSuivante;
+  private LocalDateTime curseurDate;
+  private Long curseurId;
+
+  public PageCommentairesDTO() {
+    this.fils = new ArrayList<>();
+  }
+
+  public PageCommentairesDTO(List<FilCommentaireDTO> fils, long nombreCommentaires,
+      double moyenneNotes, boolean pageSuivante) {
+    this.fils = fils != null ? fils : new ArrayList<>();
+    this.nombreCommentaires = nombreCommentaires;
+    this.moyenneNotes = moyenneNotes;
+    this.pageSuivante = pageSuivante;
+    if (!this.fils.isEmpty()) {
+      FilCommentaireDTO dernier = this.fils.get(this.fils.size() - 1);
+      this.curseurDate = dernier.getCommentaire().getDateCreation();
+      this.curseurId = dernier.getCommentaire().getId();
+    }
+  }
+
+  // Getters et Setters
+  public List<FilCommentaireDTO> getFils() {
+    return fils;
+  }
+
+  public void setFils(List<FilCommentaireDTO> fils) {
+    this.fils = fils;
+  }
+
+  public long getNombreCommentaires() {
+    return nombreCommentaires;
+  }
+
+  public void setNombreCommentaires(long nombreCommentaires) {
+    this.nombreCommentaires = nombreCommentaires;
+  }
+
+  public double getMoyenneNotes() {
+    return moyenneNotes;
+  }
+
+  public void setMoyenneNotes(double moyenneNotes) {
+    this.moyenneNotes = moyenneNotes;
+  }
+
+  public boolean hasPageSuivante() {
+    return pageSuivante;
+  }
+
+  public void setPageSuivante(boolean pageSuivante) {
+    this.pageSuivante = pageSuivante;
+  }
+
+  public LocalDateTime getCurseurDate() {
+    return curseurDate;
+  }
+
+  public void setCurseurDate(LocalDateTime curseurDate) {
+    this.curseurDate = curseurDate;
+  }
+
+  public Long getCurseurId() {
+    return curseurId;
+  }
+
+  public void setCurseurId(Long curseurId) {
+    this.curseurId = curseurId;
+  }
+
+  @Override
+  public String toString() {
+    return "PageCommentairesDTO{fils=" + fils.size() + ", nombreCommentaires=" + nombreCommentaires
+        + ", moyenneNotes=" + moyenneNotes + ", pageSuivante=" + pageSuivante + "}";
+  }
+}
@@ -0,0 +1,61 @@
+package fr.univ.m1.projetagile.core.dto;
+
+import java.time.LocalDate;
+
+/**
+ * Entretien planifié automatiquement : véhicule, entreprise d'entretien retenue, jour et prix.
+ */
+public class PlanificationEntretienDTO {
+  private Long vehiculeId;
+  private Long entretienId;
+  private LocalDate datePlanification;
+  private Double prix;
+
+  public PlanificationEntretienDTO() {}
+
+  public PlanificationEntretienDTO(Long vehiculeId, Long entretienId, LocalDate datePlanification,
+      Double prix) {
+    this.vehiculeId = vehiculeId;
+    this.entretienId = entretienId;
+    this.datePlanification = datePlanification;
+    this.prix = prix;
+  }
+
+  public Long getVehiculeId() {
+    return vehiculeId;
+  }
+
+  public void setVehiculeId(Long vehiculeId) {
+    this.vehiculeId = vehiculeId;
+  }
+
+  public Long getEntretienId() {
+    return entretienId;
+  }
+
+  public void setEntretienId(Long entretienId) {
+    this.entretienId = entretienId;
+  }
+
+  public LocalDate getDatePlanification() {
+    return datePlanification;
+  }
+
+  public void setDatePlanification(LocalDate datePlanification) {
+    this.datePlanification = datePlanification;
+  }
+
+  public Double getPrix() {
+    return prix;
+  }
+
+  public void setPrix(Double prix) {
+    this.prix = prix;
+  }
+
+  @Override
+  public String toString() {
+    return "PlanificationEntretienDTO{vehiculeId=" + vehiculeId + ", entretienId=" + entretienId
+        + ", datePlanification=" + datePlanification + ", prix=" + prix + "}";
+  }
+}
@@ -15,7 +15,9 @@ public class ProfilInfo {
   private String bio;
   private String nomCommercial;
   private List<Vehicule> vehiculesDisponibles = new ArrayList<>();
-  private List<Commentaire> commentaires = new ArrayList<>();
+  private List<Commentaire> commentaires = new ArrayList<>(); // Première page, premier niveau
+  private List<FilCommentaireDTO> filsCommentaires = new ArrayList<>(); // Avec les réponses
+  private PageCommentairesDTO pageCommentaires = new PageCommentairesDTO(); // Curseur de la suite
   private double moyenneNotes;
   private long nombreCommentaires;
 
@@ -92,6 +94,26 @@ public class ProfilInfo {
     this.commentaires = commentaires;
   }
 
+  public List<FilCommentaireDTO> getFilsCommentaires() {
+    return filsCommentaires;
+  }
+
+  public void setFilsCommentaires(List<FilCommentaireDTO> filsCommentaires) {
+    this.filsCommentaires = filsCommentaires;
+  }
+
+  /**
+   * @return la première page de fils de commentaires ; si elle a une suite, les pages suivantes se
+   *         lisent avec {@code CommentaireService#getFilsCommentaires} à partir de son curseur
+   */
+  public PageCommentairesDTO getPageCommentaires() {
+    return pageCommentaires;
+  }
+
+  public void setPageCommentaires(PageCommentairesDTO pageCommentaires) {
+    this.pageCommentaires = pageCommentaires;
+  }
+
   public double getMoyenneNotes() {
     return moyenneNotes;
   }
@@ -128,6 +150,9 @@ public class ProfilInfo {
     sb.append("\n=== Avis ===\n");
     sb.append("Note moyenne: ").append(String.format("%.1f", moyenneNotes)).append("/5\n");
     sb.append("Nombre d'avis: ").append(nombreCommentaires).append("\n");
+    if (pageCommentaires.hasPageSuivante()) {
+      sb.append("(").append(commentaires.size()).append(" avis les plus récents chargés)\n");
+    }
     if (!vehiculesDisponibles.isEmpty()) {
       sb.append("\n=== Véhicules disponibles (").append(vehiculesDisponibles.size())
           .append(") ===\n");
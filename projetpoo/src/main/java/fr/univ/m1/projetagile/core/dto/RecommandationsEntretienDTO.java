@@ -0,0 +1,55 @@
+package fr.univ.m1.projetagile.core.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Entretiens techniques recommandés pour un véhicule, d'après son dernier kilométrage connu.
+ */
+public class RecommandationsEntretienDTO {
+  private Long vehiculeId;
+  private Integer kilometrage;
+  private List<String> typesTechniques = new ArrayList<>();
+
+  public RecommandationsEntretienDTO() {}
+
+  public RecommandationsEntretienDTO(Long vehiculeId, Integer kilometrage,
+      List<String> typesTechniques) {
+    this.vehiculeId = vehiculeId;
+    this.kilometrage = kilometrage;
+    this.typesTechniques = typesTechniques;
+  }
+
+  public Long getVehiculeId() {
+    return vehiculeId;
+  }
+
+  public void setVehiculeId(Long vehiculeId) {
+    this.vehiculeId = vehiculeId;
+  }
+
+  public Integer getKilometrage() {
+    return kilometrage;
+  }
+
+  public void setKilometrage(Integer kilometrage) {
+    this.kilometrage = kilometrage;
+  }
+
+  /**
+   * @return les noms des types techniques recommandés, par ordre alphabétique
+   */
+  public List<String> getTypesTechniques() {
+    return typesTechniques;
+  }
+
+  public void setTypesTechniques(List<String> typesTechniques) {
+    this.typesTechniques = typesTechniques;
+  }
+
+  @Override
+  public String toString() {
+    return "RecommandationsEntretienDTO{vehiculeId=" + vehiculeId + ", kilometrage=" + kilometrage
+        + ", typesTechniques=" + typesTechniques + "}";
+  }
+}
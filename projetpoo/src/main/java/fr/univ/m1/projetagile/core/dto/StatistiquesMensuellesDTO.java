@@ -0,0 +1,111 @@
+package fr.univ.m1.projetagile.core.dto;
+
+/**
+ * Statistiques d'utilisation et de revenus sur un mois, pour un véhicule ou pour toute la flotte
+ * d'un agent (vehiculeId null).
+ */
+public class StatistiquesMensuellesDTO {
+  private Long vehiculeId;
+  private int annee;
+  private int mois;
+  private long joursReserves;
+  private long joursOuverts;
+  private double chiffreAffaires;
+  private double commissionNormale;
+  private double commissionLLD;
+  private long annulations;
+
+  /**
+   * @return la part des jours ouverts à la location qui ont été réservés (0 si aucun jour ouvert)
+   */
+  public double getTauxOccupation() {
+    return joursOuverts == 0 ? 0 : (double) joursReserves / joursOuverts;
+  }
+
+  /**
+   * @return la commission totale (taux normal et taux LLD)
+   */
+  public double getCommissionTotale() {
+    return commissionNormale + commissionLLD;
+  }
+
+  public Long getVehiculeId() {
+    return vehiculeId;
+  }
+
+  public void setVehiculeId(Long vehiculeId) {
+    this.vehiculeId = vehiculeId;
+  }
+
+  public int getAnnee() {
+    return annee;
+  }
+
+  public void setAnnee(int annee) {
+    this.annee = annee;
+  }
+
+  public int getMois() {
+    return mois;
+  }
+
+  public void setMois(int mois) {
+    this.mois = mois;
+  }
+
+  public long getJoursReserves() {
+    return joursReserves;
+  }
+
+  public void setJoursReserves(long joursReserves) {
+    this.joursReserves = joursReserves;
+  }
+
+  public long getJoursOuverts() {
+    return joursOuverts;
+  }
+
+  public void setJoursOuverts(long joursOuverts) {
+    this.joursOuverts = joursOuverts;
+  }
+
+  public double getChiffreAffaires() {
+    return chiffreAffaires;
+  }
+
+  public void setChiffreAffaires(double chiffreAffaires) {
+    this.chiffreAffaires = chiffreAffaires;
+  }
+
+  public double getCommissionNormale() {
+    return commissionNormale;
+  }
+
+  public void setCommissionNormale(double commissionNormale) {
+    this.commissionNormale = commissionNormale;
+  }
+
+  public double getCommissionLLD() {
+    return commissionLLD;
+  }
+
+  public void setCommissionLLD(double commissionLLD) {
+    this.commissionLLD = commissionLLD;
+  }
+
+  public long getAnnulations() {
+    return annulations;
+  }
+
+  public void setAnnulations(long annulations) {
+    this.annulations = annulations;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%04d-%02d %s : %d/%d jours (%.1f %%), CA %.2f, commissions %.2f"
+        + " + %.2f LLD, %d annulation(s)", annee, mois,
+        vehiculeId != null ? "véhicule " + vehiculeId : "flotte", joursReserves, joursOuverts,
+        100 * getTauxOccupation(), chiffreAffaires, commissionNormale, commissionLLD, annulations);
+  }
+}
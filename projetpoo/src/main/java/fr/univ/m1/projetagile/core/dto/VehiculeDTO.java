@@ -17,6 +17,7 @@ public class VehiculeDTO {
   private String couleur;
   private String ville; // Lieu du véhicule
   private Double prixJ;
+  private Double prixJDynamique; // Prix journalier ajusté à la demande (recherche avec dates)
   private boolean disponible;
   private Double noteMoyenne; // Note moyenne calculée
   private List<LocalDate[]> datesDispo; // Dates de disponibilités (début/fin)
@@ -54,6 +55,24 @@ public class VehiculeDTO {
     this.kilometrageDernierControle = kilometrageDernierControle;
   }
 
+  /**
+   * Constructeur utilisé par les requêtes de projection JPQL ({@code SELECT new ...}) : seules les
+   * colonnes du véhicule sont renseignées, la note moyenne et les disponibilités sont complétées
+   * ensuite par le service.
+   */
+  public VehiculeDTO(Long id, TypeV type, String marque, String modele, String couleur,
+      String ville, Double prixJ, boolean disponible) {
+    this();
+    this.id = id;
+    this.type = type;
+    this.marque = marque;
+    this.modele = modele;
+    this.couleur = couleur;
+    this.ville = ville;
+    this.prixJ = prixJ;
+    this.disponible = disponible;
+  }
+
   // Getters et Setters
   public Long getId() {
     return id;
@@ -182,4 +201,12 @@ public class VehiculeDTO {
   public void setKilometrageDernierControle(Integer kilometrageDernierControle) {
     this.kilometrageDernierControle = kilometrageDernierControle;
   }
+
+  public Double getPrixJDynamique() {
+    return prixJDynamique;
+  }
+
+  public void setPrixJDynamique(Double prixJDynamique) {
+    this.prixJDynamique = prixJDynamique;
+  }
 }
@@ -2,10 +2,12 @@ package fr.univ.m1.projetagile.core.entity;
 
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
+import org.hibernate.Hibernate;
 import org.hibernate.annotations.Any;
 import org.hibernate.annotations.AnyDiscriminator;
 import org.hibernate.annotations.AnyDiscriminatorValue;
 import org.hibernate.annotations.AnyKeyJavaClass;
+import org.hibernate.proxy.HibernateProxy;
 import fr.univ.m1.projetagile.core.interfaces.LieuRestitution;
 import fr.univ.m1.projetagile.enums.StatutLocation;
 import jakarta.persistence.Column;
@@ -13,6 +15,7 @@ import jakarta.persistence.DiscriminatorType;
 import jakarta.persistence.Entity;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
+import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
@@ -27,6 +30,9 @@ public class Location {
   // Délai d'acceptation en heures (6 heures)
   public static final long DELAI_ACCEPTATION_HEURES = 6L;
 
+  // Durée minimale d'une Location Longue Durée (LLD), en jours
+  public static final int SEUIL_LONGUE_DUREE_JOURS = 7;
+
   @Id
   @GeneratedValue(strategy = GenerationType.IDENTITY)
   private Long id;
@@ -40,7 +46,12 @@ public class Location {
   @Column(nullable = false)
   private LocalDateTime dateCreation;
 
-  @Any
+  /**
+   * Chargé à la demande : les repositories résolvent en une requête par type les lieux de dépôt
+   * des locations qu'ils renvoient ({@code LocationRepository#resoudreLieuxDepot}), au lieu d'une
+   * requête par location ; {@link #getLieuDepot()} ne renvoie jamais de proxy
+   */
+  @Any(fetch = FetchType.LAZY)
   @AnyDiscriminator(DiscriminatorType.STRING)
   @AnyKeyJavaClass(Long.class)
   @AnyDiscriminatorValue(discriminator = "ADRESSE", entity = Adresse.class)
@@ -108,7 +119,23 @@ public class Location {
     this.dateFin = dateFin;
   }
 
+  /**
+   * @return le lieu de dépôt, jamais un proxy : un lieu que le repository n'a pas résolu est chargé
+   *         ici (EntityManager encore ouvert), pour que les tests {@code instanceof Parking}
+   *         restent valables
+   */
   public LieuRestitution getLieuDepot() {
+    if (lieuDepot instanceof HibernateProxy proxy) {
+      lieuDepot = (LieuRestitution) Hibernate.unproxy(proxy);
+    }
+    return lieuDepot;
+  }
+
+  /**
+   * @return le lieu de dépôt tel qu'il a été chargé, éventuellement un proxy non initialisé ; pour
+   *         les repositories qui résolvent les lieux de plusieurs locations à la fois
+   */
+  public LieuRestitution getLieuDepotSansChargement() {
     return lieuDepot;
   }
 
@@ -164,7 +191,7 @@ public class Location {
    * jours.
    */
   public boolean estLongueDuree() {
-    return getNombreJours() >= 7;
+    return getNombreJours() >= SEUIL_LONGUE_DUREE_JOURS;
   }
 
   /**
@@ -58,6 +58,13 @@ public class Vehicule {
 
   private boolean disponible = true;
 
+  /**
+   * Délai de remise en état entre deux locations, en minutes (nettoyage, contrôle) ; null pour les
+   * véhicules créés avant son introduction, équivalent à aucun délai
+   */
+  @Column(name = "delaiRotation")
+  private Integer delaiRotation;
+
   // JPA exige un constructeur sans arguments
   protected Vehicule() {}
 
@@ -140,6 +147,14 @@ public class Vehicule {
     this.disponible = disponible;
   }
 
+  public int getDelaiRotation() {
+    return delaiRotation != null ? delaiRotation : 0;
+  }
+
+  public void setDelaiRotation(int delaiRotation) {
+    this.delaiRotation = delaiRotation;
+  }
+
   public Agent getProprietaire() {
     return proprietaire;
   }
@@ -177,6 +192,13 @@ public class Vehicule {
     }
   }
 
+  public void ajouterLocation(Location location) {
+    if (location != null) {
+      locations.add(location);
+      location.setVehicule(this);
+    }
+  }
+
   public List<Location> getLocations() {
     return Collections.unmodifiableList(locations);
   }
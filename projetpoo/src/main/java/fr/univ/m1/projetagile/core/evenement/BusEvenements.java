@@ -0,0 +1,48 @@
+package fr.univ.m1.projetagile.core.evenement;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Diffusion synchrone des événements métier aux abonnés (caches de profils...). Un abonné en
+ * erreur n'interrompt ni la diffusion ni l'écriture qui a publié l'événement.
+ */
+public final class BusEvenements {
+
+  private static final List<Consumer<EvenementMetier>> abonnes = new CopyOnWriteArrayList<>();
+
+  private BusEvenements() {}
+
+  /**
+   * @param abonne le traitement appelé pour chaque événement publié
+   */
+  public static void abonner(Consumer<EvenementMetier> abonne) {
+    if (abonne == null) {
+      throw new IllegalArgumentException("L'abonné ne peut pas être nul.");
+    }
+    abonnes.add(abonne);
+  }
+
+  /**
+   * @param abonne l'abonné à retirer
+   */
+  public static void desabonner(Consumer<EvenementMetier> abonne) {
+    abonnes.remove(abonne);
+  }
+
+  /**
+   * Transmet l'événement à tous les abonnés, dans le thread appelant.
+   *
+   * @param evenement l'événement à publier
+   */
+  public static void publier(EvenementMetier evenement) {
+    for (Consumer<EvenementMetier> abonne : abonnes) {
+      try {
+        abonne.accept(evenement);
+      } catch (RuntimeException e) {
+        System.err.println("Erreur lors du traitement de " + evenement + " : " + e.getMessage());
+      }
+    }
+  }
+}
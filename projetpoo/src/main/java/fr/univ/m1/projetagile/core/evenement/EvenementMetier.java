@@ -0,0 +1,129 @@
+package fr.univ.m1.projetagile.core.evenement;
+
+import fr.univ.m1.projetagile.core.entity.Location;
+import fr.univ.m1.projetagile.core.entity.Vehicule;
+
+/**
+ * Événement métier publié par les services après une écriture réussie. Il porte les identifiants
+ * des entités dont les vues (profils, DTO en cache) peuvent être devenues obsolètes ; les
+ * identifiants non concernés sont null. Les alertes de contrôle technique sont publiées de la
+ * même façon, à l'échéance, par {@code EcheancesControles}.
+ */
+public final class EvenementMetier {
+
+  /**
+   * Nature de l'écriture à l'origine de l'événement.
+   */
+  public enum Type {
+    /** Création ou changement de statut d'une location */
+    LOCATION_MODIFIEE,
+    /** Création ou suppression d'une note (véhicule, agent ou loueur) */
+    NOTE_MODIFIEE,
+    /** Modification, suppression ou changement des disponibilités d'un véhicule */
+    VEHICULE_MODIFIE,
+    /** Modification des informations d'un utilisateur */
+    UTILISATEUR_MODIFIE,
+    /** Entrée d'un véhicule dans la fenêtre d'alerte de son contrôle technique */
+    CONTROLE_TECHNIQUE_PROCHE
+  }
+
+  private final Type type;
+  private final Long vehiculeId;
+  private final Long agentId;
+  private final Long loueurId;
+
+  private EvenementMetier(Type type, Long vehiculeId, Long agentId, Long loueurId) {
+    this.type = type;
+    this.vehiculeId = vehiculeId;
+    this.agentId = agentId;
+    this.loueurId = loueurId;
+  }
+
+  /**
+   * @param location la location créée ou dont le statut a changé
+   * @return l'événement portant le véhicule, son propriétaire et le loueur
+   */
+  public static EvenementMetier locationModifiee(Location location) {
+    Vehicule vehicule = location.getVehicule();
+    return new EvenementMetier(Type.LOCATION_MODIFIEE, vehicule != null ? vehicule.getId() : null,
+        proprietaireId(vehicule),
+        location.getLoueur() != null ? location.getLoueur().getIdU() : null);
+  }
+
+  /**
+   * Variante pour les mises à jour groupées, qui ne chargent pas les entités.
+   *
+   * @param vehiculeId le véhicule loué
+   * @param agentId son propriétaire
+   * @param loueurId le loueur
+   * @return l'événement
+   */
+  public static EvenementMetier locationModifiee(Long vehiculeId, Long agentId, Long loueurId) {
+    return new EvenementMetier(Type.LOCATION_MODIFIEE, vehiculeId, agentId, loueurId);
+  }
+
+  /**
+   * @param vehicule le véhicule noté (ou null)
+   * @param agentId l'agent noté (ou null)
+   * @param loueurId le loueur noté (ou null)
+   * @return l'événement ; le propriétaire du véhicule noté est aussi concerné
+   */
+  public static EvenementMetier noteModifiee(Vehicule vehicule, Long agentId, Long loueurId) {
+    return new EvenementMetier(Type.NOTE_MODIFIEE, vehicule != null ? vehicule.getId() : null,
+        agentId != null ? agentId : proprietaireId(vehicule), loueurId);
+  }
+
+  /**
+   * @param vehiculeId le véhicule modifié
+   * @param agentId son propriétaire
+   * @return l'événement
+   */
+  public static EvenementMetier vehiculeModifie(Long vehiculeId, Long agentId) {
+    return new EvenementMetier(Type.VEHICULE_MODIFIE, vehiculeId, agentId, null);
+  }
+
+  /**
+   * @param utilisateurId l'utilisateur modifié (agent ou loueur)
+   * @return l'événement
+   */
+  public static EvenementMetier utilisateurModifie(Long utilisateurId) {
+    return new EvenementMetier(Type.UTILISATEUR_MODIFIE, null, utilisateurId, utilisateurId);
+  }
+
+  /**
+   * @param vehiculeId le véhicule dont le contrôle technique approche ou est dépassé
+   * @param agentId son propriétaire
+   * @return l'événement
+   */
+  public static EvenementMetier controleTechniqueProche(Long vehiculeId, Long agentId) {
+    return new EvenementMetier(Type.CONTROLE_TECHNIQUE_PROCHE, vehiculeId, agentId, null);
+  }
+
+  private static Long proprietaireId(Vehicule vehicule) {
+    return vehicule != null && vehicule.getProprietaire() != null
+        ? vehicule.getProprietaire().getIdU()
+        : null;
+  }
+
+  public Type getType() {
+    return type;
+  }
+
+  public Long getVehiculeId() {
+    return vehiculeId;
+  }
+
+  public Long getAgentId() {
+    return agentId;
+  }
+
+  public Long getLoueurId() {
+    return loueurId;
+  }
+
+  @Override
+  public String toString() {
+    return "EvenementMetier{type=" + type + ", vehiculeId=" + vehiculeId + ", agentId=" + agentId
+        + ", loueurId=" + loueurId + "}";
+  }
+}
@@ -2,6 +2,7 @@ package fr.univ.m1.projetagile.core.persistence;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.stream.Stream;
 import fr.univ.m1.projetagile.core.DatabaseConnection;
 import fr.univ.m1.projetagile.core.entity.Disponibilite;
 import fr.univ.m1.projetagile.core.entity.Vehicule;
@@ -14,6 +15,10 @@ import jakarta.persistence.TypedQuery;
  */
 public class DisponibiliteRepository {
 
+  /** Associations chargées avec les disponibilités lues par tranche ou parcourues */
+  private static final String JOINTURES_PARCOURS =
+      "JOIN FETCH e.vehicule v LEFT JOIN FETCH v.proprietaire";
+
   /**
    * Enregistre une disponibilité dans la base de données (création ou mise à jour)
    *
@@ -78,6 +83,34 @@ public class DisponibiliteRepository {
     }
   }
 
+  /**
+   * Récupère les disponibilités qui suivent apresId, par identifiant croissant
+   *
+   * @param apresId l'identifiant de la dernière disponibilité lue (null pour commencer)
+   * @param taille le nombre maximal de disponibilités
+   * @return la tranche de disponibilités, avec leur véhicule
+   */
+  public Tranche<Disponibilite> findTranche(Long apresId, int taille) {
+    return Pagination.tranche(Disponibilite.class, JOINTURES_PARCOURS, apresId, taille);
+  }
+
+  /**
+   * Comme {@link #findTranche(Long, int)}, avec le nombre total de disponibilités
+   */
+  public Page<Disponibilite> findPage(Long apresId, int taille) {
+    return Pagination.page(Disponibilite.class, JOINTURES_PARCOURS, apresId, taille);
+  }
+
+  /**
+   * Parcourt toutes les disponibilités et leur véhicule sur un curseur (flux à fermer)
+   *
+   * @return le flux des disponibilités, par identifiant croissant
+   * @see Pagination#parcourir(Class, String)
+   */
+  public Stream<Disponibilite> streamAll() {
+    return Pagination.parcourir(Disponibilite.class, JOINTURES_PARCOURS);
+  }
+
   /**
    * Récupère une disponibilité par son ID
    *
@@ -1,13 +1,30 @@
 package fr.univ.m1.projetagile.core.persistence;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import org.hibernate.Hibernate;
+import org.hibernate.jpa.HibernateHints;
+import org.hibernate.proxy.HibernateProxy;
+import org.hibernate.proxy.LazyInitializer;
 import fr.univ.m1.projetagile.core.DatabaseConnection;
+import fr.univ.m1.projetagile.core.QueryProfiler;
 import fr.univ.m1.projetagile.core.entity.Location;
 import fr.univ.m1.projetagile.core.entity.Vehicule;
+import fr.univ.m1.projetagile.core.interfaces.LieuRestitution;
 import fr.univ.m1.projetagile.enums.StatutLocation;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityTransaction;
+import jakarta.persistence.LockModeType;
 import jakarta.persistence.TypedQuery;
 
 /**
@@ -24,6 +41,9 @@ import jakarta.persistence.TypedQuery;
  */
 public class LocationRepository {
 
+  /** Nombre maximal d'identifiants par clause IN (Oracle en accepte 1000) */
+  private static final int TAILLE_LOT_IN = 500;
+
   /**
    * Sauvegarde une entité {@link Location} en base de données. Si la location ne possède pas encore
    * d'identifiant, elle est créée (persist), sinon elle est mise à jour (merge) dans une
@@ -51,6 +71,62 @@ public class LocationRepository {
       }
 
       transaction.commit();
+      resoudreLieuxDepot(em, List.of(location));
+      return location;
+
+    } catch (Exception e) {
+      if (transaction != null && transaction.isActive()) {
+        transaction.rollback();
+      }
+      throw new RuntimeException("Erreur lors de l'enregistrement de la location", e);
+    } finally {
+      em.close();
+    }
+  }
+
+  /**
+   * Enregistre une nouvelle location si aucune location active du véhicule ne chevauche sa
+   * période, délai de remise en état du véhicule compris avant et après. Le véhicule est verrouillé
+   * (PESSIMISTIC_WRITE) pendant la vérification et l'insertion : deux réservations concurrentes du
+   * même véhicule, y compris depuis une autre instance de l'application, sont ainsi sérialisées
+   * par la base.
+   *
+   * @param location la nouvelle location (sans identifiant)
+   * @return la location persistée, ou null si le véhicule est déjà loué sur la période
+   * @throws RuntimeException si une erreur survient lors de l'enregistrement
+   */
+  public Location saveSiLibre(Location location) {
+    EntityManager em = DatabaseConnection.getEntityManager();
+    EntityTransaction transaction = null;
+
+    try {
+      transaction = em.getTransaction();
+      transaction.begin();
+
+      Vehicule vehicule = em.find(Vehicule.class, location.getVehicule().getId(),
+          LockModeType.PESSIMISTIC_WRITE);
+      if (vehicule == null) {
+        transaction.rollback();
+        return null;
+      }
+      long delai = vehicule.getDelaiRotation();
+      TypedQuery<Long> conflits = em.createQuery("SELECT COUNT(l) FROM Location l "
+          + "WHERE l.vehicule.id = :vehiculeId AND l.statut != :statutTermine "
+          + "AND l.statut != :statutAnnule AND l.dateDebut < :fin AND l.dateFin > :debut",
+          Long.class);
+      conflits.setParameter("vehiculeId", vehicule.getId());
+      conflits.setParameter("statutTermine", StatutLocation.TERMINE);
+      conflits.setParameter("statutAnnule", StatutLocation.ANNULE);
+      conflits.setParameter("debut", location.getDateDebut().minusMinutes(delai));
+      conflits.setParameter("fin", location.getDateFin().plusMinutes(delai));
+      if (QueryProfiler.getSingleResult(conflits) > 0) {
+        transaction.rollback();
+        return null;
+      }
+
+      em.persist(location);
+      transaction.commit();
+      resoudreLieuxDepot(em, List.of(location));
       return location;
 
     } catch (Exception e) {
@@ -74,7 +150,11 @@ public class LocationRepository {
       TypedQuery<Location> query = em.createQuery("SELECT l FROM Location l "
           + "JOIN FETCH l.vehicule " + "JOIN FETCH l.loueur " + "WHERE l.id = :id", Location.class);
       query.setParameter("id", id);
-      return query.getResultStream().findFirst().orElse(null);
+      Location location = query.getResultStream().findFirst().orElse(null);
+      if (location != null) {
+        resoudreLieuxDepot(em, List.of(location));
+      }
+      return location;
     } catch (Exception e) {
       throw new RuntimeException("Erreur lors de la récupération de la location " + id, e);
     }
@@ -98,8 +178,9 @@ public class LocationRepository {
       query.setParameter("vehiculeId", vehiculeId);
       query.setParameter("statutAnnule", StatutLocation.ANNULE);
       query.setParameter("statutTermine", StatutLocation.TERMINE);
+      query.setHint(HibernateHints.HINT_READ_ONLY, true);
 
-      return query.getResultList();
+      return resoudreLieuxDepot(em, query.getResultList());
 
     } catch (Exception e) {
       throw new RuntimeException("Erreur lors de la récupération des réservations du véhicule", e);
@@ -136,7 +217,7 @@ public class LocationRepository {
       conflictQuery.setParameter("dateDebut", dateDebut.atStartOfDay());
       conflictQuery.setParameter("dateFin", dateFin.atStartOfDay());
 
-      Long conflictCount = conflictQuery.getSingleResult();
+      Long conflictCount = QueryProfiler.getSingleResult(conflictQuery);
       if (conflictCount > 0) {
         return false;
       }
@@ -152,7 +233,7 @@ public class LocationRepository {
       disponibilityQuery.setParameter("dateDebut", dateDebut);
       disponibilityQuery.setParameter("dateFin", dateFin);
 
-      Long disponibilityCount = disponibilityQuery.getSingleResult();
+      Long disponibilityCount = QueryProfiler.getSingleResult(disponibilityQuery);
       return disponibilityCount > 0;
 
     } catch (Exception e) {
@@ -177,7 +258,8 @@ public class LocationRepository {
           + "ORDER BY l.dateDebut DESC", Location.class);
 
       query.setParameter("vehiculeId", vehiculeId);
-      return query.getResultList();
+      query.setHint(HibernateHints.HINT_READ_ONLY, true);
+      return resoudreLieuxDepot(em, query.getResultList());
 
     } catch (Exception e) {
       throw new RuntimeException(
@@ -235,8 +317,9 @@ public class LocationRepository {
 
       query.setParameter("vehiculeId", vehiculeId);
       query.setParameter("statutAnnule", StatutLocation.ANNULE);
+      query.setHint(HibernateHints.HINT_READ_ONLY, true);
 
-      return query.getResultList();
+      return resoudreLieuxDepot(em, query.getResultList());
     } catch (Exception e) {
       throw new RuntimeException(
           "Erreur lors de la récupération des locations du véhicule " + vehiculeId, e);
@@ -262,8 +345,9 @@ public class LocationRepository {
       query.setParameter("vehiculeId", vehiculeId);
       query.setParameter("statutAnnule", StatutLocation.ANNULE);
       query.setParameter("statutTermine", StatutLocation.TERMINE);
+      query.setHint(HibernateHints.HINT_READ_ONLY, true);
 
-      return query.getResultList();
+      return resoudreLieuxDepot(em, query.getResultList());
     } catch (Exception e) {
       throw new RuntimeException(
           "Erreur lors de la récupération des locations actuelles du véhicule " + vehiculeId, e);
@@ -287,8 +371,9 @@ public class LocationRepository {
 
       query.setParameter("vehiculeId", vehiculeId);
       query.setParameter("statutTermine", StatutLocation.TERMINE);
+      query.setHint(HibernateHints.HINT_READ_ONLY, true);
 
-      return query.getResultList();
+      return resoudreLieuxDepot(em, query.getResultList());
     } catch (Exception e) {
       throw new RuntimeException(
           "Erreur lors de la récupération de l'historique des locations du véhicule " + vehiculeId,
@@ -312,13 +397,111 @@ public class LocationRepository {
       query.setParameter("agentId", agentId);
       query.setParameter("statutEnAttente", StatutLocation.EN_ATTENTE_D_ACCEPTATION_PAR_L_AGENT);
 
-      return query.getResultList();
+      return resoudreLieuxDepot(em, query.getResultList());
     } catch (Exception e) {
       throw new RuntimeException(
           "Erreur lors de la récupération des locations en attente pour l'agent " + agentId, e);
     }
   }
 
+  /**
+   * Récupère en une requête (par paquets de {@value #TAILLE_LOT_IN} identifiants) ce qu'il faut
+   * pour valider une décision d'agent sur plusieurs locations.
+   *
+   * @param locationIds les identifiants des locations
+   * @return liste de tableaux [id, statut, proprietaireId, dateCreation, vehiculeId, loueurId,
+   *         parkingDepotId] (parkingDepotId null si le lieu de dépôt n'est pas un parking) ; les
+   *         identifiants inconnus sont absents
+   */
+  public List<Object[]> findEtatsPourDecision(Collection<Long> locationIds) {
+    List<Long> ids = new ArrayList<>(locationIds);
+    List<Object[]> resultats = new ArrayList<>();
+    try (EntityManager em = DatabaseConnection.getEntityManager()) {
+      for (int debut = 0; debut < ids.size(); debut += TAILLE_LOT_IN) {
+        List<Long> lot = ids.subList(debut, Math.min(debut + TAILLE_LOT_IN, ids.size()));
+        TypedQuery<Object[]> query = em.createQuery("SELECT l.id, l.statut, p.idU, l.dateCreation, "
+            + "v.id, l.loueur.idU FROM Location l JOIN l.vehicule v LEFT JOIN v.proprietaire p "
+            + "WHERE l.id IN :ids", Object[].class);
+        query.setParameter("ids", lot);
+
+        // Colonnes du lieu de dépôt (association @Any) lues directement
+        Map<Long, Long> parkings = new HashMap<>();
+        @SuppressWarnings("unchecked")
+        List<Object[]> depots = em.createNativeQuery("SELECT id, lieu_depot_id FROM locations "
+            + "WHERE lieu_depot_type = 'PARKING' AND id IN (:ids)").setParameter("ids", lot)
+            .getResultList();
+        for (Object[] depot : depots) {
+          parkings.put(((Number) depot[0]).longValue(), ((Number) depot[1]).longValue());
+        }
+
+        for (Object[] etat : query.getResultList()) {
+          Object[] complet = Arrays.copyOf(etat, etat.length + 1);
+          complet[etat.length] = parkings.get((Long) etat[0]);
+          resultats.add(complet);
+        }
+      }
+      return resultats;
+    } catch (Exception e) {
+      throw new RuntimeException("Erreur lors de la récupération de l'état des locations", e);
+    }
+  }
+
+  /**
+   * Applique une décision d'agent à des locations en attente, par une requête UPDATE groupée dans
+   * une seule transaction. Les locations créées avant {@code limiteAcceptation} (délai expiré) sont
+   * annulées au lieu de recevoir la décision ; celles qui ne sont plus en attente sont ignorées.
+   * Les locations encore en attente sont d'abord verrouillées (par identifiant croissant), ce qui
+   * permet de savoir lesquelles cette transaction a effectivement modifiées.
+   *
+   * @param locationIds les identifiants des locations (validées au préalable)
+   * @param decision le statut à appliquer (ACCEPTE ou ANNULE)
+   * @param limiteAcceptation date de création en deçà de laquelle le délai d'acceptation a expiré
+   * @return les identifiants des locations mises à jour
+   */
+  public Set<Long> deciderLocationsEnAttente(Collection<Long> locationIds,
+      StatutLocation decision, LocalDateTime limiteAcceptation) {
+    List<Long> ids = new ArrayList<>(new TreeSet<>(locationIds));
+    EntityManager em = DatabaseConnection.getEntityManager();
+    EntityTransaction transaction = null;
+
+    try {
+      transaction = em.getTransaction();
+      transaction.begin();
+
+      Set<Long> modifiees = new HashSet<>();
+      for (int debut = 0; debut < ids.size(); debut += TAILLE_LOT_IN) {
+        List<Long> enAttente = em.createQuery("SELECT l.id FROM Location l "
+            + "WHERE l.id IN :ids AND l.statut = :statutEnAttente ORDER BY l.id", Long.class)
+            .setParameter("ids", ids.subList(debut, Math.min(debut + TAILLE_LOT_IN, ids.size())))
+            .setParameter("statutEnAttente", StatutLocation.EN_ATTENTE_D_ACCEPTATION_PAR_L_AGENT)
+            .setLockMode(LockModeType.PESSIMISTIC_WRITE).getResultList();
+        if (enAttente.isEmpty()) {
+          continue;
+        }
+        em.createQuery("UPDATE Location l SET l.statut = CASE "
+            + "WHEN l.dateCreation < :limite THEN :statutAnnule ELSE :decision END "
+            + "WHERE l.id IN :ids AND l.statut = :statutEnAttente")
+            .setParameter("limite", limiteAcceptation)
+            .setParameter("statutAnnule", StatutLocation.ANNULE)
+            .setParameter("decision", decision)
+            .setParameter("ids", enAttente)
+            .setParameter("statutEnAttente", StatutLocation.EN_ATTENTE_D_ACCEPTATION_PAR_L_AGENT)
+            .executeUpdate();
+        modifiees.addAll(enAttente);
+      }
+
+      transaction.commit();
+      return modifiees;
+    } catch (Exception e) {
+      if (transaction != null && transaction.isActive()) {
+        transaction.rollback();
+      }
+      throw new RuntimeException("Erreur lors de la mise à jour groupée des locations", e);
+    } finally {
+      em.close();
+    }
+  }
+
   /**
    * Récupère toutes les locations en attente d'acceptation (tous agents confondus). Utile pour le
    * nettoyage automatique des locations expirées.
@@ -334,11 +517,62 @@ public class LocationRepository {
 
       query.setParameter("statutEnAttente", StatutLocation.EN_ATTENTE_D_ACCEPTATION_PAR_L_AGENT);
 
-      return query.getResultList();
+      return resoudreLieuxDepot(em, query.getResultList());
     } catch (Exception e) {
       throw new RuntimeException(
           "Erreur lors de la récupération de toutes les locations en attente", e);
     }
   }
 
+  /**
+   * Remplace les lieux de dépôt des locations, chargés à la demande, par les adresses et parkings
+   * correspondants, lus en une requête par type de lieu (par paquets de {@value #TAILLE_LOT_IN}
+   * identifiants) au lieu d'une requête par location. À appeler avant la fermeture de
+   * l'EntityManager qui a chargé les locations ; les locations renvoyées peuvent ensuite être
+   * utilisées détachées.
+   *
+   * @param em l'EntityManager qui a chargé les locations
+   * @param locations les locations à compléter
+   * @return les mêmes locations
+   */
+  public static List<Location> resoudreLieuxDepot(EntityManager em, List<Location> locations) {
+    Map<Class<?>, Set<Object>> idsParType = new HashMap<>();
+    for (Location location : locations) {
+      if (location.getLieuDepotSansChargement() instanceof HibernateProxy proxy) {
+        LazyInitializer initialiseur = proxy.getHibernateLazyInitializer();
+        if (initialiseur.isUninitialized()) {
+          idsParType.computeIfAbsent(initialiseur.getPersistentClass(),
+              type -> new LinkedHashSet<>()).add(initialiseur.getInternalIdentifier());
+        }
+      }
+    }
+
+    // Les entités lues entrent dans le contexte de persistance, où les proxies les retrouvent
+    Map<Class<?>, Set<Object>> trouves = new HashMap<>();
+    for (Map.Entry<Class<?>, Set<Object>> entree : idsParType.entrySet()) {
+      String entite = em.getMetamodel().entity(entree.getKey()).getName();
+      List<Object> ids = new ArrayList<>(entree.getValue());
+      Set<Object> lus = new LinkedHashSet<>();
+      for (int debut = 0; debut < ids.size(); debut += TAILLE_LOT_IN) {
+        for (Object lieu : em.createQuery("SELECT e FROM " + entite + " e WHERE e.id IN :ids")
+            .setParameter("ids", ids.subList(debut, Math.min(debut + TAILLE_LOT_IN, ids.size())))
+            .getResultList()) {
+          lus.add(em.getEntityManagerFactory().getPersistenceUnitUtil().getIdentifier(lieu));
+        }
+      }
+      trouves.put(entree.getKey(), lus);
+    }
+
+    for (Location location : locations) {
+      if (location.getLieuDepotSansChargement() instanceof HibernateProxy proxy) {
+        LazyInitializer initialiseur = proxy.getHibernateLazyInitializer();
+        Set<Object> lus = trouves.get(initialiseur.getPersistentClass());
+        if (!initialiseur.isUninitialized()
+            || lus != null && lus.contains(initialiseur.getInternalIdentifier())) {
+          location.setLieuDepot((LieuRestitution) Hibernate.unproxy(proxy));
+        }
+      }
+    }
+    return locations;
+  }
 }
@@ -1,7 +1,9 @@
 package fr.univ.m1.projetagile.core.persistence;
 
 import java.util.List;
+import org.hibernate.jpa.HibernateHints;
 import fr.univ.m1.projetagile.core.DatabaseConnection;
+import fr.univ.m1.projetagile.core.QueryProfiler;
 import fr.univ.m1.projetagile.core.entity.Location;
 import fr.univ.m1.projetagile.core.entity.Loueur;
 import fr.univ.m1.projetagile.enums.StatutLocation;
@@ -38,8 +40,9 @@ public class LoueurRepository extends UtilisateurRepository<Loueur> {
       
       query.setParameter("loueurId", loueurId);
       query.setParameter("statutAnnule", StatutLocation.ANNULE);
-      
-      return query.getResultList();
+      query.setHint(HibernateHints.HINT_READ_ONLY, true);
+
+      return LocationRepository.resoudreLieuxDepot(em, QueryProfiler.getResultList(query));
 
     } catch (Exception e) {
       throw new RuntimeException(
@@ -0,0 +1,28 @@
+package fr.univ.m1.projetagile.core.persistence;
+
+import java.util.List;
+
+/**
+ * {@link Tranche} accompagnée du nombre total d'éléments (une requête COUNT de plus).
+ *
+ * @param <T> le type des éléments
+ */
+public class Page<T> extends Tranche<T> {
+
+  private final long total;
+
+  public Page(List<T> elements, Long derniereCle, boolean suivante, long total) {
+    super(elements, derniereCle, suivante);
+    this.total = total;
+  }
+
+  public long getTotal() {
+    return total;
+  }
+
+  @Override
+  public String toString() {
+    return "Page{elements=" + getElements().size() + ", derniereCle=" + getDerniereCle()
+        + ", suivante=" + hasSuivante() + ", total=" + total + "}";
+  }
+}
@@ -0,0 +1,203 @@
+package fr.univ.m1.projetagile.core.persistence;
+
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import fr.univ.m1.projetagile.core.DatabaseConnection;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityTransaction;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.metamodel.EntityType;
+
+/**
+ * Lectures bornées d'une table entière, en remplacement des {@code findAll} qui chargent tout en
+ * mémoire :
+ * <ul>
+ * <li>{@link #tranche} et {@link #page} : pagination par clé (WHERE id &gt; :cle ORDER BY id), dont
+ * le coût ne dépend pas de la position dans la table ;</li>
+ * <li>{@link #parcourir} : flux sur un curseur JDBC ({@link ScrollableResults}) avec une taille de
+ * fetch fixée, le contexte de persistance étant vidé tous les {@code tailleFetch} éléments, pour
+ * parcourir des millions de lignes en mémoire constante.</li>
+ * </ul>
+ *
+ * <p>
+ * Les requêtes portent sur l'alias {@code e} ; {@code jointures} permet d'y ajouter des
+ * {@code JOIN FETCH} sur les associations à un (pas sur les collections, incompatibles avec la
+ * limite de taille). La taille de fetch par défaut se règle avec la propriété système
+ * {@value #FETCH_PROPERTY} (500 par défaut).
+ * </p>
+ */
+public final class Pagination {
+
+  /** Propriété système fixant la taille de fetch par défaut des parcours */
+  public static final String FETCH_PROPERTY = "projetagile.parcours.tailleFetch";
+
+  private Pagination() {}
+
+  /**
+   * @return la taille de fetch par défaut des parcours
+   */
+  public static int getTailleFetch() {
+    return Integer.getInteger(FETCH_PROPERTY, 500);
+  }
+
+  /**
+   * Lit la tranche qui suit la clé {@code apresCle}.
+   *
+   * @param type la classe de l'entité
+   * @param jointures les JOIN FETCH sur l'alias {@code e} (peut être vide)
+   * @param apresCle l'identifiant du dernier élément de la tranche précédente (null pour la
+   *        première)
+   * @param taille le nombre maximal d'éléments
+   * @return la tranche
+   */
+  public static <T> Tranche<T> tranche(Class<T> type, String jointures, Long apresCle,
+      int taille) {
+    try (EntityManager em = DatabaseConnection.getEntityManager()) {
+      return lireTranche(em, type, jointures, apresCle, taille);
+    } catch (IllegalArgumentException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new RuntimeException("Erreur lors de la lecture paginée de " + type.getSimpleName(),
+          e);
+    }
+  }
+
+  /**
+   * Comme {@link #tranche}, avec en plus le nombre total d'éléments.
+   */
+  public static <T> Page<T> page(Class<T> type, String jointures, Long apresCle, int taille) {
+    try (EntityManager em = DatabaseConnection.getEntityManager()) {
+      Tranche<T> tranche = lireTranche(em, type, jointures, apresCle, taille);
+      Long total = em.createQuery("SELECT COUNT(e) FROM " + nomEntite(em, type) + " e",
+          Long.class).getSingleResult();
+      return new Page<>(tranche.getElements(), tranche.getDerniereCle(), tranche.hasSuivante(),
+          total);
+    } catch (IllegalArgumentException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new RuntimeException("Erreur lors de la lecture paginée de " + type.getSimpleName(),
+          e);
+    }
+  }
+
+  /**
+   * Parcourt toute la table dans l'ordre des identifiants, avec la taille de fetch par défaut.
+   *
+   * @see #parcourir(Class, String, int)
+   */
+  public static <T> Stream<T> parcourir(Class<T> type, String jointures) {
+    return parcourir(type, jointures, getTailleFetch());
+  }
+
+  /**
+   * Parcourt toute la table dans l'ordre des identifiants sur un curseur, avec un EntityManager
+   * dédié. Les éléments sont en lecture seule et détachés dès le vidage suivant du contexte : les
+   * associations paresseuses non chargées par {@code jointures} ne sont pas accessibles. Le flux
+   * doit être fermé (try-with-resources) pour libérer le curseur et la connexion.
+   *
+   * @param type la classe de l'entité
+   * @param jointures les JOIN FETCH sur l'alias {@code e} (peut être vide)
+   * @param tailleFetch le nombre de lignes lues par aller-retour, qui est aussi la période de
+   *        vidage du contexte de persistance
+   * @return le flux des entités
+   */
+  public static <T> Stream<T> parcourir(Class<T> type, String jointures, int tailleFetch) {
+    if (tailleFetch <= 0) {
+      throw new IllegalArgumentException("La taille de fetch doit être strictement positive.");
+    }
+
+    EntityManager em = DatabaseConnection.createEntityManager();
+    EntityTransaction transaction = em.getTransaction();
+    ScrollableResults<T> curseur;
+    try {
+      transaction.begin();
+      Session session = em.unwrap(Session.class);
+      curseur = session.createSelectionQuery(select(em, type, jointures, false), type)
+          .setFetchSize(tailleFetch).setReadOnly(true).scroll(ScrollMode.FORWARD_ONLY);
+    } catch (Exception e) {
+      if (transaction.isActive()) {
+        transaction.rollback();
+      }
+      em.close();
+      throw new RuntimeException(
+          "Erreur lors de l'ouverture du parcours de " + type.getSimpleName(), e);
+    }
+
+    Spliterator<T> elements = new Spliterators.AbstractSpliterator<T>(Long.MAX_VALUE,
+        Spliterator.ORDERED | Spliterator.NONNULL) {
+      private long lus;
+
+      @Override
+      public boolean tryAdvance(Consumer<? super T> action) {
+        if (lus > 0 && lus % tailleFetch == 0) {
+          // Les éléments déjà transmis ne sont plus retenus par le contexte de persistance
+          em.clear();
+        }
+        if (!curseur.next()) {
+          return false;
+        }
+        lus++;
+        action.accept(curseur.get());
+        return true;
+      }
+    };
+
+    return StreamSupport.stream(elements, false).onClose(() -> {
+      try {
+        curseur.close();
+        if (transaction.isActive()) {
+          transaction.rollback();
+        }
+      } finally {
+        em.close();
+      }
+    });
+  }
+
+  // =======================
+
+  private static <T> Tranche<T> lireTranche(EntityManager em, Class<T> type, String jointures,
+      Long apresCle, int taille) {
+    if (taille <= 0) {
+      throw new IllegalArgumentException("La taille de la tranche doit être strictement positive.");
+    }
+    TypedQuery<T> query = em.createQuery(select(em, type, jointures, apresCle != null), type);
+    if (apresCle != null) {
+      query.setParameter("apresCle", apresCle);
+    }
+    // Un élément de plus que demandé pour savoir s'il existe une tranche suivante
+    List<T> elements = query.setMaxResults(taille + 1).getResultList();
+    boolean suivante = elements.size() > taille;
+    if (suivante) {
+      elements = elements.subList(0, taille);
+    }
+    Long derniereCle = elements.isEmpty() ? null
+        : (Long) em.getEntityManagerFactory().getPersistenceUnitUtil()
+            .getIdentifier(elements.get(elements.size() - 1));
+    return new Tranche<>(elements, derniereCle, suivante);
+  }
+
+  private static String select(EntityManager em, Class<?> type, String jointures,
+      boolean apresCle) {
+    String id = "e." + attributId(em, type);
+    return "SELECT e FROM " + nomEntite(em, type) + " e "
+        + (jointures != null ? jointures : "") + (apresCle ? " WHERE " + id + " > :apresCle" : "")
+        + " ORDER BY " + id;
+  }
+
+  private static String nomEntite(EntityManager em, Class<?> type) {
+    return em.getMetamodel().entity(type).getName();
+  }
+
+  private static String attributId(EntityManager em, Class<?> type) {
+    EntityType<?> entite = em.getMetamodel().entity(type);
+    return entite.getId(entite.getIdType().getJavaType()).getName();
+  }
+}
@@ -0,0 +1,47 @@
+package fr.univ.m1.projetagile.core.persistence;
+
+import java.util.List;
+
+/**
+ * Tranche de résultats d'une lecture paginée par clé (seek) : les éléments sont triés par
+ * identifiant croissant et la tranche suivante se lit en repassant {@link #getDerniereCle()}.
+ *
+ * @param <T> le type des éléments
+ */
+public class Tranche<T> {
+
+  private final List<T> elements;
+  private final Long derniereCle;
+  private final boolean suivante;
+
+  public Tranche(List<T> elements, Long derniereCle, boolean suivante) {
+    this.elements = elements;
+    this.derniereCle = derniereCle;
+    this.suivante = suivante;
+  }
+
+  public List<T> getElements() {
+    return elements;
+  }
+
+  /**
+   * @return l'identifiant du dernier élément, à passer pour lire la tranche suivante (null si la
+   *         tranche est vide)
+   */
+  public Long getDerniereCle() {
+    return derniereCle;
+  }
+
+  /**
+   * @return true s'il reste des éléments après cette tranche
+   */
+  public boolean hasSuivante() {
+    return suivante;
+  }
+
+  @Override
+  public String toString() {
+    return "Tranche{elements=" + elements.size() + ", derniereCle=" + derniereCle + ", suivante="
+        + suivante + "}";
+  }
+}
@@ -2,8 +2,14 @@ package fr.univ.m1.projetagile.core.persistence;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import org.hibernate.jpa.HibernateHints;
 import fr.univ.m1.projetagile.core.DatabaseConnection;
+import fr.univ.m1.projetagile.core.QueryProfiler;
+import fr.univ.m1.projetagile.core.dto.VehiculeDTO;
 import fr.univ.m1.projetagile.core.entity.Agent;
 import fr.univ.m1.projetagile.core.entity.Vehicule;
 import fr.univ.m1.projetagile.enums.StatutLocation;
@@ -16,6 +22,18 @@ import jakarta.persistence.TypedQuery;
  * Repository pour gérer la persistance des véhicules
  */
 public class VehiculeRepository {
+
+  /** Associations chargées avec les véhicules lus par tranche ou parcourus */
+  private static final String JOINTURES_PARCOURS = "LEFT JOIN FETCH e.proprietaire";
+
+  /** Expression de projection des colonnes d'un véhicule dans un {@link VehiculeDTO} */
+  private static final String PROJECTION_DTO = "SELECT new fr.univ.m1.projetagile.core.dto."
+      + "VehiculeDTO(v.id, v.type, v.marque, v.modele, v.couleur, v.ville, v.prixJ, "
+      + "v.disponible)";
+
+  /** Nombre maximal d'identifiants par clause IN (Oracle en refuse plus de 1000) */
+  private static final int TAILLE_LOT_IN = 500;
+
   /**
    * Enregistre un véhicule dans la base de données (création ou mise à jour)
    *
@@ -71,20 +89,110 @@ public class VehiculeRepository {
     try (EntityManager em = DatabaseConnection.getEntityManager()) {
       TypedQuery<Vehicule> query = em.createQuery("SELECT DISTINCT v FROM Vehicule v "
           + "LEFT JOIN FETCH v.datesDispo " + "LEFT JOIN FETCH v.proprietaire", Vehicule.class);
-      return query.getResultList();
+      query.setHint(HibernateHints.HINT_READ_ONLY, true);
+      return QueryProfiler.getResultList(query);
 
     } catch (Exception e) {
       throw new RuntimeException("Erreur lors de la récupération des véhicules", e);
     }
   }
 
+  /**
+   * Récupère les véhicules qui suivent apresId, par identifiant croissant
+   *
+   * @param apresId l'identifiant du dernier véhicule lu (null pour commencer)
+   * @param taille le nombre maximal de véhicules
+   * @return la tranche de véhicules, avec leur propriétaire
+   */
+  public Tranche<Vehicule> findTranche(Long apresId, int taille) {
+    return Pagination.tranche(Vehicule.class, JOINTURES_PARCOURS, apresId, taille);
+  }
+
+  /**
+   * Comme {@link #findTranche(Long, int)}, avec le nombre total de véhicules
+   */
+  public Page<Vehicule> findPage(Long apresId, int taille) {
+    return Pagination.page(Vehicule.class, JOINTURES_PARCOURS, apresId, taille);
+  }
+
+  /**
+   * Parcourt tous les véhicules et leur propriétaire sur un curseur (flux à fermer)
+   *
+   * @return le flux des véhicules, par identifiant croissant
+   * @see Pagination#parcourir(Class, String)
+   */
+  public Stream<Vehicule> streamAll() {
+    return Pagination.parcourir(Vehicule.class, JOINTURES_PARCOURS);
+  }
+
+  /**
+   * Récupère tous les véhicules sous forme de {@link VehiculeDTO} par projection directe : aucune
+   * entité n'est chargée ni suivie par le contexte de persistance. La note moyenne et les
+   * disponibilités restent à compléter.
+   *
+   * @return les DTO de tous les véhicules, triés par identifiant
+   */
+  public List<VehiculeDTO> findAllDTO() {
+    try (EntityManager em = DatabaseConnection.getEntityManager()) {
+      TypedQuery<VehiculeDTO> query = em.createQuery(
+          PROJECTION_DTO + " FROM Vehicule v ORDER BY v.id", VehiculeDTO.class);
+      query.setHint(HibernateHints.HINT_READ_ONLY, true);
+      return QueryProfiler.getResultList(query);
+
+    } catch (Exception e) {
+      throw new RuntimeException("Erreur lors de la récupération des véhicules", e);
+    }
+  }
+
+  /**
+   * Récupère les véhicules d'un agent sous forme de {@link VehiculeDTO} par projection directe.
+   *
+   * @param agentId l'identifiant de l'agent propriétaire
+   * @return les DTO des véhicules de cet agent, triés par identifiant
+   */
+  public List<VehiculeDTO> findDTOByAgentId(Long agentId) {
+    try (EntityManager em = DatabaseConnection.getEntityManager()) {
+      TypedQuery<VehiculeDTO> query = em.createQuery(PROJECTION_DTO + " FROM Vehicule v "
+          + "WHERE v.proprietaire.idU = :agentId ORDER BY v.id", VehiculeDTO.class);
+      query.setParameter("agentId", agentId);
+      query.setHint(HibernateHints.HINT_READ_ONLY, true);
+      return QueryProfiler.getResultList(query);
+
+    } catch (Exception e) {
+      throw new RuntimeException(
+          "Erreur lors de la récupération des véhicules de l'agent " + agentId, e);
+    }
+  }
+
   public List<Vehicule> findWithFilters(LocalDate dateDebut, LocalDate dateFin, String ville,
       String marque, String modele, String couleur, Double prixMin, Double prixMax, TypeV type,
       Boolean hasParkingOption) {
+    return rechercher("SELECT DISTINCT v FROM Vehicule v " + "LEFT JOIN FETCH v.datesDispo "
+        + "LEFT JOIN FETCH v.proprietaire", Vehicule.class, dateDebut, dateFin, ville, marque,
+        modele, couleur, prixMin, prixMax, type, hasParkingOption);
+  }
+
+  /**
+   * Variante en lecture seule de {@link #findWithFilters} : projection directe dans des
+   * {@link VehiculeDTO} (colonnes du véhicule uniquement), sans entité gérée ni dirty checking.
+   *
+   * @return les DTO des véhicules correspondant aux filtres, triés par identifiant
+   */
+  public List<VehiculeDTO> findDTOWithFilters(LocalDate dateDebut, LocalDate dateFin,
+      String ville, String marque, String modele, String couleur, Double prixMin, Double prixMax,
+      TypeV type, Boolean hasParkingOption) {
+    return rechercher(PROJECTION_DTO + " FROM Vehicule v", VehiculeDTO.class, dateDebut, dateFin,
+        ville, marque, modele, couleur, prixMin, prixMax, type, hasParkingOption);
+  }
+
+  /**
+   * Construit et exécute la requête de recherche multi-critères, pour la clause SELECT donnée.
+   */
+  private <T> List<T> rechercher(String select, Class<T> resultClass, LocalDate dateDebut,
+      LocalDate dateFin, String ville, String marque, String modele, String couleur,
+      Double prixMin, Double prixMax, TypeV type, Boolean hasParkingOption) {
     try (EntityManager em = DatabaseConnection.getEntityManager()) {
-      StringBuilder jpql = new StringBuilder();
-      jpql.append("SELECT DISTINCT v FROM Vehicule v " + "LEFT JOIN FETCH v.datesDispo "
-          + "LEFT JOIN FETCH v.proprietaire");
+      StringBuilder jpql = new StringBuilder(select);
 
       List<String> conditions = new ArrayList<>();
 
@@ -154,7 +262,10 @@ public class VehiculeRepository {
         jpql.append("AND l.dateFin >= :dateDebut)");
       }
 
-      TypedQuery<Vehicule> query = em.createQuery(jpql.toString(), Vehicule.class);
+      jpql.append(" ORDER BY v.id");
+
+      TypedQuery<T> query = em.createQuery(jpql.toString(), resultClass);
+      query.setHint(HibernateHints.HINT_READ_ONLY, true);
 
       // Définir les paramètres
       if (ville != null && !ville.trim().isEmpty()) {
@@ -188,7 +299,7 @@ public class VehiculeRepository {
         query.setParameter("parkingOptionName", "Option Parking");
       }
 
-      return query.getResultList();
+      return QueryProfiler.getResultList(query);
 
     } catch (Exception e) {
       throw new RuntimeException("Erreur lors de la récupération des véhicules avec filtres", e);
@@ -266,6 +377,76 @@ public class VehiculeRepository {
     }
   }
 
+  /**
+   * Récupère en lot les dates des locations actives (hors TERMINE et ANNULE) de plusieurs
+   * véhicules, par paquets de {@value #TAILLE_LOT_IN} identifiants.
+   *
+   * @param vehiculeIds les identifiants des véhicules
+   * @return liste de tableaux [vehiculeId, dateDebut, dateFin], triée par date de début
+   */
+  public List<Object[]> getDatesLocationsActives(Collection<Long> vehiculeIds) {
+    return parLots(vehiculeIds, "SELECT l.vehicule.id, l.dateDebut, l.dateFin FROM Location l "
+        + "WHERE l.vehicule.id IN :vehiculeIds " + "AND l.statut != :statutTermine "
+        + "AND l.statut != :statutAnnule " + "ORDER BY l.dateDebut ASC", query -> {
+          query.setParameter("statutTermine", StatutLocation.TERMINE);
+          query.setParameter("statutAnnule", StatutLocation.ANNULE);
+        });
+  }
+
+  /**
+   * Récupère en lot les disponibilités non échues (date de fin à partir de {@code aPartirDu}) de
+   * plusieurs véhicules, par paquets de {@value #TAILLE_LOT_IN} identifiants.
+   *
+   * @param vehiculeIds les identifiants des véhicules
+   * @param aPartirDu la date en deçà de laquelle les disponibilités sont ignorées
+   * @return liste de tableaux [vehiculeId, dateDebut, dateFin], triée par date de début
+   */
+  public List<Object[]> getDisponibilitesFutures(Collection<Long> vehiculeIds,
+      LocalDate aPartirDu) {
+    return parLots(vehiculeIds,
+        "SELECT d.vehicule.id, d.dateDebut, d.dateFin FROM Disponibilite d "
+            + "WHERE d.vehicule.id IN :vehiculeIds " + "AND d.dateFin >= :aPartirDu "
+            + "ORDER BY d.dateDebut ASC",
+        query -> query.setParameter("aPartirDu", aPartirDu));
+  }
+
+  /**
+   * Récupère en lot le type et le modèle de plusieurs véhicules, par paquets de
+   * {@value #TAILLE_LOT_IN} identifiants.
+   *
+   * @param vehiculeIds les identifiants des véhicules
+   * @return liste de tableaux [vehiculeId, type, modele]
+   */
+  public List<Object[]> getTypesModeles(Collection<Long> vehiculeIds) {
+    return parLots(vehiculeIds,
+        "SELECT v.id, v.type, v.modele FROM Vehicule v WHERE v.id IN :vehiculeIds", query -> {});
+  }
+
+  /**
+   * Exécute une requête portant sur {@code :vehiculeIds} autant de fois que nécessaire pour ne pas
+   * dépasser {@value #TAILLE_LOT_IN} identifiants par clause IN, et concatène les résultats.
+   */
+  private List<Object[]> parLots(Collection<Long> vehiculeIds, String jpql,
+      Consumer<TypedQuery<Object[]>> parametres) {
+    List<Long> ids = new ArrayList<>(vehiculeIds);
+    List<Object[]> resultats = new ArrayList<>();
+    try (EntityManager em = DatabaseConnection.getEntityManager()) {
+      for (int debut = 0; debut < ids.size(); debut += TAILLE_LOT_IN) {
+        TypedQuery<Object[]> query = em.createQuery(jpql, Object[].class);
+        query.setParameter("vehiculeIds",
+            ids.subList(debut, Math.min(debut + TAILLE_LOT_IN, ids.size())));
+        parametres.accept(query);
+        query.setHint(HibernateHints.HINT_READ_ONLY, true);
+        resultats.addAll(QueryProfiler.getResultList(query));
+      }
+      return resultats;
+
+    } catch (Exception e) {
+      throw new RuntimeException("Erreur lors de la récupération en lot des dates des véhicules",
+          e);
+    }
+  }
+
   /**
    * Récupère tous les véhicules appartenant à un agent spécifique
    *
@@ -278,6 +459,7 @@ public class VehiculeRepository {
           "SELECT v FROM Vehicule v LEFT JOIN FETCH v.datesDispo WHERE v.proprietaire.idU = :agentId",
           Vehicule.class);
       query.setParameter("agentId", agentId);
+      query.setHint(HibernateHints.HINT_READ_ONLY, true);
       return query.getResultList();
 
     } catch (Exception e) {
@@ -287,6 +469,23 @@ public class VehiculeRepository {
 
   }
 
+  /**
+   * @param agentId l'identifiant de l'agent propriétaire
+   * @return les identifiants des véhicules de cet agent
+   */
+  public List<Long> findIdsByAgentId(Long agentId) {
+    try (EntityManager em = DatabaseConnection.getEntityManager()) {
+      TypedQuery<Long> query = em.createQuery(
+          "SELECT v.id FROM Vehicule v WHERE v.proprietaire.idU = :agentId", Long.class);
+      query.setParameter("agentId", agentId);
+      return query.getResultList();
+
+    } catch (Exception e) {
+      throw new RuntimeException(
+          "Erreur lors de la récupération des véhicules de l'agent " + agentId, e);
+    }
+  }
+
   // =======================
   // consulter les véhicules par ville
   // =======================
@@ -4,9 +4,14 @@ import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import fr.univ.m1.projetagile.controleTechnique.entity.ControleTechnique;
 import fr.univ.m1.projetagile.controleTechnique.service.ControlTechniqueService;
+import fr.univ.m1.projetagile.core.LecturesParalleles;
+import fr.univ.m1.projetagile.core.LecturesParalleles.Branche;
+import fr.univ.m1.projetagile.core.cache.CacheProfils;
 import fr.univ.m1.projetagile.core.dto.AgentDTO;
+import fr.univ.m1.projetagile.core.dto.RecommandationsEntretienDTO;
 import fr.univ.m1.projetagile.core.dto.VehiculeDTO;
 import fr.univ.m1.projetagile.core.entity.Agent;
 import fr.univ.m1.projetagile.core.entity.AgentParticulier;
@@ -14,6 +19,7 @@ import fr.univ.m1.projetagile.core.entity.AgentProfessionnel;
 import fr.univ.m1.projetagile.core.entity.Vehicule;
 import fr.univ.m1.projetagile.core.persistence.AgentRepository;
 import fr.univ.m1.projetagile.core.persistence.VehiculeRepository;
+import fr.univ.m1.projetagile.entretienTechnique.service.EntretienTechniqueService;
 import fr.univ.m1.projetagile.notes.service.NoteService;
 
 /**
@@ -25,6 +31,7 @@ public class AgentService extends UtilisateurService<Agent, AgentRepository> {
   private final VehiculeService vehiculeService;
   private final ControlTechniqueService controlTechniqueService;
   private final NoteService noteService;
+  private final EntretienTechniqueService entretienTechniqueService;
 
 
   public AgentService(AgentRepository agentRepository, VehiculeRepository vehiculeRepository) {
@@ -37,6 +44,7 @@ public class AgentService extends UtilisateurService<Agent, AgentRepository> {
     this.vehiculeService = new VehiculeService(vehiculeRepository);
     this.controlTechniqueService = new ControlTechniqueService(vehiculeRepository);
     this.noteService = new NoteService();
+    this.entretienTechniqueService = new EntretienTechniqueService();
   }
 
   public AgentService(AgentRepository agentRepository) {
@@ -106,6 +114,9 @@ public class AgentService extends UtilisateurService<Agent, AgentRepository> {
   /**
    * Récupère le profil complet d'un agent sous forme de DTO
    *
+   * Le profil est servi par {@link CacheProfils} tant qu'aucune note, location ou modification de
+   * l'agent ou de ses véhicules ne l'a invalidé ; le DTO renvoyé ne doit pas être modifié.
+   *
    * @param agent l'agent dont on veut récupérer le profil
    * @return AgentDTO contenant toutes les informations du profil et les véhicules disponibles
    */
@@ -117,14 +128,19 @@ public class AgentService extends UtilisateurService<Agent, AgentRepository> {
       throw new IllegalStateException(
           "VehiculeService n'est pas initialisé. Utilisez le constructeur avec VehiculeService.");
     }
+    if (agent.getIdU() == null || !CacheProfils.estActif()) {
+      return construireProfil(agent);
+    }
+    return CacheProfils.agents().getOuCharger(agent.getIdU(), id -> construireProfil(agent));
+  }
 
+  private AgentDTO construireProfil(Agent agent) {
     AgentDTO dto = new AgentDTO();
 
     // Informations communes
     dto.setIdU(agent.getIdU());
     dto.setEmail(agent.getEmail());
     dto.setTypeAgent(agent.getTypeAgent());
-    dto.setNoteMoyenne(noteService.getMoyenneAgent(agent));
 
     // Informations spécifiques selon le type d'agent
     if (agent instanceof AgentParticulier) {
@@ -137,12 +153,21 @@ public class AgentService extends UtilisateurService<Agent, AgentRepository> {
       dto.setSiret(professionnel.getSiret());
     }
 
-    // Récupérer les véhicules de l'agent et filtrer uniquement ceux qui sont disponibles
-    List<VehiculeDTO> tousLesVehicules = vehiculeService.getVehiculesByAgent(agent);
-    List<VehiculeDTO> vehiculesDisponibles =
-        tousLesVehicules.stream().filter(VehiculeDTO::isDisponible).collect(Collectors.toList());
+    // Note moyenne et véhicules sont lus en parallèle
+    try (LecturesParalleles lectures = new LecturesParalleles()) {
+      Branche<Double> noteMoyenne =
+          lectures.lancer("noteMoyenne", () -> noteService.getMoyenneAgent(agent));
+      Branche<List<VehiculeDTO>> tousLesVehicules =
+          lectures.lancer("vehicules", () -> vehiculeService.getVehiculesByAgent(agent));
+      lectures.joindre();
 
-    dto.setVehicules(vehiculesDisponibles);
+      dto.setNoteMoyenne(noteMoyenne.get());
+
+      // Filtrer uniquement les véhicules qui sont disponibles
+      List<VehiculeDTO> vehiculesDisponibles = tousLesVehicules.get().stream()
+          .filter(VehiculeDTO::isDisponible).collect(Collectors.toList());
+      dto.setVehicules(vehiculesDisponibles);
+    }
 
     return dto;
   }
@@ -163,7 +188,7 @@ public class AgentService extends UtilisateurService<Agent, AgentRepository> {
     }
 
     agent.setNom(nouveauNom);
-    return (AgentParticulier) repository.save(agent);
+    return (AgentParticulier) enregistrer(agent);
   }
 
   /**
@@ -183,7 +208,7 @@ public class AgentService extends UtilisateurService<Agent, AgentRepository> {
     }
 
     agent.setPrenom(nouveauPrenom);
-    return (AgentParticulier) repository.save(agent);
+    return (AgentParticulier) enregistrer(agent);
   }
 
   /**
@@ -203,7 +228,7 @@ public class AgentService extends UtilisateurService<Agent, AgentRepository> {
     }
 
     agent.setNom(nouveauNom);
-    return (AgentProfessionnel) repository.save(agent);
+    return (AgentProfessionnel) enregistrer(agent);
   }
 
   /**
@@ -223,7 +248,7 @@ public class AgentService extends UtilisateurService<Agent, AgentRepository> {
     }
 
     agent.setSiret(nouveauSiret);
-    return (AgentProfessionnel) repository.save(agent);
+    return (AgentProfessionnel) enregistrer(agent);
   }
 
   // ==================== Technical Control Methods ====================
@@ -444,6 +469,17 @@ public class AgentService extends UtilisateurService<Agent, AgentRepository> {
     return controlTechniqueService.getRecommandationsEntretienParKilometrage(vehicule);
   }
 
+  /**
+   * Retrieves the technical maintenance recommendations (overdue TypeTechnique entries) of all
+   * the agent's vehicles with a few grouped queries, instead of one computation per vehicle.
+   *
+   * @param agent the agent owning the vehicles
+   * @return the recommendations of the vehicles needing maintenance, by vehicle identifier
+   */
+  public Stream<RecommandationsEntretienDTO> getRecommandationsEntretienTechnique(Agent agent) {
+    return entretienTechniqueService.genererRecommandationsAgent(agent);
+  }
+
   // ==================== Utility Methods ====================
 
   /**
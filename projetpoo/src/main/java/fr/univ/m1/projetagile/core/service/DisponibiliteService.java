@@ -4,6 +4,8 @@ import java.time.LocalDate;
 import java.util.List;
 import fr.univ.m1.projetagile.core.entity.Disponibilite;
 import fr.univ.m1.projetagile.core.entity.Vehicule;
+import fr.univ.m1.projetagile.core.evenement.BusEvenements;
+import fr.univ.m1.projetagile.core.evenement.EvenementMetier;
 import fr.univ.m1.projetagile.core.persistence.DisponibiliteRepository;
 
 /**
@@ -106,7 +108,9 @@ public class DisponibiliteService {
     Disponibilite disponibilite = new Disponibilite(vehicule, dateDebut, dateFin);
 
     // Sauvegarde automatique
-    return disponibiliteRepository.save(disponibilite);
+    Disponibilite sauvegardee = disponibiliteRepository.save(disponibilite);
+    publierModification(vehicule);
+    return sauvegardee;
   }
 
   /**
@@ -191,7 +195,11 @@ public class DisponibiliteService {
     if (disponibiliteId == null) {
       throw new IllegalArgumentException("L'ID de la disponibilité ne peut pas être null");
     }
+    Disponibilite disponibilite = disponibiliteRepository.findById(disponibiliteId);
     disponibiliteRepository.delete(disponibiliteId);
+    if (disponibilite != null) {
+      publierModification(disponibilite.getVehicule());
+    }
   }
 
   /**
@@ -209,6 +217,20 @@ public class DisponibiliteService {
       throw new IllegalArgumentException("La disponibilité doit avoir un ID pour être mise à jour");
     }
 
-    return disponibiliteRepository.save(disponibilite);
+    Disponibilite sauvegardee = disponibiliteRepository.save(disponibilite);
+    publierModification(disponibilite.getVehicule());
+    return sauvegardee;
+  }
+
+  /**
+   * Prévient les caches qui dépendent des disponibilités du véhicule (planning des créneaux,
+   * fiches), comme {@link VehiculeService} après ses propres modifications.
+   */
+  private void publierModification(Vehicule vehicule) {
+    if (vehicule == null || vehicule.getId() == null) {
+      return;
+    }
+    Long agentId = vehicule.getProprietaire() != null ? vehicule.getProprietaire().getIdU() : null;
+    BusEvenements.publier(EvenementMetier.vehiculeModifie(vehicule.getId(), agentId));
   }
 }
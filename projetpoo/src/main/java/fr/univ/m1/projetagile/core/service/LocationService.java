@@ -2,11 +2,17 @@ package fr.univ.m1.projetagile.core.service;
 
 import java.io.File;
 import java.io.IOException;
-import java.time.LocalDate;
+import java.io.InputStream;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDPage;
 import org.apache.pdfbox.pdmodel.PDPageContentStream;
@@ -14,6 +20,7 @@ import org.apache.pdfbox.pdmodel.common.PDRectangle;
 import org.apache.pdfbox.pdmodel.font.PDType1Font;
 import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
 import fr.univ.m1.projetagile.VerificationLocation.persistence.VerificationRepository;
+import fr.univ.m1.projetagile.VerificationLocation.service.PhotosVerification;
 import fr.univ.m1.projetagile.VerificationLocation.service.VerificationService;
 import fr.univ.m1.projetagile.assurance.entity.Assurance;
 import fr.univ.m1.projetagile.assurance.entity.SouscriptionAssurance;
@@ -26,15 +33,23 @@ import fr.univ.m1.projetagile.core.entity.Location;
 import fr.univ.m1.projetagile.core.entity.Loueur;
 import fr.univ.m1.projetagile.core.entity.Utilisateur;
 import fr.univ.m1.projetagile.core.entity.Vehicule;
+import fr.univ.m1.projetagile.core.evenement.BusEvenements;
+import fr.univ.m1.projetagile.core.evenement.EvenementMetier;
 import fr.univ.m1.projetagile.core.interfaces.LieuRestitution;
 import fr.univ.m1.projetagile.core.persistence.LocationRepository;
+import fr.univ.m1.projetagile.creneaux.service.PlanningVehicules;
+import fr.univ.m1.projetagile.enums.ResultatDecision;
 import fr.univ.m1.projetagile.enums.StatutLocation;
+import fr.univ.m1.projetagile.listeAttente.service.ListeAttenteService;
 import fr.univ.m1.projetagile.notes.service.NoteService;
 import fr.univ.m1.projetagile.options.service.SouscriptionOptionService;
 import fr.univ.m1.projetagile.parking.entity.Parking;
+import fr.univ.m1.projetagile.parking.service.IndexParkings;
 import fr.univ.m1.projetagile.parrainage.entity.Parrainage;
 import fr.univ.m1.projetagile.parrainage.service.CreditService;
 import fr.univ.m1.projetagile.parrainage.service.ParrainageService;
+import fr.univ.m1.projetagile.recherche.service.PercolateurRecherches;
+import fr.univ.m1.projetagile.statistiques.service.StatistiqueFlotteService;
 
 /**
  * Service métier pour la gestion des locations de véhicules. Fournit les opérations CRUD et les
@@ -48,10 +63,14 @@ public class LocationService {
   private final AssuranceService assuranceService;
   private final NoteService noteService;
   private final SouscriptionOptionService souscriptionOptionService;
+  private final StatistiqueFlotteService statistiqueFlotteService;
+  private final PercolateurRecherches percolateurRecherches;
+  private final ListeAttenteService listeAttenteService;
+  private final VerificationService verificationService;
 
   // ==================== #100 : règles commission ====================
-  private static final double COMMISSION_NORMALE = 0.10; // 10%
-  private static final double COMMISSION_LLD = 0.05; // 5% (rabais LLD)
+  public static final double COMMISSION_NORMALE = 0.10; // 10%
+  public static final double COMMISSION_LLD = 0.05; // 5% (rabais LLD)
 
   public LocationService(LocationRepository locationRepository) {
     this.locationRepository = locationRepository;
@@ -60,6 +79,11 @@ public class LocationService {
     this.assuranceService = new AssuranceService();
     this.noteService = new NoteService();
     this.souscriptionOptionService = new SouscriptionOptionService();
+    this.statistiqueFlotteService = new StatistiqueFlotteService();
+    this.percolateurRecherches = new PercolateurRecherches();
+    this.listeAttenteService = new ListeAttenteService(this);
+    this.verificationService =
+        new VerificationService(new VerificationRepository(), locationRepository);
   }
 
   public LocationService(LocationRepository locationRepository, ParrainageService parrainageService,
@@ -70,6 +94,11 @@ public class LocationService {
     this.assuranceService = new AssuranceService();
     this.noteService = new NoteService();
     this.souscriptionOptionService = new SouscriptionOptionService();
+    this.statistiqueFlotteService = new StatistiqueFlotteService();
+    this.percolateurRecherches = new PercolateurRecherches();
+    this.listeAttenteService = new ListeAttenteService(this);
+    this.verificationService =
+        new VerificationService(new VerificationRepository(), locationRepository);
   }
 
   public LocationService(LocationRepository locationRepository, ParrainageService parrainageService,
@@ -80,6 +109,11 @@ public class LocationService {
     this.assuranceService = assuranceService;
     this.noteService = new NoteService();
     this.souscriptionOptionService = new SouscriptionOptionService();
+    this.statistiqueFlotteService = new StatistiqueFlotteService();
+    this.percolateurRecherches = new PercolateurRecherches();
+    this.listeAttenteService = new ListeAttenteService(this);
+    this.verificationService =
+        new VerificationService(new VerificationRepository(), locationRepository);
   }
 
   public LocationService(LocationRepository locationRepository, ParrainageService parrainageService,
@@ -90,6 +124,11 @@ public class LocationService {
     this.assuranceService = assuranceService;
     this.noteService = noteService;
     this.souscriptionOptionService = new SouscriptionOptionService();
+    this.statistiqueFlotteService = new StatistiqueFlotteService();
+    this.percolateurRecherches = new PercolateurRecherches();
+    this.listeAttenteService = new ListeAttenteService(this);
+    this.verificationService =
+        new VerificationService(new VerificationRepository(), locationRepository);
   }
 
   /**
@@ -137,11 +176,9 @@ public class LocationService {
       }
     }
 
-    LocalDate debutJour = dateDebut.toLocalDate();
-    LocalDate finJour = dateFin.toLocalDate();
-    boolean disponible =
-        locationRepository.isVehicleAvailable(vehicule.getId(), debutJour, finJour);
-    if (!disponible) {
+    // Disponibilité au créneau près, délai de remise en état du véhicule compris : rejet rapide
+    // depuis le planning en mémoire, la base tranche à l'enregistrement
+    if (!PlanningVehicules.estDisponible(vehicule.getId(), dateDebut, dateFin)) {
       throw new IllegalStateException("Le véhicule n'est pas disponible pour cette période.");
     }
 
@@ -162,7 +199,32 @@ public class LocationService {
       location.setStatut(StatutLocation.ACCEPTE);
     }
 
-    Location locationSauvegardee = locationRepository.save(location);
+    // Retenir une place dans le parking de dépôt, sans requête (compteur en mémoire)
+    Long parkingId = lieuDepot instanceof Parking parking ? parking.getId() : null;
+    if (parkingId != null && !IndexParkings.reserver(parkingId)) {
+      throw new IllegalStateException("Le parking de dépôt n'a plus de place libre.");
+    }
+    Location locationSauvegardee;
+    try {
+      // Vérification autoritaire sous verrou du véhicule : le planning ne voit pas les locations
+      // écrites par une autre instance
+      locationSauvegardee = locationRepository.saveSiLibre(location);
+    } catch (RuntimeException e) {
+      if (parkingId != null) {
+        IndexParkings.annulerReservation(parkingId);
+      }
+      throw e;
+    }
+    if (locationSauvegardee == null) {
+      if (parkingId != null) {
+        IndexParkings.annulerReservation(parkingId);
+      }
+      throw new IllegalStateException("Le véhicule n'est pas disponible pour cette période.");
+    }
+    if (parkingId != null) {
+      IndexParkings.confirmer(parkingId);
+    }
+    signalerModification(locationSauvegardee);
 
     // Vérifier et gérer le parrainage du loueur
     gererParrainage(loueur);
@@ -367,7 +429,7 @@ public class LocationService {
               + "EN_ATTENTE_D_ACCEPTATION_PAR_L_AGENT ou ACCEPTE.");
     }
     location.setStatut(StatutLocation.ANNULE);
-    locationRepository.save(location);
+    enregistrer(location);
   }
 
   /**
@@ -411,14 +473,14 @@ public class LocationService {
     if (location.delaiAcceptationExpire()) {
       // Le délai a expiré, annuler automatiquement la location
       location.setStatut(StatutLocation.ANNULE);
-      locationRepository.save(location);
+      enregistrer(location);
       throw new IllegalStateException(
           "Le délai d'acceptation de 6 heures a expiré. La location a été automatiquement annulée.");
     }
 
     // Accepter la location
     location.setStatut(StatutLocation.ACCEPTE);
-    locationRepository.save(location);
+    enregistrer(location);
   }
 
   /**
@@ -462,14 +524,147 @@ public class LocationService {
     // accepterLocationManuellement)
     if (location.delaiAcceptationExpire()) {
       location.setStatut(StatutLocation.ANNULE);
-      locationRepository.save(location);
+      enregistrer(location);
       throw new IllegalStateException(
           "Le délai d'acceptation de 6 heures a expiré. La location a été automatiquement annulée.");
     }
 
     // Refuser la location (annuler)
     location.setStatut(StatutLocation.ANNULE);
-    locationRepository.save(location);
+    enregistrer(location);
+  }
+
+  /**
+   * Version groupée de {@link #accepterLocationManuellement(Long, Agent)} : valide toutes les
+   * locations en une requête et les accepte par une seule mise à jour groupée. Les locations dont
+   * le délai d'acceptation a expiré sont annulées.
+   *
+   * @param locationIds les identifiants des locations à accepter
+   * @param agent l'agent qui accepte les locations
+   * @return l'issue de chaque identifiant, dans l'ordre de la liste
+   * @throws IllegalArgumentException si la liste ou l'agent est null
+   */
+  public Map<Long, ResultatDecision> accepterLocationsManuellement(List<Long> locationIds,
+      Agent agent) {
+    return deciderEnLot(locationIds, agent, StatutLocation.ACCEPTE, ResultatDecision.ACCEPTEE);
+  }
+
+  /**
+   * Version groupée de {@link #refuserLocationManuellement(Long, Agent)} : valide toutes les
+   * locations en une requête et les annule par une seule mise à jour groupée.
+   *
+   * @param locationIds les identifiants des locations à refuser
+   * @param agent l'agent qui refuse les locations
+   * @return l'issue de chaque identifiant, dans l'ordre de la liste
+   * @throws IllegalArgumentException si la liste ou l'agent est null
+   */
+  public Map<Long, ResultatDecision> refuserLocationsManuellement(List<Long> locationIds,
+      Agent agent) {
+    return deciderEnLot(locationIds, agent, StatutLocation.ANNULE, ResultatDecision.REFUSEE);
+  }
+
+  /**
+   * Applique une décision à plusieurs locations en attente : une requête de validation (existence,
+   * propriétaire, statut, délai) puis une requête UPDATE groupée. Une location modifiée entre les
+   * deux requêtes est signalée DEJA_DECIDEE si une décision concurrente lui a donné le statut
+   * attendu, STATUT_INCOMPATIBLE sinon. Les locations annulées rendent leur place de
+   * parking de dépôt à {@link IndexParkings} après validation.
+   */
+  private Map<Long, ResultatDecision> deciderEnLot(List<Long> locationIds, Agent agent,
+      StatutLocation decision, ResultatDecision succes) {
+    if (locationIds == null) {
+      throw new IllegalArgumentException("La liste des locations ne peut pas être nulle.");
+    }
+    if (agent == null || agent.getIdU() == null) {
+      throw new IllegalArgumentException("L'agent doit être spécifié et avoir un identifiant.");
+    }
+
+    Map<Long, ResultatDecision> resultats = new LinkedHashMap<>();
+    Set<Long> ids = new LinkedHashSet<>();
+    for (Long id : locationIds) {
+      if (id != null) {
+        ids.add(id);
+        resultats.put(id, ResultatDecision.INTROUVABLE);
+      }
+    }
+    if (ids.isEmpty()) {
+      return resultats;
+    }
+
+    // Même critère que Location.delaiAcceptationExpire(), évalué une fois pour tout le lot
+    LocalDateTime limite = LocalDateTime.now().minusHours(Location.DELAI_ACCEPTATION_HEURES);
+    Map<Long, Object[]> aModifier = new HashMap<>();
+    for (Object[] etat : locationRepository.findEtatsPourDecision(ids)) {
+      Long id = (Long) etat[0];
+      LocalDateTime dateCreation = (LocalDateTime) etat[3];
+      if (!agent.getIdU().equals(etat[2])) {
+        resultats.put(id, ResultatDecision.NON_PROPRIETAIRE);
+      } else if (etat[1] != StatutLocation.EN_ATTENTE_D_ACCEPTATION_PAR_L_AGENT) {
+        resultats.put(id, ResultatDecision.STATUT_INCOMPATIBLE);
+      } else {
+        boolean expiree = dateCreation != null && dateCreation.isBefore(limite);
+        resultats.put(id, expiree ? ResultatDecision.ANNULEE_DELAI_EXPIRE : succes);
+        aModifier.put(id, etat);
+      }
+    }
+    if (aModifier.isEmpty()) {
+      return resultats;
+    }
+
+    // Places de parking rendues par les locations annulées (refus ou délai expiré)
+    Map<Long, Long> parkings = new HashMap<>();
+    for (Map.Entry<Long, Object[]> entree : aModifier.entrySet()) {
+      Long parkingId = (Long) entree.getValue()[6];
+      if (parkingId != null && (decision == StatutLocation.ANNULE
+          || resultats.get(entree.getKey()) == ResultatDecision.ANNULEE_DELAI_EXPIRE)) {
+        parkings.put(entree.getKey(), parkingId);
+        IndexParkings.preparerLiberation(parkingId);
+      }
+    }
+
+    Set<Long> modifiees;
+    try {
+      modifiees =
+          locationRepository.deciderLocationsEnAttente(aModifier.keySet(), decision, limite);
+    } catch (RuntimeException e) {
+      parkings.values().forEach(IndexParkings::abandonnerLiberation);
+      throw e;
+    }
+    if (modifiees.size() < aModifier.size()) {
+      // Certaines locations ont changé de statut entre la validation et la mise à jour : la
+      // décision concurrente a rendu le parking et publié les événements
+      Set<Long> nonModifiees = new HashSet<>(aModifier.keySet());
+      nonModifiees.removeAll(modifiees);
+      for (Object[] etat : locationRepository.findEtatsPourDecision(nonModifiees)) {
+        Long id = (Long) etat[0];
+        StatutLocation attendu =
+            resultats.get(id) == ResultatDecision.ANNULEE_DELAI_EXPIRE ? StatutLocation.ANNULE
+                : decision;
+        resultats.put(id, etat[1] == attendu ? ResultatDecision.DEJA_DECIDEE
+            : ResultatDecision.STATUT_INCOMPATIBLE);
+      }
+      for (Long id : nonModifiees) {
+        aModifier.remove(id);
+        Long parkingId = parkings.remove(id);
+        if (parkingId != null) {
+          IndexParkings.abandonnerLiberation(parkingId);
+        }
+      }
+    }
+    parkings.values().forEach(IndexParkings::liberer);
+
+    statistiqueFlotteService.actualiser(aModifier.keySet());
+    for (Map.Entry<Long, Object[]> entree : aModifier.entrySet()) {
+      Object[] etat = entree.getValue();
+      BusEvenements.publier(
+          EvenementMetier.locationModifiee((Long) etat[4], (Long) etat[2], (Long) etat[5]));
+      if (decision == StatutLocation.ANNULE
+          || resultats.get(entree.getKey()) == ResultatDecision.ANNULEE_DELAI_EXPIRE) {
+        percolateurRecherches.signalerCapacite((Long) etat[4], null, null);
+        listeAttenteService.liberer((Long) etat[4], null, null);
+      }
+    }
+    return resultats;
   }
 
   /**
@@ -477,15 +672,69 @@ public class LocationService {
    * et la photo, vérifie que tout est correct, puis change le statut de la location à TERMINE et la
    * sauvegarde en base de données.
    *
+   * <p>
+   * Vérification et statut sont écrits dans une seule transaction
+   * ({@link VerificationService#terminerLocation(Location, int, String)}) : une location ne peut
+   * pas rester vérifiée sans être terminée. Les suites (statistiques, événement de modification)
+   * sont déclenchées après validation.
+   * </p>
+   *
    * @param location la location à terminer
    * @param kilometrageFin le kilométrage du véhicule à la fin de la location
-   * @param photo la photo du véhicule (peut être null)
-   * @throws IllegalArgumentException si la location est nulle, si le kilométrage est invalide, ou
-   *         si la vérification n'existe pas
+   * @param photo l'empreinte d'une photo du véhicule déjà enregistrée dans le stockage des photos
+   *        de vérification (peut être null)
+   * @throws IllegalArgumentException si la location est nulle, si le kilométrage est invalide, si
+   *         la photo n'est pas une empreinte enregistrée, ou si la vérification n'existe pas
    * @throws IllegalStateException si la location ne peut pas être terminée (statut incorrect ou
    *         vérification échouée)
    */
   public void terminer(Location location, Integer kilometrageFin, String photo) {
+    verifierTerminable(location, kilometrageFin);
+
+    Long parkingId = parkingDepot(location);
+    if (parkingId != null) {
+      IndexParkings.preparerLiberation(parkingId);
+    }
+    try {
+      verificationService.terminerLocation(location, kilometrageFin, photo);
+    } catch (RuntimeException e) {
+      if (parkingId != null) {
+        IndexParkings.abandonnerLiberation(parkingId);
+      }
+      throw e;
+    }
+    if (parkingId != null) {
+      IndexParkings.liberer(parkingId);
+    }
+    location.setStatut(StatutLocation.TERMINE);
+    signalerModification(location);
+  }
+
+  /**
+   * Termine une location en cours avec une photo téléversée, enregistrée dans le stockage des
+   * photos de vérification (voir {@link #terminer(Location, Integer, String)}). La photo n'est
+   * stockée qu'une fois la terminaison vérifiée, pour ne pas garder celle d'une demande refusée.
+   *
+   * @param location la location à terminer
+   * @param kilometrageFin le kilométrage du véhicule à la fin de la location
+   * @param photo le contenu de la photo du véhicule, lu jusqu'au bout mais pas fermé
+   * @throws IllegalArgumentException si un paramètre est invalide ou si la vérification n'existe
+   *         pas
+   * @throws IllegalStateException si la location ne peut pas être terminée
+   */
+  public void terminer(Location location, Integer kilometrageFin, InputStream photo) {
+    if (photo == null) {
+      throw new IllegalArgumentException("Le contenu de la photo ne peut pas être nul.");
+    }
+    verifierTerminable(location, kilometrageFin);
+    verificationService.verifierTerminaison(location.getId(), kilometrageFin);
+    terminer(location, kilometrageFin, PhotosVerification.enregistrer(photo));
+  }
+
+  /**
+   * Contrôles de {@link #terminer(Location, Integer, String)} qui ne lisent pas la base.
+   */
+  private static void verifierTerminable(Location location, Integer kilometrageFin) {
     if (location == null) {
       throw new IllegalArgumentException("La location ne peut pas être nulle.");
     }
@@ -502,32 +751,6 @@ public class LocationService {
       throw new IllegalStateException(
           "Terminaison impossible : la location ne peut être terminée que si son statut est ACCEPTE.");
     }
-
-    // Récupérer et mettre à jour la vérification existante
-    VerificationRepository verificationRepository = new VerificationRepository();
-    VerificationService verificationService =
-        new VerificationService(verificationRepository, locationRepository);
-
-    // Vérifier que la vérification existe
-    fr.univ.m1.projetagile.VerificationLocation.entity.Verification verification =
-        verificationService.getVerificationByLocationId(location.getId());
-    if (verification == null) {
-      throw new IllegalStateException(
-          "Impossible de terminer la location : aucune vérification trouvée pour cette location.");
-    }
-
-    try {
-      verificationService.verifierFinLocation(verification.getId(), kilometrageFin, photo);
-    } catch (Exception e) {
-      throw new IllegalStateException(
-          "Impossible de terminer la location : la vérification n'a pas pu être mise à jour. "
-              + e.getMessage(),
-          e);
-    }
-
-    // Si la vérification a été mise à jour avec succès, terminer la location
-    location.setStatut(StatutLocation.TERMINE);
-    locationRepository.save(location);
   }
 
   /**
@@ -570,6 +793,59 @@ public class LocationService {
     return location;
   }
 
+  /**
+   * Sauvegarde la location, répercute son statut sur les statistiques de la flotte, puis publie sa
+   * modification (création ou changement de statut), pour invalider les profils et véhicules en
+   * cache qui en dépendent. Une annulation libère le véhicule pour les recherches sauvegardées et
+   * promeut les demandes compatibles de sa liste d'attente ; une annulation ou une fin rend la
+   * place retenue dans le parking de dépôt.
+   */
+  private Location enregistrer(Location location) {
+    StatutLocation statut = location.getStatut();
+    Long parkingId = statut == StatutLocation.ANNULE || statut == StatutLocation.TERMINE
+        ? parkingDepot(location)
+        : null;
+    if (parkingId == null) {
+      return signalerModification(locationRepository.save(location));
+    }
+
+    IndexParkings.preparerLiberation(parkingId);
+    Location sauvegardee;
+    try {
+      sauvegardee = locationRepository.save(location);
+    } catch (RuntimeException e) {
+      IndexParkings.abandonnerLiberation(parkingId);
+      throw e;
+    }
+    IndexParkings.liberer(parkingId);
+    return signalerModification(sauvegardee);
+  }
+
+  /**
+   * @return l'identifiant du parking où le véhicule est déposé, ou null si ce n'est pas un parking
+   */
+  private static Long parkingDepot(Location location) {
+    return location.getLieuDepot() instanceof Parking parking ? parking.getId() : null;
+  }
+
+  /**
+   * Suites d'une location enregistrée : statistiques, événement, et capacité libérée pour les
+   * recherches et la liste d'attente si elle est annulée.
+   */
+  private Location signalerModification(Location sauvegardee) {
+    if (sauvegardee.getStatut() != StatutLocation.EN_ATTENTE_D_ACCEPTATION_PAR_L_AGENT) {
+      statistiqueFlotteService.actualiser(List.of(sauvegardee.getId()));
+    }
+    BusEvenements.publier(EvenementMetier.locationModifiee(sauvegardee));
+    if (sauvegardee.getStatut() == StatutLocation.ANNULE && sauvegardee.getVehicule() != null) {
+      percolateurRecherches.signalerCapacite(sauvegardee.getVehicule().getId(),
+          sauvegardee.getDateDebut().toLocalDate(), sauvegardee.getDateFin().toLocalDate());
+      listeAttenteService.liberer(sauvegardee.getVehicule().getId(), sauvegardee.getDateDebut(),
+          sauvegardee.getDateFin());
+    }
+    return sauvegardee;
+  }
+
   /**
    * Convertit une entité Location en LocationDTO
    *
@@ -681,7 +957,7 @@ public class LocationService {
       // Vérifier et annuler automatiquement si le délai a expiré
       if (location.delaiAcceptationExpire()) {
         location.setStatut(StatutLocation.ANNULE);
-        locationRepository.save(location);
+        enregistrer(location);
         // Ne pas inclure cette location dans le résultat
         continue;
       }
@@ -706,7 +982,7 @@ public class LocationService {
     for (Location location : locationsPendantes) {
       if (location.delaiAcceptationExpire()) {
         location.setStatut(StatutLocation.ANNULE);
-        locationRepository.save(location);
+        enregistrer(location);
         nombreAnnulations++;
       }
     }
@@ -738,7 +1014,7 @@ public class LocationService {
 
     if (location.delaiAcceptationExpire()) {
       location.setStatut(StatutLocation.ANNULE);
-      locationRepository.save(location);
+      enregistrer(location);
       return true;
     }
 
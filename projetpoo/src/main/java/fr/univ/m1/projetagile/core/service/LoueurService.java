@@ -1,7 +1,11 @@
 package fr.univ.m1.projetagile.core.service;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import fr.univ.m1.projetagile.core.cache.CacheProfils;
 import fr.univ.m1.projetagile.core.dto.LocationDTO;
 import fr.univ.m1.projetagile.core.dto.LoueurDTO;
 import fr.univ.m1.projetagile.core.dto.VehiculeDTO;
@@ -76,18 +80,9 @@ public class LoueurService extends UtilisateurService<Loueur, LoueurRepository>
     // (exclut déjà les locations annulées et trie par date décroissante)
     List<Location> locations = repository.findLocationsByLoueurId(loueur.getIdU());
 
-    List<LocationDTO> currentLocations = new ArrayList<>();
-
-    for (Location location : locations) {
-      if (location.getStatut() != StatutLocation.TERMINE) {
-        // Tous les statuts sauf TERMINE sont considérés comme "courants"
-        // (EN_ATTENTE_D_ACCEPTATION_PAR_L_AGENT, ACCEPTE, EN_COURS, etc.)
-        LocationDTO locationDTO = convertLocationToDTO(location);
-        currentLocations.add(locationDTO);
-      }
-    }
-
-    return currentLocations;
+    // Tous les statuts sauf TERMINE sont considérés comme "courants"
+    // (EN_ATTENTE_D_ACCEPTATION_PAR_L_AGENT, ACCEPTE, EN_COURS, etc.)
+    return convertLocationsToDTO(locations, false);
   }
 
   /**
@@ -107,16 +102,7 @@ public class LoueurService extends UtilisateurService<Loueur, LoueurRepository>
     // (exclut déjà les locations annulées et trie par date décroissante)
     List<Location> locations = repository.findLocationsByLoueurId(loueur.getIdU());
 
-    List<LocationDTO> oldLocations = new ArrayList<>();
-
-    for (Location location : locations) {
-      if (location.getStatut() == StatutLocation.TERMINE) {
-        LocationDTO locationDTO = convertLocationToDTO(location);
-        oldLocations.add(locationDTO);
-      }
-    }
-
-    return oldLocations;
+    return convertLocationsToDTO(locations, true);
   }
 
   /**
@@ -124,6 +110,9 @@ public class LoueurService extends UtilisateurService<Loueur, LoueurRepository>
    * terminées) et l'historique (terminées) Exclut les locations annulées et trie par date
    * décroissante
    *
+   * Le profil est servi par {@link CacheProfils} tant qu'aucune location, note ou modification du
+   * loueur ou de ses véhicules loués ne l'a invalidé ; le DTO renvoyé ne doit pas être modifié.
+   *
    * @param loueur le loueur dont on veut récupérer le profil
    * @return LoueurDTO contenant toutes les informations du profil et les locations séparées
    */
@@ -131,7 +120,13 @@ public class LoueurService extends UtilisateurService<Loueur, LoueurRepository>
     if (loueur == null) {
       throw new IllegalArgumentException("Le loueur ne peut pas être nul.");
     }
+    if (loueur.getIdU() == null || !CacheProfils.estActif()) {
+      return construireProfil(loueur);
+    }
+    return CacheProfils.loueurs().getOuCharger(loueur.getIdU(), id -> construireProfil(loueur));
+  }
 
+  private LoueurDTO construireProfil(Loueur loueur) {
     LoueurDTO dto = new LoueurDTO();
 
     // Informations de base
@@ -141,20 +136,50 @@ public class LoueurService extends UtilisateurService<Loueur, LoueurRepository>
     dto.setPrenom(loueur.getPrenom());
     dto.setNoteMoyenne(noteService.getMoyenneLoueur(loueur));
 
-    // Récupérer les locations courantes et anciennes en utilisant les méthodes dédiées
-    dto.setCurrentLocations(getCurrentLocationsForLoueur(loueur));
-    dto.setOldLocations(getOldLocationsForLoueur(loueur));
+    // Une seule lecture des locations, séparées ensuite en courantes et anciennes
+    List<Location> locations = repository.findLocationsByLoueurId(loueur.getIdU());
+    dto.setCurrentLocations(convertLocationsToDTO(locations, false));
+    dto.setOldLocations(convertLocationsToDTO(locations, true));
 
     return dto;
   }
 
+  /**
+   * Convertit les locations terminées (ou non terminées) en DTO ; les notes moyennes des véhicules
+   * sont calculées en une seule requête groupée.
+   *
+   * @param locations les locations du loueur
+   * @param terminees true pour ne garder que les locations TERMINE, false pour les autres
+   * @return les DTO, dans l'ordre des locations
+   */
+  private List<LocationDTO> convertLocationsToDTO(List<Location> locations, boolean terminees) {
+    List<Location> selection = new ArrayList<>();
+    Set<Long> vehiculeIds = new HashSet<>();
+    for (Location location : locations) {
+      if ((location.getStatut() == StatutLocation.TERMINE) == terminees) {
+        selection.add(location);
+        if (location.getVehicule() != null) {
+          vehiculeIds.add(location.getVehicule().getId());
+        }
+      }
+    }
+
+    Map<Long, Double> notes = noteService.getMoyennesVehicules(vehiculeIds);
+    List<LocationDTO> dtos = new ArrayList<>();
+    for (Location location : selection) {
+      dtos.add(convertLocationToDTO(location, notes));
+    }
+    return dtos;
+  }
+
   /**
    * Convertit une entité Location en LocationDTO
    *
    * @param location l'entité Location à convertir
+   * @param notes notes moyennes des véhicules, par identifiant
    * @return le DTO correspondant
    */
-  private LocationDTO convertLocationToDTO(Location location) {
+  private LocationDTO convertLocationToDTO(Location location, Map<Long, Double> notes) {
     LocationDTO dto = new LocationDTO();
 
     dto.setId(location.getId());
@@ -175,7 +200,7 @@ public class LoueurService extends UtilisateurService<Loueur, LoueurRepository>
       vehiculeDTO.setVille(vehicule.getVille());
       vehiculeDTO.setPrixJ(vehicule.getPrixJ());
       vehiculeDTO.setDisponible(vehicule.isDisponible());
-      vehiculeDTO.setNoteMoyenne(noteService.getMoyenneVehicule(vehicule));
+      vehiculeDTO.setNoteMoyenne(notes.getOrDefault(vehicule.getId(), 0.0));
 
       dto.setVehicule(vehiculeDTO);
     }
@@ -200,7 +225,7 @@ public class LoueurService extends UtilisateurService<Loueur, LoueurRepository>
     }
 
     loueur.setNom(nouveauNom);
-    return repository.save(loueur);
+    return enregistrer(loueur);
   }
 
   /**
@@ -220,6 +245,6 @@ public class LoueurService extends UtilisateurService<Loueur, LoueurRepository>
     }
 
     loueur.setPrenom(nouveauPrenom);
-    return repository.save(loueur);
+    return enregistrer(loueur);
   }
 }
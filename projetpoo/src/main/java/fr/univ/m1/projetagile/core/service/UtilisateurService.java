@@ -2,11 +2,21 @@ package fr.univ.m1.projetagile.core.service;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.function.Function;
+import fr.univ.m1.projetagile.commentaire.entity.Commentaire;
 import fr.univ.m1.projetagile.commentaire.service.CommentaireService;
+import fr.univ.m1.projetagile.core.DatabaseConnection;
+import fr.univ.m1.projetagile.core.LecturesParalleles;
+import fr.univ.m1.projetagile.core.LecturesParalleles.Branche;
+import fr.univ.m1.projetagile.core.dto.FilCommentaireDTO;
+import fr.univ.m1.projetagile.core.dto.PageCommentairesDTO;
 import fr.univ.m1.projetagile.core.dto.ProfilInfo;
 import fr.univ.m1.projetagile.core.entity.Agent;
 import fr.univ.m1.projetagile.core.entity.Utilisateur;
 import fr.univ.m1.projetagile.core.entity.Vehicule;
+import fr.univ.m1.projetagile.core.evenement.BusEvenements;
+import fr.univ.m1.projetagile.core.evenement.EvenementMetier;
 import fr.univ.m1.projetagile.core.persistence.UtilisateurRepository;
 import jakarta.persistence.EntityManager;
 
@@ -19,6 +29,13 @@ import jakarta.persistence.EntityManager;
  */
 public abstract class UtilisateurService<T extends Utilisateur, R extends UtilisateurRepository<T>> {
 
+  /**
+   * Nombre de fils de commentaires chargés avec le profil ; la suite se lit avec
+   * {@link CommentaireService#getFilsCommentaires} à partir du curseur de
+   * {@link ProfilInfo#getPageCommentaires()}
+   */
+  public static final int TAILLE_PAGE_COMMENTAIRES = 20;
+
   protected R repository;
 
   protected UtilisateurService(R repository) {
@@ -61,6 +78,7 @@ public abstract class UtilisateurService<T extends Utilisateur, R extends Utilis
       throw new IllegalArgumentException("L'identifiant ne peut pas être nul.");
     }
     repository.delete(id);
+    BusEvenements.publier(EvenementMetier.utilisateurModifie(id));
   }
 
   /**
@@ -73,11 +91,23 @@ public abstract class UtilisateurService<T extends Utilisateur, R extends Utilis
     if (utilisateur == null) {
       throw new IllegalArgumentException("L'utilisateur ne peut pas être nul.");
     }
-    return repository.save(utilisateur);
+    return enregistrer(utilisateur);
   }
 
 
 
+  /**
+   * Sauvegarde l'utilisateur puis publie sa modification, pour invalider son profil en cache.
+   *
+   * @param utilisateur l'utilisateur à sauvegarder
+   * @return l'utilisateur sauvegardé
+   */
+  protected T enregistrer(T utilisateur) {
+    T sauvegarde = repository.save(utilisateur);
+    BusEvenements.publier(EvenementMetier.utilisateurModifie(sauvegarde.getIdU()));
+    return sauvegarde;
+  }
+
   /**
    * Valide le format d'un email
    *
@@ -162,7 +192,7 @@ public abstract class UtilisateurService<T extends Utilisateur, R extends Utilis
     utilisateur.changerMDP(ancienMotDePasse, nouveauMotDePasse);
 
     // Sauvegarde les modifications en base de données
-    return repository.save(utilisateur);
+    return enregistrer(utilisateur);
   }
 
   /**
@@ -191,11 +221,12 @@ public abstract class UtilisateurService<T extends Utilisateur, R extends Utilis
     utilisateur.changerEmail(nouvelEmail);
 
     // Sauvegarde les modifications en base de données
-    return repository.save(utilisateur);
+    return enregistrer(utilisateur);
   }
 
   /**
-   * Récupère les informations du profil d'un utilisateur
+   * Récupère les informations du profil d'un utilisateur, avec la première page de ses fils de
+   * commentaires (voir {@link ProfilInfo#getPageCommentaires()} pour la suite)
    *
    * @param utilisateur l'utilisateur dont on veut récupérer le profil
    * @param em l'EntityManager pour les requêtes
@@ -217,34 +248,75 @@ public abstract class UtilisateurService<T extends Utilisateur, R extends Utilis
 
     // Récupérer le nom commercial si c'est un Agent
     if (utilisateur instanceof Agent) {
-      Agent agent = (Agent) utilisateur;
-      profil.setNomCommercial(agent.getNomCommercial());
-
-      // Récupérer les véhicules disponibles via une requête JPQL pour éviter
-      // LazyInitializationException
-      if (em != null) {
-        try {
-          List<Vehicule> vehiculesDisponibles = em.createQuery(
-              "SELECT v FROM Vehicule v WHERE v.proprietaire.idU = :agentId AND v.disponible = true",
-              Vehicule.class).setParameter("agentId", agent.getIdU()).getResultList();
-          profil.setVehiculesDisponibles(vehiculesDisponibles);
-        } catch (Exception e) {
-          profil.setVehiculesDisponibles(new ArrayList<>());
-        }
-      }
+      profil.setNomCommercial(((Agent) utilisateur).getNomCommercial());
     }
 
-    // Récupérer les commentaires
-    if (em != null) {
-      CommentaireService commentaireService = new CommentaireService(em);
-      profil.setCommentaires(commentaireService.getCommentairesProfil(utilisateur.getIdU()));
-      profil.setMoyenneNotes(commentaireService.getMoyenneNotes(utilisateur.getIdU()));
-      profil.setNombreCommentaires(commentaireService.countCommentaires(utilisateur.getIdU()));
+    if (em == null) {
+      return profil;
+    }
+
+    // Véhicules et commentaires sont lus en parallèle, chaque branche sur son propre
+    // EntityManager ; si une transaction est en cours sur em, on lit séquentiellement sur em pour
+    // voir ses modifications non validées
+    Long id = utilisateur.getIdU();
+    boolean parallele = LecturesParalleles.estActive() && !em.getTransaction().isActive();
+    try (LecturesParalleles lectures = new LecturesParalleles(parallele)) {
+      Branche<List<Vehicule>> vehicules = null;
+      if (utilisateur instanceof Agent) {
+        vehicules = lectures.lancer("vehicules", lire(lectures, em, emLecture -> {
+          // Requête JPQL pour éviter LazyInitializationException
+          try {
+            return emLecture.createQuery("SELECT v FROM Vehicule v "
+                + "WHERE v.proprietaire.idU = :agentId AND v.disponible = true", Vehicule.class)
+                .setParameter("agentId", id).getResultList();
+          } catch (Exception e) {
+            return new ArrayList<>();
+          }
+        }));
+      }
+      // Première page des fils de commentaires, nombre et moyenne
+      Branche<PageCommentairesDTO> commentaires = lectures.lancer("commentaires",
+          lire(lectures, em, emLecture -> new CommentaireService(emLecture)
+              .getFilsCommentaires(id, null, null, TAILLE_PAGE_COMMENTAIRES)));
+      lectures.joindre();
+
+      if (vehicules != null) {
+        profil.setVehiculesDisponibles(vehicules.get());
+      }
+      PageCommentairesDTO page = commentaires.get();
+      List<Commentaire> premierNiveau = new ArrayList<>();
+      for (FilCommentaireDTO fil : page.getFils()) {
+        premierNiveau.add(fil.getCommentaire());
+      }
+      profil.setCommentaires(premierNiveau);
+      profil.setFilsCommentaires(page.getFils());
+      profil.setPageCommentaires(page);
+      profil.setMoyenneNotes(page.getMoyenneNotes());
+      profil.setNombreCommentaires(page.getNombreCommentaires());
     }
 
     return profil;
   }
 
+  /**
+   * Adapte une requête de profil au mode de la portée : en parallèle, la requête s'exécute sur un
+   * EntityManager dédié, fermé à la fin de la branche ; sinon sur celui de l'appelant.
+   */
+  private static <V> Callable<V> lire(LecturesParalleles lectures, EntityManager em,
+      Function<EntityManager, V> requete) {
+    if (!lectures.isParallele()) {
+      return () -> requete.apply(em);
+    }
+    return () -> {
+      EntityManager emLecture = DatabaseConnection.createEntityManager();
+      try {
+        return requete.apply(emLecture);
+      } finally {
+        emLecture.close();
+      }
+    };
+  }
+
   /**
    * Modifie les informations du profil d'un utilisateur
    *
@@ -275,6 +347,6 @@ public abstract class UtilisateurService<T extends Utilisateur, R extends Utilis
     }
 
     // Sauvegarde les modifications en base de données
-    return repository.save(utilisateur);
+    return enregistrer(utilisateur);
   }
 }
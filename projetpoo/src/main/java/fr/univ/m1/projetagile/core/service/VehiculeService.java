@@ -3,17 +3,27 @@ package fr.univ.m1.projetagile.core.service;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
+import fr.univ.m1.projetagile.core.cache.CacheDTO;
+import fr.univ.m1.projetagile.core.cache.CacheProfils;
 import fr.univ.m1.projetagile.core.dto.VehiculeDTO;
 import fr.univ.m1.projetagile.core.entity.Agent;
 import fr.univ.m1.projetagile.core.entity.Disponibilite;
 import fr.univ.m1.projetagile.core.entity.Vehicule;
 import fr.univ.m1.projetagile.core.entity.Ville;
+import fr.univ.m1.projetagile.core.evenement.BusEvenements;
+import fr.univ.m1.projetagile.core.evenement.EvenementMetier;
 import fr.univ.m1.projetagile.core.persistence.DisponibiliteRepository;
 import fr.univ.m1.projetagile.core.persistence.VehiculeRepository;
+import fr.univ.m1.projetagile.creneaux.service.PlanningVehicules;
 import fr.univ.m1.projetagile.enums.TypeV;
 import fr.univ.m1.projetagile.notes.service.NoteService;
+import fr.univ.m1.projetagile.recherche.service.PercolateurRecherches;
+import fr.univ.m1.projetagile.tarification.service.TarificationDynamique;
 
 /**
  * Service métier responsable de la gestion des véhicules.
@@ -35,11 +45,15 @@ public class VehiculeService {
   private VehiculeRepository vehiculeRepository;
   private DisponibiliteRepository disponibiliteRepository;
   private NoteService noteService;
+  private TarificationDynamique tarificationDynamique;
+  private PercolateurRecherches percolateurRecherches;
 
   public VehiculeService(VehiculeRepository vehiculeRepository) {
     this.vehiculeRepository = vehiculeRepository;
     this.disponibiliteRepository = new DisponibiliteRepository();
     this.noteService = new NoteService();
+    this.tarificationDynamique = new TarificationDynamique();
+    this.percolateurRecherches = new PercolateurRecherches();
   }
 
   public VehiculeService(VehiculeRepository vehiculeRepository,
@@ -47,6 +61,8 @@ public class VehiculeService {
     this.vehiculeRepository = vehiculeRepository;
     this.disponibiliteRepository = disponibiliteRepository;
     this.noteService = new NoteService();
+    this.tarificationDynamique = new TarificationDynamique();
+    this.percolateurRecherches = new PercolateurRecherches();
   }
 
   public VehiculeService(VehiculeRepository vehiculeRepository,
@@ -54,6 +70,8 @@ public class VehiculeService {
     this.vehiculeRepository = vehiculeRepository;
     this.disponibiliteRepository = disponibiliteRepository;
     this.noteService = noteService;
+    this.tarificationDynamique = new TarificationDynamique();
+    this.percolateurRecherches = new PercolateurRecherches();
   }
 
   /**
@@ -63,9 +81,7 @@ public class VehiculeService {
    *         calculée - Les dates de disponibilités - Le lieu (ville)
    */
   public List<VehiculeDTO> getVehicules() {
-    List<Vehicule> vehicules = vehiculeRepository.findAll();
-
-    return vehicules.stream().map(this::convertToDTO).collect(Collectors.toList());
+    return completerDTOs(vehiculeRepository.findAllDTO());
   }
 
   /**
@@ -82,8 +98,7 @@ public class VehiculeService {
       throw new IllegalArgumentException("L'agent doit avoir un identifiant.");
     }
 
-    List<Vehicule> vehicules = vehiculeRepository.findByAgentId(agent.getIdU());
-    return vehicules.stream().map(this::convertToDTO).collect(Collectors.toList());
+    return completerDTOs(vehiculeRepository.findDTOByAgentId(agent.getIdU()));
   }
 
   /**
@@ -114,15 +129,64 @@ public class VehiculeService {
    * @param hasParkingOption si true, filtre les véhicules dont l'agent a l'option Parking
    *        (optionnel)
    * @return Liste de VehiculeDTO filtrés contenant : - Les propriétés du véhicule - La note moyenne
-   *         calculée - Les dates de disponibilités - Le lieu (ville)
+   *         calculée - Les dates de disponibilités - Le lieu (ville) - Le prix journalier ajusté à
+   *         la demande pour la période, si les deux dates sont fournies et la tarification
+   *         dynamique active
    */
   public List<VehiculeDTO> searchVehiculesWithFilters(LocalDate dateDebut, LocalDate dateFin,
       String ville, String marque, String modele, String couleur, Double prixMin, Double prixMax,
       TypeV type, Boolean hasParkingOption) {
-    List<Vehicule> vehicules = vehiculeRepository.findWithFilters(dateDebut, dateFin, ville, marque,
-        modele, couleur, prixMin, prixMax, type, hasParkingOption);
+    List<VehiculeDTO> dtos = vehiculeRepository.findDTOWithFilters(dateDebut, dateFin, ville,
+        marque, modele, couleur, prixMin, prixMax, type, hasParkingOption);
+    if (dateDebut != null && dateFin != null && TarificationDynamique.estActif()) {
+      tarificationDynamique.coter(dtos, dateDebut, dateFin);
+    }
+    return completerDTOs(dtos);
+  }
 
-    return vehicules.stream().map(this::convertToDTO).collect(Collectors.toList());
+  /**
+   * Recherche les véhicules réservables sur une période à l'heure près : contrairement à
+   * {@link #searchVehiculesWithFilters}, qui raisonne en jours entiers, un véhicule rendu le matin
+   * même reste proposé l'après-midi si son délai de remise en état est écoulé. La période doit
+   * aussi tenir dans les disponibilités du véhicule, comme lors de la réservation.
+   *
+   * @param dateDebut date et heure de début de la période souhaitée
+   * @param dateFin date et heure de fin de la période souhaitée
+   * @param ville ville de recherche (optionnel)
+   * @param marque marque du véhicule (optionnel)
+   * @param modele modèle du véhicule (optionnel)
+   * @param couleur couleur du véhicule (optionnel)
+   * @param prixMin prix minimum journalier (optionnel)
+   * @param prixMax prix maximum journalier (optionnel)
+   * @param type type de véhicule (optionnel)
+   * @param hasParkingOption si true, filtre les véhicules dont l'agent a l'option Parking
+   *        (optionnel)
+   * @return Liste de VehiculeDTO filtrés, complétés comme pour {@link #searchVehiculesWithFilters}
+   * @throws IllegalArgumentException si les dates manquent ou si la fin ne suit pas le début
+   */
+  public List<VehiculeDTO> searchVehiculesBySlot(LocalDateTime dateDebut, LocalDateTime dateFin,
+      String ville, String marque, String modele, String couleur, Double prixMin, Double prixMax,
+      TypeV type, Boolean hasParkingOption) {
+    if (dateDebut == null || dateFin == null || !dateFin.isAfter(dateDebut)) {
+      throw new IllegalArgumentException(
+          "La date de fin doit être strictement postérieure à la date de début.");
+    }
+    if (!PlanningVehicules.estActif()) {
+      return searchVehiculesWithFilters(dateDebut.toLocalDate(), dateFin.toLocalDate(), ville,
+          marque, modele, couleur, prixMin, prixMax, type, hasParkingOption);
+    }
+
+    List<VehiculeDTO> candidats = vehiculeRepository.findDTOWithFilters(null, null, ville, marque,
+        modele, couleur, prixMin, prixMax, type, hasParkingOption);
+    Set<Long> disponibles = PlanningVehicules.filtrerDisponibles(
+        candidats.stream().map(VehiculeDTO::getId).collect(Collectors.toList()), dateDebut,
+        dateFin);
+    List<VehiculeDTO> dtos = candidats.stream().filter(dto -> disponibles.contains(dto.getId()))
+        .collect(Collectors.toList());
+    if (TarificationDynamique.estActif()) {
+      tarificationDynamique.coter(dtos, dateDebut.toLocalDate(), dateFin.toLocalDate());
+    }
+    return completerDTOs(dtos);
   }
 
   /**
@@ -168,7 +232,9 @@ public class VehiculeService {
     }
 
     Vehicule vehicule = new Vehicule(type, marque, modele, couleur, ville, prixJ, proprietaire);
-    return vehiculeRepository.save(vehicule);
+    Vehicule cree = enregistrer(vehicule);
+    percolateurRecherches.signalerCapacite(cree.getId(), null, null);
+    return cree;
   }
 
   /**
@@ -205,6 +271,7 @@ public class VehiculeService {
 
     // Supprimer le véhicule
     vehiculeRepository.delete(vehiculeId);
+    publierModification(vehicule);
   }
 
   /**
@@ -231,6 +298,7 @@ public class VehiculeService {
 
     // Supprimer le véhicule
     vehiculeRepository.delete(vehiculeId);
+    publierModification(vehicule);
   }
 
   /**
@@ -249,7 +317,7 @@ public class VehiculeService {
     }
 
     vehicule.setType(nouveauType);
-    return vehiculeRepository.save(vehicule);
+    return enregistrer(vehicule);
   }
 
   /**
@@ -268,7 +336,7 @@ public class VehiculeService {
     }
 
     vehicule.setMarque(nouvelleMarque);
-    return vehiculeRepository.save(vehicule);
+    return enregistrer(vehicule);
   }
 
   /**
@@ -287,7 +355,7 @@ public class VehiculeService {
     }
 
     vehicule.setModele(nouveauModele);
-    return vehiculeRepository.save(vehicule);
+    return enregistrer(vehicule);
   }
 
   /**
@@ -306,7 +374,7 @@ public class VehiculeService {
     }
 
     vehicule.setCouleur(nouvelleCouleur);
-    return vehiculeRepository.save(vehicule);
+    return enregistrer(vehicule);
   }
 
   /**
@@ -325,7 +393,7 @@ public class VehiculeService {
     }
 
     vehicule.setVille(nouvelleVille);
-    return vehiculeRepository.save(vehicule);
+    return enregistrer(vehicule);
   }
 
   /**
@@ -344,7 +412,7 @@ public class VehiculeService {
     }
 
     vehicule.setPrixJ(nouveauPrixJ);
-    return vehiculeRepository.save(vehicule);
+    return enregistrer(vehicule);
   }
 
   /**
@@ -359,7 +427,30 @@ public class VehiculeService {
     Vehicule vehicule = verifyOwnershipAndGetVehicule(agent, vehiculeId);
 
     vehicule.setDisponible(disponible);
-    return vehiculeRepository.save(vehicule);
+    Vehicule modifie = enregistrer(vehicule);
+    if (disponible) {
+      percolateurRecherches.signalerCapacite(vehiculeId, null, null);
+    }
+    return modifie;
+  }
+
+  /**
+   * Modifie le délai de remise en état du véhicule entre deux locations
+   *
+   * @param agent l'agent propriétaire
+   * @param vehiculeId l'identifiant du véhicule
+   * @param minutes le délai en minutes (0 pour enchaîner les locations)
+   * @return le véhicule modifié
+   */
+  public Vehicule updateVehiculeDelaiRotation(Agent agent, Long vehiculeId, int minutes) {
+    Vehicule vehicule = verifyOwnershipAndGetVehicule(agent, vehiculeId);
+
+    if (minutes < 0) {
+      throw new IllegalArgumentException("Le délai de remise en état ne peut pas être négatif.");
+    }
+
+    vehicule.setDelaiRotation(minutes);
+    return enregistrer(vehicule);
   }
 
   /**
@@ -397,62 +488,114 @@ public class VehiculeService {
   }
 
   /**
-   * Convertit une entité Vehicule en VehiculeDTO
+   * Complète des VehiculeDTO issus d'une projection : note moyenne et disponibilités filtrées
+   * selon les réservations existantes. Les valeurs déjà présentes dans {@link CacheProfils} sont
+   * réutilisées ; pour les autres véhicules, notes, disponibilités et réservations sont lues en
+   * trois requêtes groupées au lieu de trois requêtes par véhicule. Le cache ne garde que des
+   * copies, et seulement des valeurs lues sans erreur.
    *
-   * @param vehicule L'entité à convertir
-   * @return Le DTO correspondant avec toutes les informations
+   * @param dtos les DTO à compléter (propriétés de base déjà renseignées)
+   * @return la même liste, complétée
    */
-  private VehiculeDTO convertToDTO(Vehicule vehicule) {
-    VehiculeDTO dto = new VehiculeDTO();
-
-    try {
-      // Propriétés de base du véhicule
-      dto.setId(vehicule.getId());
-      dto.setType(vehicule.getType());
-      dto.setMarque(vehicule.getMarque());
-      dto.setModele(vehicule.getModele());
-      dto.setCouleur(vehicule.getCouleur());
-      dto.setVille(vehicule.getVille()); // Lieu du véhicule
-      dto.setPrixJ(vehicule.getPrixJ());
-      dto.setDisponible(vehicule.isDisponible());
-
-      // Note moyenne calculée
-      try {
-        dto.setNoteMoyenne(noteService.getMoyenneVehicule(vehicule));
-      } catch (Exception e) {
-        dto.setNoteMoyenne(0.0); // Default value if calculation fails
+  private List<VehiculeDTO> completerDTOs(List<VehiculeDTO> dtos) {
+    CacheDTO<Long, VehiculeDTO> cache = CacheProfils.estActif() ? CacheProfils.vehicules() : null;
+    long generation = cache != null ? cache.getGeneration() : 0;
+
+    List<VehiculeDTO> aCharger = new ArrayList<>();
+    for (VehiculeDTO dto : dtos) {
+      VehiculeDTO enCache = cache != null ? cache.get(dto.getId()) : null;
+      if (enCache != null) {
+        dto.setNoteMoyenne(enCache.getNoteMoyenne());
+        dto.setDatesDispo(copierDates(enCache.getDatesDispo()));
+      } else {
+        aCharger.add(dto);
       }
+    }
+    if (aCharger.isEmpty()) {
+      return dtos;
+    }
 
-      // Dates de disponibilités filtrées selon les réservations existantes
-      try {
-        List<LocalDate[]> disponibilitesFiltrees =
-            filtrerDisponibilitesAvecReservations(vehicule.getDatesDispo(), vehicule.getId());
-        dto.setDatesDispo(disponibilitesFiltrees);
-      } catch (Exception e) {
-        // If lazy loading fails, set empty list
-        dto.setDatesDispo(new ArrayList<>());
+    boolean complet = chargerNotesEtDisponibilites(aCharger);
+    if (cache != null && complet) {
+      for (VehiculeDTO dto : aCharger) {
+        // Seules la note et les disponibilités sont relues depuis le cache
+        VehiculeDTO copie = new VehiculeDTO();
+        copie.setId(dto.getId());
+        copie.setNoteMoyenne(dto.getNoteMoyenne());
+        copie.setDatesDispo(copierDates(dto.getDatesDispo()));
+        cache.put(dto.getId(), copie, generation);
       }
+    }
+    return dtos;
+  }
+
+  private static List<LocalDate[]> copierDates(List<LocalDate[]> dates) {
+    List<LocalDate[]> copie = new ArrayList<>(dates.size());
+    for (LocalDate[] periode : dates) {
+      copie.add(periode.clone());
+    }
+    return copie;
+  }
+
+  /**
+   * Lit en trois requêtes groupées la note moyenne, les disponibilités et les réservations des
+   * véhicules, et renseigne les DTO.
+   *
+   * @return false si une lecture a échoué et que des valeurs par défaut ont été renseignées
+   */
+  private boolean chargerNotesEtDisponibilites(List<VehiculeDTO> dtos) {
+    boolean complet = true;
+    List<Long> ids = dtos.stream().map(VehiculeDTO::getId).collect(Collectors.toList());
+    LocalDate aujourdhui = LocalDate.now();
+
+    // Note moyenne calculée
+    Map<Long, Double> notes;
+    try {
+      notes = noteService.getMoyennesVehicules(ids);
+    } catch (Exception e) {
+      notes = Map.of(); // Valeur par défaut si le calcul échoue
+      complet = false;
+    }
 
-      return dto;
+    // Dates de disponibilités filtrées selon les réservations existantes
+    Map<Long, List<LocalDate[]>> disponibilites = new HashMap<>();
+    Map<Long, List<Object[]>> reservations = new HashMap<>();
+    try {
+      for (Object[] ligne : vehiculeRepository.getDisponibilitesFutures(ids, aujourdhui)) {
+        LocalDate debut = (LocalDate) ligne[1];
+        // Si la disponibilité commence avant aujourd'hui, on tronque au jour courant
+        LocalDate debutEffectif = debut.isBefore(aujourdhui) ? aujourdhui : debut;
+        disponibilites.computeIfAbsent((Long) ligne[0], id -> new ArrayList<>())
+            .add(new LocalDate[] {debutEffectif, (LocalDate) ligne[2]});
+      }
+      for (Object[] ligne : vehiculeRepository.getDatesLocationsActives(ids)) {
+        reservations.computeIfAbsent((Long) ligne[0], id -> new ArrayList<>())
+            .add(new Object[] {ligne[1], ligne[2]});
+      }
     } catch (Exception e) {
-      throw new RuntimeException(
-          "Erreur lors de la conversion du véhicule en DTO: " + e.getMessage(), e);
+      disponibilites.clear();
+      complet = false;
     }
+
+    for (VehiculeDTO dto : dtos) {
+      dto.setNoteMoyenne(notes.getOrDefault(dto.getId(), 0.0));
+      dto.setDatesDispo(decouperDisponibilites(
+          disponibilites.getOrDefault(dto.getId(), List.of()),
+          reservations.getOrDefault(dto.getId(), List.of())));
+    }
+    return complet;
   }
 
   /**
-   * Filtre les disponibilités en tenant compte des réservations existantes Coupe les périodes de
-   * disponibilité où il y a déjà des réservations
+   * Coupe les périodes de disponibilité autour des réservations fournies. Calcul pur, sans accès à
+   * la base de données.
    *
    * @param disponibilitesOriginales Liste des disponibilités brutes du véhicule
-   * @param vehiculeId ID du véhicule pour récupérer les réservations
+   * @param reservations paires [dateDebut, dateFin] (LocalDateTime) des réservations actives
    * @return Liste des disponibilités filtrées (paires date début / date fin)
    */
-  private List<LocalDate[]> filtrerDisponibilitesAvecReservations(
-      List<LocalDate[]> disponibilitesOriginales, Long vehiculeId) {
-
-    // Récupérer les dates de réservations actives
-    List<Object[]> reservations = vehiculeRepository.getDatesLocationsActives(vehiculeId);
+  public static List<LocalDate[]> decouperDisponibilites(List<LocalDate[]> disponibilitesOriginales,
+      List<Object[]> reservations) {
 
     List<LocalDate[]> resultats = new ArrayList<>();
 
@@ -543,14 +686,18 @@ public class VehiculeService {
     List<Disponibilite> overlapping =
         disponibiliteRepository.findOverlappingOrAdjacent(vehiculeId, dateDebut, dateFin, null);
 
+    Disponibilite resultat;
     if (overlapping.isEmpty()) {
       // Aucun chevauchement : créer simplement une nouvelle disponibilité
       Disponibilite disponibilite = new Disponibilite(vehicule, dateDebut, dateFin);
-      return disponibiliteRepository.save(disponibilite);
+      resultat = disponibiliteRepository.save(disponibilite);
     } else {
       // Il y a des chevauchements : fusionner toutes les périodes
-      return mergeDisponibilites(vehicule, overlapping, dateDebut, dateFin);
+      resultat = mergeDisponibilites(vehicule, overlapping, dateDebut, dateFin);
     }
+    publierModification(vehicule);
+    percolateurRecherches.signalerCapacite(vehiculeId, dateDebut, dateFin);
+    return resultat;
   }
 
   /**
@@ -659,16 +806,20 @@ public class VehiculeService {
     List<Disponibilite> overlapping = disponibiliteRepository.findOverlappingOrAdjacent(vehiculeId,
         dateDebut, dateFin, disponibiliteId);
 
+    Disponibilite resultat;
     if (overlapping.isEmpty()) {
       // Aucun chevauchement : simplement mettre à jour les dates
       disponibilite.setDateDebut(dateDebut);
       disponibilite.setDateFin(dateFin);
-      return disponibiliteRepository.save(disponibilite);
+      resultat = disponibiliteRepository.save(disponibilite);
     } else {
       // Il y a des chevauchements : supprimer cette disponibilité et fusionner avec les autres
       disponibiliteRepository.delete(disponibiliteId);
-      return mergeDisponibilites(vehicule, overlapping, dateDebut, dateFin);
+      resultat = mergeDisponibilites(vehicule, overlapping, dateDebut, dateFin);
     }
+    publierModification(vehicule);
+    percolateurRecherches.signalerCapacite(vehiculeId, dateDebut, dateFin);
+    return resultat;
   }
 
   /**
@@ -693,10 +844,11 @@ public class VehiculeService {
 
     // Vérifier que le véhicule appartient à l'agent
     Long vehiculeId = disponibilite.getVehicule().getId();
-    verifyOwnershipAndGetVehicule(agent, vehiculeId);
+    Vehicule vehicule = verifyOwnershipAndGetVehicule(agent, vehiculeId);
 
     // Supprimer la disponibilité
     disponibiliteRepository.delete(disponibiliteId);
+    publierModification(vehicule);
   }
 
   /**
@@ -814,6 +966,7 @@ public class VehiculeService {
     for (Disponibilite fragment : nouveauxFragments) {
       disponibiliteRepository.save(fragment);
     }
+    publierModification(vehicule);
 
     return affectedCount;
   }
@@ -888,6 +1041,24 @@ public class VehiculeService {
     return disponibiliteRepository.save(mergedDisponibilite);
   }
 
+  /**
+   * Sauvegarde le véhicule puis publie sa modification.
+   */
+  private Vehicule enregistrer(Vehicule vehicule) {
+    Vehicule sauvegarde = vehiculeRepository.save(vehicule);
+    publierModification(sauvegarde);
+    return sauvegarde;
+  }
+
+  /**
+   * Publie la modification du véhicule (propriétés ou disponibilités), pour invalider les vues en
+   * cache qui le contiennent.
+   */
+  private void publierModification(Vehicule vehicule) {
+    Long agentId = vehicule.getProprietaire() != null ? vehicule.getProprietaire().getIdU() : null;
+    BusEvenements.publier(EvenementMetier.vehiculeModifie(vehicule.getId(), agentId));
+  }
+
   public Vehicule findById(Long id) {
     if (id == null) {
       return null;
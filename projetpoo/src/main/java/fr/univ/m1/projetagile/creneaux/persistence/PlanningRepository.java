@@ -0,0 +1,73 @@
+package fr.univ.m1.projetagile.creneaux.persistence;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+import org.hibernate.jpa.HibernateHints;
+import fr.univ.m1.projetagile.core.DatabaseConnection;
+import fr.univ.m1.projetagile.enums.StatutLocation;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+
+/**
+ * Lectures groupées servant à construire le planning des véhicules : état et délai de remise en
+ * état des véhicules, disponibilités et locations actives, par paquets de {@value #TAILLE_LOT_IN}
+ * identifiants.
+ */
+public class PlanningRepository {
+
+  private static final int TAILLE_LOT_IN = 500;
+
+  /**
+   * @param vehiculeIds les identifiants des véhicules
+   * @return liste de tableaux [vehiculeId, disponible, delaiRotation] (délai null si non renseigné)
+   */
+  public List<Object[]> findEtatsVehicules(Collection<Long> vehiculeIds) {
+    return parLots(vehiculeIds, "SELECT v.id, v.disponible, v.delaiRotation FROM Vehicule v "
+        + "WHERE v.id IN :vehiculeIds", query -> {});
+  }
+
+  /**
+   * @param vehiculeIds les identifiants des véhicules
+   * @return liste de tableaux [vehiculeId, dateDebut, dateFin] (LocalDate), passées comprises
+   */
+  public List<Object[]> findDisponibilites(Collection<Long> vehiculeIds) {
+    return parLots(vehiculeIds, "SELECT d.vehicule.id, d.dateDebut, d.dateFin FROM Disponibilite d "
+        + "WHERE d.vehicule.id IN :vehiculeIds", query -> {});
+  }
+
+  /**
+   * @param vehiculeIds les identifiants des véhicules
+   * @return liste de tableaux [vehiculeId, dateDebut, dateFin] (LocalDateTime) des locations hors
+   *         TERMINE et ANNULE
+   */
+  public List<Object[]> findLocationsActives(Collection<Long> vehiculeIds) {
+    return parLots(vehiculeIds, "SELECT l.vehicule.id, l.dateDebut, l.dateFin FROM Location l "
+        + "WHERE l.vehicule.id IN :vehiculeIds AND l.statut != :statutTermine "
+        + "AND l.statut != :statutAnnule", query -> {
+          query.setParameter("statutTermine", StatutLocation.TERMINE);
+          query.setParameter("statutAnnule", StatutLocation.ANNULE);
+        });
+  }
+
+  private List<Object[]> parLots(Collection<Long> vehiculeIds, String jpql,
+      Consumer<TypedQuery<Object[]>> parametres) {
+    List<Long> ids = new ArrayList<>(vehiculeIds);
+    List<Object[]> resultats = new ArrayList<>();
+    try (EntityManager em = DatabaseConnection.getEntityManager()) {
+      for (int debut = 0; debut < ids.size(); debut += TAILLE_LOT_IN) {
+        TypedQuery<Object[]> query = em.createQuery(jpql, Object[].class);
+        query.setParameter("vehiculeIds",
+            ids.subList(debut, Math.min(debut + TAILLE_LOT_IN, ids.size())));
+        parametres.accept(query);
+        query.setHint(HibernateHints.HINT_READ_ONLY, true);
+        resultats.addAll(query.getResultList());
+      }
+      return resultats;
+
+    } catch (Exception e) {
+      throw new RuntimeException("Erreur lors de la lecture du planning des véhicules", e);
+    }
+  }
+}
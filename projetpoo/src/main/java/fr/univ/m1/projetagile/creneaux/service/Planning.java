@@ -0,0 +1,103 @@
+package fr.univ.m1.projetagile.creneaux.service;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Planning d'un véhicule, en numéros de créneaux : fenêtres de disponibilité et périodes occupées
+ * par les locations actives, chacune fusionnée en intervalles semi-ouverts [début, fin) disjoints
+ * et triés, stockés dans des tableaux d'entiers. Une vérification est deux recherches
+ * dichotomiques, quelle que soit la longueur de l'horizon ou la finesse des créneaux. Immuable.
+ */
+final class Planning {
+
+  private final boolean disponible;
+  /** Délai de remise en état, en créneaux */
+  private final int delai;
+  private final int[] disponibilitesDebut;
+  private final int[] disponibilitesFin;
+  private final int[] occupationsDebut;
+  private final int[] occupationsFin;
+
+  /**
+   * @param disponible la disponibilité générale du véhicule
+   * @param delai le délai de remise en état entre deux locations, en créneaux
+   * @param disponibilites intervalles [début, fin) de disponibilité, dans un ordre quelconque
+   * @param occupations intervalles [début, fin) des locations actives, dans un ordre quelconque
+   */
+  Planning(boolean disponible, int delai, List<int[]> disponibilites, List<int[]> occupations) {
+    this.disponible = disponible;
+    this.delai = delai;
+    int[][] fusion = fusionner(disponibilites);
+    this.disponibilitesDebut = fusion[0];
+    this.disponibilitesFin = fusion[1];
+    fusion = fusionner(occupations);
+    this.occupationsDebut = fusion[0];
+    this.occupationsFin = fusion[1];
+  }
+
+  /**
+   * Une période est libre si elle tient dans une fenêtre de disponibilité et si, délai de remise
+   * en état compris avant et après, elle ne touche aucune location active.
+   *
+   * @param debut le premier créneau
+   * @param fin le créneau suivant le dernier (exclu)
+   * @return true si la période peut être réservée
+   */
+  boolean estLibre(int debut, int fin) {
+    if (!disponible) {
+      return false;
+    }
+
+    // Dernière fenêtre commençant au plus tard au début demandé
+    int i = dernierInferieurOuEgal(disponibilitesDebut, debut);
+    if (i < 0 || disponibilitesFin[i] < fin) {
+      return false;
+    }
+
+    // Première occupation se terminant après le début demandé moins le délai : les fins sont
+    // triées puisque les intervalles sont disjoints
+    int j = premierSuperieur(occupationsFin, debut - delai);
+    return j == occupationsFin.length || occupationsDebut[j] >= fin + delai;
+  }
+
+  private static int[][] fusionner(List<int[]> intervalles) {
+    int[][] tries = intervalles.toArray(new int[0][]);
+    Arrays.sort(tries, Comparator.comparingInt((int[] intervalle) -> intervalle[0]));
+    int[] debuts = new int[tries.length];
+    int[] fins = new int[tries.length];
+    int taille = 0;
+    for (int[] intervalle : tries) {
+      if (intervalle[1] <= intervalle[0]) {
+        continue;
+      }
+      if (taille > 0 && intervalle[0] <= fins[taille - 1]) {
+        fins[taille - 1] = Math.max(fins[taille - 1], intervalle[1]);
+      } else {
+        debuts[taille] = intervalle[0];
+        fins[taille] = intervalle[1];
+        taille++;
+      }
+    }
+    return new int[][] {Arrays.copyOf(debuts, taille), Arrays.copyOf(fins, taille)};
+  }
+
+  private static int dernierInferieurOuEgal(int[] valeurs, int cle) {
+    int bas = 0;
+    int haut = valeurs.length - 1;
+    while (bas <= haut) {
+      int milieu = (bas + haut) >>> 1;
+      if (valeurs[milieu] <= cle) {
+        bas = milieu + 1;
+      } else {
+        haut = milieu - 1;
+      }
+    }
+    return haut;
+  }
+
+  private static int premierSuperieur(int[] valeurs, int cle) {
+    return dernierInferieurOuEgal(valeurs, cle) + 1;
+  }
+}
@@ -0,0 +1,207 @@
+package fr.univ.m1.projetagile.creneaux.service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import fr.univ.m1.projetagile.core.evenement.BusEvenements;
+import fr.univ.m1.projetagile.core.evenement.EvenementMetier;
+import fr.univ.m1.projetagile.core.persistence.LocationRepository;
+import fr.univ.m1.projetagile.creneaux.persistence.PlanningRepository;
+
+/**
+ * Disponibilité des véhicules au créneau près, et non plus au jour près : un véhicule rendu le
+ * matin peut être reloué l'après-midi, une fois passé son délai de remise en état
+ * ({@link fr.univ.m1.projetagile.core.entity.Vehicule#getDelaiRotation()}). Les dates sont
+ * arrondies vers l'extérieur à la grille des créneaux de {@link #MINUTES_PAR_CRENEAU} minutes.
+ *
+ * <p>
+ * Le {@link Planning} de chaque véhicule est construit au premier accès (trois requêtes groupées
+ * pour tous les véhicules manquants) et conservé en mémoire ; une location ou un véhicule modifié
+ * (disponibilités comprises) n'invalide que le planning du véhicule concerné. Les recherches
+ * s'appuient sur ce planning ; la création d'une location s'en sert pour écarter vite une période
+ * occupée, mais seule la vérification en base sous verrou du véhicule
+ * ({@link LocationRepository#saveSiLibre}) fait foi, le planning ne voyant pas les écritures des
+ * autres instances. La propriété
+ * {@code projetagile.creneaux.actif=false} rétablit la vérification au jour près.
+ * </p>
+ */
+public final class PlanningVehicules {
+
+  /** Durée d'un créneau en minutes (propriété {@code projetagile.creneaux.minutes}) */
+  public static final int MINUTES_PAR_CRENEAU = lireMinutesParCreneau();
+
+  private static final PlanningRepository repository = new PlanningRepository();
+
+  private static final Map<Long, Planning> plannings = new ConcurrentHashMap<>();
+
+  /** Incrémentée à chaque invalidation : un chargement concurrent n'est alors pas conservé */
+  private static final AtomicLong generation = new AtomicLong();
+
+  static {
+    BusEvenements.abonner(PlanningVehicules::surEvenement);
+  }
+
+  private PlanningVehicules() {}
+
+  /**
+   * @return true si la disponibilité est vérifiée au créneau près
+   */
+  public static boolean estActif() {
+    return Boolean.parseBoolean(System.getProperty("projetagile.creneaux.actif", "true"));
+  }
+
+  /**
+   * Indique si un véhicule peut être réservé sur une période. Au jour près (comme
+   * {@link LocationRepository#isVehicleAvailable}) si les créneaux sont désactivés.
+   *
+   * @param vehiculeId l'identifiant du véhicule
+   * @param debut le début de la période
+   * @param fin la fin de la période
+   * @return true si le véhicule est disponible sur la période
+   */
+  public static boolean estDisponible(Long vehiculeId, LocalDateTime debut, LocalDateTime fin) {
+    if (!estActif()) {
+      return new LocationRepository().isVehicleAvailable(vehiculeId, debut.toLocalDate(),
+          fin.toLocalDate());
+    }
+    return filtrerDisponibles(List.of(vehiculeId), debut, fin).contains(vehiculeId);
+  }
+
+  /**
+   * @param vehiculeIds les identifiants des véhicules
+   * @param debut le début de la période
+   * @param fin la fin de la période
+   * @return les véhicules disponibles sur toute la période, dans l'ordre fourni
+   */
+  public static Set<Long> filtrerDisponibles(Collection<Long> vehiculeIds, LocalDateTime debut,
+      LocalDateTime fin) {
+    Map<Long, Planning> charges = charger(vehiculeIds);
+    int premier = creneau(debut);
+    int suivant = creneauSuperieur(fin);
+
+    Set<Long> disponibles = new LinkedHashSet<>();
+    for (Long vehiculeId : vehiculeIds) {
+      Planning planning = charges.get(vehiculeId);
+      if (planning != null && planning.estLibre(premier, suivant)) {
+        disponibles.add(vehiculeId);
+      }
+    }
+    return disponibles;
+  }
+
+  /**
+   * Vide tous les plannings ; ils sont reconstruits au prochain accès.
+   */
+  public static void invalider() {
+    generation.incrementAndGet();
+    plannings.clear();
+  }
+
+  // =======================
+  // Chargement
+  // =======================
+
+  private static Map<Long, Planning> charger(Collection<Long> vehiculeIds) {
+    Map<Long, Planning> resultats = new HashMap<>();
+    Set<Long> manquants = new HashSet<>();
+    for (Long vehiculeId : vehiculeIds) {
+      Planning planning = plannings.get(vehiculeId);
+      if (planning != null) {
+        resultats.put(vehiculeId, planning);
+      } else if (vehiculeId != null) {
+        manquants.add(vehiculeId);
+      }
+    }
+    if (manquants.isEmpty()) {
+      return resultats;
+    }
+
+    long generationLue = generation.get();
+    Map<Long, Boolean> disponibles = new HashMap<>();
+    Map<Long, Integer> delais = new HashMap<>();
+    for (Object[] ligne : repository.findEtatsVehicules(manquants)) {
+      Integer minutes = (Integer) ligne[2];
+      disponibles.put((Long) ligne[0], (Boolean) ligne[1]);
+      delais.put((Long) ligne[0], minutes != null ? plafond(minutes, MINUTES_PAR_CRENEAU) : 0);
+    }
+    Map<Long, List<int[]>> disponibilites = new HashMap<>();
+    for (Object[] ligne : repository.findDisponibilites(disponibles.keySet())) {
+      disponibilites.computeIfAbsent((Long) ligne[0], v -> new ArrayList<>())
+          .add(new int[] {creneau(((LocalDate) ligne[1]).atStartOfDay()),
+              creneau(((LocalDate) ligne[2]).plusDays(1).atStartOfDay())});
+    }
+    Map<Long, List<int[]>> occupations = new HashMap<>();
+    for (Object[] ligne : repository.findLocationsActives(disponibles.keySet())) {
+      occupations.computeIfAbsent((Long) ligne[0], v -> new ArrayList<>()).add(new int[] {
+          creneau((LocalDateTime) ligne[1]), creneauSuperieur((LocalDateTime) ligne[2])});
+    }
+
+    for (Map.Entry<Long, Boolean> entree : disponibles.entrySet()) {
+      Long vehiculeId = entree.getKey();
+      Planning planning = new Planning(entree.getValue(), delais.get(vehiculeId),
+          disponibilites.getOrDefault(vehiculeId, List.of()),
+          occupations.getOrDefault(vehiculeId, List.of()));
+      resultats.put(vehiculeId, planning);
+      plannings.put(vehiculeId, planning);
+      if (generation.get() != generationLue) {
+        plannings.remove(vehiculeId);
+      }
+    }
+    return resultats;
+  }
+
+  private static void surEvenement(EvenementMetier evenement) {
+    switch (evenement.getType()) {
+      case LOCATION_MODIFIEE, VEHICULE_MODIFIE -> {
+        if (evenement.getVehiculeId() == null) {
+          invalider();
+        } else {
+          generation.incrementAndGet();
+          plannings.remove(evenement.getVehiculeId());
+        }
+      }
+    }
+  }
+
+  // =======================
+  // Grille des créneaux
+  // =======================
+
+  /**
+   * @return le numéro du créneau contenant la date
+   */
+  static int creneau(LocalDateTime date) {
+    return (int) Math.floorDiv(date.toEpochSecond(ZoneOffset.UTC), 60L * MINUTES_PAR_CRENEAU);
+  }
+
+  /**
+   * @return le numéro du premier créneau commençant au plus tôt à la date
+   */
+  static int creneauSuperieur(LocalDateTime date) {
+    return (int) plafond(date.toEpochSecond(ZoneOffset.UTC), 60L * MINUTES_PAR_CRENEAU);
+  }
+
+  private static int plafond(int valeur, int diviseur) {
+    return (int) plafond((long) valeur, diviseur);
+  }
+
+  private static long plafond(long valeur, long diviseur) {
+    return -Math.floorDiv(-valeur, diviseur);
+  }
+
+  private static int lireMinutesParCreneau() {
+    int minutes = Integer.getInteger("projetagile.creneaux.minutes", 15);
+    // Les créneaux doivent découper la journée, pour que les disponibilités tombent sur la grille
+    return minutes > 0 && 24 * 60 % minutes == 0 ? minutes : 15;
+  }
+}
@@ -2,8 +2,12 @@ package fr.univ.m1.projetagile.entretienTechnique.persistence;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.stream.Stream;
 import fr.univ.m1.projetagile.core.DatabaseConnection;
 import fr.univ.m1.projetagile.core.entity.Vehicule;
+import fr.univ.m1.projetagile.core.persistence.Page;
+import fr.univ.m1.projetagile.core.persistence.Pagination;
+import fr.univ.m1.projetagile.core.persistence.Tranche;
 import fr.univ.m1.projetagile.entretienTechnique.entity.EntretienTechnique;
 import fr.univ.m1.projetagile.entretienTechnique.entity.TypeTechnique;
 import jakarta.persistence.EntityManager;
@@ -15,6 +19,11 @@ import jakarta.persistence.TypedQuery;
  */
 public class EntretienTechniqueRepository {
 
+  /** Associations chargées avec les entretiens techniques lus par tranche ou parcourus */
+  private static final String JOINTURES_PARCOURS =
+      "JOIN FETCH e.vehicule v LEFT JOIN FETCH v.proprietaire "
+          + "JOIN FETCH e.typeTechnique";
+
   /**
    * Enregistre un entretien technique dans la base de données (création ou mise à jour)
    *
@@ -99,6 +108,34 @@ public class EntretienTechniqueRepository {
     }
   }
 
+  /**
+   * Récupère les entretiens techniques qui suivent apresId, par identifiant croissant
+   *
+   * @param apresId l'identifiant du dernier entretien technique lu (null pour commencer)
+   * @param taille le nombre maximal d'entretiens techniques
+   * @return la tranche d'entretiens techniques, avec leur véhicule et leur type
+   */
+  public Tranche<EntretienTechnique> findTranche(Long apresId, int taille) {
+    return Pagination.tranche(EntretienTechnique.class, JOINTURES_PARCOURS, apresId, taille);
+  }
+
+  /**
+   * Comme {@link #findTranche(Long, int)}, avec le nombre total d'entretiens techniques
+   */
+  public Page<EntretienTechnique> findPage(Long apresId, int taille) {
+    return Pagination.page(EntretienTechnique.class, JOINTURES_PARCOURS, apresId, taille);
+  }
+
+  /**
+   * Parcourt tous les entretiens techniques sur un curseur (flux à fermer)
+   *
+   * @return le flux des entretiens techniques, par identifiant croissant
+   * @see Pagination#parcourir(Class, String)
+   */
+  public Stream<EntretienTechnique> streamAll() {
+    return Pagination.parcourir(EntretienTechnique.class, JOINTURES_PARCOURS);
+  }
+
   /**
    * Récupère un entretien technique par son ID
    *
@@ -135,6 +172,30 @@ public class EntretienTechniqueRepository {
     }
   }
 
+  /**
+   * Récupère les couples (véhicule, type technique) ayant déjà fait l'objet d'un entretien, sans
+   * charger les entités.
+   *
+   * @param agentId l'identifiant de l'agent propriétaire (null pour toute la flotte)
+   * @return liste de tableaux [vehiculeId, typeTechniqueId], sans doublon
+   */
+  public List<Object[]> findCouplesVehiculeType(Long agentId) {
+    try (EntityManager em = DatabaseConnection.getEntityManager()) {
+      TypedQuery<Object[]> query = em.createQuery(
+          "SELECT DISTINCT e.vehicule.id, e.typeTechnique.id FROM EntretienTechnique e"
+              + (agentId != null ? " WHERE e.vehicule.proprietaire.idU = :agentId" : ""),
+          Object[].class);
+      if (agentId != null) {
+        query.setParameter("agentId", agentId);
+      }
+      return query.getResultList();
+
+    } catch (Exception e) {
+      throw new RuntimeException(
+          "Erreur lors de la récupération des entretiens techniques effectués", e);
+    }
+  }
+
   /**
    * Récupère tous les entretiens techniques d'un type technique spécifique
    *
@@ -2,9 +2,20 @@ package fr.univ.m1.projetagile.entretienTechnique.service;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
-import fr.univ.m1.projetagile.VerificationLocation.persistence.VerificationRepository;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import fr.univ.m1.projetagile.VerificationLocation.service.SeriesKilometriques;
+import fr.univ.m1.projetagile.core.dto.RecommandationsEntretienDTO;
+import fr.univ.m1.projetagile.core.entity.Agent;
 import fr.univ.m1.projetagile.core.entity.Vehicule;
+import fr.univ.m1.projetagile.core.persistence.Tranche;
 import fr.univ.m1.projetagile.core.persistence.VehiculeRepository;
 import fr.univ.m1.projetagile.entretienTechnique.entity.EntretienTechnique;
 import fr.univ.m1.projetagile.entretienTechnique.entity.TypeTechnique;
@@ -27,6 +38,8 @@ import fr.univ.m1.projetagile.entretienTechnique.persistence.TypeTechniqueReposi
  * <li>Récupération des types techniques et entretiens techniques</li>
  * <li>Suppression de types techniques et entretiens techniques</li>
  * <li>Recherche par véhicule, par type technique, par date</li>
+ * <li>Recommandations d'entretien pour un véhicule, un agent ou toute la flotte</li>
+ * <li>Prévision de la date des prochains entretiens selon le rythme d'utilisation</li>
  * </ul>
  */
 public class EntretienTechniqueService {
@@ -35,6 +48,12 @@ public class EntretienTechniqueService {
   private final EntretienTechniqueRepository entretienTechniqueRepository;
   private final VehiculeRepository vehiculeRepository;
 
+  /**
+   * Catalogue des types techniques, trié par nom, partagé par les calculs de recommandations et
+   * rechargé après chaque modification d'un type technique (null : à recharger)
+   */
+  private static volatile List<TypeTechnique> catalogue;
+
   /**
    * Constructeur par défaut. Initialise les repositories.
    */
@@ -90,7 +109,9 @@ public class EntretienTechniqueService {
 
     // Création et sauvegarde
     TypeTechnique typeTechnique = new TypeTechnique(nom.trim(), kmRecommandee);
-    return typeTechniqueRepository.save(typeTechnique);
+    TypeTechnique sauvegarde = typeTechniqueRepository.save(typeTechnique);
+    catalogue = null;
+    return sauvegarde;
   }
 
   /**
@@ -165,7 +186,9 @@ public class EntretienTechniqueService {
       throw new IllegalArgumentException(
           "Un type technique avec ce nom existe déjà. Le nom doit être unique.");
     }
-    return typeTechniqueRepository.save(typeTechnique);
+    TypeTechnique sauvegarde = typeTechniqueRepository.save(typeTechnique);
+    catalogue = null;
+    return sauvegarde;
   }
 
   /**
@@ -188,6 +211,7 @@ public class EntretienTechniqueService {
     }
 
     typeTechniqueRepository.delete(id);
+    catalogue = null;
   }
 
   // ==================== GESTION DES ENTRETIENS TECHNIQUES ====================
@@ -273,6 +297,27 @@ public class EntretienTechniqueService {
     return entretienTechniqueRepository.findAll();
   }
 
+  /**
+   * Récupère une tranche d'entretiens techniques, triée par identifiant.
+   *
+   * @param apresId l'identifiant du dernier entretien de la tranche précédente (null pour la
+   *        première)
+   * @param taille le nombre maximal d'entretiens
+   * @return la tranche, dont la dernière clé permet de lire la suivante
+   */
+  public Tranche<EntretienTechnique> getEntretiensTechniques(Long apresId, int taille) {
+    return entretienTechniqueRepository.findTranche(apresId, taille);
+  }
+
+  /**
+   * Parcourt tous les entretiens techniques sans les charger en liste (flux à fermer)
+   *
+   * @return le flux des entretiens techniques
+   */
+  public Stream<EntretienTechnique> parcourirEntretiensTechniques() {
+    return entretienTechniqueRepository.streamAll();
+  }
+
   /**
    * Récupère un entretien technique par son identifiant.
    *
@@ -451,11 +496,11 @@ public class EntretienTechniqueService {
 
   /**
    * Génère les recommandations d'entretien technique pour un véhicule donné. Cette méthode récupère
-   * le dernier kilométrage disponible du véhicule depuis les vérifications de location, puis
-   * compare ce kilométrage avec les kilométrages recommandés de chaque type technique. Si le
-   * kilométrage dépasse le kilométrage recommandé d'un type technique et qu'aucun entretien
-   * technique n'a encore été effectué pour ce type sur ce véhicule, le nom du type technique est
-   * ajouté à la liste.
+   * le dernier kilométrage relevé par les vérifications de location
+   * ({@link SeriesKilometriques}), puis compare ce kilométrage avec les kilométrages recommandés de
+   * chaque type technique. Si le kilométrage dépasse le kilométrage recommandé d'un type technique
+   * et qu'aucun entretien technique n'a encore été effectué pour ce type sur ce véhicule, le nom du
+   * type technique est ajouté à la liste.
    *
    * @param vehiculeId l'identifiant du véhicule pour lequel générer les recommandations
    * @return la liste des noms des types techniques pour lesquels un entretien est recommandé
@@ -473,9 +518,8 @@ public class EntretienTechniqueService {
       throw new IllegalArgumentException("Aucun véhicule trouvé avec l'identifiant " + vehiculeId);
     }
 
-    // Récupérer le dernier kilométrage disponible depuis les vérifications de location
-    VerificationRepository verificationRepository = new VerificationRepository();
-    Integer dernierKilometrage = verificationRepository.getDernierKilometrage(vehiculeId);
+    // Récupérer le dernier kilométrage relevé par les vérifications de location
+    Integer dernierKilometrage = SeriesKilometriques.getDernierKilometrage(vehiculeId);
 
     // Si aucun kilométrage n'est disponible, retourner une liste vide
     if (dernierKilometrage == null) {
@@ -483,7 +527,7 @@ public class EntretienTechniqueService {
     }
 
     // Récupérer tous les types techniques
-    List<TypeTechnique> tousLesTypes = typeTechniqueRepository.findAll();
+    List<TypeTechnique> tousLesTypes = getCatalogue();
 
     // Récupérer tous les entretiens techniques existants pour ce véhicule
     List<EntretienTechnique> entretiensExistants =
@@ -521,4 +565,127 @@ public class EntretienTechniqueService {
 
     return recommandations;
   }
+
+  /**
+   * Prévoit la date des prochains entretiens techniques d'un véhicule : pour chaque type technique
+   * dont le kilométrage recommandé n'est pas encore atteint et qui n'a pas déjà été réalisé, le
+   * jour où le véhicule devrait l'atteindre à son rythme d'utilisation, estimé sur la série de ses
+   * kilométrages ({@link SeriesKilometriques#predireDate(Long, int)}) sans relire les
+   * vérifications.
+   *
+   * @param vehiculeId l'identifiant du véhicule
+   * @return la date prévue par nom de type technique, par date croissante ; vide si le véhicule n'a
+   *         pas de relevé ou ne roule pas
+   * @throws IllegalArgumentException si l'ID du véhicule est null
+   */
+  public Map<String, LocalDate> predireEntretiens(Long vehiculeId) {
+    if (vehiculeId == null) {
+      throw new IllegalArgumentException("L'ID du véhicule ne peut pas être null.");
+    }
+
+    Map<String, LocalDate> previsions = new LinkedHashMap<>();
+    Integer dernierKilometrage = SeriesKilometriques.getDernierKilometrage(vehiculeId);
+    if (dernierKilometrage == null
+        || SeriesKilometriques.getKilometresParJour(vehiculeId) == null) {
+      return previsions;
+    }
+
+    Set<Long> realises = entretienTechniqueRepository.findByVehiculeId(vehiculeId).stream()
+        .map(entretien -> entretien.getTypeTechnique().getId()).collect(Collectors.toSet());
+    List<Map.Entry<String, LocalDate>> dates = new ArrayList<>();
+    for (TypeTechnique type : getCatalogue()) {
+      Integer kmRecommandee = type.getKmRecommandee();
+      if (kmRecommandee == null || kmRecommandee <= dernierKilometrage
+          || realises.contains(type.getId())) {
+        continue;
+      }
+      LocalDate date = SeriesKilometriques.predireDate(vehiculeId, kmRecommandee);
+      if (date != null) {
+        dates.add(Map.entry(type.getNom(), date));
+      }
+    }
+    dates.sort(Map.Entry.comparingByValue());
+    for (Map.Entry<String, LocalDate> date : dates) {
+      previsions.put(date.getKey(), date.getValue());
+    }
+    return previsions;
+  }
+
+  /**
+   * Génère les recommandations d'entretien technique de tous les véhicules, avec les mêmes règles
+   * que {@link #genererRecommandationsEntretien(Long)} mais en lectures groupées au lieu de quatre
+   * requêtes par véhicule : derniers kilométrages (séries en mémoire de
+   * {@link SeriesKilometriques}, comme pour un seul véhicule), catalogue des types techniques (en
+   * mémoire) et couples (véhicule, type) déjà entretenus, placés dans un ensemble haché.
+   *
+   * @return les recommandations des véhicules ayant au moins un entretien recommandé, par
+   *         identifiant de véhicule croissant
+   */
+  public Stream<RecommandationsEntretienDTO> genererRecommandationsFlotte() {
+    return genererRecommandations(null);
+  }
+
+  /**
+   * Comme {@link #genererRecommandationsFlotte()}, limité aux véhicules d'un agent.
+   *
+   * @param agent l'agent propriétaire des véhicules
+   * @return les recommandations des véhicules de l'agent ayant au moins un entretien recommandé
+   * @throws IllegalArgumentException si l'agent est null ou n'a pas d'ID
+   */
+  public Stream<RecommandationsEntretienDTO> genererRecommandationsAgent(Agent agent) {
+    if (agent == null || agent.getIdU() == null) {
+      throw new IllegalArgumentException("L'agent doit être spécifié et avoir un ID.");
+    }
+    return genererRecommandations(agent.getIdU());
+  }
+
+  private Stream<RecommandationsEntretienDTO> genererRecommandations(Long agentId) {
+    Map<Long, Integer> kilometrages = SeriesKilometriques.getDerniersKilometrages(
+        agentId != null ? vehiculeRepository.findIdsByAgentId(agentId) : null);
+
+    List<TypeTechnique> types = getCatalogue().stream()
+        .filter(t -> t.getKmRecommandee() != null && t.getKmRecommandee() > 0)
+        .collect(Collectors.toList());
+    if (kilometrages.isEmpty() || types.isEmpty()) {
+      return Stream.empty();
+    }
+    Map<Long, Integer> indexTypes = new HashMap<>();
+    for (int i = 0; i < types.size(); i++) {
+      indexTypes.put(types.get(i).getId(), i);
+    }
+
+    // Couple (véhicule, type) codé en un seul long : vehiculeId * nombre de types + rang du type
+    long nombreTypes = types.size();
+    Set<Long> entretenus = new HashSet<>();
+    for (Object[] couple : entretienTechniqueRepository.findCouplesVehiculeType(agentId)) {
+      Integer rang = indexTypes.get((Long) couple[1]);
+      if (rang != null) {
+        entretenus.add((Long) couple[0] * nombreTypes + rang);
+      }
+    }
+
+    return kilometrages.entrySet().stream().map(entree -> {
+      Long vehiculeId = entree.getKey();
+      int kilometrage = entree.getValue();
+      List<String> recommandations = new ArrayList<>();
+      for (int rang = 0; rang < types.size(); rang++) {
+        TypeTechnique type = types.get(rang);
+        if (kilometrage >= type.getKmRecommandee()
+            && !entretenus.contains(vehiculeId * nombreTypes + rang)) {
+          recommandations.add(type.getNom());
+        }
+      }
+      return recommandations.isEmpty() ? null
+          : new RecommandationsEntretienDTO(vehiculeId, kilometrage, recommandations);
+    }).filter(Objects::nonNull);
+  }
+
+  private List<TypeTechnique> getCatalogue() {
+    List<TypeTechnique> courant = catalogue;
+    if (courant == null) {
+      courant = List.copyOf(typeTechniqueRepository.findAll());
+      catalogue = courant;
+    }
+    return courant;
+  }
 }
@@ -23,6 +23,10 @@ public class Entretien extends Utilisateur {
   @Column(nullable = false)
   private String nomEntreprise;
 
+  /** Maximum number of vehicles serviced per day (null for the default capacity) */
+  @Column(name = "capacite_journaliere")
+  private Integer capaciteJournaliere;
+
   @OneToMany(mappedBy = "entretien", cascade = CascadeType.ALL, orphanRemoval = true)
   private List<PrixEntretien> prixEntretiens = new ArrayList<>();
 
@@ -48,6 +52,14 @@ public class Entretien extends Utilisateur {
     this.nomEntreprise = nomEntreprise;
   }
 
+  public Integer getCapaciteJournaliere() {
+    return capaciteJournaliere;
+  }
+
+  public void setCapaciteJournaliere(Integer capaciteJournaliere) {
+    this.capaciteJournaliere = capaciteJournaliere;
+  }
+
   // Implémentation des méthodes abstraites de Utilisateur
   @Override
   public String getNom() {
@@ -1,5 +1,6 @@
 package fr.univ.m1.projetagile.entretienVehicule.persistence;
 
+import java.util.List;
 import fr.univ.m1.projetagile.core.DatabaseConnection;
 import fr.univ.m1.projetagile.core.persistence.UtilisateurRepository;
 import fr.univ.m1.projetagile.entretienVehicule.entity.Entretien;
@@ -35,6 +36,20 @@ public class EntretienRepository extends UtilisateurRepository<Entretien> {
     }
   }
 
+  /**
+   * Retrieves the daily capacity of every maintenance company.
+   *
+   * @return rows [companyId, dailyCapacity] (capacity null if not set)
+   */
+  public List<Object[]> findCapacites() {
+    try (EntityManager em = DatabaseConnection.getEntityManager()) {
+      return em.createQuery("SELECT e.idU, e.capaciteJournaliere FROM Entretien e", Object[].class)
+          .getResultList();
+    } catch (Exception e) {
+      throw new RuntimeException("Erreur lors de la récupération des capacités d'entretien", e);
+    }
+  }
+
   /**
    * Checks if a company name already exists in the database.
    *
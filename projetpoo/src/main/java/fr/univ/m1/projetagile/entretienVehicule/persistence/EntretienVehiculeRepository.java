@@ -1,13 +1,28 @@
 package fr.univ.m1.projetagile.entretienVehicule.persistence;
 
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+import org.hibernate.Session;
 import fr.univ.m1.projetagile.core.DatabaseConnection;
+import fr.univ.m1.projetagile.core.dto.PlanificationEntretienDTO;
 import fr.univ.m1.projetagile.core.entity.Vehicule;
+import fr.univ.m1.projetagile.core.persistence.Page;
+import fr.univ.m1.projetagile.core.persistence.Pagination;
+import fr.univ.m1.projetagile.core.persistence.Tranche;
 import fr.univ.m1.projetagile.entretienVehicule.entity.Entretien;
 import fr.univ.m1.projetagile.entretienVehicule.entity.EntretienVehicule;
 import fr.univ.m1.projetagile.enums.StatutEntretien;
 import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityTransaction;
+import jakarta.persistence.LockModeType;
 
 /**
  * Repository for managing EntretienVehicule (vehicle maintenance record) entities. Provides CRUD
@@ -15,6 +30,14 @@ import jakarta.persistence.EntityManager;
  */
 public class EntretienVehiculeRepository {
 
+  /** Associations fetched with sliced or streamed maintenance records */
+  private static final String JOINTURES_PARCOURS =
+      "JOIN FETCH e.vehicule v LEFT JOIN FETCH v.proprietaire "
+          + "JOIN FETCH e.entretien";
+
+  /** Number of rows sent to the database per JDBC batch */
+  private static final int TAILLE_LOT_INSERTION = 500;
+
   /**
    * Saves (creates or updates) an EntretienVehicule entity.
    *
@@ -185,6 +208,125 @@ public class EntretienVehiculeRepository {
     }
   }
 
+  /**
+   * Finds the vehicles that already have a pending or scheduled maintenance.
+   *
+   * @return the IDs of these vehicles
+   */
+  public List<Long> findVehiculesAvecEntretienEnCours() {
+    try (EntityManager em = DatabaseConnection.getEntityManager()) {
+      return em
+          .createQuery("SELECT DISTINCT ev.vehicule.id FROM EntretienVehicule ev "
+              + "WHERE ev.statut IN :statuts", Long.class)
+          .setParameter("statuts", List.of(StatutEntretien.EN_ATTENTE, StatutEntretien.PLANIFIE))
+          .getResultList();
+    } catch (Exception e) {
+      throw new RuntimeException("Erreur lors de la récupération des entretiens en cours", e);
+    }
+  }
+
+  /**
+   * Counts the scheduled maintenances per company and per day over a period.
+   *
+   * @param debut the first day
+   * @param fin the last day (included)
+   * @return rows [companyId, day, count]
+   */
+  public List<Object[]> countPlanifiesParJour(LocalDate debut, LocalDate fin) {
+    try (EntityManager em = DatabaseConnection.getEntityManager()) {
+      return em
+          .createQuery("SELECT ev.entretien.idU, ev.datePlanification, COUNT(ev) "
+              + "FROM EntretienVehicule ev WHERE ev.statut = :statut "
+              + "AND ev.datePlanification BETWEEN :debut AND :fin "
+              + "GROUP BY ev.entretien.idU, ev.datePlanification", Object[].class)
+          .setParameter("statut", StatutEntretien.PLANIFIE).setParameter("debut", debut)
+          .setParameter("fin", fin).getResultList();
+    } catch (Exception e) {
+      throw new RuntimeException("Erreur lors du décompte des entretiens planifiés", e);
+    }
+  }
+
+  /**
+   * Inserts automatic scheduled maintenances in one transaction, with JDBC batches of
+   * {@value #TAILLE_LOT_INSERTION} rows: identity keys prevent Hibernate from batching persist
+   * calls.
+   *
+   * <p>
+   * The vehicles are locked first (by increasing ID), then those that already have a pending or
+   * scheduled maintenance are skipped: a concurrent planning run, here or in another process, waits
+   * for this transaction and does not schedule the same vehicles twice.
+   * </p>
+   *
+   * @param planifications the maintenances to insert
+   * @return the maintenances actually inserted
+   */
+  public List<PlanificationEntretienDTO> insertPlanifies(
+      List<PlanificationEntretienDTO> planifications) {
+    if (planifications.isEmpty()) {
+      return planifications;
+    }
+
+    EntityTransaction transaction = null;
+    try (EntityManager em = DatabaseConnection.getEntityManager()) {
+      transaction = em.getTransaction();
+      transaction.begin();
+
+      List<Long> vehiculeIds = new ArrayList<>(new TreeSet<>(
+          planifications.stream().map(PlanificationEntretienDTO::getVehiculeId).toList()));
+      Set<Long> dejaPlanifies = new HashSet<>();
+      for (int debut = 0; debut < vehiculeIds.size(); debut += TAILLE_LOT_INSERTION) {
+        List<Long> lot =
+            vehiculeIds.subList(debut, Math.min(debut + TAILLE_LOT_INSERTION, vehiculeIds.size()));
+        em.createQuery("SELECT v.id FROM Vehicule v WHERE v.id IN :ids ORDER BY v.id", Long.class)
+            .setParameter("ids", lot).setLockMode(LockModeType.PESSIMISTIC_WRITE)
+            .getResultList();
+        dejaPlanifies.addAll(em.createQuery("SELECT DISTINCT ev.vehicule.id "
+            + "FROM EntretienVehicule ev WHERE ev.vehicule.id IN :ids AND ev.statut IN :statuts",
+            Long.class).setParameter("ids", lot)
+            .setParameter("statuts", List.of(StatutEntretien.EN_ATTENTE, StatutEntretien.PLANIFIE))
+            .getResultList());
+      }
+      List<PlanificationEntretienDTO> aInserer = new ArrayList<>();
+      for (PlanificationEntretienDTO planification : planifications) {
+        if (dejaPlanifies.add(planification.getVehiculeId())) {
+          aInserer.add(planification);
+        }
+      }
+
+      em.unwrap(Session.class).doWork(connexion -> {
+        try (PreparedStatement insert = connexion.prepareStatement(
+            "INSERT INTO entretiens_vehicules (automatique, date_planification, statut, "
+                + "vehicule_id, entretien_id) VALUES (?, ?, ?, ?, ?)")) {
+          int enAttente = 0;
+          for (PlanificationEntretienDTO planification : aInserer) {
+            insert.setBoolean(1, true);
+            insert.setDate(2, Date.valueOf(planification.getDatePlanification()));
+            insert.setString(3, StatutEntretien.PLANIFIE.name());
+            insert.setLong(4, planification.getVehiculeId());
+            insert.setLong(5, planification.getEntretienId());
+            insert.addBatch();
+            if (++enAttente == TAILLE_LOT_INSERTION) {
+              insert.executeBatch();
+              enAttente = 0;
+            }
+          }
+          if (enAttente > 0) {
+            insert.executeBatch();
+          }
+        }
+      });
+
+      transaction.commit();
+      return aInserer;
+
+    } catch (Exception e) {
+      if (transaction != null && transaction.isActive()) {
+        transaction.rollback();
+      }
+      throw new RuntimeException("Erreur lors de l'enregistrement des entretiens planifiés", e);
+    }
+  }
+
   /**
    * Retrieves all EntretienVehicule entities.
    *
@@ -199,6 +341,34 @@ public class EntretienVehiculeRepository {
     }
   }
 
+  /**
+   * Retrieves the maintenance records after apresId, by increasing ID.
+   *
+   * @param apresId the ID of the last record read (null to start)
+   * @param taille the maximum number of records
+   * @return the slice of records, with their vehicle and maintenance company
+   */
+  public Tranche<EntretienVehicule> findTranche(Long apresId, int taille) {
+    return Pagination.tranche(EntretienVehicule.class, JOINTURES_PARCOURS, apresId, taille);
+  }
+
+  /**
+   * Same as {@link #findTranche(Long, int)}, with the total number of records.
+   */
+  public Page<EntretienVehicule> findPage(Long apresId, int taille) {
+    return Pagination.page(EntretienVehicule.class, JOINTURES_PARCOURS, apresId, taille);
+  }
+
+  /**
+   * Streams all maintenance records over a cursor (the stream must be closed).
+   *
+   * @return the stream of records, by increasing ID
+   * @see Pagination#parcourir(Class, String)
+   */
+  public Stream<EntretienVehicule> streamAll() {
+    return Pagination.parcourir(EntretienVehicule.class, JOINTURES_PARCOURS);
+  }
+
   /**
    * Deletes an EntretienVehicule by its ID.
    *
@@ -2,7 +2,12 @@ package fr.univ.m1.projetagile.entretienVehicule.persistence;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.stream.Stream;
+import org.hibernate.jpa.HibernateHints;
 import fr.univ.m1.projetagile.core.DatabaseConnection;
+import fr.univ.m1.projetagile.core.persistence.Page;
+import fr.univ.m1.projetagile.core.persistence.Pagination;
+import fr.univ.m1.projetagile.core.persistence.Tranche;
 import fr.univ.m1.projetagile.entretienVehicule.entity.Entretien;
 import fr.univ.m1.projetagile.entretienVehicule.entity.PrixEntretien;
 import fr.univ.m1.projetagile.enums.TypeV;
@@ -14,6 +19,9 @@ import jakarta.persistence.EntityManager;
  */
 public class PrixEntretienRepository {
 
+  /** Association fetched with sliced or streamed prices */
+  private static final String JOINTURES_PARCOURS = "JOIN FETCH e.entretien";
+
   /**
    * Saves (creates or updates) a PrixEntretien entity.
    *
@@ -137,6 +145,51 @@ public class PrixEntretienRepository {
     }
   }
 
+  /**
+   * Retrieves every price with its vehicle type, model and company, to build the quote index.
+   *
+   * @return rows [priceId, vehicleType, model, price, companyId, companyName]
+   */
+  public List<Object[]> findAllPourIndex() {
+    try (EntityManager em = DatabaseConnection.getEntityManager()) {
+      return em
+          .createQuery("SELECT p.id, p.typeVehi, p.modeleVehi, p.prix, e.idU, e.nomEntreprise "
+              + "FROM PrixEntretien p JOIN p.entretien e", Object[].class)
+          .setHint(HibernateHints.HINT_READ_ONLY, true)
+          .setHint(HibernateHints.HINT_FETCH_SIZE, 1000).getResultList();
+    } catch (Exception e) {
+      throw new RuntimeException("Erreur lors du chargement des prix d'entretien", e);
+    }
+  }
+
+  /**
+   * Retrieves the maintenance prices after apresId, by increasing ID.
+   *
+   * @param apresId the ID of the last price read (null to start)
+   * @param taille the maximum number of prices
+   * @return the slice of prices, with their maintenance company
+   */
+  public Tranche<PrixEntretien> findTranche(Long apresId, int taille) {
+    return Pagination.tranche(PrixEntretien.class, JOINTURES_PARCOURS, apresId, taille);
+  }
+
+  /**
+   * Same as {@link #findTranche(Long, int)}, with the total number of prices.
+   */
+  public Page<PrixEntretien> findPage(Long apresId, int taille) {
+    return Pagination.page(PrixEntretien.class, JOINTURES_PARCOURS, apresId, taille);
+  }
+
+  /**
+   * Streams all maintenance prices over a cursor (the stream must be closed).
+   *
+   * @return the stream of prices, by increasing ID
+   * @see Pagination#parcourir(Class, String)
+   */
+  public Stream<PrixEntretien> streamAll() {
+    return Pagination.parcourir(PrixEntretien.class, JOINTURES_PARCOURS);
+  }
+
   /**
    * Deletes a PrixEntretien by its ID.
    *
@@ -85,6 +85,29 @@ public class EntretienService extends UtilisateurService<Entretien, EntretienRep
     }
 
     entretien.setNomEntreprise(nouveauNom);
+    Entretien resultat = repository.save(entretien);
+    IndexDevisEntretien.renommerEntreprise(resultat.getIdU(), nouveauNom);
+    return resultat;
+  }
+
+  /**
+   * Updates the number of vehicles a company can service per day, used by the automatic planning.
+   *
+   * @param entretien the maintenance company to update
+   * @param capaciteJournaliere the new daily capacity
+   * @return the updated Entretien entity
+   * @throws IllegalArgumentException if validation fails
+   */
+  public Entretien updateCapaciteJournaliere(Entretien entretien, int capaciteJournaliere) {
+    if (entretien == null) {
+      throw new IllegalArgumentException("L'entretien ne peut pas être null");
+    }
+
+    if (capaciteJournaliere <= 0) {
+      throw new IllegalArgumentException("La capacité journalière doit être positive");
+    }
+
+    entretien.setCapaciteJournaliere(capaciteJournaliere);
     return repository.save(entretien);
   }
 
@@ -105,6 +128,7 @@ public class EntretienService extends UtilisateurService<Entretien, EntretienRep
     }
 
     repository.delete(id);
+    IndexDevisEntretien.retirerEntreprise(id);
   }
 
   /**
@@ -2,7 +2,10 @@ package fr.univ.m1.projetagile.entretienVehicule.service;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.stream.Stream;
+import fr.univ.m1.projetagile.core.dto.PlanificationEntretienDTO;
 import fr.univ.m1.projetagile.core.entity.Vehicule;
+import fr.univ.m1.projetagile.core.persistence.Tranche;
 import fr.univ.m1.projetagile.entretienVehicule.entity.Entretien;
 import fr.univ.m1.projetagile.entretienVehicule.entity.EntretienVehicule;
 import fr.univ.m1.projetagile.entretienVehicule.persistence.EntretienVehiculeRepository;
@@ -95,6 +98,17 @@ public class EntretienVehiculeService {
     return entretienVehicule;
   }
 
+  /**
+   * Schedules an automatic maintenance for every vehicle of the fleet whose maintenance is due,
+   * taking company capacity, prices and rentals into account.
+   *
+   * @return the scheduled maintenances
+   * @see PlanificateurEntretiens
+   */
+  public List<PlanificationEntretienDTO> planifierEntretiensAutomatiques() {
+    return new PlanificateurEntretiens().planifier();
+  }
+
   /**
    * Marks a maintenance as completed.
    *
@@ -267,4 +281,24 @@ public class EntretienVehiculeService {
   public List<EntretienVehicule> getAllEntretiens() {
     return repository.findAll();
   }
+
+  /**
+   * Retrieves a slice of maintenance records, ordered by ID.
+   *
+   * @param apresId the ID of the last record of the previous slice (null for the first one)
+   * @param taille the maximum number of records
+   * @return the slice, whose last key gives the next one
+   */
+  public Tranche<EntretienVehicule> getEntretiens(Long apresId, int taille) {
+    return repository.findTranche(apresId, taille);
+  }
+
+  /**
+   * Streams all maintenance records without loading them into a list (close the stream).
+   *
+   * @return the stream of maintenance records
+   */
+  public Stream<EntretienVehicule> parcourirEntretiens() {
+    return repository.streamAll();
+  }
 }
@@ -0,0 +1,237 @@
+package fr.univ.m1.projetagile.entretienVehicule.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import fr.univ.m1.projetagile.core.dto.DevisEntretienDTO;
+import fr.univ.m1.projetagile.entretienVehicule.entity.PrixEntretien;
+import fr.univ.m1.projetagile.entretienVehicule.persistence.PrixEntretienRepository;
+import fr.univ.m1.projetagile.enums.TypeV;
+
+/**
+ * In-memory quote index: every maintenance price, grouped by vehicle type and normalized model
+ * (trimmed, lower case), each group held as parallel arrays sorted by increasing price. The
+ * cheapest providers for a vehicle are the first entries of its group, whatever the number of
+ * companies.
+ *
+ * <p>
+ * The index is loaded with a single query on first use, then kept up to date by
+ * {@link PrixEntretienService} and {@link EntretienService} after each write. Groups are immutable
+ * and replaced on change, so lookups take no lock.
+ * </p>
+ */
+final class IndexDevisEntretien {
+
+  private static final PrixEntretienRepository repository = new PrixEntretienRepository();
+
+  /** type|model -> quotes sorted by increasing price */
+  private static final Map<String, Groupe> groupes = new ConcurrentHashMap<>();
+
+  /** company ID -> company name */
+  private static final Map<Long, String> noms = new ConcurrentHashMap<>();
+
+  /** price ID -> key of its group (guarded by the class lock) */
+  private static final Map<Long, String> clesParPrix = new HashMap<>();
+
+  private static volatile boolean charge;
+
+  private IndexDevisEntretien() {}
+
+  /**
+   * @param type the vehicle type
+   * @param modele the vehicle model
+   * @param nombre the maximum number of quotes
+   * @return the cheapest quotes for this type and model, by increasing price
+   */
+  static List<DevisEntretienDTO> meilleurs(TypeV type, String modele, int nombre) {
+    if (!charge) {
+      charger();
+    }
+    Groupe groupe = groupes.get(cle(type, modele));
+    if (groupe == null) {
+      return new ArrayList<>();
+    }
+    int taille = Math.min(nombre, groupe.prix.length);
+    List<DevisEntretienDTO> devis = new ArrayList<>(taille);
+    for (int i = 0; i < taille; i++) {
+      devis.add(new DevisEntretienDTO(groupe.prixIds[i], groupe.entretienIds[i],
+          noms.get(groupe.entretienIds[i]), groupe.prix[i]));
+    }
+    return devis;
+  }
+
+  /**
+   * Adds a price, or moves it after a change of type, model or amount.
+   *
+   * @param prixEntretien the saved price
+   */
+  static synchronized void enregistrer(PrixEntretien prixEntretien) {
+    if (!charge) {
+      // The index will be built from the database on first use
+      return;
+    }
+    retirerPrix(prixEntretien.getId());
+    Long entretienId = prixEntretien.getEntretien().getIdU();
+    noms.put(entretienId, prixEntretien.getEntretien().getNomEntreprise());
+    ajouter(prixEntretien.getId(), prixEntretien.getTypeVehi(), prixEntretien.getModeleVehi(),
+        prixEntretien.getPrix(), entretienId);
+  }
+
+  /**
+   * @param prixEntretienId the deleted price
+   */
+  static synchronized void retirer(Long prixEntretienId) {
+    if (charge) {
+      retirerPrix(prixEntretienId);
+    }
+  }
+
+  /**
+   * Removes every price of a deleted company.
+   *
+   * @param entretienId the deleted company
+   */
+  static synchronized void retirerEntreprise(Long entretienId) {
+    if (!charge) {
+      return;
+    }
+    for (Map.Entry<String, Groupe> entree : new ArrayList<>(groupes.entrySet())) {
+      Groupe groupe = entree.getValue();
+      for (int i = groupe.prix.length - 1; i >= 0; i--) {
+        if (groupe.entretienIds[i] == entretienId) {
+          clesParPrix.remove(groupe.prixIds[i]);
+          groupe = groupe.sans(i);
+        }
+      }
+      remplacer(entree.getKey(), groupe);
+    }
+    noms.remove(entretienId);
+  }
+
+  /**
+   * @param entretienId the renamed company
+   * @param nomEntreprise its new name
+   */
+  static void renommerEntreprise(Long entretienId, String nomEntreprise) {
+    noms.computeIfPresent(entretienId, (id, ancien) -> nomEntreprise);
+  }
+
+  // =======================
+  // Groups
+  // =======================
+
+  private static synchronized void charger() {
+    if (charge) {
+      return;
+    }
+    Map<String, List<Object[]>> lignesParCle = new HashMap<>();
+    for (Object[] ligne : repository.findAllPourIndex()) {
+      noms.put((Long) ligne[4], (String) ligne[5]);
+      String cle = cle((TypeV) ligne[1], (String) ligne[2]);
+      clesParPrix.put((Long) ligne[0], cle);
+      lignesParCle.computeIfAbsent(cle, c -> new ArrayList<>()).add(ligne);
+    }
+    for (Map.Entry<String, List<Object[]>> entree : lignesParCle.entrySet()) {
+      List<Object[]> lignes = entree.getValue();
+      lignes.sort((a, b) -> Double.compare((Double) a[3], (Double) b[3]));
+      Groupe groupe = new Groupe(lignes.size());
+      for (int i = 0; i < lignes.size(); i++) {
+        groupe.prixIds[i] = (Long) lignes.get(i)[0];
+        groupe.prix[i] = (Double) lignes.get(i)[3];
+        groupe.entretienIds[i] = (Long) lignes.get(i)[4];
+      }
+      groupes.put(entree.getKey(), groupe);
+    }
+    charge = true;
+  }
+
+  private static void ajouter(Long prixId, TypeV type, String modele, double prix,
+      Long entretienId) {
+    String cle = cle(type, modele);
+    Groupe groupe = groupes.getOrDefault(cle, Groupe.VIDE);
+    groupes.put(cle, groupe.avec(prixId, entretienId, prix));
+    clesParPrix.put(prixId, cle);
+  }
+
+  private static void retirerPrix(Long prixId) {
+    String cle = clesParPrix.remove(prixId);
+    Groupe groupe = cle != null ? groupes.get(cle) : null;
+    if (groupe == null) {
+      return;
+    }
+    for (int i = 0; i < groupe.prixIds.length; i++) {
+      if (groupe.prixIds[i] == prixId) {
+        remplacer(cle, groupe.sans(i));
+        return;
+      }
+    }
+  }
+
+  private static void remplacer(String cle, Groupe groupe) {
+    if (groupe.prix.length == 0) {
+      groupes.remove(cle);
+    } else {
+      groupes.put(cle, groupe);
+    }
+  }
+
+  /**
+   * @return the group key of a vehicle type and model
+   */
+  static String cle(TypeV type, String modele) {
+    return type + "|" + (modele != null ? modele.trim().toLowerCase(Locale.ROOT) : "");
+  }
+
+  /**
+   * Quotes of one type and model, as parallel arrays sorted by increasing price. Never modified
+   * once published.
+   */
+  static final class Groupe {
+    static final Groupe VIDE = new Groupe(0);
+
+    final long[] prixIds;
+    final long[] entretienIds;
+    final double[] prix;
+
+    private Groupe(int taille) {
+      this.prixIds = new long[taille];
+      this.entretienIds = new long[taille];
+      this.prix = new double[taille];
+    }
+
+    Groupe avec(long prixId, long entretienId, double montant) {
+      // Insert after the quotes of the same amount
+      int position = Arrays.binarySearch(prix, montant);
+      if (position < 0) {
+        position = -position - 1;
+      }
+      while (position < prix.length && prix[position] <= montant) {
+        position++;
+      }
+      Groupe groupe = new Groupe(prix.length + 1);
+      copier(this, 0, groupe, 0, position);
+      groupe.prixIds[position] = prixId;
+      groupe.entretienIds[position] = entretienId;
+      groupe.prix[position] = montant;
+      copier(this, position, groupe, position + 1, prix.length - position);
+      return groupe;
+    }
+
+    Groupe sans(int position) {
+      Groupe groupe = new Groupe(prix.length - 1);
+      copier(this, 0, groupe, 0, position);
+      copier(this, position + 1, groupe, position, prix.length - position - 1);
+      return groupe;
+    }
+
+    private static void copier(Groupe source, int depuis, Groupe cible, int vers, int longueur) {
+      System.arraycopy(source.prixIds, depuis, cible.prixIds, vers, longueur);
+      System.arraycopy(source.entretienIds, depuis, cible.entretienIds, vers, longueur);
+      System.arraycopy(source.prix, depuis, cible.prix, vers, longueur);
+    }
+  }
+}
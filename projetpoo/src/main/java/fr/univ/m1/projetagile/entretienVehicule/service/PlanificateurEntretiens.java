@@ -0,0 +1,224 @@
+package fr.univ.m1.projetagile.entretienVehicule.service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import fr.univ.m1.projetagile.core.dto.DevisEntretienDTO;
+import fr.univ.m1.projetagile.core.dto.PlanificationEntretienDTO;
+import fr.univ.m1.projetagile.core.dto.RecommandationsEntretienDTO;
+import fr.univ.m1.projetagile.core.persistence.VehiculeRepository;
+import fr.univ.m1.projetagile.entretienTechnique.service.EntretienTechniqueService;
+import fr.univ.m1.projetagile.entretienVehicule.persistence.EntretienRepository;
+import fr.univ.m1.projetagile.entretienVehicule.persistence.EntretienVehiculeRepository;
+import fr.univ.m1.projetagile.enums.TypeV;
+
+/**
+ * Automatic maintenance planning job. Streams the vehicles whose maintenance is due (mileage from
+ * the verifications against the technical type thresholds, see
+ * {@link EntretienTechniqueService#genererRecommandationsFlotte()}) and gives each one an automatic
+ * EntretienVehicule, scheduled on the first day of the horizon when the vehicle is not rented, at
+ * the cheapest company that still has capacity that day.
+ *
+ * <p>
+ * Vehicles are handled {@value #TAILLE_LOT} at a time: one grouped read of their types, models and
+ * active rentals, then one batched insert. Company capacities are
+ * {@link fr.univ.m1.projetagile.entretienVehicule.entity.Entretien#getCapaciteJournaliere()}
+ * (property {@code projetagile.entretiens.capaciteJour}, 5 by default, when not set) minus the
+ * maintenances already scheduled; prices come from the in-memory quote index. Vehicles with a
+ * pending or scheduled maintenance are skipped. The horizon is
+ * {@code projetagile.entretiens.horizonJours} days (30 by default).
+ * </p>
+ */
+public class PlanificateurEntretiens {
+
+  /** Vehicles planned per round of grouped reads and batched inserts */
+  private static final int TAILLE_LOT = 500;
+
+  /** Held for a whole run: a second run reads the maintenances scheduled by the first one */
+  private static final ReentrantLock verrouPlanification = new ReentrantLock();
+
+  private final EntretienTechniqueService entretienTechniqueService;
+  private final EntretienVehiculeRepository entretienVehiculeRepository;
+  private final EntretienRepository entretienRepository;
+  private final VehiculeRepository vehiculeRepository;
+
+  public PlanificateurEntretiens() {
+    this.entretienTechniqueService = new EntretienTechniqueService();
+    this.entretienVehiculeRepository = new EntretienVehiculeRepository();
+    this.entretienRepository = new EntretienRepository();
+    this.vehiculeRepository = new VehiculeRepository();
+  }
+
+  /**
+   * @return the number of vehicles a company services per day when its capacity is not set
+   */
+  public static int getCapaciteParDefaut() {
+    return Integer.getInteger("projetagile.entretiens.capaciteJour", 5);
+  }
+
+  /**
+   * @return the number of days, from the first planning day, over which maintenances are placed
+   */
+  public static int getHorizonJours() {
+    return Integer.getInteger("projetagile.entretiens.horizonJours", 30);
+  }
+
+  /**
+   * Plans the due maintenances from tomorrow on.
+   *
+   * @return the scheduled maintenances
+   */
+  public List<PlanificationEntretienDTO> planifier() {
+    return planifier(LocalDate.now().plusDays(1));
+  }
+
+  /**
+   * Plans the due maintenances from a given day on. Vehicles with no free day or no company able
+   * to service them within the horizon are left unplanned and picked up by the next run. Runs in
+   * this JVM are serialized; a run in another process cannot schedule a vehicle twice either (see
+   * {@link EntretienVehiculeRepository#insertPlanifies(List)}).
+   *
+   * @param premierJour the first day on which a maintenance may be scheduled
+   * @return the scheduled maintenances
+   * @throws IllegalArgumentException if the day is in the past
+   */
+  public List<PlanificationEntretienDTO> planifier(LocalDate premierJour) {
+    if (premierJour == null || premierJour.isBefore(LocalDate.now())) {
+      throw new IllegalArgumentException("La date de planification ne peut pas être dans le passé");
+    }
+
+    verrouPlanification.lock();
+    try {
+      return planifierSousVerrou(premierJour);
+    } finally {
+      verrouPlanification.unlock();
+    }
+  }
+
+  private List<PlanificationEntretienDTO> planifierSousVerrou(LocalDate premierJour) {
+    int horizon = getHorizonJours();
+    Set<Long> enCours =
+        new HashSet<>(entretienVehiculeRepository.findVehiculesAvecEntretienEnCours());
+    Map<Long, int[]> capacites = chargerCapacites(premierJour, horizon);
+    Map<String, List<DevisEntretienDTO>> devisParModele = new HashMap<>();
+
+    List<PlanificationEntretienDTO> planifiees = new ArrayList<>();
+    List<Long> lot = new ArrayList<>(TAILLE_LOT);
+    try (Stream<RecommandationsEntretienDTO> dus =
+        entretienTechniqueService.genererRecommandationsFlotte()) {
+      Iterator<RecommandationsEntretienDTO> iterateur = dus.iterator();
+      while (iterateur.hasNext()) {
+        Long vehiculeId = iterateur.next().getVehiculeId();
+        if (enCours.contains(vehiculeId)) {
+          continue;
+        }
+        lot.add(vehiculeId);
+        if (lot.size() == TAILLE_LOT) {
+          planifiees.addAll(planifierLot(lot, premierJour, horizon, capacites, devisParModele));
+          lot.clear();
+        }
+      }
+    }
+    if (!lot.isEmpty()) {
+      planifiees.addAll(planifierLot(lot, premierJour, horizon, capacites, devisParModele));
+    }
+    return planifiees;
+  }
+
+  private List<PlanificationEntretienDTO> planifierLot(List<Long> vehiculeIds,
+      LocalDate premierJour, int horizon, Map<Long, int[]> capacites,
+      Map<String, List<DevisEntretienDTO>> devisParModele) {
+    // Days of the horizon on which each vehicle is rented, even partly
+    Map<Long, boolean[]> joursLoues = new HashMap<>();
+    for (Object[] ligne : vehiculeRepository.getDatesLocationsActives(vehiculeIds)) {
+      long debut = ChronoUnit.DAYS.between(premierJour, ((LocalDateTime) ligne[1]).toLocalDate());
+      long fin = ChronoUnit.DAYS.between(premierJour, ((LocalDateTime) ligne[2]).toLocalDate());
+      if (fin < 0 || debut >= horizon) {
+        continue;
+      }
+      Arrays.fill(joursLoues.computeIfAbsent((Long) ligne[0], v -> new boolean[horizon]),
+          (int) Math.max(0, debut), (int) Math.min(horizon - 1, fin) + 1, true);
+    }
+
+    List<PlanificationEntretienDTO> planifiees = new ArrayList<>();
+    for (Object[] ligne : vehiculeRepository.getTypesModeles(vehiculeIds)) {
+      Long vehiculeId = (Long) ligne[0];
+      TypeV type = (TypeV) ligne[1];
+      String modele = (String) ligne[2];
+      List<DevisEntretienDTO> devis = devisParModele.computeIfAbsent(
+          IndexDevisEntretien.cle(type, modele),
+          cle -> IndexDevisEntretien.meilleurs(type, modele, Integer.MAX_VALUE));
+      PlanificationEntretienDTO planification =
+          placer(vehiculeId, devis, joursLoues.get(vehiculeId), premierJour, horizon, capacites);
+      if (planification != null) {
+        planifiees.add(planification);
+      }
+    }
+
+    List<PlanificationEntretienDTO> inserees =
+        entretienVehiculeRepository.insertPlanifies(planifiees);
+    if (inserees.size() < planifiees.size()) {
+      // Vehicles scheduled meanwhile by a concurrent run: their slots are given back
+      Set<PlanificationEntretienDTO> retenues = new HashSet<>(inserees);
+      for (PlanificationEntretienDTO planification : planifiees) {
+        if (!retenues.contains(planification)) {
+          capacites.get(planification.getEntretienId())[(int) ChronoUnit.DAYS
+              .between(premierJour, planification.getDatePlanification())]++;
+        }
+      }
+    }
+    return inserees;
+  }
+
+  /**
+   * Earliest free day first, then the cheapest company with capacity left that day.
+   */
+  private static PlanificationEntretienDTO placer(Long vehiculeId, List<DevisEntretienDTO> devis,
+      boolean[] joursLoues, LocalDate premierJour, int horizon, Map<Long, int[]> capacites) {
+    for (int jour = 0; jour < horizon; jour++) {
+      if (joursLoues != null && joursLoues[jour]) {
+        continue;
+      }
+      for (DevisEntretienDTO offre : devis) {
+        int[] restantes = capacites.get(offre.getEntretienId());
+        if (restantes != null && restantes[jour] > 0) {
+          restantes[jour]--;
+          return new PlanificationEntretienDTO(vehiculeId, offre.getEntretienId(),
+              premierJour.plusDays(jour), offre.getPrix());
+        }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * @return company ID -> capacity left on each day of the horizon
+   */
+  private Map<Long, int[]> chargerCapacites(LocalDate premierJour, int horizon) {
+    Map<Long, int[]> capacites = new HashMap<>();
+    for (Object[] ligne : entretienRepository.findCapacites()) {
+      int[] restantes = new int[horizon];
+      Arrays.fill(restantes, ligne[1] != null ? (Integer) ligne[1] : getCapaciteParDefaut());
+      capacites.put((Long) ligne[0], restantes);
+    }
+    for (Object[] ligne : entretienVehiculeRepository.countPlanifiesParJour(premierJour,
+        premierJour.plusDays(horizon - 1))) {
+      int[] restantes = capacites.get((Long) ligne[0]);
+      if (restantes != null) {
+        restantes[(int) ChronoUnit.DAYS.between(premierJour, (LocalDate) ligne[1])] -=
+            ((Long) ligne[2]).intValue();
+      }
+    }
+    return capacites;
+  }
+}
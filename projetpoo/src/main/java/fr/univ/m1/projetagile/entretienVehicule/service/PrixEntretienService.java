@@ -3,10 +3,15 @@ package fr.univ.m1.projetagile.entretienVehicule.service;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import fr.univ.m1.projetagile.core.dto.DevisEntretienDTO;
 import fr.univ.m1.projetagile.core.entity.Vehicule;
+import fr.univ.m1.projetagile.core.persistence.Tranche;
 import fr.univ.m1.projetagile.entretienVehicule.entity.Entretien;
 import fr.univ.m1.projetagile.entretienVehicule.entity.PrixEntretien;
 import fr.univ.m1.projetagile.entretienVehicule.persistence.PrixEntretienRepository;
@@ -63,7 +68,7 @@ public class PrixEntretienService {
 
     // Create and save the price
     PrixEntretien prixEntretien = new PrixEntretien(typeVehi, modeleVehi, prix, entretien);
-    return repository.save(prixEntretien);
+    return indexer(repository.save(prixEntretien));
   }
 
   /**
@@ -146,7 +151,7 @@ public class PrixEntretienService {
     }
 
     prixEntretien.setPrix(nouveauPrix);
-    return repository.save(prixEntretien);
+    return indexer(repository.save(prixEntretien));
   }
 
   /**
@@ -180,7 +185,7 @@ public class PrixEntretienService {
     }
 
     prixEntretien.setTypeVehi(nouveauType);
-    return repository.save(prixEntretien);
+    return indexer(repository.save(prixEntretien));
   }
 
   /**
@@ -214,7 +219,7 @@ public class PrixEntretienService {
     }
 
     prixEntretien.setModeleVehi(nouveauModele);
-    return repository.save(prixEntretien);
+    return indexer(repository.save(prixEntretien));
   }
 
   /**
@@ -234,6 +239,7 @@ public class PrixEntretienService {
     }
 
     repository.delete(prixEntretienId);
+    IndexDevisEntretien.retirer(prixEntretienId);
   }
 
   /**
@@ -300,6 +306,34 @@ public class PrixEntretienService {
     return (prix != null) ? prix.getPrix() : null;
   }
 
+  /**
+   * Finds the cheapest maintenance companies for each vehicle, in one call and without querying
+   * each company: prices are looked up in the in-memory quote index ({@link IndexDevisEntretien}),
+   * where models are compared ignoring case and surrounding spaces.
+   *
+   * @param vehicules the vehicles to quote
+   * @param nombre the maximum number of quotes per vehicle
+   * @return for each vehicle ID, in the given order, its quotes by increasing price (empty if no
+   *         company prices its type and model)
+   * @throws IllegalArgumentException if validation fails
+   */
+  public Map<Long, List<DevisEntretienDTO>> getMeilleursDevis(Collection<Vehicule> vehicules,
+      int nombre) {
+    if (vehicules == null) {
+      throw new IllegalArgumentException("La liste des véhicules ne peut pas être null");
+    }
+    if (nombre <= 0) {
+      throw new IllegalArgumentException("Le nombre de devis doit être positif");
+    }
+
+    Map<Long, List<DevisEntretienDTO>> devis = new LinkedHashMap<>();
+    for (Vehicule vehicule : vehicules) {
+      devis.put(vehicule.getId(),
+          IndexDevisEntretien.meilleurs(vehicule.getType(), vehicule.getModele(), nombre));
+    }
+    return devis;
+  }
+
   /**
    * Retrieves a price by its ID.
    *
@@ -328,4 +362,29 @@ public class PrixEntretienService {
   public List<PrixEntretien> getAllPrix() {
     return repository.findAll();
   }
+
+  /**
+   * Retrieves a slice of maintenance prices, ordered by ID.
+   *
+   * @param apresId the ID of the last price of the previous slice (null for the first one)
+   * @param taille the maximum number of prices
+   * @return the slice, whose last key gives the next one
+   */
+  public Tranche<PrixEntretien> getPrix(Long apresId, int taille) {
+    return repository.findTranche(apresId, taille);
+  }
+
+  /**
+   * Streams every maintenance price, e.g. to rebuild the price index (close the stream).
+   *
+   * @return the stream of prices
+   */
+  public Stream<PrixEntretien> parcourirPrix() {
+    return repository.streamAll();
+  }
+
+  private PrixEntretien indexer(PrixEntretien prixEntretien) {
+    IndexDevisEntretien.enregistrer(prixEntretien);
+    return prixEntretien;
+  }
 }
@@ -0,0 +1,11 @@
+package fr.univ.m1.projetagile.enums;
+
+/**
+ * Issue d'une décision d'agent (acceptation ou refus) sur une location en attente, pour les
+ * traitements en lot. DEJA_DECIDEE signale une location passée au même statut par une décision
+ * concurrente entre la validation et la mise à jour : rien n'a été écrit par ce traitement.
+ */
+public enum ResultatDecision {
+  ACCEPTEE, REFUSEE, ANNULEE_DELAI_EXPIRE, INTROUVABLE, NON_PROPRIETAIRE, STATUT_INCOMPATIBLE,
+  DEJA_DECIDEE
+}
@@ -0,0 +1,8 @@
+package fr.univ.m1.projetagile.enums;
+
+/**
+ * État d'une demande de location inscrite en liste d'attente sur un véhicule déjà réservé.
+ */
+public enum StatutDemandeAttente {
+  EN_ATTENTE, PROMUE, RETIREE, EXPIREE
+}
@@ -0,0 +1,104 @@
+package fr.univ.m1.projetagile.listeAttente.entity;
+
+import java.time.LocalDateTime;
+import fr.univ.m1.projetagile.core.entity.Loueur;
+import fr.univ.m1.projetagile.core.entity.Vehicule;
+import fr.univ.m1.projetagile.enums.StatutDemandeAttente;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+
+/**
+ * Demande de location d'un loueur sur un véhicule indisponible pour la période souhaitée. La
+ * demande est convertie en location (promue) dès qu'une annulation libère la période.
+ */
+@Entity
+@Table(name = "demandes_attente",
+    indexes = {@Index(name = "idx_demandes_attente_vehicule", columnList = "vehicule_id, statut"),
+        @Index(name = "idx_demandes_attente_loueur", columnList = "loueur_id")})
+public class DemandeAttente {
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private Long id;
+
+  @Column(name = "vehicule_id", nullable = false)
+  private Long vehiculeId;
+
+  @Column(name = "loueur_id", nullable = false)
+  private Long loueurId;
+
+  @Column(nullable = false)
+  private LocalDateTime dateDebut;
+
+  @Column(nullable = false)
+  private LocalDateTime dateFin;
+
+  @Column(nullable = false)
+  private LocalDateTime dateCreation;
+
+  @Enumerated(EnumType.STRING)
+  @Column(nullable = false)
+  private StatutDemandeAttente statut;
+
+  /**
+   * Location créée lors de la promotion (null tant que la demande n'est pas promue)
+   */
+  @Column(name = "location_id")
+  private Long locationId;
+
+  // Constructeur JPA
+  protected DemandeAttente() {}
+
+  public DemandeAttente(Vehicule vehicule, Loueur loueur, LocalDateTime dateDebut,
+      LocalDateTime dateFin) {
+    this.vehiculeId = vehicule.getId();
+    this.loueurId = loueur.getIdU();
+    this.dateDebut = dateDebut;
+    this.dateFin = dateFin;
+    this.dateCreation = LocalDateTime.now();
+    this.statut = StatutDemandeAttente.EN_ATTENTE;
+  }
+
+  // =======================
+  // Getters
+  // =======================
+
+  public Long getId() {
+    return id;
+  }
+
+  public Long getVehiculeId() {
+    return vehiculeId;
+  }
+
+  public Long getLoueurId() {
+    return loueurId;
+  }
+
+  public LocalDateTime getDateDebut() {
+    return dateDebut;
+  }
+
+  public LocalDateTime getDateFin() {
+    return dateFin;
+  }
+
+  public LocalDateTime getDateCreation() {
+    return dateCreation;
+  }
+
+  public StatutDemandeAttente getStatut() {
+    return statut;
+  }
+
+  public Long getLocationId() {
+    return locationId;
+  }
+}
@@ -0,0 +1,140 @@
+package fr.univ.m1.projetagile.listeAttente.persistence;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import fr.univ.m1.projetagile.core.DatabaseConnection;
+import fr.univ.m1.projetagile.enums.StatutDemandeAttente;
+import fr.univ.m1.projetagile.listeAttente.entity.DemandeAttente;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityTransaction;
+import jakarta.persistence.TypedQuery;
+
+/**
+ * Repository pour gérer la persistance des demandes en liste d'attente
+ */
+public class DemandeAttenteRepository {
+
+  /**
+   * Enregistre une nouvelle demande en liste d'attente
+   *
+   * @param demande la demande à enregistrer
+   * @return la demande enregistrée avec son ID généré
+   */
+  public DemandeAttente save(DemandeAttente demande) {
+    EntityManager em = DatabaseConnection.getEntityManager();
+    EntityTransaction transaction = null;
+
+    try {
+      transaction = em.getTransaction();
+      transaction.begin();
+
+      if (demande.getId() == null) {
+        em.persist(demande);
+      } else {
+        demande = em.merge(demande);
+      }
+
+      transaction.commit();
+      return demande;
+
+    } catch (Exception e) {
+      if (transaction != null && transaction.isActive()) {
+        transaction.rollback();
+      }
+      throw new RuntimeException("Erreur lors de l'enregistrement de la demande d'attente", e);
+    } finally {
+      em.close();
+    }
+  }
+
+  /**
+   * Récupère une demande par son ID
+   *
+   * @param id l'identifiant de la demande
+   * @return la demande trouvée ou null
+   */
+  public DemandeAttente findById(Long id) {
+    try (EntityManager em = DatabaseConnection.getEntityManager()) {
+      return em.find(DemandeAttente.class, id);
+    } catch (Exception e) {
+      throw new RuntimeException("Erreur lors de la récupération de la demande d'attente", e);
+    }
+  }
+
+  /**
+   * Récupère les demandes encore en attente dont la période n'a pas commencé
+   *
+   * @param maintenant la date courante
+   * @return liste des demandes, de la plus ancienne à la plus récente
+   */
+  public List<DemandeAttente> findEnAttente(LocalDateTime maintenant) {
+    try (EntityManager em = DatabaseConnection.getEntityManager()) {
+      TypedQuery<DemandeAttente> query = em.createQuery("SELECT d FROM DemandeAttente d "
+          + "WHERE d.statut = :statut AND d.dateDebut > :maintenant "
+          + "ORDER BY d.dateCreation, d.id", DemandeAttente.class);
+      query.setParameter("statut", StatutDemandeAttente.EN_ATTENTE);
+      query.setParameter("maintenant", maintenant);
+      return query.getResultList();
+    } catch (Exception e) {
+      throw new RuntimeException("Erreur lors de la récupération des demandes en attente", e);
+    }
+  }
+
+  /**
+   * Récupère les demandes d'un loueur, de la plus récente à la plus ancienne
+   *
+   * @param loueurId l'identifiant du loueur
+   * @return liste des demandes du loueur
+   */
+  public List<DemandeAttente> findByLoueurId(Long loueurId) {
+    try (EntityManager em = DatabaseConnection.getEntityManager()) {
+      TypedQuery<DemandeAttente> query = em.createQuery("SELECT d FROM DemandeAttente d "
+          + "WHERE d.loueurId = :loueurId ORDER BY d.dateCreation DESC, d.id DESC",
+          DemandeAttente.class);
+      query.setParameter("loueurId", loueurId);
+      return query.getResultList();
+    } catch (Exception e) {
+      throw new RuntimeException("Erreur lors de la récupération des demandes du loueur", e);
+    }
+  }
+
+  /**
+   * Change le statut d'une demande seulement si elle a encore le statut attendu (réservation de la
+   * demande avant sa promotion, ou retour en attente si la promotion échoue).
+   *
+   * @param id l'identifiant de la demande
+   * @param attendu le statut que la demande doit avoir
+   * @param nouveau le nouveau statut
+   * @param locationId la location créée (ou null)
+   * @return true si la demande avait le statut attendu et a été modifiée
+   */
+  public boolean changerStatut(Long id, StatutDemandeAttente attendu, StatutDemandeAttente nouveau,
+      Long locationId) {
+    EntityManager em = DatabaseConnection.getEntityManager();
+    EntityTransaction transaction = null;
+
+    try {
+      transaction = em.getTransaction();
+      transaction.begin();
+
+      int modifiees = em.createQuery("UPDATE DemandeAttente d SET d.statut = :nouveau, "
+          + "d.locationId = :locationId WHERE d.id = :id AND d.statut = :attendu")
+          .setParameter("nouveau", nouveau)
+          .setParameter("locationId", locationId)
+          .setParameter("id", id)
+          .setParameter("attendu", attendu)
+          .executeUpdate();
+
+      transaction.commit();
+      return modifiees == 1;
+
+    } catch (Exception e) {
+      if (transaction != null && transaction.isActive()) {
+        transaction.rollback();
+      }
+      throw new RuntimeException("Erreur lors du changement de statut de la demande d'attente", e);
+    } finally {
+      em.close();
+    }
+  }
+}
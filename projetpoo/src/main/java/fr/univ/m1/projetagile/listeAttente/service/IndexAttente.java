@@ -0,0 +1,150 @@
+package fr.univ.m1.projetagile.listeAttente.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import fr.univ.m1.projetagile.listeAttente.entity.DemandeAttente;
+
+/**
+ * Index en mémoire des demandes en attente, par véhicule : intervalles triés par date de début,
+ * avec la durée de la plus longue demande. Les demandes qui chevauchent une période [a, b]
+ * commencent au plus tard en b et au plus tôt en a moins cette durée maximale : seule cette
+ * tranche de l'arbre est parcourue. Thread-safe.
+ */
+final class IndexAttente {
+
+  private final Map<Long, Intervalles> parVehicule = new HashMap<>();
+
+  synchronized void ajouter(DemandeAttente demande) {
+    parVehicule.computeIfAbsent(demande.getVehiculeId(), v -> new Intervalles())
+        .ajouter(new Demande(demande));
+  }
+
+  synchronized void retirer(Long vehiculeId, Long demandeId) {
+    Intervalles intervalles = parVehicule.get(vehiculeId);
+    if (intervalles != null && intervalles.retirer(demandeId) && intervalles.estVide()) {
+      parVehicule.remove(vehiculeId);
+    }
+  }
+
+  synchronized void vider() {
+    parVehicule.clear();
+  }
+
+  /**
+   * @param vehiculeId le véhicule
+   * @param debut le début de la période (null : sans borne)
+   * @param fin la fin de la période (null : sans borne)
+   * @return les demandes du véhicule qui chevauchent la période, de la plus ancienne à la plus
+   *         récente
+   */
+  synchronized List<Demande> chevauchant(Long vehiculeId, LocalDateTime debut,
+      LocalDateTime fin) {
+    Intervalles intervalles = parVehicule.get(vehiculeId);
+    if (intervalles == null) {
+      return List.of();
+    }
+    List<Demande> resultats = intervalles.chevauchant(debut, fin);
+    resultats.sort(Comparator.comparing((Demande d) -> d.dateCreation).thenComparing(d -> d.id));
+    return resultats;
+  }
+
+  synchronized int taille() {
+    return parVehicule.values().stream().mapToInt(i -> i.taille).sum();
+  }
+
+  // =======================
+
+  private static final class Intervalles {
+
+    private final TreeMap<LocalDateTime, Map<Long, Demande>> parDebut = new TreeMap<>();
+    private final Map<Long, Demande> parId = new HashMap<>();
+    /** Majorant de la durée des demandes présentes (recalculé quand l'arbre se vide) */
+    private Duration dureeMax = Duration.ZERO;
+    private int taille;
+
+    private void ajouter(Demande demande) {
+      if (parId.put(demande.id, demande) != null) {
+        return;
+      }
+      parDebut.computeIfAbsent(demande.debut, d -> new LinkedHashMap<>()).put(demande.id, demande);
+      Duration duree = Duration.between(demande.debut, demande.fin);
+      if (duree.compareTo(dureeMax) > 0) {
+        dureeMax = duree;
+      }
+      taille++;
+    }
+
+    private boolean retirer(Long demandeId) {
+      Demande demande = parId.remove(demandeId);
+      if (demande == null) {
+        return false;
+      }
+      Map<Long, Demande> memeDebut = parDebut.get(demande.debut);
+      memeDebut.remove(demandeId);
+      if (memeDebut.isEmpty()) {
+        parDebut.remove(demande.debut);
+      }
+      if (--taille == 0) {
+        dureeMax = Duration.ZERO;
+      }
+      return true;
+    }
+
+    private boolean estVide() {
+      return taille == 0;
+    }
+
+    private List<Demande> chevauchant(LocalDateTime debut, LocalDateTime fin) {
+      NavigableMap<LocalDateTime, Map<Long, Demande>> tranche = parDebut;
+      if (fin != null) {
+        tranche = tranche.headMap(fin, true);
+      }
+      if (debut != null) {
+        tranche = tranche.tailMap(debut.minus(dureeMax), true);
+      }
+      List<Demande> resultats = new ArrayList<>();
+      for (Map<Long, Demande> memeDebut : tranche.values()) {
+        for (Demande demande : memeDebut.values()) {
+          if (debut == null || !demande.fin.isBefore(debut)) {
+            resultats.add(demande);
+          }
+        }
+      }
+      return resultats;
+    }
+  }
+
+  /**
+   * Copie immuable des champs d'une demande utiles à la promotion.
+   */
+  static final class Demande {
+
+    final Long id;
+    final Long vehiculeId;
+    final Long loueurId;
+    final LocalDateTime debut;
+    final LocalDateTime fin;
+    final LocalDateTime dateCreation;
+
+    private Demande(DemandeAttente demande) {
+      this.id = demande.getId();
+      this.vehiculeId = demande.getVehiculeId();
+      this.loueurId = demande.getLoueurId();
+      this.debut = demande.getDateDebut();
+      this.fin = demande.getDateFin();
+      this.dateCreation = demande.getDateCreation();
+    }
+
+    boolean chevauche(LocalDateTime autreDebut, LocalDateTime autreFin) {
+      return !debut.isAfter(autreFin) && !fin.isBefore(autreDebut);
+    }
+  }
+}
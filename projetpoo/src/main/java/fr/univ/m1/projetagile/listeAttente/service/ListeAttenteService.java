@@ -0,0 +1,303 @@
+package fr.univ.m1.projetagile.listeAttente.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import fr.univ.m1.projetagile.core.entity.Location;
+import fr.univ.m1.projetagile.core.entity.Loueur;
+import fr.univ.m1.projetagile.core.entity.Vehicule;
+import fr.univ.m1.projetagile.core.persistence.LocationRepository;
+import fr.univ.m1.projetagile.core.persistence.LoueurRepository;
+import fr.univ.m1.projetagile.core.persistence.VehiculeRepository;
+import fr.univ.m1.projetagile.core.service.LocationService;
+import fr.univ.m1.projetagile.creneaux.service.PlanningVehicules;
+import fr.univ.m1.projetagile.enums.StatutDemandeAttente;
+import fr.univ.m1.projetagile.listeAttente.entity.DemandeAttente;
+import fr.univ.m1.projetagile.listeAttente.persistence.DemandeAttenteRepository;
+import fr.univ.m1.projetagile.messagerie.service.MessagerieService;
+
+/**
+ * Liste d'attente des véhicules déjà réservés : un loueur inscrit sa demande une fois au lieu de
+ * relancer la réservation, et la demande est convertie en location dès qu'une annulation (par le
+ * loueur, refus de l'agent ou délai d'acceptation expiré) libère la période.
+ *
+ * <p>
+ * À chaque libération, les demandes du véhicule qui chevauchent la période libérée sont lues dans
+ * un index en mémoire ({@link IndexAttente}) et essayées de la plus ancienne à la plus récente,
+ * avec les règles de {@link LocationService#creerLocation}. Une demande est d'abord réservée par
+ * une mise à jour conditionnelle de son statut, ce qui empêche deux promotions concurrentes de la
+ * même demande. Les libérations simultanées d'un même véhicule sont regroupées : une seule passe
+ * s'exécute à la fois et recommence tant que de nouvelles libérations arrivent, au lieu de lancer
+ * une vérification de disponibilité par annulation.
+ * </p>
+ */
+public class ListeAttenteService {
+
+  private static final IndexAttente index = new IndexAttente();
+  private static volatile boolean charge;
+
+  /** Libérations en attente de traitement, par véhicule */
+  private static final Map<Long, AtomicInteger> liberations = new ConcurrentHashMap<>();
+
+  private final DemandeAttenteRepository demandeRepository;
+  private final LocationRepository locationRepository;
+  private final VehiculeRepository vehiculeRepository;
+  private final LoueurRepository loueurRepository;
+  private final MessagerieService messagerieService;
+  private LocationService locationService;
+
+  public ListeAttenteService() {
+    this(null);
+  }
+
+  /**
+   * @param locationService le service utilisé pour créer les locations promues (null : créé à la
+   *        première promotion)
+   */
+  public ListeAttenteService(LocationService locationService) {
+    this.demandeRepository = new DemandeAttenteRepository();
+    this.locationRepository = new LocationRepository();
+    this.vehiculeRepository = new VehiculeRepository();
+    this.loueurRepository = new LoueurRepository();
+    this.messagerieService = new MessagerieService();
+    this.locationService = locationService;
+  }
+
+  /**
+   * Inscrit un loueur en liste d'attente d'un véhicule indisponible sur la période.
+   *
+   * @param loueur le loueur
+   * @param vehicule le véhicule souhaité
+   * @param dateDebut le début de la location souhaitée
+   * @param dateFin la fin de la location souhaitée
+   * @return la demande enregistrée
+   * @throws IllegalArgumentException si un paramètre est invalide ou la période passée
+   * @throws IllegalStateException si le véhicule est disponible (il peut être réservé
+   *         directement)
+   */
+  public DemandeAttente inscrire(Loueur loueur, Vehicule vehicule, LocalDateTime dateDebut,
+      LocalDateTime dateFin) {
+    if (loueur == null || loueur.getIdU() == null) {
+      throw new IllegalArgumentException("Le loueur doit être spécifié et avoir un identifiant.");
+    }
+    if (vehicule == null || vehicule.getId() == null) {
+      throw new IllegalArgumentException("Le véhicule doit être spécifié et enregistré.");
+    }
+    if (dateDebut == null || dateFin == null || !dateFin.isAfter(dateDebut)) {
+      throw new IllegalArgumentException(
+          "La date de fin doit être strictement postérieure à la date de début.");
+    }
+    if (!dateDebut.isAfter(LocalDateTime.now())) {
+      throw new IllegalArgumentException("La période souhaitée doit commencer dans le futur.");
+    }
+    if (PlanningVehicules.estDisponible(vehicule.getId(), dateDebut, dateFin)) {
+      throw new IllegalStateException(
+          "Le véhicule est disponible pour cette période : il peut être réservé directement.");
+    }
+
+    DemandeAttente demande =
+        demandeRepository.save(new DemandeAttente(vehicule, loueur, dateDebut, dateFin));
+    if (charge) {
+      index.ajouter(demande);
+    }
+    return demande;
+  }
+
+  /**
+   * Retire une demande encore en attente.
+   *
+   * @param loueur le loueur auteur de la demande
+   * @param demandeId l'identifiant de la demande
+   * @throws IllegalArgumentException si la demande n'existe pas ou n'appartient pas au loueur
+   * @throws IllegalStateException si la demande n'est plus en attente
+   */
+  public void retirer(Loueur loueur, Long demandeId) {
+    if (loueur == null || loueur.getIdU() == null || demandeId == null) {
+      throw new IllegalArgumentException("Le loueur et la demande doivent être spécifiés.");
+    }
+    DemandeAttente demande = demandeRepository.findById(demandeId);
+    if (demande == null || !loueur.getIdU().equals(demande.getLoueurId())) {
+      throw new IllegalArgumentException(
+          "Aucune demande d'attente avec l'identifiant " + demandeId + " pour ce loueur.");
+    }
+    if (!demandeRepository.changerStatut(demandeId, StatutDemandeAttente.EN_ATTENTE,
+        StatutDemandeAttente.RETIREE, null)) {
+      throw new IllegalStateException("La demande n'est plus en attente.");
+    }
+    index.retirer(demande.getVehiculeId(), demandeId);
+  }
+
+  /**
+   * @param loueur le loueur
+   * @return les demandes du loueur, de la plus récente à la plus ancienne
+   */
+  public List<DemandeAttente> getDemandes(Loueur loueur) {
+    if (loueur == null || loueur.getIdU() == null) {
+      throw new IllegalArgumentException("Le loueur doit être spécifié et avoir un identifiant.");
+    }
+    return demandeRepository.findByLoueurId(loueur.getIdU());
+  }
+
+  /**
+   * Signale qu'une période d'un véhicule a été libérée et promeut les demandes compatibles. Si une
+   * passe est déjà en cours pour ce véhicule, elle est simplement relancée par le thread qui
+   * l'exécute. Une erreur est signalée sans interrompre l'appelant ; une passe en échec ne retire
+   * que les libérations qu'elle traitait, celles arrivées entre-temps relancent une passe.
+   *
+   * @param vehiculeId le véhicule
+   * @param debut le début de la période libérée (null si inconnue)
+   * @param fin la fin de la période libérée (null si inconnue)
+   * @return les locations créées par ce thread
+   */
+  public List<Location> liberer(Long vehiculeId, LocalDateTime debut, LocalDateTime fin) {
+    List<Location> promues = new ArrayList<>();
+    if (vehiculeId == null) {
+      return promues;
+    }
+    AtomicInteger compteur = null;
+    int traitees = 0;
+    try {
+      chargerIndex();
+      // Les demandes voisines peuvent dépendre du délai de remise en état (ou, sans créneaux, de la
+      // vérification au jour près) : on élargit la période d'un jour
+      LocalDateTime debutLarge = debut != null ? debut.minusDays(1) : null;
+      LocalDateTime finLarge = fin != null ? fin.plusDays(1) : null;
+      if (index.chevauchant(vehiculeId, debutLarge, finLarge).isEmpty()) {
+        return promues;
+      }
+
+      AtomicInteger courant = liberations.computeIfAbsent(vehiculeId, v -> new AtomicInteger());
+      if (courant.getAndIncrement() > 0) {
+        return promues; // La passe en cours recommencera
+      }
+      compteur = courant;
+      do {
+        traitees = compteur.get();
+        try {
+          promues.addAll(promouvoir(vehiculeId, debutLarge, finLarge));
+        } catch (RuntimeException e) {
+          System.err.println("Promotion de la liste d'attente impossible pour le véhicule "
+              + vehiculeId + " : " + e.getMessage());
+        }
+        // Une libération arrivée pendant la passe a pu concerner une autre période
+        debutLarge = null;
+        finLarge = null;
+      } while (compteur.addAndGet(-traitees) > 0);
+      traitees = 0;
+    } catch (RuntimeException e) {
+      System.err.println("Promotion de la liste d'attente impossible pour le véhicule "
+          + vehiculeId + " : " + e.getMessage());
+    } finally {
+      if (compteur != null && traitees > 0) {
+        // Passe interrompue (erreur grave) : seules ses libérations sont retirées ; s'il en reste,
+        // le compteur est abandonné pour que la libération suivante relance une passe
+        AtomicInteger interrompu = compteur;
+        int deduites = traitees;
+        liberations.computeIfPresent(vehiculeId,
+            (v, c) -> c == interrompu && c.addAndGet(-deduites) > 0 ? null : c);
+      }
+    }
+    return promues;
+  }
+
+  private List<Location> promouvoir(Long vehiculeId, LocalDateTime debut, LocalDateTime fin) {
+    List<Location> promues = new ArrayList<>();
+    List<IndexAttente.Demande> candidates = index.chevauchant(vehiculeId, debut, fin);
+    if (candidates.isEmpty()) {
+      return promues;
+    }
+    Vehicule vehicule = vehiculeRepository.findById(vehiculeId);
+    LocalDateTime maintenant = LocalDateTime.now();
+
+    for (IndexAttente.Demande demande : candidates) {
+      if (vehicule == null || !demande.debut.isAfter(maintenant)) {
+        demandeRepository.changerStatut(demande.id, StatutDemandeAttente.EN_ATTENTE,
+            StatutDemandeAttente.EXPIREE, null);
+        index.retirer(vehiculeId, demande.id);
+        continue;
+      }
+      if (promues.stream().anyMatch(l -> demande.chevauche(l.getDateDebut(), l.getDateFin()))) {
+        continue; // Période reprise par une demande plus ancienne
+      }
+      if (!demandeRepository.changerStatut(demande.id, StatutDemandeAttente.EN_ATTENTE,
+          StatutDemandeAttente.PROMUE, null)) {
+        index.retirer(vehiculeId, demande.id); // Retirée ou promue ailleurs
+        continue;
+      }
+
+      Location location;
+      try {
+        location = creer(demande, vehicule);
+      } catch (RuntimeException e) {
+        demandeRepository.changerStatut(demande.id, StatutDemandeAttente.PROMUE,
+            StatutDemandeAttente.EN_ATTENTE, null);
+        throw e;
+      }
+      if (location == null) {
+        demandeRepository.changerStatut(demande.id, StatutDemandeAttente.PROMUE,
+            StatutDemandeAttente.EN_ATTENTE, null);
+        continue;
+      }
+      demandeRepository.changerStatut(demande.id, StatutDemandeAttente.PROMUE,
+          StatutDemandeAttente.PROMUE, location.getId());
+      index.retirer(vehiculeId, demande.id);
+      promues.add(location);
+      prevenir(demande, vehicule, location);
+    }
+    return promues;
+  }
+
+  /**
+   * @return la location créée, ou null si la période n'est toujours pas libre ou si une règle de
+   *         création n'est pas respectée
+   */
+  private Location creer(IndexAttente.Demande demande, Vehicule vehicule) {
+    Loueur loueur = loueurRepository.findById(demande.loueurId);
+    if (loueur == null) {
+      return null;
+    }
+    if (locationService == null) {
+      locationService = new LocationService(locationRepository);
+    }
+    try {
+      return locationService.creerLocation(demande.debut, demande.fin, vehicule, loueur);
+    } catch (IllegalStateException | IllegalArgumentException e) {
+      return null;
+    }
+  }
+
+  private void prevenir(IndexAttente.Demande demande, Vehicule vehicule, Location location) {
+    Loueur loueur = loueurRepository.findById(demande.loueurId);
+    if (loueur == null || vehicule.getProprietaire() == null) {
+      return;
+    }
+    try {
+      messagerieService.envoyerMessageAutomatique(vehicule.getProprietaire(), loueur,
+          "Votre demande en liste d'attente n°" + demande.id + " est devenue la location n°"
+              + location.getId() + " (" + vehicule.getMarque() + " " + vehicule.getModele()
+              + ", du " + demande.debut.toLocalDate() + " au " + demande.fin.toLocalDate()
+              + ").");
+    } catch (RuntimeException e) {
+      System.err.println("Message de promotion non envoyé pour la demande " + demande.id + " : "
+          + e.getMessage());
+    }
+  }
+
+  private void chargerIndex() {
+    if (charge) {
+      return;
+    }
+    synchronized (ListeAttenteService.class) {
+      if (!charge) {
+        index.vider();
+        for (DemandeAttente demande : demandeRepository.findEnAttente(LocalDateTime.now())) {
+          index.ajouter(demande);
+        }
+        charge = true;
+      }
+    }
+  }
+}
@@ -1,6 +1,7 @@
 package fr.univ.m1.projetagile.messagerie.entity;
 
 import java.time.LocalDateTime;
+import org.hibernate.annotations.ColumnDefault;
 import fr.univ.m1.projetagile.core.DatabaseConnection;
 import fr.univ.m1.projetagile.core.entity.Utilisateur;
 import jakarta.persistence.Column;
@@ -83,6 +84,15 @@ public class Message {
   @Column(name = "destinataire_id", nullable = false)
   private Long destinataireId;
 
+  /**
+   * Message envoyé automatiquement par la plateforme (promotion d'une liste d'attente, véhicule
+   * correspondant à une recherche...) : l'expéditeur n'en est pas l'auteur, il désigne seulement
+   * la conversation dans laquelle le message est rangé.
+   */
+  @Column(nullable = false)
+  @ColumnDefault("0")
+  private boolean automatique;
+
   /**
    * Constructeur sans argument pour JPA. Ne pas utiliser directement.
    */
@@ -193,6 +203,24 @@ public class Message {
     this.destinataireId = destinataireId;
   }
 
+  /**
+   * Indique si le message a été envoyé automatiquement par la plateforme.
+   *
+   * @return true si le message n'a pas été écrit par son expéditeur
+   */
+  public boolean isAutomatique() {
+    return automatique;
+  }
+
+  /**
+   * Marque le message comme envoyé automatiquement par la plateforme.
+   *
+   * @param automatique true si le message n'a pas été écrit par son expéditeur
+   */
+  public void setAutomatique(boolean automatique) {
+    this.automatique = automatique;
+  }
+
   /**
    * Retourne l'utilisateur expéditeur du message. Charge l'utilisateur depuis la base de données.
    * Recherche parmi tous les types concrets d'utilisateurs (Agent, Loueur, Entretien).
@@ -307,7 +335,7 @@ public class Message {
   @Override
   public String toString() {
     return "Message [id=" + id + ", expediteur=" + expediteurId + ", destinataire=" + destinataireId
-        + ", date=" + dateEnvoi + ", contenu="
+        + (automatique ? ", automatique" : "") + ", date=" + dateEnvoi + ", contenu="
         + (contenu != null && contenu.length() > 50 ? contenu.substring(0, 47) + "..." : contenu)
         + "]";
   }
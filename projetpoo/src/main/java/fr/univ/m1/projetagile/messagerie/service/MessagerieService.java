@@ -119,6 +119,39 @@ public class MessagerieService {
     return messageRepository.save(message);
   }
 
+  /**
+   * Envoie un message automatique de la plateforme (voir {@link Message#isAutomatique()}), rangé
+   * dans la conversation entre {@code expediteur} et {@code destinataire} mais marqué comme n'ayant
+   * pas été écrit par l'expéditeur.
+   *
+   * @param expediteur l'utilisateur au nom duquel la conversation est rangée (le propriétaire du
+   *        véhicule concerné, par exemple)
+   * @param destinataire l'utilisateur prévenu
+   * @param contenu le texte du message (max 1000 caractères)
+   * @return le message sauvegardé avec son ID généré
+   * @throws IllegalArgumentException si un utilisateur est null ou non enregistré, ou si le
+   *         contenu n'est pas valide
+   * @throws RuntimeException si une erreur survient lors de la sauvegarde
+   */
+  public Message envoyerMessageAutomatique(Utilisateur expediteur, Utilisateur destinataire,
+      String contenu) {
+    if (expediteur == null || destinataire == null) {
+      throw new IllegalArgumentException("L'expéditeur et le destinataire ne peuvent pas être null");
+    }
+    if (expediteur.getIdU() == null || destinataire.getIdU() == null) {
+      throw new IllegalArgumentException(
+          "L'expéditeur et le destinataire doivent être enregistrés en base de données");
+    }
+
+    Message message = new Message(contenu, expediteur, destinataire);
+    message.setAutomatique(true);
+    if (!message.verifierContenu()) {
+      throw new IllegalArgumentException(
+          "Le contenu du message n'est pas valide (vide ou trop long)");
+    }
+    return messageRepository.save(message);
+  }
+
   /**
    * Récupère tous les messages d'un utilisateur (envoyés et reçus).
    *
@@ -1,7 +1,11 @@
 package fr.univ.m1.projetagile.notes.persistence;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import org.hibernate.jpa.HibernateHints;
 import fr.univ.m1.projetagile.core.DatabaseConnection;
 import fr.univ.m1.projetagile.notes.entity.NoteVehicule;
 import jakarta.persistence.EntityManager;
@@ -98,6 +102,41 @@ public class NoteVehiculeRepository {
     return Math.round(moyenne * 100.0) / 100.0;
   }
 
+  /**
+   * Calcule en lot la note moyenne de plusieurs véhicules, avec la même règle que
+   * {@link #getMoyenneByVehiculeId(Long)} (moyenne des moyennes de chaque note, arrondies à 2
+   * décimales). Les moyennes par note sont calculées par la base : aucune entité n'est chargée.
+   *
+   * @param vehiculeIds les identifiants des véhicules
+   * @return la note moyenne par identifiant de véhicule (les véhicules sans note sont absents)
+   */
+  public Map<Long, Double> getMoyennesByVehiculeIds(Collection<Long> vehiculeIds) {
+    EntityManager em = DatabaseConnection.getEntityManager();
+    List<Long> ids = new ArrayList<>(vehiculeIds);
+    Map<Long, double[]> sommes = new HashMap<>();
+
+    for (int debut = 0; debut < ids.size(); debut += 500) {
+      TypedQuery<Object[]> query = em.createQuery("SELECT n.vehicule.id, n.id, AVG(c.note) "
+          + "FROM NoteVehicule n LEFT JOIN n.criteres c WHERE n.vehicule.id IN :vehiculeIds "
+          + "GROUP BY n.vehicule.id, n.id", Object[].class);
+      query.setParameter("vehiculeIds", ids.subList(debut, Math.min(debut + 500, ids.size())));
+      query.setHint(HibernateHints.HINT_READ_ONLY, true);
+
+      for (Object[] ligne : query.getResultList()) {
+        double moyenneNote =
+            ligne[2] == null ? 0.0 : Math.round(((Number) ligne[2]).doubleValue() * 100.0) / 100.0;
+        double[] somme = sommes.computeIfAbsent((Long) ligne[0], id -> new double[2]);
+        somme[0] += moyenneNote;
+        somme[1]++;
+      }
+    }
+
+    Map<Long, Double> moyennes = new HashMap<>();
+    sommes.forEach(
+        (id, somme) -> moyennes.put(id, Math.round(somme[0] / somme[1] * 100.0) / 100.0));
+    return moyennes;
+  }
+
   public void delete(Long id) {
     EntityManager em = DatabaseConnection.getEntityManager();
     EntityTransaction transaction = null;
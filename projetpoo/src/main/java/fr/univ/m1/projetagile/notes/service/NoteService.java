@@ -1,10 +1,14 @@
 package fr.univ.m1.projetagile.notes.service;
 
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import fr.univ.m1.projetagile.core.entity.Agent;
 import fr.univ.m1.projetagile.core.entity.Loueur;
 import fr.univ.m1.projetagile.core.entity.Vehicule;
+import fr.univ.m1.projetagile.core.evenement.BusEvenements;
+import fr.univ.m1.projetagile.core.evenement.EvenementMetier;
 import fr.univ.m1.projetagile.notes.entity.Critere;
 import fr.univ.m1.projetagile.notes.entity.NoteAgent;
 import fr.univ.m1.projetagile.notes.entity.NoteLoueur;
@@ -64,7 +68,9 @@ public class NoteService {
     }
 
     NoteAgent note = new NoteAgent(agent, loueur, criteres);
-    return noteAgentRepository.save(note);
+    NoteAgent sauvegardee = noteAgentRepository.save(note);
+    BusEvenements.publier(EvenementMetier.noteModifiee(null, agent.getIdU(), null));
+    return sauvegardee;
   }
 
   /**
@@ -118,7 +124,9 @@ public class NoteService {
     }
 
     NoteLoueur note = new NoteLoueur(agent, loueur, criteres);
-    return noteLoueurRepository.save(note);
+    NoteLoueur sauvegardee = noteLoueurRepository.save(note);
+    BusEvenements.publier(EvenementMetier.noteModifiee(null, null, loueur.getIdU()));
+    return sauvegardee;
   }
 
   /**
@@ -172,7 +180,9 @@ public class NoteService {
     }
 
     NoteVehicule note = new NoteVehicule(vehicule, loueur, criteres);
-    return noteVehiculeRepository.save(note);
+    NoteVehicule sauvegardee = noteVehiculeRepository.save(note);
+    BusEvenements.publier(EvenementMetier.noteModifiee(vehicule, null, null));
+    return sauvegardee;
   }
 
   /**
@@ -206,6 +216,22 @@ public class NoteService {
     return noteVehiculeRepository.getMoyenneByVehiculeId(vehicule.getId());
   }
 
+  /**
+   * Calcule en lot la note moyenne de plusieurs véhicules (pages de listes de véhicules).
+   *
+   * @param vehiculeIds les identifiants des véhicules
+   * @return la note moyenne par identifiant ; les véhicules sans note sont absents
+   */
+  public Map<Long, Double> getMoyennesVehicules(Collection<Long> vehiculeIds) {
+    if (vehiculeIds == null) {
+      throw new IllegalArgumentException("Liste de véhicules invalide");
+    }
+    if (vehiculeIds.isEmpty()) {
+      return Map.of();
+    }
+    return noteVehiculeRepository.getMoyennesByVehiculeIds(vehiculeIds);
+  }
+
   // ==================== SUPPRESSIONS ====================
 
   public void supprimerNoteAgent(NoteAgent note) {
@@ -213,6 +239,8 @@ public class NoteService {
       throw new IllegalArgumentException("Note invalide");
     }
     noteAgentRepository.delete(note.getId());
+    BusEvenements.publier(EvenementMetier.noteModifiee(null,
+        note.getAgent() != null ? note.getAgent().getIdU() : null, null));
   }
 
   public void supprimerNoteLoueur(NoteLoueur note) {
@@ -220,6 +248,8 @@ public class NoteService {
       throw new IllegalArgumentException("Note invalide");
     }
     noteLoueurRepository.delete(note.getId());
+    BusEvenements.publier(EvenementMetier.noteModifiee(null, null,
+        note.getLoueur() != null ? note.getLoueur().getIdU() : null));
   }
 
   public void supprimerNoteVehicule(NoteVehicule note) {
@@ -227,5 +257,6 @@ public class NoteService {
       throw new IllegalArgumentException("Note invalide");
     }
     noteVehiculeRepository.delete(note.getId());
+    BusEvenements.publier(EvenementMetier.noteModifiee(note.getVehicule(), null, null));
   }
 }
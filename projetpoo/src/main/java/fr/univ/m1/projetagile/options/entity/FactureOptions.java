@@ -0,0 +1,88 @@
+package fr.univ.m1.projetagile.options.entity;
+
+import java.time.LocalDateTime;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+
+/**
+ * Facture mensuelle des options d'un utilisateur : le total des périodes de souscription qui
+ * commencent dans le mois. Une seule facture par utilisateur et par mois, ce que garantit la
+ * contrainte d'unicité ; le nom de l'utilisateur est figé à l'émission.
+ */
+@Entity
+@Table(name = "factures_options",
+    uniqueConstraints = @UniqueConstraint(columnNames = {"utilisateur_id", "annee", "mois"}))
+public class FactureOptions {
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private Long id;
+
+  @Column(name = "utilisateur_id", nullable = false)
+  private Long utilisateurId;
+
+  @Column(name = "nom_utilisateur")
+  private String nomUtilisateur;
+
+  @Column(nullable = false)
+  private int annee;
+
+  @Column(nullable = false)
+  private int mois;
+
+  @Column(nullable = false)
+  private double montant;
+
+  @Column(name = "date_emission", nullable = false)
+  private LocalDateTime dateEmission;
+
+  // Constructeur JPA
+  protected FactureOptions() {}
+
+  public FactureOptions(Long utilisateurId, String nomUtilisateur, int annee, int mois,
+      double montant) {
+    this.utilisateurId = utilisateurId;
+    this.nomUtilisateur = nomUtilisateur;
+    this.annee = annee;
+    this.mois = mois;
+    this.montant = montant;
+    this.dateEmission = LocalDateTime.now();
+  }
+
+  // =======================
+  // Getters
+  // =======================
+
+  public Long getId() {
+    return id;
+  }
+
+  public Long getUtilisateurId() {
+    return utilisateurId;
+  }
+
+  public String getNomUtilisateur() {
+    return nomUtilisateur;
+  }
+
+  public int getAnnee() {
+    return annee;
+  }
+
+  public int getMois() {
+    return mois;
+  }
+
+  public double getMontant() {
+    return montant;
+  }
+
+  public LocalDateTime getDateEmission() {
+    return dateEmission;
+  }
+}
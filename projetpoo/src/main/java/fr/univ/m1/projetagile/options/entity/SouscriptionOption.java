@@ -7,6 +7,7 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.Table;
@@ -16,7 +17,8 @@ import jakarta.persistence.Table;
  * subscription details like periodicity and renewal.
  */
 @Entity
-@Table(name = "souscription_options")
+@Table(name = "souscription_options",
+    indexes = @Index(name = "idx_souscriptions_utilisateur", columnList = "utilisateur_id"))
 public class SouscriptionOption {
 
   @Id
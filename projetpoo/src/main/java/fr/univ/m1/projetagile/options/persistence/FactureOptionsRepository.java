@@ -0,0 +1,331 @@
+package fr.univ.m1.projetagile.options.persistence;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.hibernate.jpa.HibernateHints;
+import fr.univ.m1.projetagile.core.DatabaseConnection;
+import fr.univ.m1.projetagile.core.dto.FactureOptionsMensuelleDTO;
+import fr.univ.m1.projetagile.core.entity.Utilisateur;
+import fr.univ.m1.projetagile.options.entity.FactureOptions;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityTransaction;
+
+/**
+ * Repository des factures mensuelles d'options ({@link FactureOptions}) et des lectures dont la
+ * facturation a besoin : bornes des utilisateurs souscripteurs, grille des tarifs, parcours des
+ * souscriptions d'une plage d'utilisateurs sur un curseur, et écriture des factures par lots JDBC.
+ */
+public class FactureOptionsRepository {
+
+  /** Taille maximale d'une liste IN (limite Oracle : 1000) */
+  private static final int TAILLE_LOT_IN = 500;
+
+  /** Factures envoyées par appel à executeBatch */
+  private static final int TAILLE_LOT_INSERTION = 500;
+
+  /** Essais d'insertion d'un lot en conflit avec une facturation concurrente */
+  private static final int ESSAIS_INSERTION = 3;
+
+  /** Lignes lues par aller-retour lors du parcours des souscriptions */
+  private static final int TAILLE_FETCH = 1000;
+
+  /** Types concrets d'utilisateurs, dans l'ordre de priorité de findUtilisateurById */
+  private static final List<String> TYPES_UTILISATEURS = List.of("Agent", "Loueur", "Entretien");
+
+  /**
+   * @return [plus petit, plus grand] identifiant d'utilisateur ayant une souscription, ou null s'il
+   *         n'y a aucune souscription
+   */
+  public long[] findBornesUtilisateurs() {
+    try (EntityManager em = DatabaseConnection.getEntityManager()) {
+      Object[] bornes = em.createQuery("SELECT MIN(s.utilisateurId), MAX(s.utilisateurId) "
+          + "FROM SouscriptionOption s", Object[].class).getSingleResult();
+      if (bornes[0] == null) {
+        return null;
+      }
+      return new long[] {(Long) bornes[0], (Long) bornes[1]};
+    } catch (Exception e) {
+      throw new RuntimeException("Erreur lors de la lecture des bornes des souscriptions", e);
+    }
+  }
+
+  /**
+   * @return identifiant d'option -> périodicité (en mois) -> prix de la période
+   */
+  public Map<Long, Map<Integer, Double>> findTarifs() {
+    try (EntityManager em = DatabaseConnection.getEntityManager()) {
+      Map<Long, Map<Integer, Double>> tarifs = new HashMap<>();
+      for (Object[] ligne : em
+          .createQuery("SELECT t.option.id, t.periodicite, t.prix FROM TarifOption t",
+              Object[].class)
+          .setHint(HibernateHints.HINT_READ_ONLY, true).getResultList()) {
+        tarifs.computeIfAbsent((Long) ligne[0], id -> new HashMap<>()).put((Integer) ligne[1],
+            (Double) ligne[2]);
+      }
+      return tarifs;
+    } catch (Exception e) {
+      throw new RuntimeException("Erreur lors de la lecture des tarifs des options", e);
+    }
+  }
+
+  /**
+   * Parcourt sur un curseur, avec un EntityManager dédié, les souscriptions des utilisateurs
+   * d'identifiant compris dans [debut, fin[ qui peuvent avoir une période commençant dans le mois
+   * : commencées avant sa fin, et renouvelées ou commencées dans le mois. Les lignes d'un même
+   * utilisateur se suivent. Le flux doit être fermé (try-with-resources) pour libérer le curseur
+   * et la connexion.
+   *
+   * @param debut le premier identifiant d'utilisateur de la plage
+   * @param fin l'identifiant qui suit le dernier de la plage
+   * @param debutMois le premier instant du mois facturé
+   * @param finMois le premier instant du mois suivant
+   * @return le flux des lignes [utilisateurId, dateDebut, periodicite, renouvellement, optionId,
+   *         prix de l'option]
+   */
+  public Stream<Object[]> parcourirSouscriptions(long debut, long fin, LocalDateTime debutMois,
+      LocalDateTime finMois) {
+    EntityManager em = DatabaseConnection.createEntityManager();
+    EntityTransaction transaction = em.getTransaction();
+    ScrollableResults<Object[]> curseur;
+    try {
+      transaction.begin();
+      curseur = em.unwrap(Session.class).createSelectionQuery(
+          "SELECT s.utilisateurId, s.dateDebut, s.periodicite, s.renouvellement, s.option.id, "
+              + "s.option.prix FROM SouscriptionOption s "
+              + "WHERE s.utilisateurId >= :debut AND s.utilisateurId < :fin "
+              + "AND s.dateDebut < :finMois "
+              + "AND (s.renouvellement = true OR s.dateDebut >= :debutMois) "
+              + "ORDER BY s.utilisateurId",
+          Object[].class).setParameter("debut", debut).setParameter("fin", fin)
+          .setParameter("debutMois", debutMois).setParameter("finMois", finMois)
+          .setFetchSize(TAILLE_FETCH).setReadOnly(true).scroll(ScrollMode.FORWARD_ONLY);
+    } catch (Exception e) {
+      if (transaction.isActive()) {
+        transaction.rollback();
+      }
+      em.close();
+      throw new RuntimeException("Erreur lors de l'ouverture du parcours des souscriptions", e);
+    }
+
+    Spliterator<Object[]> lignes = new Spliterators.AbstractSpliterator<Object[]>(Long.MAX_VALUE,
+        Spliterator.ORDERED | Spliterator.NONNULL) {
+      @Override
+      public boolean tryAdvance(Consumer<? super Object[]> action) {
+        if (!curseur.next()) {
+          return false;
+        }
+        action.accept(curseur.get());
+        return true;
+      }
+    };
+
+    return StreamSupport.stream(lignes, false).onClose(() -> {
+      try {
+        curseur.close();
+        if (transaction.isActive()) {
+          transaction.rollback();
+        }
+      } finally {
+        em.close();
+      }
+    });
+  }
+
+  /**
+   * @param annee l'année facturée
+   * @param mois le mois facturé (1 à 12)
+   * @param debut le premier identifiant d'utilisateur de la plage
+   * @param fin l'identifiant qui suit le dernier de la plage
+   * @return les utilisateurs de la plage déjà facturés pour ce mois
+   */
+  public Set<Long> findUtilisateursFactures(int annee, int mois, long debut, long fin) {
+    try (EntityManager em = DatabaseConnection.getEntityManager()) {
+      return new HashSet<>(em.createQuery("SELECT f.utilisateurId FROM FactureOptions f "
+          + "WHERE f.annee = :annee AND f.mois = :mois "
+          + "AND f.utilisateurId >= :debut AND f.utilisateurId < :fin", Long.class)
+          .setParameter("annee", annee).setParameter("mois", mois)
+          .setParameter("debut", debut).setParameter("fin", fin)
+          .setHint(HibernateHints.HINT_FETCH_SIZE, TAILLE_FETCH).getResultList());
+    } catch (Exception e) {
+      throw new RuntimeException("Erreur lors de la lecture des factures d'options émises", e);
+    }
+  }
+
+  /**
+   * @param annee l'année facturée
+   * @param mois le mois facturé (1 à 12)
+   * @param utilisateurIds des identifiants d'utilisateurs (au plus {@value #TAILLE_LOT_IN})
+   * @return ceux de ces utilisateurs déjà facturés pour ce mois
+   */
+  public Set<Long> findUtilisateursFactures(int annee, int mois, Collection<Long> utilisateurIds) {
+    try (EntityManager em = DatabaseConnection.getEntityManager()) {
+      return new HashSet<>(em.createQuery("SELECT f.utilisateurId FROM FactureOptions f "
+          + "WHERE f.annee = :annee AND f.mois = :mois AND f.utilisateurId IN :ids", Long.class)
+          .setParameter("annee", annee).setParameter("mois", mois)
+          .setParameter("ids", utilisateurIds).getResultList());
+    } catch (Exception e) {
+      throw new RuntimeException("Erreur lors de la lecture des factures d'options émises", e);
+    }
+  }
+
+  /**
+   * Résout les noms complets d'utilisateurs par paquets de {@value #TAILLE_LOT_IN}, un type
+   * d'utilisateur après l'autre (Agent, Loueur puis Entretien, comme
+   * {@link SouscriptionOptionRepository#findUtilisateurById(Long)}).
+   *
+   * @param utilisateurIds les identifiants des utilisateurs
+   * @return identifiant -> nom complet ; les identifiants inconnus sont absents
+   */
+  public Map<Long, String> findNoms(Collection<Long> utilisateurIds) {
+    Map<Long, String> noms = new HashMap<>();
+    try (EntityManager em = DatabaseConnection.getEntityManager()) {
+      for (String type : TYPES_UTILISATEURS) {
+        List<Long> restants = new ArrayList<>();
+        for (Long id : utilisateurIds) {
+          if (!noms.containsKey(id)) {
+            restants.add(id);
+          }
+        }
+        for (int debut = 0; debut < restants.size(); debut += TAILLE_LOT_IN) {
+          for (Utilisateur utilisateur : em
+              .createQuery("SELECT u FROM " + type + " u WHERE u.idU IN :ids", Utilisateur.class)
+              .setParameter("ids",
+                  restants.subList(debut, Math.min(debut + TAILLE_LOT_IN, restants.size())))
+              .setHint(HibernateHints.HINT_READ_ONLY, true).getResultList()) {
+            noms.put(utilisateur.getIdU(), utilisateur.getNomComplet());
+          }
+        }
+        em.clear();
+      }
+      return noms;
+    } catch (Exception e) {
+      throw new RuntimeException("Erreur lors de la lecture des noms des utilisateurs", e);
+    }
+  }
+
+  /**
+   * Enregistre des factures d'un même mois qui n'existent pas encore. Si une facturation
+   * concurrente en a émis certaines entre-temps, la contrainte d'unicité fait échouer
+   * l'insertion : les factures déjà émises sont alors relues et retirées, et les autres
+   * réinsérées (au plus {@value #ESSAIS_INSERTION} essais).
+   *
+   * @param factures les factures à émettre, toutes du même mois ({@value #TAILLE_LOT_IN} au plus)
+   * @return le nombre de factures effectivement insérées
+   */
+  public int insertFacturesManquantes(List<FactureOptionsMensuelleDTO> factures) {
+    List<FactureOptionsMensuelleDTO> restantes = factures;
+    for (int essai = 1;; essai++) {
+      if (restantes.isEmpty()) {
+        return 0;
+      }
+      try {
+        insertFactures(restantes);
+        return restantes.size();
+      } catch (RuntimeException e) {
+        FactureOptionsMensuelleDTO premiere = restantes.get(0);
+        List<Long> ids = new ArrayList<>(restantes.size());
+        for (FactureOptionsMensuelleDTO facture : restantes) {
+          ids.add(facture.getLoueurId());
+        }
+        Set<Long> emises =
+            findUtilisateursFactures(premiere.getAnnee(), premiere.getMois(), ids);
+        if (emises.isEmpty() || essai == ESSAIS_INSERTION) {
+          throw e; // Pas un conflit avec une facturation concurrente
+        }
+        List<FactureOptionsMensuelleDTO> manquantes = new ArrayList<>();
+        for (FactureOptionsMensuelleDTO facture : restantes) {
+          if (!emises.contains(facture.getLoueurId())) {
+            manquantes.add(facture);
+          }
+        }
+        restantes = manquantes;
+      }
+    }
+  }
+
+  /**
+   * Enregistre des factures en une transaction, par lots JDBC de {@value #TAILLE_LOT_INSERTION}
+   * (les clés générées par identité empêchent Hibernate de regrouper les insertions). Si l'une des
+   * factures existe déjà pour son utilisateur et son mois, la contrainte d'unicité fait échouer le
+   * tout (voir {@link #insertFacturesManquantes(List)}).
+   *
+   * @param factures les factures à émettre
+   */
+  public void insertFactures(List<FactureOptionsMensuelleDTO> factures) {
+    if (factures.isEmpty()) {
+      return;
+    }
+
+    EntityTransaction transaction = null;
+    try (EntityManager em = DatabaseConnection.getEntityManager()) {
+      transaction = em.getTransaction();
+      transaction.begin();
+
+      Timestamp emission = Timestamp.valueOf(LocalDateTime.now());
+      em.unwrap(Session.class).doWork(connexion -> {
+        try (PreparedStatement insert = connexion.prepareStatement(
+            "INSERT INTO factures_options (utilisateur_id, nom_utilisateur, annee, mois, "
+                + "montant, date_emission) VALUES (?, ?, ?, ?, ?, ?)")) {
+          int enAttente = 0;
+          for (FactureOptionsMensuelleDTO facture : factures) {
+            insert.setLong(1, facture.getLoueurId());
+            insert.setString(2, facture.getNomLoueur());
+            insert.setInt(3, facture.getAnnee());
+            insert.setInt(4, facture.getMois());
+            insert.setDouble(5, facture.getMontantTotalOptions());
+            insert.setTimestamp(6, emission);
+            insert.addBatch();
+            if (++enAttente == TAILLE_LOT_INSERTION) {
+              insert.executeBatch();
+              enAttente = 0;
+            }
+          }
+          if (enAttente > 0) {
+            insert.executeBatch();
+          }
+        }
+      });
+
+      transaction.commit();
+
+    } catch (Exception e) {
+      if (transaction != null && transaction.isActive()) {
+        transaction.rollback();
+      }
+      throw new RuntimeException("Erreur lors de l'enregistrement des factures d'options", e);
+    }
+  }
+
+  /**
+   * @param utilisateurId l'identifiant de l'utilisateur
+   * @return les factures d'options de l'utilisateur, de la plus récente à la plus ancienne
+   */
+  public List<FactureOptionsMensuelleDTO> findByUtilisateur(Long utilisateurId) {
+    try (EntityManager em = DatabaseConnection.getEntityManager()) {
+      return em.createQuery("SELECT new "
+          + "fr.univ.m1.projetagile.core.dto.FactureOptionsMensuelleDTO("
+          + "f.utilisateurId, f.nomUtilisateur, f.annee, f.mois, f.montant) "
+          + "FROM FactureOptions f WHERE f.utilisateurId = :utilisateurId "
+          + "ORDER BY f.annee DESC, f.mois DESC", FactureOptionsMensuelleDTO.class)
+          .setParameter("utilisateurId", utilisateurId).getResultList();
+    } catch (Exception e) {
+      throw new RuntimeException("Erreur lors de la lecture des factures d'options", e);
+    }
+  }
+}
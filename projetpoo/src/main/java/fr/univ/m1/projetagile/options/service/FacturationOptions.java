@@ -0,0 +1,245 @@
+package fr.univ.m1.projetagile.options.service;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+import fr.univ.m1.projetagile.core.DatabaseConnection;
+import fr.univ.m1.projetagile.core.dto.FactureOptionsMensuelleDTO;
+import fr.univ.m1.projetagile.options.persistence.FactureOptionsRepository;
+
+/**
+ * Facturation mensuelle des options souscrites. Une souscription est facturée le mois où commence
+ * chacune de ses périodes (date de début + k × périodicité mois), la première seulement si elle
+ * n'est pas renouvelée. Le prix d'une période est celui du {@code TarifOption} de l'option pour
+ * cette périodicité, à défaut le prix mensuel de l'option multiplié par la périodicité.
+ *
+ * <p>
+ * Les identifiants des souscripteurs sont découpés en plages de même largeur, traitées en
+ * parallèle (propriété {@code projetagile.facturation.partitions}, le nombre de processeurs par
+ * défaut). Chaque plage est lue en un seul passage sur un curseur trié par utilisateur ; les
+ * factures sont écrites par lots de {@value #TAILLE_LOT} avec leurs noms résolus en une requête
+ * par type d'utilisateur. Les utilisateurs déjà facturés pour le mois sont ignorés, si bien que
+ * relancer la facturation d'un mois, même après un échec partiel, n'émet que les factures
+ * manquantes ; une facture émise entre-temps par une facturation concurrente est retirée de son
+ * lot au lieu de le faire échouer.
+ * </p>
+ */
+public class FacturationOptions {
+
+  /** Factures émises par lot de résolution des noms et d'insertions */
+  private static final int TAILLE_LOT = 500;
+
+  private final FactureOptionsRepository factureOptionsRepository;
+
+  public FacturationOptions() {
+    this(new FactureOptionsRepository());
+  }
+
+  /**
+   * Constructeur avec injection de dépendance (pour les tests).
+   *
+   * @param factureOptionsRepository le repository des factures à utiliser
+   */
+  FacturationOptions(FactureOptionsRepository factureOptionsRepository) {
+    this.factureOptionsRepository = factureOptionsRepository;
+  }
+
+  /**
+   * @return le nombre de plages d'utilisateurs facturées en parallèle
+   */
+  public static int getNombrePartitions() {
+    return Integer.getInteger("projetagile.facturation.partitions",
+        Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * Émet les factures d'options d'un mois pour tous les utilisateurs qui n'en ont pas encore.
+   *
+   * @param annee l'année facturée
+   * @param mois le mois facturé (1 à 12)
+   * @return le nombre de factures émises
+   * @throws IllegalArgumentException si le mois n'est pas valide
+   * @throws RuntimeException si une plage n'a pas pu être facturée (les autres le sont)
+   */
+  public int facturer(int annee, int mois) {
+    if (mois < 1 || mois > 12) {
+      throw new IllegalArgumentException("Le mois doit être compris entre 1 et 12.");
+    }
+    return facturer(YearMonth.of(annee, mois));
+  }
+
+  /**
+   * @see #facturer(int, int)
+   */
+  public int facturer(YearMonth mois) {
+    if (mois == null) {
+      throw new IllegalArgumentException("Le mois facturé est obligatoire.");
+    }
+
+    long[] bornes = factureOptionsRepository.findBornesUtilisateurs();
+    if (bornes == null) {
+      return 0;
+    }
+    Map<Long, Map<Integer, Double>> tarifs = factureOptionsRepository.findTarifs();
+
+    int partitions = (int) Math.max(1,
+        Math.min(getNombrePartitions(), bornes[1] - bornes[0] + 1));
+    long largeur = (bornes[1] - bornes[0]) / partitions + 1;
+    ExecutorService executor = Executors.newFixedThreadPool(partitions, tache -> {
+      Thread thread = new Thread(tache, "facturation-options");
+      thread.setDaemon(true);
+      return thread;
+    });
+    try {
+      List<Future<Integer>> resultats = new ArrayList<>();
+      for (int i = 0; i < partitions; i++) {
+        long debut = bornes[0] + i * largeur;
+        long fin = Math.min(debut + largeur, bornes[1] + 1);
+        resultats.add(executor.submit(() -> {
+          try {
+            return facturerPlage(mois, debut, fin, tarifs);
+          } finally {
+            DatabaseConnection.closeEntityManager();
+          }
+        }));
+      }
+
+      int emises = 0;
+      RuntimeException echec = null;
+      for (Future<Integer> resultat : resultats) {
+        try {
+          emises += resultat.get();
+        } catch (ExecutionException e) {
+          if (echec == null) {
+            echec = new RuntimeException(
+                "Erreur lors de la facturation des options de " + mois, e.getCause());
+          }
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new RuntimeException("Facturation des options de " + mois + " interrompue", e);
+        }
+      }
+      if (echec != null) {
+        throw echec;
+      }
+      return emises;
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * @param utilisateurId l'identifiant de l'utilisateur
+   * @return les factures d'options de l'utilisateur, de la plus récente à la plus ancienne
+   */
+  public List<FactureOptionsMensuelleDTO> getFactures(Long utilisateurId) {
+    if (utilisateurId == null) {
+      throw new IllegalArgumentException("L'identifiant de l'utilisateur est obligatoire.");
+    }
+    return factureOptionsRepository.findByUtilisateur(utilisateurId);
+  }
+
+  /**
+   * Prix dû pour une souscription au titre d'un mois.
+   *
+   * @param dateDebut la date de début de la souscription
+   * @param periodicite la périodicité, en mois
+   * @param renouvellement true si la souscription est renouvelée à chaque période
+   * @param prixPeriode le prix d'une période
+   * @param mois le mois facturé
+   * @return le prix de la période qui commence dans le mois, ou 0 si aucune n'y commence
+   */
+  static double montantDuMois(LocalDateTime dateDebut, int periodicite,
+      boolean renouvellement, double prixPeriode, YearMonth mois) {
+    long ecart = ChronoUnit.MONTHS.between(YearMonth.from(dateDebut), mois);
+    if (ecart < 0 || (ecart > 0 && !renouvellement) || ecart % Math.max(1, periodicite) != 0) {
+      return 0;
+    }
+    return prixPeriode;
+  }
+
+  // =======================
+  // Facturation d'une plage
+  // =======================
+
+  int facturerPlage(YearMonth mois, long debut, long fin,
+      Map<Long, Map<Integer, Double>> tarifs) {
+    Set<Long> dejaFactures = factureOptionsRepository
+        .findUtilisateursFactures(mois.getYear(), mois.getMonthValue(), debut, fin);
+
+    int emises = 0;
+    List<FactureOptionsMensuelleDTO> lot = new ArrayList<>(TAILLE_LOT);
+    Long courant = null;
+    double montant = 0;
+    try (Stream<Object[]> lignes = factureOptionsRepository.parcourirSouscriptions(debut, fin,
+        mois.atDay(1).atStartOfDay(), mois.plusMonths(1).atDay(1).atStartOfDay())) {
+      Iterator<Object[]> iterateur = lignes.iterator();
+      while (iterateur.hasNext()) {
+        Object[] ligne = iterateur.next();
+        Long utilisateurId = (Long) ligne[0];
+        if (!utilisateurId.equals(courant)) {
+          ajouter(lot, courant, montant, mois, dejaFactures);
+          if (lot.size() == TAILLE_LOT) {
+            emises += emettre(lot);
+          }
+          courant = utilisateurId;
+          montant = 0;
+        }
+        if (dejaFactures.contains(utilisateurId)) {
+          continue;
+        }
+        int periodicite = (Integer) ligne[2];
+        montant += montantDuMois((LocalDateTime) ligne[1], periodicite, (Boolean) ligne[3],
+            prixPeriode(tarifs, (Long) ligne[4], periodicite, (Double) ligne[5]), mois);
+      }
+    }
+    ajouter(lot, courant, montant, mois, dejaFactures);
+    return emises + emettre(lot);
+  }
+
+  private static void ajouter(List<FactureOptionsMensuelleDTO> lot, Long utilisateurId,
+      double montant, YearMonth mois, Set<Long> dejaFactures) {
+    if (utilisateurId == null || montant <= 0 || dejaFactures.contains(utilisateurId)) {
+      return;
+    }
+    lot.add(new FactureOptionsMensuelleDTO(utilisateurId, null, mois.getYear(),
+        mois.getMonthValue(), Math.round(montant * 100) / 100.0));
+  }
+
+  private int emettre(List<FactureOptionsMensuelleDTO> lot) {
+    if (lot.isEmpty()) {
+      return 0;
+    }
+    List<Long> ids = new ArrayList<>(lot.size());
+    for (FactureOptionsMensuelleDTO facture : lot) {
+      ids.add(facture.getLoueurId());
+    }
+    Map<Long, String> noms = factureOptionsRepository.findNoms(ids);
+    for (FactureOptionsMensuelleDTO facture : lot) {
+      facture.setNomLoueur(noms.get(facture.getLoueurId()));
+    }
+    int emises = factureOptionsRepository.insertFacturesManquantes(lot);
+    lot.clear();
+    return emises;
+  }
+
+  static double prixPeriode(Map<Long, Map<Integer, Double>> tarifs, Long optionId,
+      int periodicite, Double prixMensuel) {
+    Map<Integer, Double> tarifsOption = tarifs.get(optionId);
+    Double tarif = tarifsOption != null ? tarifsOption.get(periodicite) : null;
+    if (tarif != null) {
+      return tarif;
+    }
+    return prixMensuel != null ? prixMensuel * Math.max(1, periodicite) : 0;
+  }
+}
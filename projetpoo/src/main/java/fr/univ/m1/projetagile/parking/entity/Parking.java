@@ -43,6 +43,18 @@ public class Parking implements LieuRestitution {
   @Column(nullable = false)
   private Double prix;
 
+  @Column
+  private Double latitude;
+
+  @Column
+  private Double longitude;
+
+  /**
+   * Nombre de places pour les véhicules déposés (null : pas de limite)
+   */
+  @Column
+  private Integer capacite;
+
   // Constructeur sans argument pour JPA
   protected Parking() {}
 
@@ -54,6 +66,14 @@ public class Parking implements LieuRestitution {
     this.prix = prix;
   }
 
+  public Parking(String nom, String rue, String ville, String cp, Double prix, Double latitude,
+      Double longitude, Integer capacite) {
+    this(nom, rue, ville, cp, prix);
+    this.latitude = latitude;
+    this.longitude = longitude;
+    this.capacite = capacite;
+  }
+
   // Getters et Setters
   public Long getId() {
     return id;
@@ -99,6 +119,30 @@ public class Parking implements LieuRestitution {
     this.prix = prix;
   }
 
+  public Double getLatitude() {
+    return latitude;
+  }
+
+  public void setLatitude(Double latitude) {
+    this.latitude = latitude;
+  }
+
+  public Double getLongitude() {
+    return longitude;
+  }
+
+  public void setLongitude(Double longitude) {
+    this.longitude = longitude;
+  }
+
+  public Integer getCapacite() {
+    return capacite;
+  }
+
+  public void setCapacite(Integer capacite) {
+    this.capacite = capacite;
+  }
+
   // Implémentation de l'interface LieuRestitution
   @Override
   public String getAdresse() {
@@ -113,6 +157,6 @@ public class Parking implements LieuRestitution {
   @Override
   public String toString() {
     return "Parking [id=" + id + ", nom=" + nom + ", rue=" + rue + ", ville=" + ville + ", cp=" + cp
-        + ", prix=" + prix + " EUR]";
+        + ", prix=" + prix + " EUR, capacite=" + capacite + "]";
   }
 }
@@ -1,7 +1,9 @@
 package fr.univ.m1.projetagile.parking.persistence;
 
 import java.util.List;
+import org.hibernate.jpa.HibernateHints;
 import fr.univ.m1.projetagile.core.DatabaseConnection;
+import fr.univ.m1.projetagile.enums.StatutLocation;
 import fr.univ.m1.projetagile.parking.entity.Parking;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityTransaction;
@@ -83,6 +85,43 @@ public class ParkingRepository {
     }
   }
 
+  /**
+   * Récupère tous les parkings, en lecture seule.
+   *
+   * @return la liste des parkings
+   */
+  public List<Parking> findAll() {
+    try (EntityManager em = DatabaseConnection.getEntityManager()) {
+      TypedQuery<Parking> query = em.createQuery("SELECT p FROM Parking p", Parking.class);
+      query.setHint(HibernateHints.HINT_READ_ONLY, true);
+      return query.getResultList();
+    } catch (Exception e) {
+      throw new RuntimeException("Erreur lors de la récupération des parkings", e);
+    }
+  }
+
+  /**
+   * Compte, pour chaque parking, les places retenues par les locations en attente ou acceptées
+   * qui y déposent leur véhicule. Le lieu de dépôt étant une association polymorphe
+   * ({@code @Any}), le comptage porte directement sur ses colonnes.
+   *
+   * @return les lignes [parkingId, nombre de places occupées] ; les parkings libres sont absents
+   */
+  public List<Object[]> countPlacesOccupees() {
+    try (EntityManager em = DatabaseConnection.getEntityManager()) {
+      @SuppressWarnings("unchecked")
+      List<Object[]> lignes = em.createNativeQuery("SELECT lieu_depot_id, COUNT(*) FROM locations "
+          + "WHERE lieu_depot_type = 'PARKING' AND statut IN (:statuts) GROUP BY lieu_depot_id")
+          .setParameter("statuts",
+              List.of(StatutLocation.EN_ATTENTE_D_ACCEPTATION_PAR_L_AGENT.name(),
+                  StatutLocation.ACCEPTE.name()))
+          .getResultList();
+      return lignes;
+    } catch (Exception e) {
+      throw new RuntimeException("Erreur lors du comptage des places de parking occupées", e);
+    }
+  }
+
   /**
    * Récupère tous les parkings d'une ville donnée
    *
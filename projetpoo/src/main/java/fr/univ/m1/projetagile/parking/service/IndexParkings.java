@@ -0,0 +1,554 @@
+package fr.univ.m1.projetagile.parking.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import fr.univ.m1.projetagile.core.DatabaseConnection;
+import fr.univ.m1.projetagile.parking.entity.Parking;
+import fr.univ.m1.projetagile.parking.persistence.ParkingRepository;
+
+/**
+ * Index en mémoire des parkings, partagé par tous les services : une grille géographique (cases de
+ * {@value #TAILLE_CASE} degré) pour trouver les parkings proches d'un point de dépôt, un index par
+ * ville, et un compteur de places libres par parking à capacité limitée.
+ *
+ * <p>
+ * Les compteurs sont tenus sans verrou : une réservation décrémente le compteur par
+ * {@code compareAndSet} tant qu'il reste une place, de sorte que deux réservations concurrentes ne
+ * peuvent pas obtenir la même dernière place. Le choix d'un parking lors d'une réservation ne coûte
+ * donc aucune requête. {@link fr.univ.m1.projetagile.core.service.LocationService} réserve la
+ * place avant d'enregistrer la location, puis la confirme ou la rend ; une location annulée ou
+ * terminée libère sa place après validation.
+ * </p>
+ *
+ * <p>
+ * L'index est construit au premier accès. Les compteurs sont ensuite réconciliés avec la base
+ * toutes les {@code projetagile.parkings.reconciliationMinutes} minutes (5 par défaut, 0 pour
+ * désactiver) : un compteur modifié pendant la réconciliation est laissé tel quel jusqu'au passage
+ * suivant, plutôt que d'être écrasé par une valeur déjà périmée.
+ * </p>
+ */
+public final class IndexParkings {
+
+  /** Côté d'une case de la grille, en degrés (environ 11 km en latitude) */
+  public static final double TAILLE_CASE = 0.1;
+
+  /** Au-delà de ce nombre de cases à parcourir, la recherche passe en revue tous les parkings */
+  private static final int CASES_MAX = 4096;
+
+  private static final double RAYON_TERRE_KM = 6371;
+
+  private static final double KM_PAR_DEGRE = Math.PI * RAYON_TERRE_KM / 180;
+
+  private static final ParkingRepository repository = new ParkingRepository();
+
+  private static final ScheduledExecutorService reconciliation =
+      Executors.newSingleThreadScheduledExecutor(tache -> {
+        Thread thread = new Thread(tache, "reconciliation-parkings");
+        thread.setDaemon(true);
+        return thread;
+      });
+
+  /** parkingId -> parking */
+  private static final Map<Long, Parking> parkings = new ConcurrentHashMap<>();
+
+  /** case de la grille -> parkings localisés dans la case (tableau remplacé à chaque écriture) */
+  private static final Map<Long, long[]> grille = new ConcurrentHashMap<>();
+
+  /** ville normalisée -> parkings de la ville (tableau remplacé à chaque écriture) */
+  private static final Map<String, long[]> villes = new ConcurrentHashMap<>();
+
+  /** parkingId -> places, pour les parkings à capacité limitée */
+  private static final Map<Long, Places> places = new ConcurrentHashMap<>();
+
+  private static volatile boolean charge;
+
+  private IndexParkings() {}
+
+  /**
+   * @return l'intervalle entre deux réconciliations des places libres avec la base, en minutes (0
+   *         si la réconciliation périodique est désactivée)
+   */
+  public static int getIntervalleReconciliation() {
+    return Math.max(0, Integer.getInteger("projetagile.parkings.reconciliationMinutes", 5));
+  }
+
+  /**
+   * @param parkingId l'identifiant du parking
+   * @return le parking, ou null s'il n'existe pas
+   */
+  public static Parking getParking(Long parkingId) {
+    if (!charge) {
+      charger();
+    }
+    return parkingId != null ? parkings.get(parkingId) : null;
+  }
+
+  /**
+   * @param ville la ville recherchée (casse et espaces en bordure ignorés)
+   * @return les parkings de la ville
+   */
+  public static List<Parking> getParkingsParVille(String ville) {
+    if (!charge) {
+      charger();
+    }
+    List<Parking> resultat = new ArrayList<>();
+    for (long id : villes.getOrDefault(normaliser(ville), new long[0])) {
+      Parking parking = parkings.get(id);
+      if (parking != null) {
+        resultat.add(parking);
+      }
+    }
+    return resultat;
+  }
+
+  /**
+   * Recherche les parkings localisés ayant au moins une place libre autour d'un point.
+   *
+   * @param latitude latitude du point de dépôt
+   * @param longitude longitude du point de dépôt
+   * @param rayonKm distance maximale, en kilomètres
+   * @param nombre nombre maximal de parkings retournés
+   * @return les parkings trouvés, du plus proche au plus éloigné
+   */
+  public static List<Parking> getParkingsProches(double latitude, double longitude, double rayonKm,
+      int nombre) {
+    if (!charge) {
+      charger();
+    }
+    List<Parking> candidats = new ArrayList<>();
+    int ligneMin = ligne(latitude - rayonKm / KM_PAR_DEGRE);
+    int ligneMax = ligne(latitude + rayonKm / KM_PAR_DEGRE);
+    double cosLatitude = Math.max(0.01,
+        Math.cos(Math.toRadians(Math.min(89.0, Math.abs(latitude) + rayonKm / KM_PAR_DEGRE))));
+    double ecartLongitude = rayonKm / (KM_PAR_DEGRE * cosLatitude);
+    int colonneMin = colonne(longitude - ecartLongitude);
+    int colonneMax = colonne(longitude + ecartLongitude);
+
+    if ((long) (ligneMax - ligneMin + 1) * (colonneMax - colonneMin + 1) > CASES_MAX) {
+      candidats.addAll(parkings.values());
+    } else {
+      for (int l = ligneMin; l <= ligneMax; l++) {
+        for (int c = colonneMin; c <= colonneMax; c++) {
+          for (long id : grille.getOrDefault(cle(l, c), new long[0])) {
+            Parking parking = parkings.get(id);
+            if (parking != null) {
+              candidats.add(parking);
+            }
+          }
+        }
+      }
+    }
+
+    Map<Parking, Double> distances = new HashMap<>();
+    for (Parking parking : candidats) {
+      if (parking.getLatitude() == null || parking.getLongitude() == null
+          || getPlacesLibres(parking.getId()) <= 0) {
+        continue;
+      }
+      double distance =
+          distanceKm(latitude, longitude, parking.getLatitude(), parking.getLongitude());
+      if (distance <= rayonKm) {
+        distances.put(parking, distance);
+      }
+    }
+    return distances.entrySet().stream().sorted(Map.Entry.comparingByValue()).limit(nombre)
+        .map(Map.Entry::getKey).toList();
+  }
+
+  /**
+   * @param parkingId l'identifiant du parking
+   * @return le nombre de places libres, ou {@link Integer#MAX_VALUE} si la capacité du parking
+   *         n'est pas limitée
+   */
+  public static int getPlacesLibres(Long parkingId) {
+    if (!charge) {
+      charger();
+    }
+    Places compteur = places.get(parkingId);
+    return compteur != null ? compteur.libres() : Integer.MAX_VALUE;
+  }
+
+  // =======================
+  // Réservation des places
+  // =======================
+
+  /**
+   * Retient une place pour une location en cours d'enregistrement. La place doit ensuite être
+   * confirmée ({@link #confirmer(Long)}) une fois la location enregistrée, ou rendue
+   * ({@link #annulerReservation(Long)}) si l'enregistrement échoue.
+   *
+   * @param parkingId l'identifiant du parking
+   * @return false si le parking est complet
+   */
+  public static boolean reserver(Long parkingId) {
+    if (!charge) {
+      charger();
+    }
+    if (!parkings.containsKey(parkingId)) {
+      // Parking créé par une autre instance depuis le chargement de l'index
+      Parking parking = repository.findById(parkingId);
+      if (parking != null && indexer(parking, 0)) {
+        reconcilier();
+      }
+    }
+    Places compteur = places.get(parkingId);
+    return compteur == null || compteur.reserver();
+  }
+
+  /**
+   * @param parkingId le parking d'une place réservée dont la location est enregistrée
+   */
+  public static void confirmer(Long parkingId) {
+    Places compteur = places.get(parkingId);
+    if (compteur != null) {
+      compteur.enCours.decrementAndGet();
+    }
+  }
+
+  /**
+   * @param parkingId le parking d'une place réservée dont la location n'a pas été enregistrée
+   */
+  public static void annulerReservation(Long parkingId) {
+    Places compteur = places.get(parkingId);
+    if (compteur != null) {
+      // Place rendue avant de quitter les réservations en cours, dans l'ordre inverse de reserver
+      compteur.ajouter(1);
+      compteur.enCours.decrementAndGet();
+    }
+  }
+
+  /**
+   * Annonce qu'une location va quitter le parking (annulation ou fin), avant son enregistrement.
+   * La place est rendue par {@link #liberer(Long)} une fois l'enregistrement validé, ou conservée
+   * par {@link #abandonnerLiberation(Long)} s'il échoue.
+   *
+   * @param parkingId l'identifiant du parking
+   */
+  public static void preparerLiberation(Long parkingId) {
+    Places compteur = places.get(parkingId);
+    if (compteur != null) {
+      compteur.enLiberation.incrementAndGet();
+      compteur.ajouter(0);
+    }
+  }
+
+  /**
+   * @param parkingId le parking d'une location annulée ou terminée
+   */
+  public static void liberer(Long parkingId) {
+    Places compteur = places.get(parkingId);
+    if (compteur != null) {
+      compteur.ajouter(1);
+      compteur.enLiberation.decrementAndGet();
+    }
+  }
+
+  /**
+   * @param parkingId le parking d'une location dont l'annulation ou la fin a échoué
+   */
+  public static void abandonnerLiberation(Long parkingId) {
+    Places compteur = places.get(parkingId);
+    if (compteur != null) {
+      compteur.enLiberation.decrementAndGet();
+    }
+  }
+
+  /**
+   * Recharge les parkings et recalcule les places libres à partir des locations en attente ou
+   * acceptées. Appelé périodiquement ; peut aussi être appelé directement.
+   *
+   * @return le nombre de compteurs corrigés
+   */
+  public static int reconcilier() {
+    if (!charge) {
+      charger();
+      return 0;
+    }
+    // Seuls les parkings indexés avant la requête peuvent avoir été supprimés par ailleurs
+    Set<Long> disparus = new HashSet<>(parkings.keySet());
+    for (Parking parking : repository.findAll()) {
+      disparus.remove(parking.getId());
+      indexer(parking, 0);
+    }
+    for (Long id : disparus) {
+      retirer(id);
+    }
+
+    // Lecture des compteurs avant la requête : un compteur modifié entre-temps n'est pas corrigé.
+    // Les réservations en cours sont relues après l'état ; un compteur dont une réservation a
+    // commencé pendant la lecture est laissé au passage suivant
+    Map<Long, long[]> lus = new HashMap<>();
+    for (Map.Entry<Long, Places> entree : places.entrySet()) {
+      Places compteur = entree.getValue();
+      int enCours = compteur.enCours.get();
+      long etat = compteur.etat.get();
+      if (compteur.enLiberation.get() == 0 && compteur.enCours.get() == enCours) {
+        lus.put(entree.getKey(), new long[] {etat, enCours});
+      }
+    }
+    Map<Long, Integer> occupees = new HashMap<>();
+    for (Object[] ligne : repository.countPlacesOccupees()) {
+      occupees.put(((Number) ligne[0]).longValue(), ((Number) ligne[1]).intValue());
+    }
+
+    int corriges = 0;
+    for (Map.Entry<Long, long[]> entree : lus.entrySet()) {
+      Places compteur = places.get(entree.getKey());
+      if (compteur == null) {
+        continue;
+      }
+      long etat = entree.getValue()[0];
+      int libres = Math.max(0, compteur.capacite - occupees.getOrDefault(entree.getKey(), 0)
+          - (int) entree.getValue()[1]);
+      if (libres != Places.libres(etat)
+          && compteur.etat.compareAndSet(etat, Places.etat(Places.version(etat) + 1, libres))) {
+        corriges++;
+      }
+    }
+    return corriges;
+  }
+
+  // =======================
+  // Mise à jour de l'index
+  // =======================
+
+  /**
+   * Ajoute ou remplace un parking dans l'index, après son écriture en base. Un changement de
+   * capacité décale d'autant le nombre de places libres.
+   *
+   * @param parking le parking enregistré
+   */
+  static void enregistrer(Parking parking) {
+    if (!charge || parking == null || parking.getId() == null) {
+      // L'index sera construit à partir de la base au premier accès
+      return;
+    }
+    if (indexer(parking, parking.getCapacite() != null ? parking.getCapacite() : 0)) {
+      // Capacité jusque-là illimitée : la réconciliation compte les places occupées
+      reconciliation.execute(IndexParkings::reconcilierEnTache);
+    }
+  }
+
+  /**
+   * @param libresSiNouveau places libres d'un parking absent de l'index
+   * @return true si la capacité vient d'être limitée sur un parking déjà connu, ou si le parking
+   *         était inconnu et que ses places ont été initialisées à 0 : le compteur reste à
+   *         réconcilier
+   */
+  private static synchronized boolean indexer(Parking parking, int libresSiNouveau) {
+    Long id = parking.getId();
+    Parking ancien = parkings.put(id, parking);
+    if (ancien != null) {
+      retirerDesIndex(ancien);
+    }
+    ajouterAuxIndex(parking);
+
+    Places compteur = places.get(id);
+    Integer capacite = parking.getCapacite();
+    if (capacite == null) {
+      places.remove(id);
+    } else if (compteur == null) {
+      int libres = ancien == null ? libresSiNouveau : 0;
+      places.put(id, new Places(capacite, libres));
+      return libres == 0 && capacite > 0;
+    } else if (compteur.capacite != capacite) {
+      Places remplacant =
+          new Places(capacite, Math.max(0, compteur.libres() + capacite - compteur.capacite));
+      remplacant.enCours.set(compteur.enCours.get());
+      remplacant.enLiberation.set(compteur.enLiberation.get());
+      places.put(id, remplacant);
+    }
+    return false;
+  }
+
+  /**
+   * Retire un parking supprimé de l'index.
+   *
+   * @param parkingId l'identifiant du parking
+   */
+  static synchronized void retirer(Long parkingId) {
+    if (!charge || parkingId == null) {
+      return;
+    }
+    Parking ancien = parkings.remove(parkingId);
+    if (ancien != null) {
+      retirerDesIndex(ancien);
+    }
+    places.remove(parkingId);
+  }
+
+  private static synchronized void charger() {
+    if (charge) {
+      return;
+    }
+    Map<Long, Integer> occupees = new HashMap<>();
+    for (Object[] ligne : repository.countPlacesOccupees()) {
+      occupees.put(((Number) ligne[0]).longValue(), ((Number) ligne[1]).intValue());
+    }
+    for (Parking parking : repository.findAll()) {
+      parkings.put(parking.getId(), parking);
+      ajouterAuxIndex(parking);
+      if (parking.getCapacite() != null) {
+        int libres = parking.getCapacite() - occupees.getOrDefault(parking.getId(), 0);
+        places.put(parking.getId(), new Places(parking.getCapacite(), Math.max(0, libres)));
+      }
+    }
+    charge = true;
+
+    int intervalle = getIntervalleReconciliation();
+    if (intervalle > 0) {
+      reconciliation.scheduleWithFixedDelay(IndexParkings::reconcilierEnTache, intervalle,
+          intervalle, TimeUnit.MINUTES);
+    }
+  }
+
+  private static void reconcilierEnTache() {
+    try {
+      reconcilier();
+    } catch (RuntimeException e) {
+      System.err.println("Réconciliation des places de parking impossible : " + e.getMessage());
+    } finally {
+      DatabaseConnection.closeEntityManager();
+    }
+  }
+
+  private static void ajouterAuxIndex(Parking parking) {
+    long id = parking.getId();
+    villes.merge(normaliser(parking.getVille()), new long[] {id}, IndexParkings::concatener);
+    if (parking.getLatitude() != null && parking.getLongitude() != null) {
+      grille.merge(cle(ligne(parking.getLatitude()), colonne(parking.getLongitude())),
+          new long[] {id}, IndexParkings::concatener);
+    }
+  }
+
+  private static void retirerDesIndex(Parking parking) {
+    long id = parking.getId();
+    villes.computeIfPresent(normaliser(parking.getVille()), (cle, ids) -> sans(ids, id));
+    if (parking.getLatitude() != null && parking.getLongitude() != null) {
+      grille.computeIfPresent(cle(ligne(parking.getLatitude()), colonne(parking.getLongitude())),
+          (cle, ids) -> sans(ids, id));
+    }
+  }
+
+  private static long[] concatener(long[] ids, long[] ajout) {
+    long[] resultat = Arrays.copyOf(ids, ids.length + ajout.length);
+    System.arraycopy(ajout, 0, resultat, ids.length, ajout.length);
+    return resultat;
+  }
+
+  /** @return le tableau sans l'identifiant, ou null (entrée supprimée) s'il devient vide */
+  private static long[] sans(long[] ids, long id) {
+    long[] resultat = Arrays.stream(ids).filter(autre -> autre != id).toArray();
+    return resultat.length > 0 ? resultat : null;
+  }
+
+  // =======================
+  // Géographie
+  // =======================
+
+  /**
+   * Distance orthodromique entre deux points (formule de haversine).
+   *
+   * @return la distance en kilomètres
+   */
+  public static double distanceKm(double latitude1, double longitude1, double latitude2,
+      double longitude2) {
+    double dLat = Math.toRadians(latitude2 - latitude1);
+    double dLon = Math.toRadians(longitude2 - longitude1);
+    double a = Math.sin(dLat / 2) * Math.sin(dLat / 2) + Math.cos(Math.toRadians(latitude1))
+        * Math.cos(Math.toRadians(latitude2)) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+    return RAYON_TERRE_KM * 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+  }
+
+  private static int ligne(double latitude) {
+    return (int) Math.floor(latitude / TAILLE_CASE);
+  }
+
+  private static int colonne(double longitude) {
+    return (int) Math.floor(longitude / TAILLE_CASE);
+  }
+
+  private static long cle(int ligne, int colonne) {
+    return ((long) ligne << 32) | (colonne & 0xFFFFFFFFL);
+  }
+
+  private static String normaliser(String ville) {
+    return ville == null ? "" : ville.trim().toLowerCase(Locale.ROOT);
+  }
+
+  /**
+   * Places d'un parking à capacité limitée. Le nombre de places libres et un numéro de version
+   * partagent un même {@link AtomicLong}, pour que la réconciliation ne remplace que la valeur
+   * qu'elle a lue (une réservation suivie d'une libération change la version).
+   */
+  private static final class Places {
+
+    private final int capacite;
+
+    /** version (32 bits de poids fort) et places libres (32 bits de poids faible) */
+    private final AtomicLong etat;
+
+    /** Places réservées dont la location n'est pas encore enregistrée */
+    private final AtomicInteger enCours = new AtomicInteger();
+
+    /** Locations annulées ou terminées dont l'enregistrement est en cours */
+    private final AtomicInteger enLiberation = new AtomicInteger();
+
+    private Places(int capacite, int libres) {
+      this.capacite = capacite;
+      this.etat = new AtomicLong(etat(0, libres));
+    }
+
+    private int libres() {
+      return Math.max(0, libres(etat.get()));
+    }
+
+    private boolean reserver() {
+      // Comptée en cours avant de prendre la place : la réconciliation ne voit jamais une place
+      // prise qui ne soit pas aussi en cours
+      enCours.incrementAndGet();
+      long actuel;
+      do {
+        actuel = etat.get();
+        if (libres(actuel) <= 0) {
+          enCours.decrementAndGet();
+          return false;
+        }
+      } while (!etat.compareAndSet(actuel, etat(version(actuel) + 1, libres(actuel) - 1)));
+      return true;
+    }
+
+    /** Ajoute des places libres, sans dépasser la capacité ; 0 change seulement la version */
+    private void ajouter(int nombre) {
+      long actuel;
+      do {
+        actuel = etat.get();
+      } while (!etat.compareAndSet(actuel,
+          etat(version(actuel) + 1, Math.min(capacite, libres(actuel) + nombre))));
+    }
+
+    private static long etat(int version, int libres) {
+      return ((long) version << 32) | (libres & 0xFFFFFFFFL);
+    }
+
+    private static int version(long etat) {
+      return (int) (etat >>> 32);
+    }
+
+    private static int libres(long etat) {
+      return (int) etat;
+    }
+  }
+}
@@ -11,9 +11,11 @@ import fr.univ.m1.projetagile.parking.persistence.ParkingRepository;
  * {@link Parking}. Elle fournit des opérations pour :
  * <ul>
  * <li>Créer de nouveaux parkings à partir des informations fournies ;</li>
- * <li>Récupérer des parkings par leur identifiant ou par ville ;</li>
+ * <li>Récupérer des parkings par leur identifiant, par ville ou autour d'un point de dépôt ;</li>
+ * <li>Suivre les places libres des parkings à capacité limitée ;</li>
  * <li>Supprimer des parkings.</li>
  * </ul>
+ * Les recherches par ville et par proximité sont servies par {@link IndexParkings}, sans requête.
  * L'objectif est d'encapsuler la logique métier liée aux parkings et de séparer les préoccupations
  * entre la persistance, la logique métier et la présentation.
  */
@@ -37,6 +39,26 @@ public class ParkingService {
    * @throws IllegalArgumentException si un paramètre est invalide (null, vide, ou négatif)
    */
   public Parking createParking(String nom, String rue, String ville, String cp, Double prix) {
+    return createParking(nom, rue, ville, cp, prix, null, null, null);
+  }
+
+  /**
+   * Crée un nouveau parking localisé, de capacité éventuellement limitée
+   *
+   * @param nom le nom du parking
+   * @param rue la rue où se trouve le parking
+   * @param ville la ville où se trouve le parking
+   * @param cp le code postal
+   * @param prix le prix du parking (doit être positif)
+   * @param latitude la latitude du parking (null si inconnue)
+   * @param longitude la longitude du parking (null si inconnue)
+   * @param capacite le nombre de places (null pour une capacité illimitée)
+   * @return le parking créé et sauvegardé en base de données
+   * @throws IllegalArgumentException si un paramètre est invalide (null, vide, négatif ou hors
+   *         limites)
+   */
+  public Parking createParking(String nom, String rue, String ville, String cp, Double prix,
+      Double latitude, Double longitude, Integer capacite) {
     if (nom == null || nom.trim().isEmpty()) {
       throw new IllegalArgumentException("Le nom du parking ne peut pas être vide.");
     }
@@ -53,8 +75,41 @@ public class ParkingService {
       throw new IllegalArgumentException("Le prix du parking ne peut pas être négatif.");
     }
 
-    Parking parking = new Parking(nom, rue, ville, cp, prix);
-    return parkingRepository.save(parking);
+    validerEmplacement(latitude, longitude, capacite);
+
+    Parking parking = new Parking(nom, rue, ville, cp, prix, latitude, longitude, capacite);
+    Parking sauvegarde = parkingRepository.save(parking);
+    IndexParkings.enregistrer(sauvegarde);
+    return sauvegarde;
+  }
+
+  /**
+   * Modifie la position et la capacité d'un parking existant
+   *
+   * @param parkingId l'identifiant du parking
+   * @param latitude la nouvelle latitude (null si inconnue)
+   * @param longitude la nouvelle longitude (null si inconnue)
+   * @param capacite le nouveau nombre de places (null pour une capacité illimitée)
+   * @return le parking modifié
+   * @throws IllegalArgumentException si le parking n'existe pas ou si une valeur est invalide
+   */
+  public Parking modifierEmplacement(Long parkingId, Double latitude, Double longitude,
+      Integer capacite) {
+    if (parkingId == null) {
+      throw new IllegalArgumentException("L'identifiant du parking ne peut pas être nul.");
+    }
+    validerEmplacement(latitude, longitude, capacite);
+
+    Parking parking = parkingRepository.findById(parkingId);
+    if (parking == null) {
+      throw new IllegalArgumentException("Aucun parking trouvé avec l'identifiant " + parkingId);
+    }
+    parking.setLatitude(latitude);
+    parking.setLongitude(longitude);
+    parking.setCapacite(capacite);
+    Parking sauvegarde = parkingRepository.save(parking);
+    IndexParkings.enregistrer(sauvegarde);
+    return sauvegarde;
   }
 
   /**
@@ -88,10 +143,11 @@ public class ParkingService {
     }
 
     parkingRepository.delete(parkingId);
+    IndexParkings.retirer(parkingId);
   }
 
   /**
-   * Récupère tous les parkings d'une ville donnée
+   * Récupère tous les parkings d'une ville donnée (casse et espaces en bordure ignorés)
    *
    * @param ville la ville de recherche
    * @return la liste des parkings trouvés dans cette ville
@@ -101,7 +157,47 @@ public class ParkingService {
     if (ville == null || ville.trim().isEmpty()) {
       throw new IllegalArgumentException("La ville ne peut pas être vide.");
     }
-    return parkingRepository.findByVille(ville);
+    return IndexParkings.getParkingsParVille(ville);
+  }
+
+  /**
+   * Récupère les parkings ayant au moins une place libre autour d'un point de dépôt
+   *
+   * @param latitude la latitude du point de dépôt
+   * @param longitude la longitude du point de dépôt
+   * @param rayonKm la distance maximale en kilomètres (doit être positive)
+   * @param nombre le nombre maximal de parkings retournés (doit être positif)
+   * @return les parkings trouvés, du plus proche au plus éloigné
+   * @throws IllegalArgumentException si un paramètre est invalide
+   */
+  public List<Parking> getParkingsProches(double latitude, double longitude, double rayonKm,
+      int nombre) {
+    validerEmplacement(latitude, longitude, null);
+    if (!(rayonKm > 0)) {
+      throw new IllegalArgumentException("Le rayon de recherche doit être positif.");
+    }
+    if (nombre <= 0) {
+      throw new IllegalArgumentException("Le nombre de parkings doit être positif.");
+    }
+    return IndexParkings.getParkingsProches(latitude, longitude, rayonKm, nombre);
+  }
+
+  /**
+   * Récupère le nombre de places libres d'un parking
+   *
+   * @param parkingId l'identifiant du parking
+   * @return le nombre de places libres, ou null si la capacité du parking n'est pas limitée
+   * @throws IllegalArgumentException si l'identifiant est nul ou si le parking n'existe pas
+   */
+  public Integer getPlacesLibres(Long parkingId) {
+    if (parkingId == null) {
+      throw new IllegalArgumentException("L'identifiant du parking ne peut pas être nul.");
+    }
+    if (IndexParkings.getParking(parkingId) == null) {
+      throw new IllegalArgumentException("Aucun parking trouvé avec l'identifiant " + parkingId);
+    }
+    int libres = IndexParkings.getPlacesLibres(parkingId);
+    return libres == Integer.MAX_VALUE ? null : libres;
   }
 
   /**
@@ -123,4 +219,20 @@ public class ParkingService {
 
     return parking.getCoutSupp();
   }
+
+  private void validerEmplacement(Double latitude, Double longitude, Integer capacite) {
+    if ((latitude == null) != (longitude == null)) {
+      throw new IllegalArgumentException(
+          "La latitude et la longitude du parking doivent être renseignées ensemble.");
+    }
+    if (latitude != null && !(latitude >= -90.0 && latitude <= 90.0)) {
+      throw new IllegalArgumentException("La latitude doit être comprise entre -90 et 90.");
+    }
+    if (longitude != null && !(longitude >= -180.0 && longitude <= 180.0)) {
+      throw new IllegalArgumentException("La longitude doit être comprise entre -180 et 180.");
+    }
+    if (capacite != null && capacite < 0) {
+      throw new IllegalArgumentException("La capacité du parking ne peut pas être négative.");
+    }
+  }
 }
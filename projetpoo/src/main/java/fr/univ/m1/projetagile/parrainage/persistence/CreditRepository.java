@@ -1,7 +1,11 @@
 package fr.univ.m1.projetagile.parrainage.persistence;
 
 import java.util.List;
+import java.util.stream.Stream;
 import fr.univ.m1.projetagile.core.DatabaseConnection;
+import fr.univ.m1.projetagile.core.persistence.Page;
+import fr.univ.m1.projetagile.core.persistence.Pagination;
+import fr.univ.m1.projetagile.core.persistence.Tranche;
 import fr.univ.m1.projetagile.parrainage.entity.Crédit;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityTransaction;
@@ -162,6 +166,34 @@ public class CreditRepository {
     }
   }
 
+  /**
+   * Récupère les crédits qui suivent apresId, par identifiant croissant
+   *
+   * @param apresId l'identifiant du dernier crédit lu (null pour commencer)
+   * @param taille le nombre maximal de crédits
+   * @return la tranche de crédits
+   */
+  public Tranche<Crédit> findTranche(Long apresId, int taille) {
+    return Pagination.tranche(Crédit.class, "", apresId, taille);
+  }
+
+  /**
+   * Comme {@link #findTranche(Long, int)}, avec le nombre total de crédits
+   */
+  public Page<Crédit> findPage(Long apresId, int taille) {
+    return Pagination.page(Crédit.class, "", apresId, taille);
+  }
+
+  /**
+   * Parcourt tous les crédits sur un curseur (flux à fermer)
+   *
+   * @return le flux des crédits, par identifiant croissant
+   * @see Pagination#parcourir(Class, String)
+   */
+  public Stream<Crédit> streamAll() {
+    return Pagination.parcourir(Crédit.class, "");
+  }
+
   /**
    * Supprime un crédit de la base de données.
    *
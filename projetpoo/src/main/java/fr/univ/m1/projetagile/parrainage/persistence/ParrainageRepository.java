@@ -1,10 +1,14 @@
 package fr.univ.m1.projetagile.parrainage.persistence;
 
 import java.util.List;
+import java.util.stream.Stream;
 import fr.univ.m1.projetagile.core.DatabaseConnection;
 import fr.univ.m1.projetagile.core.entity.Agent;
 import fr.univ.m1.projetagile.core.entity.Loueur;
 import fr.univ.m1.projetagile.core.entity.Utilisateur;
+import fr.univ.m1.projetagile.core.persistence.Page;
+import fr.univ.m1.projetagile.core.persistence.Pagination;
+import fr.univ.m1.projetagile.core.persistence.Tranche;
 import fr.univ.m1.projetagile.parrainage.entity.Parrainage;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityTransaction;
@@ -226,6 +230,34 @@ public class ParrainageRepository {
     }
   }
 
+  /**
+   * Récupère les parrainages qui suivent apresId, par identifiant croissant
+   *
+   * @param apresId l'identifiant du dernier parrainage lu (null pour commencer)
+   * @param taille le nombre maximal de parrainages
+   * @return la tranche de parrainages
+   */
+  public Tranche<Parrainage> findTranche(Long apresId, int taille) {
+    return Pagination.tranche(Parrainage.class, "", apresId, taille);
+  }
+
+  /**
+   * Comme {@link #findTranche(Long, int)}, avec le nombre total de parrainages
+   */
+  public Page<Parrainage> findPage(Long apresId, int taille) {
+    return Pagination.page(Parrainage.class, "", apresId, taille);
+  }
+
+  /**
+   * Parcourt tous les parrainages sur un curseur (flux à fermer)
+   *
+   * @return le flux des parrainages, par identifiant croissant
+   * @see Pagination#parcourir(Class, String)
+   */
+  public Stream<Parrainage> streamAll() {
+    return Pagination.parcourir(Parrainage.class, "");
+  }
+
   /**
    * Supprime un parrainage de la base de données.
    *
@@ -0,0 +1,152 @@
+package fr.univ.m1.projetagile.recherche.entity;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.Set;
+import fr.univ.m1.projetagile.core.entity.Loueur;
+import fr.univ.m1.projetagile.enums.TypeV;
+import jakarta.persistence.CollectionTable;
+import jakarta.persistence.Column;
+import jakarta.persistence.ElementCollection;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.Table;
+
+/**
+ * Recherche de véhicules enregistrée par un loueur. Les critères sont ceux de
+ * {@code VehiculeService.searchVehiculesWithFilters} ; chaque critère null est ignoré. Le loueur
+ * est prévenu par message lorsqu'un véhicule se libère et correspond à la recherche, une seule
+ * fois par véhicule.
+ */
+@Entity
+@Table(name = "recherches_sauvegardees",
+    indexes = @Index(name = "idx_recherches_loueur", columnList = "loueur_id"))
+public class RechercheSauvegardee {
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private Long id;
+
+  /**
+   * Référence au loueur (stocke l'ID au lieu de la référence directe)
+   */
+  @Column(name = "loueur_id", nullable = false)
+  private Long loueurId;
+
+  private String ville;
+
+  private String marque;
+
+  @Enumerated(EnumType.STRING)
+  private TypeV type;
+
+  private Double prixMin;
+
+  private Double prixMax;
+
+  private LocalDate dateDebut;
+
+  private LocalDate dateFin;
+
+  @Column(nullable = false)
+  private LocalDateTime dateCreation;
+
+  /**
+   * Véhicules déjà signalés au loueur pour cette recherche
+   */
+  @ElementCollection
+  @CollectionTable(name = "recherche_vehicules_notifies",
+      joinColumns = @JoinColumn(name = "recherche_id"))
+  @Column(name = "vehicule_id")
+  private Set<Long> vehiculesNotifies = new HashSet<>();
+
+  // Constructeur JPA
+  protected RechercheSauvegardee() {}
+
+  public RechercheSauvegardee(Loueur loueur, String ville, String marque, TypeV type,
+      Double prixMin, Double prixMax, LocalDate dateDebut, LocalDate dateFin) {
+    this.loueurId = loueur.getIdU();
+    this.ville = ville;
+    this.marque = marque;
+    this.type = type;
+    this.prixMin = prixMin;
+    this.prixMax = prixMax;
+    this.dateDebut = dateDebut;
+    this.dateFin = dateFin;
+    this.dateCreation = LocalDateTime.now();
+  }
+
+  // =======================
+  // Méthodes métier
+  // =======================
+
+  /**
+   * @param vehiculeId le véhicule signalé
+   * @return true si le véhicule n'avait pas encore été signalé pour cette recherche
+   */
+  public boolean marquerNotifie(Long vehiculeId) {
+    return vehiculesNotifies.add(vehiculeId);
+  }
+
+  /**
+   * @return true si la période recherchée est entièrement passée
+   */
+  public boolean estExpiree() {
+    return dateFin != null && dateFin.isBefore(LocalDate.now());
+  }
+
+  // =======================
+  // Getters
+  // =======================
+
+  public Long getId() {
+    return id;
+  }
+
+  public Long getLoueurId() {
+    return loueurId;
+  }
+
+  public String getVille() {
+    return ville;
+  }
+
+  public String getMarque() {
+    return marque;
+  }
+
+  public TypeV getType() {
+    return type;
+  }
+
+  public Double getPrixMin() {
+    return prixMin;
+  }
+
+  public Double getPrixMax() {
+    return prixMax;
+  }
+
+  public LocalDate getDateDebut() {
+    return dateDebut;
+  }
+
+  public LocalDate getDateFin() {
+    return dateFin;
+  }
+
+  public LocalDateTime getDateCreation() {
+    return dateCreation;
+  }
+
+  public Set<Long> getVehiculesNotifies() {
+    return vehiculesNotifies;
+  }
+}
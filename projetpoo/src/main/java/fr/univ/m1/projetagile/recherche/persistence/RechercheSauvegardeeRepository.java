@@ -0,0 +1,208 @@
+package fr.univ.m1.projetagile.recherche.persistence;
+
+import java.time.LocalDate;
+import java.util.List;
+import fr.univ.m1.projetagile.core.DatabaseConnection;
+import fr.univ.m1.projetagile.enums.StatutLocation;
+import fr.univ.m1.projetagile.recherche.entity.RechercheSauvegardee;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityTransaction;
+import jakarta.persistence.TypedQuery;
+
+/**
+ * Repository pour gérer la persistance des recherches sauvegardées
+ */
+public class RechercheSauvegardeeRepository {
+
+  /**
+   * Enregistre une recherche sauvegardée (création ou mise à jour)
+   *
+   * @param recherche la recherche à enregistrer
+   * @return la recherche enregistrée avec son ID généré
+   */
+  public RechercheSauvegardee save(RechercheSauvegardee recherche) {
+    EntityManager em = DatabaseConnection.getEntityManager();
+    EntityTransaction transaction = null;
+
+    try {
+      transaction = em.getTransaction();
+      transaction.begin();
+
+      if (recherche.getId() == null) {
+        em.persist(recherche);
+      } else {
+        recherche = em.merge(recherche);
+      }
+
+      transaction.commit();
+      return recherche;
+
+    } catch (Exception e) {
+      if (transaction != null && transaction.isActive()) {
+        transaction.rollback();
+      }
+      throw new RuntimeException("Erreur lors de l'enregistrement de la recherche", e);
+    } finally {
+      em.close();
+    }
+  }
+
+  /**
+   * Récupère une recherche sauvegardée par son ID
+   *
+   * @param id l'identifiant de la recherche
+   * @return la recherche trouvée ou null
+   */
+  public RechercheSauvegardee findById(Long id) {
+    try (EntityManager em = DatabaseConnection.getEntityManager()) {
+      return em.find(RechercheSauvegardee.class, id);
+    } catch (Exception e) {
+      throw new RuntimeException("Erreur lors de la récupération de la recherche", e);
+    }
+  }
+
+  /**
+   * Récupère les recherches sauvegardées d'un loueur, de la plus récente à la plus ancienne
+   *
+   * @param loueurId l'identifiant du loueur
+   * @return liste des recherches du loueur
+   */
+  public List<RechercheSauvegardee> findByLoueurId(Long loueurId) {
+    try (EntityManager em = DatabaseConnection.getEntityManager()) {
+      TypedQuery<RechercheSauvegardee> query = em.createQuery(
+          "SELECT r FROM RechercheSauvegardee r WHERE r.loueurId = :loueurId "
+              + "ORDER BY r.dateCreation DESC, r.id DESC", RechercheSauvegardee.class);
+      query.setParameter("loueurId", loueurId);
+      return query.getResultList();
+    } catch (Exception e) {
+      throw new RuntimeException("Erreur lors de la récupération des recherches du loueur", e);
+    }
+  }
+
+  /**
+   * Récupère les recherches dont la période n'est pas entièrement passée (sans leurs véhicules
+   * déjà signalés), pour construire l'index du percolateur
+   *
+   * @param aujourdhui la date du jour
+   * @return liste des recherches en cours
+   */
+  public List<RechercheSauvegardee> findEnCours(LocalDate aujourdhui) {
+    try (EntityManager em = DatabaseConnection.getEntityManager()) {
+      TypedQuery<RechercheSauvegardee> query = em.createQuery(
+          "SELECT r FROM RechercheSauvegardee r WHERE r.dateFin IS NULL OR r.dateFin >= :jour",
+          RechercheSauvegardee.class);
+      query.setParameter("jour", aujourdhui);
+      return query.getResultList();
+    } catch (Exception e) {
+      throw new RuntimeException("Erreur lors de la récupération des recherches en cours", e);
+    }
+  }
+
+  /**
+   * Indique si un véhicule a déjà été signalé pour une recherche.
+   *
+   * @param rechercheId l'identifiant de la recherche
+   * @param vehiculeId l'identifiant du véhicule
+   * @return true si le véhicule a déjà été signalé
+   */
+  public boolean estNotifie(Long rechercheId, Long vehiculeId) {
+    try (EntityManager em = DatabaseConnection.getEntityManager()) {
+      TypedQuery<Long> query = em.createQuery("SELECT COUNT(r) FROM RechercheSauvegardee r "
+          + "JOIN r.vehiculesNotifies n WHERE r.id = :rechercheId AND n = :vehiculeId", Long.class);
+      query.setParameter("rechercheId", rechercheId);
+      query.setParameter("vehiculeId", vehiculeId);
+      return query.getSingleResult() > 0;
+    } catch (Exception e) {
+      throw new RuntimeException("Erreur lors de la lecture des véhicules signalés", e);
+    }
+  }
+
+  /**
+   * Marque un véhicule comme signalé pour une recherche, dans une transaction
+   *
+   * @param rechercheId l'identifiant de la recherche
+   * @param vehiculeId l'identifiant du véhicule
+   * @return true si le véhicule n'avait pas encore été signalé (false aussi si la recherche a été
+   *         supprimée)
+   */
+  public boolean marquerNotifie(Long rechercheId, Long vehiculeId) {
+    EntityManager em = DatabaseConnection.getEntityManager();
+    EntityTransaction transaction = null;
+
+    try {
+      transaction = em.getTransaction();
+      transaction.begin();
+
+      RechercheSauvegardee recherche = em.find(RechercheSauvegardee.class, rechercheId);
+      boolean nouveau = recherche != null && recherche.marquerNotifie(vehiculeId);
+
+      transaction.commit();
+      return nouveau;
+
+    } catch (Exception e) {
+      if (transaction != null && transaction.isActive()) {
+        transaction.rollback();
+      }
+      throw new RuntimeException("Erreur lors du marquage du véhicule signalé", e);
+    } finally {
+      em.close();
+    }
+  }
+
+  /**
+   * Vérifie qu'un véhicule est réservable sur une période, avec les mêmes règles que la recherche
+   * multi-critères : véhicule disponible et aucune location active qui chevauche la période.
+   *
+   * @param vehiculeId l'identifiant du véhicule
+   * @param dateDebut le début de la période
+   * @param dateFin la fin de la période
+   * @return true si le véhicule est réservable sur la période
+   */
+  public boolean estReservable(Long vehiculeId, LocalDate dateDebut, LocalDate dateFin) {
+    try (EntityManager em = DatabaseConnection.getEntityManager()) {
+      TypedQuery<Long> query = em.createQuery("SELECT COUNT(v) FROM Vehicule v "
+          + "WHERE v.id = :vehiculeId AND v.disponible = true AND NOT EXISTS ("
+          + "SELECT l FROM Location l WHERE l.vehicule = v AND l.statut != :statutTermine "
+          + "AND l.statut != :statutAnnule AND l.dateDebut <= :dateFin "
+          + "AND l.dateFin >= :dateDebut)", Long.class);
+      query.setParameter("vehiculeId", vehiculeId);
+      query.setParameter("statutTermine", StatutLocation.TERMINE);
+      query.setParameter("statutAnnule", StatutLocation.ANNULE);
+      query.setParameter("dateDebut", dateDebut.atStartOfDay());
+      query.setParameter("dateFin", dateFin.atStartOfDay());
+      return query.getSingleResult() > 0;
+    } catch (Exception e) {
+      throw new RuntimeException("Erreur lors de la vérification de la disponibilité", e);
+    }
+  }
+
+  /**
+   * Supprime une recherche sauvegardée et ses véhicules signalés
+   *
+   * @param id l'identifiant de la recherche
+   */
+  public void delete(Long id) {
+    EntityManager em = DatabaseConnection.getEntityManager();
+    EntityTransaction transaction = null;
+
+    try {
+      transaction = em.getTransaction();
+      transaction.begin();
+
+      RechercheSauvegardee recherche = em.find(RechercheSauvegardee.class, id);
+      if (recherche != null) {
+        em.remove(recherche);
+      }
+
+      transaction.commit();
+
+    } catch (Exception e) {
+      if (transaction != null && transaction.isActive()) {
+        transaction.rollback();
+      }
+      throw new RuntimeException("Erreur lors de la suppression de la recherche", e);
+    } finally {
+      em.close();
+    }
+  }
+}
@@ -0,0 +1,290 @@
+package fr.univ.m1.projetagile.recherche.service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import fr.univ.m1.projetagile.core.DatabaseConnection;
+import fr.univ.m1.projetagile.core.entity.Loueur;
+import fr.univ.m1.projetagile.core.entity.Vehicule;
+import fr.univ.m1.projetagile.core.persistence.LoueurRepository;
+import fr.univ.m1.projetagile.core.persistence.VehiculeRepository;
+import fr.univ.m1.projetagile.enums.TypeV;
+import fr.univ.m1.projetagile.messagerie.service.MessagerieService;
+import fr.univ.m1.projetagile.recherche.entity.RechercheSauvegardee;
+import fr.univ.m1.projetagile.recherche.persistence.RechercheSauvegardeeRepository;
+
+/**
+ * Percolateur des recherches sauvegardées : au lieu de relancer chaque recherche, chaque capacité
+ * libérée (véhicule créé ou remis en location, disponibilité ajoutée, location annulée ou refusée)
+ * est confrontée aux seules recherches de même ville et même type, tenues dans un index en
+ * mémoire. Les recherches retenues sont vérifiées en base (véhicule réservable sur leur période)
+ * avant l'envoi d'un message automatique au loueur, rangé dans sa conversation avec le propriétaire
+ * du véhicule. Un véhicule n'est marqué signalé qu'une fois le message envoyé.
+ *
+ * <p>
+ * L'index est construit au premier signalement puis tenu à jour par
+ * {@link RechercheSauvegardeeService}. La percolation s'exécute sur un thread dédié, hors de
+ * l'écriture qui l'a déclenchée, sauf avec la propriété système
+ * {@code projetagile.recherches.asynchrone=false} (exécution dans le thread appelant).
+ * </p>
+ */
+public class PercolateurRecherches {
+
+  /** Clé de l'index pour une recherche sans ville ou sans type */
+  private static final String TOUS = "*";
+
+  private static final ExecutorService executor = Executors.newSingleThreadExecutor(tache -> {
+    Thread thread = new Thread(tache, "percolation-recherches");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  /** ville|type -> recherches indexées par identifiant */
+  private static final Map<String, Map<Long, Critere>> index = new ConcurrentHashMap<>();
+  private static volatile boolean charge;
+
+  private final RechercheSauvegardeeRepository rechercheRepository;
+  private final VehiculeRepository vehiculeRepository;
+  private final LoueurRepository loueurRepository;
+  private final MessagerieService messagerieService;
+
+  public PercolateurRecherches() {
+    this.rechercheRepository = new RechercheSauvegardeeRepository();
+    this.vehiculeRepository = new VehiculeRepository();
+    this.loueurRepository = new LoueurRepository();
+    this.messagerieService = new MessagerieService();
+  }
+
+  /**
+   * @return true sauf si la propriété {@code projetagile.recherches.asynchrone} vaut false
+   */
+  public static boolean estAsynchrone() {
+    return Boolean.parseBoolean(System.getProperty("projetagile.recherches.asynchrone", "true"));
+  }
+
+  /**
+   * Signale qu'un véhicule est devenu réservable, éventuellement sur une période seulement, et
+   * prévient les loueurs dont une recherche sauvegardée correspond. Une erreur est signalée sans
+   * interrompre l'appelant.
+   *
+   * @param vehiculeId le véhicule concerné
+   * @param debut le début de la période libérée (null si inconnue ou illimitée)
+   * @param fin la fin de la période libérée (null si inconnue ou illimitée)
+   */
+  public void signalerCapacite(Long vehiculeId, LocalDate debut, LocalDate fin) {
+    if (vehiculeId == null) {
+      return;
+    }
+    if (!estAsynchrone()) {
+      executer(vehiculeId, debut, fin);
+      return;
+    }
+    executor.execute(() -> {
+      try {
+        executer(vehiculeId, debut, fin);
+      } finally {
+        DatabaseConnection.closeEntityManager();
+      }
+    });
+  }
+
+  private void executer(Long vehiculeId, LocalDate debut, LocalDate fin) {
+    try {
+      percoler(vehiculeId, debut, fin);
+    } catch (RuntimeException e) {
+      System.err.println("Percolation des recherches impossible pour le véhicule " + vehiculeId
+          + " : " + e.getMessage());
+    }
+  }
+
+  /**
+   * Confronte le véhicule aux recherches indexées et envoie les messages.
+   *
+   * @return le nombre de loueurs prévenus
+   */
+  int percoler(Long vehiculeId, LocalDate debut, LocalDate fin) {
+    Vehicule vehicule = vehiculeRepository.findById(vehiculeId);
+    if (vehicule == null || !vehicule.isDisponible() || vehicule.getProprietaire() == null) {
+      return 0;
+    }
+    chargerIndex();
+
+    List<Critere> candidats = new ArrayList<>();
+    for (String cle : cles(vehicule)) {
+      Map<Long, Critere> recherches = index.get(cle);
+      if (recherches != null) {
+        candidats.addAll(recherches.values());
+      }
+    }
+
+    int prevenus = 0;
+    LocalDate aujourdhui = LocalDate.now();
+    for (Critere critere : candidats) {
+      if (critere.dateFin != null && critere.dateFin.isBefore(aujourdhui)) {
+        retirer(critere.id);
+        continue;
+      }
+      if (!critere.correspond(vehicule, debut, fin)
+          || (critere.dateDebut != null && critere.dateFin != null && !rechercheRepository
+              .estReservable(vehiculeId, critere.dateDebut, critere.dateFin))
+          || rechercheRepository.estNotifie(critere.id, vehiculeId)) {
+        continue;
+      }
+      Loueur loueur = loueurRepository.findById(critere.loueurId);
+      if (loueur == null) {
+        continue;
+      }
+      try {
+        messagerieService.envoyerMessageAutomatique(vehicule.getProprietaire(), loueur,
+            message(critere, vehicule));
+      } catch (RuntimeException e) {
+        // Non marqué : le loueur sera prévenu à la prochaine capacité signalée
+        System.err.println("Message non envoyé pour la recherche " + critere.id + " : "
+            + e.getMessage());
+        continue;
+      }
+      rechercheRepository.marquerNotifie(critere.id, vehiculeId);
+      prevenus++;
+    }
+    return prevenus;
+  }
+
+  /**
+   * @return les clés de l'index où chercher les recherches d'un véhicule : sa ville et son type,
+   *         puis les recherches sans type, sans ville, et sans l'un ni l'autre
+   */
+  static List<String> cles(Vehicule vehicule) {
+    String ville = normaliser(vehicule.getVille());
+    String type = vehicule.getType() != null ? vehicule.getType().name() : TOUS;
+    return List.of(cle(ville, type), cle(ville, TOUS), cle(TOUS, type), cle(TOUS, TOUS));
+  }
+
+  private static String message(Critere critere, Vehicule vehicule) {
+    String periode = critere.dateDebut != null && critere.dateFin != null
+        ? " du " + critere.dateDebut + " au " + critere.dateFin
+        : "";
+    return "Un véhicule correspondant à votre recherche enregistrée n°" + critere.id
+        + " est disponible" + periode + " : " + vehicule.getMarque() + " "
+        + vehicule.getModele() + " à " + vehicule.getVille() + ", " + vehicule.getPrixJ()
+        + " €/jour.";
+  }
+
+  // =======================
+  // Index en mémoire
+  // =======================
+
+  /**
+   * Ajoute ou remplace une recherche dans l'index (sans effet tant que l'index n'est pas chargé :
+   * la recherche y sera lue au chargement).
+   */
+  static void indexer(RechercheSauvegardee recherche) {
+    if (!charge) {
+      return;
+    }
+    retirer(recherche.getId());
+    ajouter(recherche);
+  }
+
+  /**
+   * Retire une recherche de l'index.
+   */
+  static void retirer(Long rechercheId) {
+    for (Map<Long, Critere> recherches : index.values()) {
+      recherches.remove(rechercheId);
+    }
+  }
+
+  private void chargerIndex() {
+    if (charge) {
+      return;
+    }
+    synchronized (PercolateurRecherches.class) {
+      if (!charge) {
+        for (RechercheSauvegardee recherche : rechercheRepository.findEnCours(LocalDate.now())) {
+          ajouter(recherche);
+        }
+        charge = true;
+      }
+    }
+  }
+
+  private static void ajouter(RechercheSauvegardee recherche) {
+    index.computeIfAbsent(cle(recherche), c -> new ConcurrentHashMap<>())
+        .put(recherche.getId(), new Critere(recherche));
+  }
+
+  /**
+   * @return la clé de l'index d'une recherche (voir {@link #cles(Vehicule)})
+   */
+  static String cle(RechercheSauvegardee recherche) {
+    String ville = recherche.getVille() != null && !recherche.getVille().isBlank()
+        ? normaliser(recherche.getVille())
+        : TOUS;
+    String type = recherche.getType() != null ? recherche.getType().name() : TOUS;
+    return cle(ville, type);
+  }
+
+  private static String normaliser(String ville) {
+    return ville == null ? "" : ville.trim().toLowerCase(Locale.ROOT);
+  }
+
+  private static String cle(String ville, String type) {
+    return ville + "|" + type;
+  }
+
+  /**
+   * Critères d'une recherche, copiés de l'entité pour être lus sans EntityManager.
+   */
+  static final class Critere {
+
+    private final Long id;
+    private final Long loueurId;
+    private final String marque;
+    private final TypeV type;
+    private final Double prixMin;
+    private final Double prixMax;
+    private final LocalDate dateDebut;
+    private final LocalDate dateFin;
+
+    Critere(RechercheSauvegardee recherche) {
+      this.id = recherche.getId();
+      this.loueurId = recherche.getLoueurId();
+      this.marque = recherche.getMarque() != null && !recherche.getMarque().isBlank()
+          ? recherche.getMarque().trim().toLowerCase(Locale.ROOT)
+          : null;
+      this.type = recherche.getType();
+      this.prixMin = recherche.getPrixMin();
+      this.prixMax = recherche.getPrixMax();
+      this.dateDebut = recherche.getDateDebut();
+      this.dateFin = recherche.getDateFin();
+    }
+
+    /**
+     * Critères vérifiables sans requête : marque, type, prix et chevauchement de la période
+     * recherchée avec la période libérée.
+     */
+    boolean correspond(Vehicule vehicule, LocalDate debutLibere, LocalDate finLibere) {
+      if (marque != null && (vehicule.getMarque() == null
+          || !vehicule.getMarque().toLowerCase(Locale.ROOT).contains(marque))) {
+        return false;
+      }
+      if (type != null && type != vehicule.getType()) {
+        return false;
+      }
+      double prixJ = vehicule.getPrixJ() != null ? vehicule.getPrixJ() : 0;
+      if ((prixMin != null && prixJ < prixMin) || (prixMax != null && prixJ > prixMax)) {
+        return false;
+      }
+      if (dateDebut != null && dateFin != null) {
+        return (finLibere == null || !dateDebut.isAfter(finLibere))
+            && (debutLibere == null || !dateFin.isBefore(debutLibere));
+      }
+      return true;
+    }
+  }
+}
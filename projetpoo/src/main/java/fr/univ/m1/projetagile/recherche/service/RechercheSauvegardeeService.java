@@ -0,0 +1,128 @@
+package fr.univ.m1.projetagile.recherche.service;
+
+import java.time.LocalDate;
+import java.util.List;
+import fr.univ.m1.projetagile.core.dto.VehiculeDTO;
+import fr.univ.m1.projetagile.core.entity.Loueur;
+import fr.univ.m1.projetagile.core.persistence.VehiculeRepository;
+import fr.univ.m1.projetagile.core.service.VehiculeService;
+import fr.univ.m1.projetagile.enums.TypeV;
+import fr.univ.m1.projetagile.recherche.entity.RechercheSauvegardee;
+import fr.univ.m1.projetagile.recherche.persistence.RechercheSauvegardeeRepository;
+
+/**
+ * Service de gestion des recherches sauvegardées des loueurs. Une recherche enregistrée est
+ * indexée par le {@link PercolateurRecherches}, qui prévient le loueur par message lorsqu'un
+ * véhicule de la ville recherchée (comparée sans casse) se libère et correspond à ses critères : le
+ * loueur n'a plus à relancer la recherche.
+ */
+public class RechercheSauvegardeeService {
+
+  private final RechercheSauvegardeeRepository rechercheRepository;
+
+  public RechercheSauvegardeeService() {
+    this.rechercheRepository = new RechercheSauvegardeeRepository();
+  }
+
+  public RechercheSauvegardeeService(RechercheSauvegardeeRepository rechercheRepository) {
+    this.rechercheRepository = rechercheRepository;
+  }
+
+  /**
+   * Enregistre une recherche pour un loueur. Chaque critère est facultatif.
+   *
+   * @param loueur le loueur
+   * @param ville la ville recherchée
+   * @param marque la marque recherchée
+   * @param type le type de véhicule recherché
+   * @param prixMin le prix journalier minimum
+   * @param prixMax le prix journalier maximum
+   * @param dateDebut le début de la période souhaitée
+   * @param dateFin la fin de la période souhaitée
+   * @return la recherche enregistrée
+   * @throws IllegalArgumentException si le loueur n'est pas enregistré, si une seule des deux
+   *         dates est fournie, si la période est inversée ou passée, ou si les prix sont
+   *         incohérents
+   */
+  public RechercheSauvegardee enregistrerRecherche(Loueur loueur, String ville, String marque,
+      TypeV type, Double prixMin, Double prixMax, LocalDate dateDebut, LocalDate dateFin) {
+    if (loueur == null || loueur.getIdU() == null) {
+      throw new IllegalArgumentException("Le loueur doit être spécifié et avoir un identifiant.");
+    }
+    if ((dateDebut == null) != (dateFin == null)) {
+      throw new IllegalArgumentException(
+          "Les dates de début et de fin doivent être renseignées ensemble.");
+    }
+    if (dateDebut != null && dateFin.isBefore(dateDebut)) {
+      throw new IllegalArgumentException("La date de fin doit suivre la date de début.");
+    }
+    if (dateFin != null && dateFin.isBefore(LocalDate.now())) {
+      throw new IllegalArgumentException("La période recherchée est déjà passée.");
+    }
+    if ((prixMin != null && prixMin < 0) || (prixMax != null && prixMax < 0)
+        || (prixMin != null && prixMax != null && prixMin > prixMax)) {
+      throw new IllegalArgumentException("La fourchette de prix est invalide.");
+    }
+
+    RechercheSauvegardee recherche = rechercheRepository.save(new RechercheSauvegardee(loueur,
+        ville, marque, type, prixMin, prixMax, dateDebut, dateFin));
+    PercolateurRecherches.indexer(recherche);
+    return recherche;
+  }
+
+  /**
+   * @param loueur le loueur
+   * @return les recherches sauvegardées du loueur, de la plus récente à la plus ancienne
+   * @throws IllegalArgumentException si le loueur n'est pas enregistré
+   */
+  public List<RechercheSauvegardee> getRecherches(Loueur loueur) {
+    if (loueur == null || loueur.getIdU() == null) {
+      throw new IllegalArgumentException("Le loueur doit être spécifié et avoir un identifiant.");
+    }
+    return rechercheRepository.findByLoueurId(loueur.getIdU());
+  }
+
+  /**
+   * Relance une recherche sauvegardée.
+   *
+   * @param loueur le loueur propriétaire de la recherche
+   * @param rechercheId l'identifiant de la recherche
+   * @return les véhicules correspondant actuellement à la recherche
+   * @throws IllegalArgumentException si la recherche n'existe pas ou n'appartient pas au loueur
+   */
+  public List<VehiculeDTO> executerRecherche(Loueur loueur, Long rechercheId) {
+    RechercheSauvegardee recherche = getRechercheDuLoueur(loueur, rechercheId);
+    return new VehiculeService(new VehiculeRepository()).searchVehiculesWithFilters(
+        recherche.getDateDebut(), recherche.getDateFin(), recherche.getVille(),
+        recherche.getMarque(), null, null, recherche.getPrixMin(), recherche.getPrixMax(),
+        recherche.getType(), null);
+  }
+
+  /**
+   * Supprime une recherche sauvegardée ; le loueur n'est plus prévenu.
+   *
+   * @param loueur le loueur propriétaire de la recherche
+   * @param rechercheId l'identifiant de la recherche
+   * @throws IllegalArgumentException si la recherche n'existe pas ou n'appartient pas au loueur
+   */
+  public void supprimerRecherche(Loueur loueur, Long rechercheId) {
+    getRechercheDuLoueur(loueur, rechercheId);
+    rechercheRepository.delete(rechercheId);
+    PercolateurRecherches.retirer(rechercheId);
+  }
+
+  private RechercheSauvegardee getRechercheDuLoueur(Loueur loueur, Long rechercheId) {
+    if (loueur == null || loueur.getIdU() == null) {
+      throw new IllegalArgumentException("Le loueur doit être spécifié et avoir un identifiant.");
+    }
+    if (rechercheId == null) {
+      throw new IllegalArgumentException("L'identifiant de la recherche ne peut pas être nul.");
+    }
+    RechercheSauvegardee recherche = rechercheRepository.findById(rechercheId);
+    if (recherche == null || !loueur.getIdU().equals(recherche.getLoueurId())) {
+      throw new IllegalArgumentException(
+          "Aucune recherche sauvegardée avec l'identifiant " + rechercheId + " pour ce loueur.");
+    }
+    return recherche;
+  }
+}
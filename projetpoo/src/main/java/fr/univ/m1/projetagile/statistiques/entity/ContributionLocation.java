@@ -0,0 +1,172 @@
+package fr.univ.m1.projetagile.statistiques.entity;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import fr.univ.m1.projetagile.core.entity.Location;
+import fr.univ.m1.projetagile.core.service.LocationService;
+import fr.univ.m1.projetagile.enums.StatutLocation;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+/**
+ * Ce qu'une location a apporté aux agrégats journaliers de son véhicule. Les montants sont figés
+ * au premier comptage : une annulation retire exactement ce qui avait été ajouté, même si le prix
+ * du véhicule a changé entre-temps, et rejouer une transition déjà comptée est sans effet.
+ */
+@Entity
+@Table(name = "statistiques_contribution_location")
+public class ContributionLocation {
+
+  @Id
+  @Column(name = "location_id")
+  private Long locationId;
+
+  @Column(name = "vehicule_id", nullable = false)
+  private Long vehiculeId;
+
+  @Column(name = "agent_id")
+  private Long agentId;
+
+  @Column(nullable = false)
+  private LocalDate jourDebut;
+
+  @Column(nullable = false)
+  private int nombreJours;
+
+  @Column(nullable = false)
+  private double chiffreAffaires;
+
+  @Column(nullable = false)
+  private double commission;
+
+  @Column(nullable = false)
+  private boolean longueDuree;
+
+  /**
+   * true si la location est actuellement comptée dans les jours réservés et le chiffre d'affaires
+   */
+  @Column(nullable = false)
+  private boolean comptee;
+
+  /**
+   * true si l'annulation de la location a déjà été comptée
+   */
+  @Column(nullable = false)
+  private boolean annulationComptee;
+
+  // Constructeur JPA
+  protected ContributionLocation() {}
+
+  /**
+   * Calcule la contribution d'une location : prix journalier du véhicule multiplié par le nombre
+   * de jours, et commission au taux normal ou LLD comme dans
+   * {@link LocationService#getPrixLocation(Location)}.
+   */
+  public ContributionLocation(Long locationId, Long vehiculeId, Long agentId,
+      LocalDateTime dateDebut, LocalDateTime dateFin, Double prixJ) {
+    this.locationId = locationId;
+    this.vehiculeId = vehiculeId;
+    this.agentId = agentId;
+    this.jourDebut = dateDebut.toLocalDate();
+    this.nombreJours = Math.max(0, (int) ChronoUnit.DAYS.between(dateDebut, dateFin));
+    this.chiffreAffaires = (prixJ != null ? prixJ : 0.0) * nombreJours;
+    this.longueDuree = nombreJours >= Location.SEUIL_LONGUE_DUREE_JOURS;
+    this.commission = chiffreAffaires
+        * (longueDuree ? LocationService.COMMISSION_LLD : LocationService.COMMISSION_NORMALE);
+  }
+
+  // =======================
+  // Méthodes métier
+  // =======================
+
+  /**
+   * Met à jour l'état compté selon le nouveau statut de la location : une location acceptée ou
+   * terminée est comptée, une location en attente ou annulée ne l'est pas.
+   *
+   * @param statut le statut courant de la location
+   * @return 1 si la contribution doit être ajoutée aux agrégats, -1 si elle doit être retirée, 0
+   *         si rien ne change
+   */
+  public int suivreStatut(StatutLocation statut) {
+    boolean doitEtreComptee = statut == StatutLocation.ACCEPTE || statut == StatutLocation.TERMINE;
+    if (doitEtreComptee == comptee) {
+      return 0;
+    }
+    comptee = doitEtreComptee;
+    return comptee ? 1 : -1;
+  }
+
+  /**
+   * @param statut le statut courant de la location
+   * @return true si la location vient d'être annulée et que l'annulation n'a pas encore été
+   *         comptée
+   */
+  public boolean enregistrerAnnulation(StatutLocation statut) {
+    if (statut != StatutLocation.ANNULE || annulationComptee) {
+      return false;
+    }
+    annulationComptee = true;
+    return true;
+  }
+
+  /**
+   * @return la part journalière du chiffre d'affaires (0 si la location dure moins d'un jour)
+   */
+  public double getChiffreAffairesJour() {
+    return nombreJours == 0 ? 0 : chiffreAffaires / nombreJours;
+  }
+
+  /**
+   * @return la part journalière de la commission (0 si la location dure moins d'un jour)
+   */
+  public double getCommissionJour() {
+    return nombreJours == 0 ? 0 : commission / nombreJours;
+  }
+
+  // =======================
+  // Getters
+  // =======================
+
+  public Long getLocationId() {
+    return locationId;
+  }
+
+  public Long getVehiculeId() {
+    return vehiculeId;
+  }
+
+  public Long getAgentId() {
+    return agentId;
+  }
+
+  public LocalDate getJourDebut() {
+    return jourDebut;
+  }
+
+  public int getNombreJours() {
+    return nombreJours;
+  }
+
+  public double getChiffreAffaires() {
+    return chiffreAffaires;
+  }
+
+  public double getCommission() {
+    return commission;
+  }
+
+  public boolean isLongueDuree() {
+    return longueDuree;
+  }
+
+  public boolean isComptee() {
+    return comptee;
+  }
+
+  public boolean isAnnulationComptee() {
+    return annulationComptee;
+  }
+}
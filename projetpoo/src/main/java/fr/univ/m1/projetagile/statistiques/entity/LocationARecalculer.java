@@ -0,0 +1,40 @@
+package fr.univ.m1.projetagile.statistiques.entity;
+
+import java.time.LocalDateTime;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+/**
+ * Location dont le changement de statut n'a pas pu être répercuté sur les agrégats journaliers.
+ * La marque est supprimée dans la transaction qui applique enfin la transition, ce qui permet de
+ * rattraper les échecs sans reconstruire tous les agrégats.
+ */
+@Entity
+@Table(name = "statistiques_location_a_recalculer")
+public class LocationARecalculer {
+
+  @Id
+  @Column(name = "location_id")
+  private Long locationId;
+
+  @Column(nullable = false)
+  private LocalDateTime dateMarquage;
+
+  // Constructeur JPA
+  protected LocationARecalculer() {}
+
+  public LocationARecalculer(Long locationId) {
+    this.locationId = locationId;
+    this.dateMarquage = LocalDateTime.now();
+  }
+
+  public Long getLocationId() {
+    return locationId;
+  }
+
+  public LocalDateTime getDateMarquage() {
+    return dateMarquage;
+  }
+}
@@ -0,0 +1,131 @@
+package fr.univ.m1.projetagile.statistiques.entity;
+
+import java.time.LocalDate;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+
+/**
+ * Agrégat journalier d'un véhicule : jours réservés, chiffre d'affaires, commissions (normale et
+ * LLD) et annulations. Une ligne par véhicule et par jour, tenue à jour de façon incrémentale à
+ * chaque changement de statut d'une location, pour que les tableaux de bord de l'agent ne relisent
+ * pas les locations.
+ */
+@Entity
+@Table(name = "statistiques_jour_vehicule",
+    uniqueConstraints = @UniqueConstraint(columnNames = {"vehicule_id", "jour"}),
+    indexes = @Index(name = "idx_statistiques_agent_jour", columnList = "agent_id, jour"))
+public class StatistiqueJourVehicule {
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private Long id;
+
+  @Column(name = "vehicule_id", nullable = false)
+  private Long vehiculeId;
+
+  /**
+   * Propriétaire du véhicule (dénormalisé pour les requêtes par agent)
+   */
+  @Column(name = "agent_id")
+  private Long agentId;
+
+  @Column(nullable = false)
+  private LocalDate jour;
+
+  @Column(nullable = false)
+  private int joursReserves;
+
+  @Column(nullable = false)
+  private double chiffreAffaires;
+
+  @Column(nullable = false)
+  private double commissionNormale;
+
+  @Column(nullable = false)
+  private double commissionLLD;
+
+  @Column(nullable = false)
+  private int annulations;
+
+  // Constructeur JPA
+  protected StatistiqueJourVehicule() {}
+
+  public StatistiqueJourVehicule(Long vehiculeId, Long agentId, LocalDate jour) {
+    this.vehiculeId = vehiculeId;
+    this.agentId = agentId;
+    this.jour = jour;
+  }
+
+  // =======================
+  // Méthodes métier
+  // =======================
+
+  /**
+   * Ajoute (signe 1) ou retire (signe -1) la part journalière d'une location acceptée.
+   *
+   * @param signe 1 ou -1
+   * @param chiffreAffaires le chiffre d'affaires du jour
+   * @param commission la commission du jour
+   * @param longueDuree true si la commission relève du taux LLD
+   */
+  public void ajouterReservation(int signe, double chiffreAffaires, double commission,
+      boolean longueDuree) {
+    this.joursReserves += signe;
+    this.chiffreAffaires += signe * chiffreAffaires;
+    if (longueDuree) {
+      this.commissionLLD += signe * commission;
+    } else {
+      this.commissionNormale += signe * commission;
+    }
+  }
+
+  public void ajouterAnnulation() {
+    this.annulations++;
+  }
+
+  // =======================
+  // Getters
+  // =======================
+
+  public Long getId() {
+    return id;
+  }
+
+  public Long getVehiculeId() {
+    return vehiculeId;
+  }
+
+  public Long getAgentId() {
+    return agentId;
+  }
+
+  public LocalDate getJour() {
+    return jour;
+  }
+
+  public int getJoursReserves() {
+    return joursReserves;
+  }
+
+  public double getChiffreAffaires() {
+    return chiffreAffaires;
+  }
+
+  public double getCommissionNormale() {
+    return commissionNormale;
+  }
+
+  public double getCommissionLLD() {
+    return commissionLLD;
+  }
+
+  public int getAnnulations() {
+    return annulations;
+  }
+}
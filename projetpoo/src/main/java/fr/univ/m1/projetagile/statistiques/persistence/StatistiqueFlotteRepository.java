@@ -0,0 +1,391 @@
+package fr.univ.m1.projetagile.statistiques.persistence;
+
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import org.hibernate.exception.ConstraintViolationException;
+import fr.univ.m1.projetagile.core.DatabaseConnection;
+import fr.univ.m1.projetagile.enums.StatutLocation;
+import fr.univ.m1.projetagile.statistiques.entity.ContributionLocation;
+import fr.univ.m1.projetagile.statistiques.entity.LocationARecalculer;
+import fr.univ.m1.projetagile.statistiques.entity.StatistiqueJourVehicule;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityTransaction;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.TypedQuery;
+
+/**
+ * Repository des agrégats journaliers par véhicule ({@link StatistiqueJourVehicule}) et des
+ * contributions des locations ({@link ContributionLocation}).
+ */
+public class StatistiqueFlotteRepository {
+
+  /** Nombre maximal d'identifiants par clause IN */
+  private static final int TAILLE_LOT_IN = 500;
+
+  /**
+   * Répercute sur les agrégats journaliers le statut courant des locations, dans une seule
+   * transaction : le statut est relu en base, comparé à la contribution déjà comptée (verrouillée
+   * en écriture), et seule la différence est appliquée aux lignes des jours concernés. Les marques
+   * {@link LocationARecalculer} des locations traitées sont supprimées dans la même transaction.
+   *
+   * <p>
+   * Les verrous sont pris dans un ordre fixe pour que deux mises à jour concurrentes ne
+   * s'interbloquent pas : toutes les contributions d'abord, par identifiant de location croissant,
+   * puis les lignes journalières, par véhicule puis par jour croissants.
+   * </p>
+   *
+   * <p>
+   * Le verrou ne porte que sur les lignes existantes : deux premières transitions concurrentes sur
+   * la même location (ou le même jour d'un véhicule) créent chacune leur ligne, et l'une échoue sur
+   * la contrainte d'unicité. La transaction est alors rejouée une fois, la ligne existant
+   * désormais et étant verrouillée.
+   * </p>
+   *
+   * @param locationIds les identifiants des locations dont le statut a pu changer
+   * @return le nombre de locations dont la contribution a changé
+   * @throws RuntimeException si une erreur survient pendant la mise à jour (rien n'est appliqué)
+   */
+  public int appliquerTransitions(Collection<Long> locationIds) {
+    List<Long> ids = new ArrayList<>(new TreeSet<>(locationIds));
+    try {
+      return appliquer(ids);
+    } catch (RuntimeException e) {
+      if (!estViolationUnicite(e)) {
+        throw e;
+      }
+      return appliquer(ids);
+    }
+  }
+
+  private int appliquer(List<Long> ids) {
+    EntityManager em = DatabaseConnection.getEntityManager();
+    EntityTransaction transaction = null;
+
+    try {
+      transaction = em.getTransaction();
+      transaction.begin();
+
+      List<Transition> transitions = new ArrayList<>();
+      for (int debut = 0; debut < ids.size(); debut += TAILLE_LOT_IN) {
+        List<Long> lot = ids.subList(debut, Math.min(debut + TAILLE_LOT_IN, ids.size()));
+        chargerTransitions(em, lot, transitions);
+        em.createQuery("DELETE FROM LocationARecalculer m WHERE m.locationId IN :ids")
+            .setParameter("ids", lot).executeUpdate();
+      }
+      transitions.sort(Comparator
+          .comparing((Transition t) -> t.contribution.getVehiculeId())
+          .thenComparing(t -> t.contribution.getJourDebut())
+          .thenComparing(t -> t.contribution.getLocationId()));
+      int modifiees = appliquerContributions(em, transitions);
+
+      transaction.commit();
+      return modifiees;
+
+    } catch (Exception e) {
+      if (transaction != null && transaction.isActive()) {
+        transaction.rollback();
+      }
+      throw new RuntimeException("Erreur lors de la mise à jour des statistiques de la flotte", e);
+    } finally {
+      em.close();
+    }
+  }
+
+  private static boolean estViolationUnicite(Throwable erreur) {
+    for (Throwable cause = erreur; cause != null; cause = cause.getCause()) {
+      if (cause instanceof ConstraintViolationException
+          || cause instanceof SQLIntegrityConstraintViolationException) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Contribution d'une location (verrouillée, ou créée dans la transaction) et statut courant de la
+   * location.
+   */
+  private static final class Transition {
+
+    private final ContributionLocation contribution;
+    private final StatutLocation statut;
+
+    private Transition(ContributionLocation contribution, StatutLocation statut) {
+      this.contribution = contribution;
+      this.statut = statut;
+    }
+  }
+
+  /**
+   * Relit le statut des locations d'un lot, verrouille leurs contributions (par identifiant
+   * croissant) et crée celles des locations qui sortent de l'attente pour la première fois.
+   */
+  private void chargerTransitions(EntityManager em, List<Long> ids,
+      List<Transition> transitions) {
+    // [id, statut, vehiculeId, proprietaireId, dateDebut, dateFin, prixJ]
+    List<Object[]> etats = em.createQuery("SELECT l.id, l.statut, v.id, p.idU, l.dateDebut, "
+        + "l.dateFin, v.prixJ FROM Location l JOIN l.vehicule v LEFT JOIN v.proprietaire p "
+        + "WHERE l.id IN :ids", Object[].class).setParameter("ids", ids).getResultList();
+
+    Map<Long, ContributionLocation> contributions = new HashMap<>();
+    em.createQuery("SELECT c FROM ContributionLocation c WHERE c.locationId IN :ids "
+        + "ORDER BY c.locationId", ContributionLocation.class).setParameter("ids", ids)
+        .setLockMode(LockModeType.PESSIMISTIC_WRITE).getResultList()
+        .forEach(c -> contributions.put(c.getLocationId(), c));
+
+    for (Object[] etat : etats) {
+      StatutLocation statut = (StatutLocation) etat[1];
+      ContributionLocation contribution = contributions.get((Long) etat[0]);
+      if (contribution == null) {
+        if (statut == StatutLocation.EN_ATTENTE_D_ACCEPTATION_PAR_L_AGENT) {
+          continue;
+        }
+        contribution = new ContributionLocation((Long) etat[0], (Long) etat[2], (Long) etat[3],
+            (LocalDateTime) etat[4], (LocalDateTime) etat[5], (Double) etat[6]);
+        em.persist(contribution);
+      }
+      transitions.add(new Transition(contribution, statut));
+    }
+  }
+
+  /**
+   * Applique les transitions, triées par véhicule puis par premier jour : les lignes journalières
+   * de chaque véhicule sont ainsi verrouillées par jour croissant.
+   */
+  private int appliquerContributions(EntityManager em, List<Transition> transitions) {
+    Map<Long, Map<LocalDate, StatistiqueJourVehicule>> lignesParVehicule = new HashMap<>();
+    int modifiees = 0;
+    for (Transition transition : transitions) {
+      ContributionLocation contribution = transition.contribution;
+      int signe = contribution.suivreStatut(transition.statut);
+      boolean annulation = contribution.enregistrerAnnulation(transition.statut);
+      if (signe == 0 && !annulation) {
+        continue;
+      }
+      modifiees++;
+
+      Map<LocalDate, StatistiqueJourVehicule> lignes =
+          lignesParVehicule.computeIfAbsent(contribution.getVehiculeId(), v -> new HashMap<>());
+      LocalDate jourDebut = contribution.getJourDebut();
+      if (signe != 0) {
+        for (int i = 0; i < contribution.getNombreJours(); i++) {
+          ligne(em, lignes, contribution, jourDebut.plusDays(i)).ajouterReservation(signe,
+              contribution.getChiffreAffairesJour(), contribution.getCommissionJour(),
+              contribution.isLongueDuree());
+        }
+      }
+      if (annulation) {
+        ligne(em, lignes, contribution, jourDebut).ajouterAnnulation();
+      }
+    }
+    return modifiees;
+  }
+
+  /**
+   * Renvoie la ligne du jour pour le véhicule de la contribution, en chargeant (verrouillées) les
+   * lignes existantes de toute la période de la location au premier accès, ou en la créant.
+   */
+  private StatistiqueJourVehicule ligne(EntityManager em,
+      Map<LocalDate, StatistiqueJourVehicule> lignes, ContributionLocation contribution,
+      LocalDate jour) {
+    StatistiqueJourVehicule ligne = lignes.get(jour);
+    if (ligne == null && !lignes.containsKey(jour)) {
+      LocalDate debut = contribution.getJourDebut();
+      LocalDate fin = debut.plusDays(Math.max(1, contribution.getNombreJours()));
+      for (StatistiqueJourVehicule existante : em.createQuery(
+          "SELECT s FROM StatistiqueJourVehicule s WHERE s.vehiculeId = :vehiculeId "
+              + "AND s.jour >= :debut AND s.jour < :fin ORDER BY s.jour",
+          StatistiqueJourVehicule.class)
+          .setParameter("vehiculeId", contribution.getVehiculeId())
+          .setParameter("debut", debut).setParameter("fin", fin)
+          .setLockMode(LockModeType.PESSIMISTIC_WRITE).getResultList()) {
+        lignes.putIfAbsent(existante.getJour(), existante);
+      }
+      // Les jours sans ligne sont marqués pour ne pas relancer la requête
+      for (LocalDate d = debut; d.isBefore(fin); d = d.plusDays(1)) {
+        lignes.putIfAbsent(d, null);
+      }
+      ligne = lignes.get(jour);
+    }
+    if (ligne == null) {
+      ligne = new StatistiqueJourVehicule(contribution.getVehiculeId(),
+          contribution.getAgentId(), jour);
+      em.persist(ligne);
+      lignes.put(jour, ligne);
+    }
+    return ligne;
+  }
+
+  /**
+   * Somme les agrégats journaliers des véhicules d'un agent sur une période, par véhicule.
+   *
+   * @param agentId l'identifiant de l'agent
+   * @param debut le premier jour inclus
+   * @param fin le dernier jour exclu
+   * @return liste de tableaux [vehiculeId, joursReserves, chiffreAffaires, commissionNormale,
+   *         commissionLLD, annulations], triée par véhicule
+   */
+  public List<Object[]> sommerParVehicule(Long agentId, LocalDate debut, LocalDate fin) {
+    try (EntityManager em = DatabaseConnection.getEntityManager()) {
+      TypedQuery<Object[]> query = em.createQuery("SELECT s.vehiculeId, SUM(s.joursReserves), "
+          + "SUM(s.chiffreAffaires), SUM(s.commissionNormale), SUM(s.commissionLLD), "
+          + "SUM(s.annulations) FROM StatistiqueJourVehicule s WHERE s.agentId = :agentId "
+          + "AND s.jour >= :debut AND s.jour < :fin GROUP BY s.vehiculeId ORDER BY s.vehiculeId",
+          Object[].class);
+      query.setParameter("agentId", agentId);
+      query.setParameter("debut", debut);
+      query.setParameter("fin", fin);
+      return query.getResultList();
+    } catch (Exception e) {
+      throw new RuntimeException("Erreur lors de la lecture des statistiques par véhicule", e);
+    }
+  }
+
+  /**
+   * Somme les agrégats journaliers des véhicules d'un agent sur une période, par mois.
+   *
+   * @param agentId l'identifiant de l'agent
+   * @param debut le premier jour inclus
+   * @param fin le dernier jour exclu
+   * @return liste de tableaux [annee, mois, joursReserves, chiffreAffaires, commissionNormale,
+   *         commissionLLD, annulations], triée par mois
+   */
+  public List<Object[]> sommerParMois(Long agentId, LocalDate debut, LocalDate fin) {
+    try (EntityManager em = DatabaseConnection.getEntityManager()) {
+      TypedQuery<Object[]> query = em.createQuery("SELECT year(s.jour), month(s.jour), "
+          + "SUM(s.joursReserves), SUM(s.chiffreAffaires), SUM(s.commissionNormale), "
+          + "SUM(s.commissionLLD), SUM(s.annulations) FROM StatistiqueJourVehicule s "
+          + "WHERE s.agentId = :agentId AND s.jour >= :debut AND s.jour < :fin "
+          + "GROUP BY year(s.jour), month(s.jour) ORDER BY year(s.jour), month(s.jour)",
+          Object[].class);
+      query.setParameter("agentId", agentId);
+      query.setParameter("debut", debut);
+      query.setParameter("fin", fin);
+      return query.getResultList();
+    } catch (Exception e) {
+      throw new RuntimeException("Erreur lors de la lecture des statistiques mensuelles", e);
+    }
+  }
+
+  /**
+   * @param agentId l'identifiant de l'agent
+   * @return le nombre de véhicules dont l'agent est propriétaire
+   */
+  public long countVehicules(Long agentId) {
+    try (EntityManager em = DatabaseConnection.getEntityManager()) {
+      return em.createQuery("SELECT COUNT(v) FROM Vehicule v WHERE v.proprietaire.idU = :agentId",
+          Long.class).setParameter("agentId", agentId).getSingleResult();
+    } catch (Exception e) {
+      throw new RuntimeException("Erreur lors du comptage des véhicules de l'agent", e);
+    }
+  }
+
+  /**
+   * Tranche d'identifiants de locations, par identifiant croissant (reconstruction des agrégats).
+   *
+   * @param apresId l'identifiant après lequel reprendre (null pour commencer au début)
+   * @param taille le nombre maximal d'identifiants
+   * @return les identifiants
+   */
+  public List<Long> findLocationIds(Long apresId, int taille) {
+    try (EntityManager em = DatabaseConnection.getEntityManager()) {
+      TypedQuery<Long> query = em.createQuery("SELECT l.id FROM Location l"
+          + (apresId != null ? " WHERE l.id > :apresId" : "") + " ORDER BY l.id", Long.class);
+      if (apresId != null) {
+        query.setParameter("apresId", apresId);
+      }
+      return query.setMaxResults(taille).getResultList();
+    } catch (Exception e) {
+      throw new RuntimeException("Erreur lors de la récupération des locations", e);
+    }
+  }
+
+  /**
+   * Marque des locations dont la transition n'a pas pu être appliquée, pour qu'elles soient
+   * rattrapées par {@link #findLocationsARecalculer(int)}. Une location déjà marquée le reste ; si
+   * un marquage concurrent crée la même marque, la transaction est rejouée une fois.
+   *
+   * @param locationIds les identifiants des locations
+   * @throws RuntimeException si une erreur survient pendant le marquage
+   */
+  public void marquerARecalculer(Collection<Long> locationIds) {
+    try {
+      marquer(locationIds);
+    } catch (RuntimeException e) {
+      if (!estViolationUnicite(e)) {
+        throw e;
+      }
+      marquer(locationIds);
+    }
+  }
+
+  private void marquer(Collection<Long> locationIds) {
+    EntityManager em = DatabaseConnection.getEntityManager();
+    EntityTransaction transaction = null;
+
+    try {
+      transaction = em.getTransaction();
+      transaction.begin();
+      for (Long locationId : new TreeSet<>(locationIds)) {
+        if (em.find(LocationARecalculer.class, locationId) == null) {
+          em.persist(new LocationARecalculer(locationId));
+        }
+      }
+      transaction.commit();
+
+    } catch (Exception e) {
+      if (transaction != null && transaction.isActive()) {
+        transaction.rollback();
+      }
+      throw new RuntimeException("Erreur lors du marquage des locations à recalculer", e);
+    } finally {
+      em.close();
+    }
+  }
+
+  /**
+   * @param taille le nombre maximal d'identifiants
+   * @return les identifiants des locations marquées à recalculer, les plus anciennes d'abord
+   */
+  public List<Long> findLocationsARecalculer(int taille) {
+    try (EntityManager em = DatabaseConnection.getEntityManager()) {
+      return em.createQuery("SELECT m.locationId FROM LocationARecalculer m "
+          + "ORDER BY m.dateMarquage, m.locationId", Long.class).setMaxResults(taille)
+          .getResultList();
+    } catch (Exception e) {
+      throw new RuntimeException("Erreur lors de la récupération des locations à recalculer", e);
+    }
+  }
+
+  /**
+   * Supprime tous les agrégats et toutes les contributions, dans une transaction.
+   */
+  public void supprimerTout() {
+    EntityManager em = DatabaseConnection.getEntityManager();
+    EntityTransaction transaction = null;
+
+    try {
+      transaction = em.getTransaction();
+      transaction.begin();
+      em.createQuery("DELETE FROM StatistiqueJourVehicule").executeUpdate();
+      em.createQuery("DELETE FROM ContributionLocation").executeUpdate();
+      transaction.commit();
+
+    } catch (Exception e) {
+      if (transaction != null && transaction.isActive()) {
+        transaction.rollback();
+      }
+      throw new RuntimeException("Erreur lors de la suppression des statistiques de la flotte", e);
+    } finally {
+      em.close();
+    }
+  }
+}
@@ -0,0 +1,219 @@
+package fr.univ.m1.projetagile.statistiques.service;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import fr.univ.m1.projetagile.core.dto.StatistiquesMensuellesDTO;
+import fr.univ.m1.projetagile.statistiques.persistence.StatistiqueFlotteRepository;
+
+/**
+ * Statistiques d'utilisation et de revenus de la flotte de chaque agent, lues dans des agrégats
+ * journaliers par véhicule que {@link fr.univ.m1.projetagile.core.service.LocationService} met à
+ * jour à chaque changement de statut d'une location.
+ *
+ * <p>
+ * Règles de comptage : une location acceptée (puis terminée) ajoute un jour réservé, sa part du
+ * chiffre d'affaires (prix journalier du véhicule) et sa part de la commission (taux normal ou LLD)
+ * à chaque jour de sa période ; annulée après acceptation, elle retire ces montants. Toute
+ * annulation compte une annulation au premier jour de la location. La mise à jour peut être
+ * désactivée avec la propriété système {@code projetagile.statistiques.actif=false}, et les
+ * agrégats recalculés ensuite par {@link #reconstruire()} ; une mise à jour en échec est rattrapée
+ * par {@link #reconcilier()}.
+ * </p>
+ */
+public class StatistiqueFlotteService {
+
+  /** Nombre de locations traitées par transaction lors d'une reconstruction */
+  private static final int TAILLE_LOT_RECONSTRUCTION = 500;
+
+  /**
+   * true si des locations ont pu être marquées à recalculer depuis la dernière réconciliation
+   * (vrai au démarrage, des marques pouvant rester d'une exécution précédente)
+   */
+  private static final AtomicBoolean recalculsEnAttente = new AtomicBoolean(true);
+
+  private final StatistiqueFlotteRepository statistiqueRepository;
+
+  public StatistiqueFlotteService() {
+    this.statistiqueRepository = new StatistiqueFlotteRepository();
+  }
+
+  public StatistiqueFlotteService(StatistiqueFlotteRepository statistiqueRepository) {
+    this.statistiqueRepository = statistiqueRepository;
+  }
+
+  /**
+   * @return true sauf si la propriété {@code projetagile.statistiques.actif} vaut false
+   */
+  public static boolean estActif() {
+    return Boolean.parseBoolean(System.getProperty("projetagile.statistiques.actif", "true"));
+  }
+
+  /**
+   * Répercute sur les agrégats le statut courant des locations. Appelée après l'écriture d'un
+   * changement de statut ; une erreur n'annule pas l'écriture : les locations sont marquées à
+   * recalculer et rattrapées par {@link #reconcilier()}, lancé ici à la mise à jour réussie
+   * suivante. Si le marquage échoue aussi, seul {@link #reconstruire()} remet les agrégats à jour.
+   *
+   * @param locationIds les identifiants des locations dont le statut a changé
+   */
+  public void actualiser(Collection<Long> locationIds) {
+    if (locationIds == null || locationIds.isEmpty() || !estActif()) {
+      return;
+    }
+    try {
+      statistiqueRepository.appliquerTransitions(locationIds);
+    } catch (RuntimeException e) {
+      marquerARecalculer(locationIds, e);
+      return;
+    }
+    if (recalculsEnAttente.get()) {
+      reconcilier();
+    }
+  }
+
+  private void marquerARecalculer(Collection<Long> locationIds, RuntimeException erreur) {
+    try {
+      statistiqueRepository.marquerARecalculer(locationIds);
+      recalculsEnAttente.set(true);
+      System.err.println("Statistiques de la flotte non mises à jour pour les locations "
+          + locationIds + ", marquées à recalculer : " + erreur.getMessage());
+    } catch (RuntimeException e) {
+      System.err.println("Statistiques de la flotte non mises à jour pour les locations "
+          + locationIds + " (" + erreur.getMessage() + ") ni marquées à recalculer : "
+          + e.getMessage());
+    }
+  }
+
+  /**
+   * Applique les transitions des locations marquées à recalculer après un échec de
+   * {@link #actualiser(Collection)}. Chaque marque est supprimée dans la transaction qui applique
+   * la transition de sa location ; une erreur est signalée et les marques restantes seront
+   * reprises à la prochaine réconciliation.
+   *
+   * @return le nombre de locations dont la contribution a changé
+   */
+  public int reconcilier() {
+    recalculsEnAttente.set(false);
+    int comptees = 0;
+    try {
+      List<Long> ids;
+      do {
+        ids = statistiqueRepository.findLocationsARecalculer(TAILLE_LOT_RECONSTRUCTION);
+        if (!ids.isEmpty()) {
+          comptees += statistiqueRepository.appliquerTransitions(ids);
+        }
+      } while (ids.size() == TAILLE_LOT_RECONSTRUCTION);
+    } catch (RuntimeException e) {
+      recalculsEnAttente.set(true);
+      System.err.println("Réconciliation des statistiques de la flotte interrompue : "
+          + e.getMessage());
+    }
+    return comptees;
+  }
+
+  /**
+   * Recalcule tous les agrégats à partir des locations (première mise en service, ou après une
+   * période où la mise à jour était désactivée ou en échec).
+   *
+   * @return le nombre de locations comptées ou annulées
+   */
+  public int reconstruire() {
+    statistiqueRepository.supprimerTout();
+    int comptees = 0;
+    Long apresId = null;
+    List<Long> ids;
+    do {
+      ids = statistiqueRepository.findLocationIds(apresId, TAILLE_LOT_RECONSTRUCTION);
+      if (!ids.isEmpty()) {
+        comptees += statistiqueRepository.appliquerTransitions(ids);
+        apresId = ids.get(ids.size() - 1);
+      }
+    } while (ids.size() == TAILLE_LOT_RECONSTRUCTION);
+    return comptees;
+  }
+
+  /**
+   * Statistiques de chaque véhicule d'un agent sur un mois. Seuls les véhicules ayant eu au moins
+   * une réservation ou une annulation sur la période sont présents.
+   *
+   * @param agentId l'identifiant de l'agent
+   * @param mois le mois
+   * @return une ligne par véhicule, triée par identifiant de véhicule
+   * @throws IllegalArgumentException si l'agent ou le mois est null
+   */
+  public List<StatistiquesMensuellesDTO> getStatistiquesVehicules(Long agentId, YearMonth mois) {
+    if (agentId == null || mois == null) {
+      throw new IllegalArgumentException("L'agent et le mois doivent être spécifiés.");
+    }
+
+    List<StatistiquesMensuellesDTO> resultats = new ArrayList<>();
+    for (Object[] ligne : statistiqueRepository.sommerParVehicule(agentId, mois.atDay(1),
+        mois.plusMonths(1).atDay(1))) {
+      StatistiquesMensuellesDTO dto = creerDTO(mois, ligne, 1);
+      dto.setVehiculeId((Long) ligne[0]);
+      dto.setJoursOuverts(mois.lengthOfMonth());
+      resultats.add(dto);
+    }
+    return resultats;
+  }
+
+  /**
+   * Statistiques de toute la flotte d'un agent, mois par mois. Le taux d'occupation rapporte les
+   * jours réservés au nombre actuel de véhicules de l'agent multiplié par la durée du mois.
+   *
+   * @param agentId l'identifiant de l'agent
+   * @param premierMois le premier mois inclus
+   * @param dernierMois le dernier mois inclus
+   * @return une ligne par mois ayant eu de l'activité, triée par mois
+   * @throws IllegalArgumentException si un paramètre est null ou si les mois sont inversés
+   */
+  public List<StatistiquesMensuellesDTO> getStatistiquesFlotte(Long agentId,
+      YearMonth premierMois, YearMonth dernierMois) {
+    if (agentId == null || premierMois == null || dernierMois == null) {
+      throw new IllegalArgumentException("L'agent et la période doivent être spécifiés.");
+    }
+    if (dernierMois.isBefore(premierMois)) {
+      throw new IllegalArgumentException("Le dernier mois doit suivre le premier mois.");
+    }
+
+    long nombreVehicules = statistiqueRepository.countVehicules(agentId);
+    LocalDate debut = premierMois.atDay(1);
+    LocalDate fin = dernierMois.plusMonths(1).atDay(1);
+    List<StatistiquesMensuellesDTO> resultats = new ArrayList<>();
+    for (Object[] ligne : statistiqueRepository.sommerParMois(agentId, debut, fin)) {
+      YearMonth mois = YearMonth.of(((Number) ligne[0]).intValue(), ((Number) ligne[1]).intValue());
+      StatistiquesMensuellesDTO dto = creerDTO(mois, ligne, 2);
+      dto.setJoursOuverts(nombreVehicules * mois.lengthOfMonth());
+      resultats.add(dto);
+    }
+    return resultats;
+  }
+
+  /**
+   * Remplit un DTO à partir des sommes [joursReserves, chiffreAffaires, commissionNormale,
+   * commissionLLD, annulations] lues à partir de l'indice {@code debut} de la ligne.
+   */
+  private StatistiquesMensuellesDTO creerDTO(YearMonth mois, Object[] ligne, int debut) {
+    StatistiquesMensuellesDTO dto = new StatistiquesMensuellesDTO();
+    dto.setAnnee(mois.getYear());
+    dto.setMois(mois.getMonthValue());
+    dto.setJoursReserves(valeurEntiere(ligne[debut]));
+    dto.setChiffreAffaires(valeurDecimale(ligne[debut + 1]));
+    dto.setCommissionNormale(valeurDecimale(ligne[debut + 2]));
+    dto.setCommissionLLD(valeurDecimale(ligne[debut + 3]));
+    dto.setAnnulations(valeurEntiere(ligne[debut + 4]));
+    return dto;
+  }
+
+  private static long valeurEntiere(Object somme) {
+    return somme != null ? ((Number) somme).longValue() : 0L;
+  }
+
+  private static double valeurDecimale(Object somme) {
+    return somme != null ? ((Number) somme).doubleValue() : 0.0;
+  }
+}
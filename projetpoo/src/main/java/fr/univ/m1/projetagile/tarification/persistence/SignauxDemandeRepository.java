@@ -0,0 +1,105 @@
+package fr.univ.m1.projetagile.tarification.persistence;
+
+import java.time.LocalDate;
+import java.util.List;
+import fr.univ.m1.projetagile.core.DatabaseConnection;
+import fr.univ.m1.projetagile.enums.TypeV;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+
+/**
+ * Lectures agrégées servant à calculer les signaux de demande par ville et type de véhicule : taille
+ * de la flotte et jours réservés par jour, lus dans les agrégats journaliers des statistiques de la
+ * flotte. La ville est comparée sans tenir compte de la casse ni des espaces en bordure.
+ */
+public class SignauxDemandeRepository {
+
+  /**
+   * @return liste de tableaux [vehiculeId, ville, type] pour tous les véhicules
+   */
+  public List<Object[]> findClesVehicules() {
+    try (EntityManager em = DatabaseConnection.getEntityManager()) {
+      return em.createQuery("SELECT v.id, v.ville, v.type FROM Vehicule v", Object[].class)
+          .getResultList();
+    } catch (Exception e) {
+      throw new RuntimeException("Erreur lors de la lecture des villes et types des véhicules", e);
+    }
+  }
+
+  /**
+   * @param vehiculeId l'identifiant du véhicule
+   * @return le tableau [ville, type] du véhicule, ou null s'il n'existe pas
+   */
+  public Object[] findCle(Long vehiculeId) {
+    try (EntityManager em = DatabaseConnection.getEntityManager()) {
+      List<Object[]> resultats = em.createQuery(
+          "SELECT v.ville, v.type FROM Vehicule v WHERE v.id = :vehiculeId", Object[].class)
+          .setParameter("vehiculeId", vehiculeId).getResultList();
+      return resultats.isEmpty() ? null : resultats.get(0);
+    } catch (Exception e) {
+      throw new RuntimeException("Erreur lors de la lecture de la ville et du type du véhicule", e);
+    }
+  }
+
+  /**
+   * Somme les jours réservés de tous les véhicules, par ville, type et jour.
+   *
+   * @param debut le premier jour inclus
+   * @param fin le dernier jour exclu
+   * @return liste de tableaux [ville, type, jour, joursReserves]
+   */
+  public List<Object[]> sommerReservations(LocalDate debut, LocalDate fin) {
+    try (EntityManager em = DatabaseConnection.getEntityManager()) {
+      TypedQuery<Object[]> query = em.createQuery("SELECT v.ville, v.type, s.jour, "
+          + "SUM(s.joursReserves) FROM StatistiqueJourVehicule s, Vehicule v "
+          + "WHERE v.id = s.vehiculeId AND s.jour >= :debut AND s.jour < :fin "
+          + "GROUP BY v.ville, v.type, s.jour", Object[].class);
+      query.setParameter("debut", debut);
+      query.setParameter("fin", fin);
+      return query.getResultList();
+    } catch (Exception e) {
+      throw new RuntimeException("Erreur lors de la lecture des réservations par ville", e);
+    }
+  }
+
+  /**
+   * Somme les jours réservés des véhicules d'une ville et d'un type, par jour.
+   *
+   * @param ville la ville, en minuscules et sans espaces en bordure
+   * @param type le type de véhicule
+   * @param debut le premier jour inclus
+   * @param fin le dernier jour exclu
+   * @return liste de tableaux [jour, joursReserves]
+   */
+  public List<Object[]> sommerReservations(String ville, TypeV type, LocalDate debut,
+      LocalDate fin) {
+    try (EntityManager em = DatabaseConnection.getEntityManager()) {
+      TypedQuery<Object[]> query = em.createQuery("SELECT s.jour, SUM(s.joursReserves) "
+          + "FROM StatistiqueJourVehicule s, Vehicule v WHERE v.id = s.vehiculeId "
+          + "AND lower(trim(v.ville)) = :ville AND v.type = :type "
+          + "AND s.jour >= :debut AND s.jour < :fin GROUP BY s.jour", Object[].class);
+      query.setParameter("ville", ville);
+      query.setParameter("type", type);
+      query.setParameter("debut", debut);
+      query.setParameter("fin", fin);
+      return query.getResultList();
+    } catch (Exception e) {
+      throw new RuntimeException("Erreur lors de la lecture des réservations de la ville", e);
+    }
+  }
+
+  /**
+   * @param ville la ville, en minuscules et sans espaces en bordure
+   * @param type le type de véhicule
+   * @return liste des identifiants des véhicules de cette ville et de ce type
+   */
+  public List<Long> findVehiculeIds(String ville, TypeV type) {
+    try (EntityManager em = DatabaseConnection.getEntityManager()) {
+      return em.createQuery("SELECT v.id FROM Vehicule v WHERE lower(trim(v.ville)) = :ville "
+          + "AND v.type = :type", Long.class).setParameter("ville", ville)
+          .setParameter("type", type).getResultList();
+    } catch (Exception e) {
+      throw new RuntimeException("Erreur lors de la lecture des véhicules de la ville", e);
+    }
+  }
+}
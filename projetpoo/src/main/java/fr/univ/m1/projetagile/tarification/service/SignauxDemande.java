@@ -0,0 +1,306 @@
+package fr.univ.m1.projetagile.tarification.service;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import fr.univ.m1.projetagile.core.DatabaseConnection;
+import fr.univ.m1.projetagile.core.evenement.BusEvenements;
+import fr.univ.m1.projetagile.core.evenement.EvenementMetier;
+import fr.univ.m1.projetagile.enums.TypeV;
+import fr.univ.m1.projetagile.tarification.persistence.SignauxDemandeRepository;
+
+/**
+ * Table en mémoire des signaux de demande par ville et type de véhicule : taille de la flotte et
+ * jours réservés par jour, de {@value #JOURS_PASSES} jours avant aujourd'hui à
+ * {@value #HORIZON_JOURS} jours après. Les sommes cumulées permettent de lire l'occupation de
+ * n'importe quelle période en temps constant, sans requête.
+ *
+ * <p>
+ * La table est chargée au premier accès (deux requêtes groupées) et rechargée au changement de
+ * jour. Chaque location ou véhicule modifié ne marque ensuite que le véhicule concerné : les
+ * véhicules marqués sont regroupés pendant {@value #DELAI_REGROUPEMENT_MS} ms puis la ville et le
+ * type de chacun sont rechargés une seule fois, sur un thread dédié, sans retarder l'auteur de la
+ * modification. Une série n'est publiée que si sa clé n'a pas été marquée à nouveau pendant son
+ * rechargement. Les jours réservés proviennent des agrégats des statistiques de la flotte, qui
+ * doivent donc être actifs.
+ * </p>
+ */
+public final class SignauxDemande {
+
+  /** Nombre de jours passés conservés (tendance récente) */
+  public static final int JOURS_PASSES = 28;
+
+  /** Nombre de jours futurs couverts par la table */
+  public static final int HORIZON_JOURS = 365;
+
+  /** Délai de regroupement des modifications avant rechargement, en millisecondes */
+  public static final long DELAI_REGROUPEMENT_MS = 100;
+
+  private static final SignauxDemandeRepository repository = new SignauxDemandeRepository();
+
+  private static final ScheduledExecutorService rafraichissement =
+      Executors.newSingleThreadScheduledExecutor(tache -> {
+        Thread thread = new Thread(tache, "signaux-demande");
+        thread.setDaemon(true);
+        return thread;
+      });
+
+  private static volatile Table table;
+
+  static {
+    BusEvenements.abonner(SignauxDemande::surEvenement);
+  }
+
+  private SignauxDemande() {}
+
+  /**
+   * @param ville la ville
+   * @param type le type de véhicule
+   * @return les signaux de la ville et du type, ou null si aucun véhicule n'y correspond
+   */
+  public static Serie get(String ville, TypeV type) {
+    return tableDuJour().series.get(cle(normaliser(ville), type));
+  }
+
+  /**
+   * Force le rechargement complet de la table au prochain accès.
+   */
+  public static synchronized void invalider() {
+    table = null;
+  }
+
+  private static Table tableDuJour() {
+    Table courante = table;
+    LocalDate origine = LocalDate.now().minusDays(JOURS_PASSES);
+    if (courante != null && courante.origine.equals(origine)) {
+      return courante;
+    }
+    synchronized (SignauxDemande.class) {
+      if (table == null || !table.origine.equals(origine)) {
+        table = charger(origine);
+      }
+      return table;
+    }
+  }
+
+  private static Table charger(LocalDate origine) {
+    Table nouvelle = new Table(origine);
+    Map<String, int[]> flottes = new HashMap<>();
+    for (Object[] ligne : repository.findClesVehicules()) {
+      if (ligne[2] == null) {
+        continue;
+      }
+      String cle = cle(normaliser((String) ligne[1]), (TypeV) ligne[2]);
+      nouvelle.clesVehicules.put((Long) ligne[0], cle);
+      flottes.computeIfAbsent(cle, c -> new int[1])[0]++;
+    }
+
+    Map<String, long[]> reserves = new HashMap<>();
+    for (Object[] ligne : repository.sommerReservations(origine, nouvelle.fin())) {
+      if (ligne[1] == null) {
+        continue;
+      }
+      String cle = cle(normaliser((String) ligne[0]), (TypeV) ligne[1]);
+      long[] jours = reserves.computeIfAbsent(cle, c -> new long[nouvelle.taille()]);
+      jours[nouvelle.indice((LocalDate) ligne[2])] += ((Number) ligne[3]).longValue();
+    }
+
+    for (Map.Entry<String, int[]> flotte : flottes.entrySet()) {
+      long[] jours = reserves.get(flotte.getKey());
+      nouvelle.series.put(flotte.getKey(), new Serie(origine, flotte.getValue()[0],
+          jours != null ? jours : new long[nouvelle.taille()]));
+    }
+    return nouvelle;
+  }
+
+  /**
+   * Marque le véhicule d'une location ou d'un véhicule modifié et programme le rechargement, sans
+   * requête dans le thread de l'auteur.
+   */
+  private static void surEvenement(EvenementMetier evenement) {
+    Table courante = table;
+    Long vehiculeId = evenement.getVehiculeId();
+    if (courante == null || vehiculeId == null
+        || (evenement.getType() != EvenementMetier.Type.LOCATION_MODIFIEE
+            && evenement.getType() != EvenementMetier.Type.VEHICULE_MODIFIE)) {
+      return;
+    }
+
+    boolean vehiculeModifie = evenement.getType() == EvenementMetier.Type.VEHICULE_MODIFIE;
+    courante.vehiculesMarques.merge(vehiculeId, vehiculeModifie, Boolean::logicalOr);
+    String ancienne = courante.clesVehicules.get(vehiculeId);
+    if (ancienne != null) {
+      courante.marquer(ancienne);
+    }
+    if (courante.planifie.compareAndSet(false, true)) {
+      rafraichissement.schedule(() -> rafraichirMarques(courante), DELAI_REGROUPEMENT_MS,
+          TimeUnit.MILLISECONDS);
+    }
+  }
+
+  /**
+   * Recharge, une fois chacune, les clés des véhicules marqués depuis le dernier passage.
+   */
+  private static void rafraichirMarques(Table courante) {
+    courante.planifie.set(false);
+    if (table != courante) {
+      return; // Table rechargée entre-temps
+    }
+    try {
+      Set<String> cles = new HashSet<>();
+      for (Long vehiculeId : new ArrayList<>(courante.vehiculesMarques.keySet())) {
+        Boolean vehiculeModifie = courante.vehiculesMarques.remove(vehiculeId);
+        String ancienne = courante.clesVehicules.get(vehiculeId);
+        if (ancienne != null) {
+          cles.add(ancienne);
+        }
+        if (ancienne == null || Boolean.TRUE.equals(vehiculeModifie)) {
+          // Véhicule créé, supprimé ou déplacé (ville ou type)
+          Object[] actuelle = repository.findCle(vehiculeId);
+          if (actuelle != null && actuelle[1] != null) {
+            String cle = cle(normaliser((String) actuelle[0]), (TypeV) actuelle[1]);
+            courante.marquer(cle);
+            cles.add(cle);
+          } else {
+            courante.clesVehicules.remove(vehiculeId);
+          }
+        }
+      }
+      for (String cle : cles) {
+        rafraichir(courante, cle);
+      }
+    } catch (RuntimeException e) {
+      System.err.println("Signaux de demande non rechargés : " + e.getMessage());
+    } finally {
+      DatabaseConnection.closeEntityManager();
+    }
+  }
+
+  private static void rafraichir(Table courante, String cle) {
+    long version = courante.version(cle);
+    int separateur = cle.lastIndexOf('|');
+    String ville = cle.substring(0, separateur);
+    TypeV type = TypeV.valueOf(cle.substring(separateur + 1));
+
+    List<Long> vehiculeIds = repository.findVehiculeIds(ville, type);
+    long[] jours = new long[courante.taille()];
+    if (!vehiculeIds.isEmpty()) {
+      for (Object[] ligne : repository.sommerReservations(ville, type, courante.origine,
+          courante.fin())) {
+        jours[courante.indice((LocalDate) ligne[0])] += ((Number) ligne[1]).longValue();
+      }
+    }
+    if (courante.version(cle) != version) {
+      return; // Clé marquée pendant la lecture : le passage suivant publiera une série à jour
+    }
+
+    courante.clesVehicules.values().removeIf(cle::equals);
+    for (Long id : vehiculeIds) {
+      courante.clesVehicules.put(id, cle);
+    }
+    if (vehiculeIds.isEmpty()) {
+      courante.series.remove(cle);
+    } else {
+      courante.series.put(cle, new Serie(courante.origine, vehiculeIds.size(), jours));
+    }
+  }
+
+  private static String normaliser(String ville) {
+    return ville == null ? "" : ville.trim().toLowerCase(Locale.ROOT);
+  }
+
+  private static String cle(String ville, TypeV type) {
+    return ville + "|" + type.name();
+  }
+
+  // =======================
+
+  private static final class Table {
+
+    private final LocalDate origine;
+    private final Map<String, Serie> series = new ConcurrentHashMap<>();
+    private final Map<Long, String> clesVehicules = new ConcurrentHashMap<>();
+    /** Véhicules à recharger, avec true si le véhicule lui-même a changé */
+    private final Map<Long, Boolean> vehiculesMarques = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> versions = new ConcurrentHashMap<>();
+    private final AtomicBoolean planifie = new AtomicBoolean();
+
+    private Table(LocalDate origine) {
+      this.origine = origine;
+    }
+
+    private void marquer(String cle) {
+      versions.computeIfAbsent(cle, c -> new AtomicLong()).incrementAndGet();
+    }
+
+    private long version(String cle) {
+      AtomicLong version = versions.get(cle);
+      return version != null ? version.get() : 0;
+    }
+
+    private int taille() {
+      return JOURS_PASSES + HORIZON_JOURS;
+    }
+
+    private LocalDate fin() {
+      return origine.plusDays(taille());
+    }
+
+    private int indice(LocalDate jour) {
+      return (int) ChronoUnit.DAYS.between(origine, jour);
+    }
+  }
+
+  /**
+   * Signaux d'une ville et d'un type de véhicule, immuables : une mise à jour remplace la série.
+   */
+  public static final class Serie {
+
+    private final LocalDate origine;
+    private final int flotte;
+    /** cumul[i] = jours réservés de origine à origine + i - 1 */
+    private final long[] cumul;
+
+    private Serie(LocalDate origine, int flotte, long[] jours) {
+      this.origine = origine;
+      this.flotte = flotte;
+      this.cumul = new long[jours.length + 1];
+      for (int i = 0; i < jours.length; i++) {
+        cumul[i + 1] = cumul[i] + jours[i];
+      }
+    }
+
+    /**
+     * Taux d'occupation de la flotte sur une période, limitée aux jours couverts par la table.
+     *
+     * @param debut le premier jour inclus
+     * @param fin le dernier jour exclu
+     * @return jours réservés / (taille de la flotte × jours), ou -1 si la période n'est pas
+     *         couverte
+     */
+    public double getOccupation(LocalDate debut, LocalDate fin) {
+      int i = (int) Math.max(0, ChronoUnit.DAYS.between(origine, debut));
+      int j = (int) Math.min(cumul.length - 1, ChronoUnit.DAYS.between(origine, fin));
+      if (j <= i || flotte == 0) {
+        return -1;
+      }
+      return Math.min(1.0, (double) (cumul[j] - cumul[i]) / ((long) flotte * (j - i)));
+    }
+
+    public int getFlotte() {
+      return flotte;
+    }
+  }
+}
@@ -0,0 +1,179 @@
+package fr.univ.m1.projetagile.tarification.service;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import fr.univ.m1.projetagile.core.dto.VehiculeDTO;
+import fr.univ.m1.projetagile.enums.TypeV;
+
+/**
+ * Tarification dynamique : ajuste le prix journalier d'un véhicule selon la demande, pour une
+ * période donnée. Le coefficient appliqué au prix journalier est le produit de trois facteurs :
+ * <ul>
+ * <li>l'occupation de la flotte de même ville et même type, sur la période demandée et sur les
+ * {@value SignauxDemande#JOURS_PASSES} derniers jours, rapportée à une occupation cible ;</li>
+ * <li>le délai de réservation (majoration de dernière minute, remise pour anticipation) ;</li>
+ * <li>les jours de la semaine couverts (vendredi, samedi et dimanche majorés).</li>
+ * </ul>
+ * Le coefficient est borné entre {@value #COEFFICIENT_MIN} et {@value #COEFFICIENT_MAX}.
+ *
+ * <p>
+ * Les signaux sont lus dans la table en mémoire {@link SignauxDemande} : un devis ne fait aucune
+ * requête. Le mode dynamique est activé par la propriété système
+ * {@code projetagile.tarification.dynamique=true} ; le prix d'une location existante
+ * ({@code LocationService.getPrixLocation}) reste calculé sur le prix journalier fixe.
+ * </p>
+ */
+public class TarificationDynamique {
+
+  public static final double COEFFICIENT_MIN = 0.8;
+  public static final double COEFFICIENT_MAX = 1.5;
+
+  /** Occupation pour laquelle le facteur d'occupation vaut 1 */
+  private static final double OCCUPATION_CIBLE = 0.6;
+  /** Variation du prix pour un écart d'occupation de 100 % */
+  private static final double SENSIBILITE_OCCUPATION = 0.5;
+  /** Poids de l'occupation des derniers jours face à celle de la période demandée */
+  private static final double POIDS_TENDANCE = 0.3;
+
+  private static final int DELAI_DERNIERE_MINUTE_JOURS = 3;
+  private static final double MAJORATION_DERNIERE_MINUTE = 1.10;
+  private static final int DELAI_ANTICIPATION_JOURS = 60;
+  private static final double REMISE_ANTICIPATION = 0.95;
+
+  private static final double MAJORATION_VENDREDI_SAMEDI = 1.10;
+  private static final double MAJORATION_DIMANCHE = 1.05;
+
+  /**
+   * @return true si la propriété {@code projetagile.tarification.dynamique} vaut true
+   */
+  public static boolean estActif() {
+    return Boolean.parseBoolean(System.getProperty("projetagile.tarification.dynamique", "false"));
+  }
+
+  /**
+   * Calcule le prix journalier ajusté d'un véhicule pour une période.
+   *
+   * @param prixJ le prix journalier fixe du véhicule
+   * @param ville la ville du véhicule
+   * @param type le type du véhicule
+   * @param dateDebut le premier jour de la location
+   * @param dateFin le jour de restitution (exclu ; une période vide compte pour un jour)
+   * @return le prix journalier ajusté, arrondi au centime
+   * @throws IllegalArgumentException si le prix ou une date est null
+   */
+  public double getPrixJournalier(Double prixJ, String ville, TypeV type, LocalDate dateDebut,
+      LocalDate dateFin) {
+    if (prixJ == null || dateDebut == null || dateFin == null) {
+      throw new IllegalArgumentException("Le prix journalier et les dates sont obligatoires.");
+    }
+    LocalDate fin = finEffective(dateDebut, dateFin);
+    double coefficient = getFacteurCalendrier(dateDebut, fin, LocalDate.now())
+        * getFacteurOccupation(ville, type, dateDebut, fin);
+    return arrondir(prixJ * borner(coefficient));
+  }
+
+  /**
+   * Renseigne le prix journalier ajusté de chaque véhicule pour une même période. Les facteurs
+   * liés aux dates sont calculés une fois pour tout le lot, l'occupation une fois par ville et
+   * type.
+   *
+   * @param vehicules les véhicules à coter
+   * @param dateDebut le premier jour de la location
+   * @param dateFin le jour de restitution (exclu)
+   * @throws IllegalArgumentException si une date est null
+   */
+  public void coter(List<VehiculeDTO> vehicules, LocalDate dateDebut, LocalDate dateFin) {
+    if (dateDebut == null || dateFin == null) {
+      throw new IllegalArgumentException("Les dates de la période sont obligatoires.");
+    }
+    LocalDate fin = finEffective(dateDebut, dateFin);
+    double facteurCalendrier = getFacteurCalendrier(dateDebut, fin, LocalDate.now());
+
+    Map<String, Map<TypeV, Double>> facteurs = new HashMap<>();
+    for (VehiculeDTO dto : vehicules) {
+      if (dto.getPrixJ() == null) {
+        continue;
+      }
+      double facteurOccupation = facteurs
+          .computeIfAbsent(dto.getVille() != null ? dto.getVille() : "", v -> new HashMap<>())
+          .computeIfAbsent(dto.getType(),
+              t -> t != null ? getFacteurOccupation(dto.getVille(), t, dateDebut, fin) : 1.0);
+      dto.setPrixJDynamique(
+          arrondir(dto.getPrixJ() * borner(facteurCalendrier * facteurOccupation)));
+    }
+  }
+
+  /**
+   * @return le facteur lié à l'occupation de la flotte de même ville et même type (1 si la ville
+   *         et le type sont inconnus ou la période hors de la table)
+   */
+  private double getFacteurOccupation(String ville, TypeV type, LocalDate debut, LocalDate fin) {
+    SignauxDemande.Serie serie = type != null ? SignauxDemande.get(ville, type) : null;
+    if (serie == null) {
+      return 1.0;
+    }
+    double occupationPeriode = serie.getOccupation(debut, fin);
+    LocalDate aujourdhui = LocalDate.now();
+    double tendance =
+        serie.getOccupation(aujourdhui.minusDays(SignauxDemande.JOURS_PASSES), aujourdhui);
+
+    double occupation;
+    if (occupationPeriode < 0 && tendance < 0) {
+      return 1.0;
+    } else if (occupationPeriode < 0) {
+      occupation = tendance;
+    } else if (tendance < 0) {
+      occupation = occupationPeriode;
+    } else {
+      occupation = (1 - POIDS_TENDANCE) * occupationPeriode + POIDS_TENDANCE * tendance;
+    }
+    return 1 + SENSIBILITE_OCCUPATION * (occupation - OCCUPATION_CIBLE);
+  }
+
+  /**
+   * @return le produit du facteur de délai de réservation et de la moyenne des majorations des
+   *         jours de la période
+   */
+  private double getFacteurCalendrier(LocalDate debut, LocalDate fin, LocalDate aujourdhui) {
+    long delai = ChronoUnit.DAYS.between(aujourdhui, debut);
+    double facteurDelai = 1.0;
+    if (delai < DELAI_DERNIERE_MINUTE_JOURS) {
+      facteurDelai = MAJORATION_DERNIERE_MINUTE;
+    } else if (delai >= DELAI_ANTICIPATION_JOURS) {
+      facteurDelai = REMISE_ANTICIPATION;
+    }
+
+    // Majoration moyenne : les semaines complètes ont toutes la même, seul le reste est parcouru
+    long jours = ChronoUnit.DAYS.between(debut, fin);
+    long semaines = jours / 7;
+    double somme = semaines * (2 * MAJORATION_VENDREDI_SAMEDI + MAJORATION_DIMANCHE + 4);
+    for (LocalDate jour = debut.plusWeeks(semaines); jour.isBefore(fin); jour = jour.plusDays(1)) {
+      somme += majorationJour(jour.getDayOfWeek());
+    }
+    return facteurDelai * somme / jours;
+  }
+
+  private static double majorationJour(DayOfWeek jour) {
+    return switch (jour) {
+      case FRIDAY, SATURDAY -> MAJORATION_VENDREDI_SAMEDI;
+      case SUNDAY -> MAJORATION_DIMANCHE;
+      default -> 1.0;
+    };
+  }
+
+  private static LocalDate finEffective(LocalDate debut, LocalDate fin) {
+    return fin.isAfter(debut) ? fin : debut.plusDays(1);
+  }
+
+  private static double borner(double coefficient) {
+    return Math.max(COEFFICIENT_MIN, Math.min(COEFFICIENT_MAX, coefficient));
+  }
+
+  private static double arrondir(double prix) {
+    return Math.round(prix * 100) / 100.0;
+  }
+}
@@ -0,0 +1,144 @@
+package fr.univ.m1.projetagile.VerificationLocation.service;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import org.junit.jupiter.api.Test;
+import fr.univ.m1.projetagile.VerificationLocation.entity.SerieKilometrique;
+
+class SeriesKilometriquesTest {
+
+  private static SeriesKilometriques.Serie serie(int[] jours, int[] kilometrages) {
+    SeriesKilometriques.Serie serie = SeriesKilometriques.Serie.VIDE;
+    for (int i = 0; i < jours.length; i++) {
+      serie = serie.avec(jours[i], kilometrages[i]);
+    }
+    return serie;
+  }
+
+  private static SeriesKilometriques.Serie allerRetour(SeriesKilometriques.Serie serie) {
+    SerieKilometrique entite = serie.versEntite(1L);
+    assertEquals(serie.taille(), entite.getNombreReleves());
+    return SeriesKilometriques.Serie.decoder(entite.getReleves(), entite.getNombreReleves());
+  }
+
+  // =======================
+  // Forme compacte
+  // =======================
+
+  @Test
+  void serieVideSansOctets() {
+    SerieKilometrique entite = SeriesKilometriques.Serie.VIDE.versEntite(1L);
+    assertEquals(0, entite.getReleves().length);
+    assertEquals(0, allerRetour(SeriesKilometriques.Serie.VIDE).taille());
+  }
+
+  @Test
+  void allerRetourAvecEcartsNegatifsEtMemeJour() {
+    // Deux relevés le même jour (écart de jours nul) et un compteur remplacé (écart négatif)
+    int[] jours = {19000, 19000, 19010, 19011};
+    int[] kilometrages = {15000, 15240, 120, 180};
+    SeriesKilometriques.Serie decodee = allerRetour(serie(jours, kilometrages));
+    assertArrayEquals(jours, decodee.jours);
+    assertArrayEquals(kilometrages, decodee.kilometrages);
+  }
+
+  @Test
+  void allerRetourAuxBornesDesEntiers() {
+    // Écarts de plus de 32 bits et valeurs négatives
+    int[] jours = {-5, 0, Integer.MAX_VALUE};
+    int[] kilometrages = {Integer.MAX_VALUE, Integer.MIN_VALUE, 0};
+    SeriesKilometriques.Serie decodee = allerRetour(serie(jours, kilometrages));
+    assertArrayEquals(jours, decodee.jours);
+    assertArrayEquals(kilometrages, decodee.kilometrages);
+  }
+
+  @Test
+  void petitsEcartsSurUnOctet() {
+    // Zigzag : -64..63 tiennent sur un octet
+    SerieKilometrique entite = serie(new int[] {0, 1, 2}, new int[] {63, 0, -1}).versEntite(1L);
+    assertEquals(6, entite.getReleves().length);
+  }
+
+  // =======================
+  // Insertion
+  // =======================
+
+  @Test
+  void releveEnRetardInsereApresCeuxDuMemeJour() {
+    SeriesKilometriques.Serie serie =
+        serie(new int[] {10, 5, 10, 5, 20}, new int[] {100, 50, 110, 60, 200});
+    assertArrayEquals(new int[] {5, 5, 10, 10, 20}, serie.jours);
+    assertArrayEquals(new int[] {50, 60, 100, 110, 200}, serie.kilometrages);
+  }
+
+  @Test
+  void insertionNeModifiePasLaSerieSource() {
+    SeriesKilometriques.Serie source = serie(new int[] {1, 3}, new int[] {10, 30});
+    source.avec(2, 20);
+    assertArrayEquals(new int[] {1, 3}, source.jours);
+    assertArrayEquals(new int[] {10, 30}, source.kilometrages);
+  }
+
+  @Test
+  void limiteConserveLesDerniersReleves() {
+    SeriesKilometriques.Serie serie =
+        serie(new int[] {1, 2, 3, 4, 5}, new int[] {10, 20, 30, 40, 50});
+    SeriesKilometriques.Serie limitee = serie.limiter(3);
+    assertArrayEquals(new int[] {3, 4, 5}, limitee.jours);
+    assertArrayEquals(new int[] {30, 40, 50}, limitee.kilometrages);
+    assertSame(serie, serie.limiter(5));
+    assertArrayEquals(new int[] {1, 2, 3, 4, 5}, serie.jours);
+  }
+
+  // =======================
+  // Rythme d'utilisation
+  // =======================
+
+  @Test
+  void rythmeInconnuSansDeuxJours() {
+    assertNull(SeriesKilometriques.Serie.VIDE.kilometresParJour(180));
+    assertNull(serie(new int[] {3}, new int[] {100}).kilometresParJour(180));
+    assertNull(serie(new int[] {3, 3}, new int[] {100, 150}).kilometresParJour(180));
+  }
+
+  @Test
+  void fenetreIncluantSonPremierJour() {
+    SeriesKilometriques.Serie serie = serie(new int[] {0, 10, 20}, new int[] {0, 100, 300});
+    // Le relevé du jour 0 est exactement à 20 jours du dernier : il est dans la fenêtre
+    assertEquals(15.0, serie.kilometresParJour(20));
+    // À 19 jours, il en sort
+    assertEquals(20.0, serie.kilometresParJour(19));
+    assertEquals(20.0, serie.kilometresParJour(10));
+  }
+
+  @Test
+  void fenetreSansAutreJourRepliSurLeReleveQuiLaPrecede() {
+    SeriesKilometriques.Serie serie = serie(new int[] {0, 10, 20}, new int[] {0, 100, 300});
+    assertEquals(20.0, serie.kilometresParJour(5));
+    assertEquals(20.0, serie.kilometresParJour(0));
+  }
+
+  @Test
+  void fenetreCommencantSurDesRelevesDuMemeJour() {
+    // Le premier relevé du jour 10 est retenu, pas le second
+    SeriesKilometriques.Serie serie =
+        serie(new int[] {0, 10, 10, 20}, new int[] {0, 100, 150, 300});
+    assertEquals(20.0, serie.kilometresParJour(10));
+  }
+
+  @Test
+  void dernierJourAvecPlusieursReleves() {
+    SeriesKilometriques.Serie serie = serie(new int[] {0, 10, 10}, new int[] {0, 100, 120});
+    assertEquals(12.0, serie.kilometresParJour(5));
+  }
+
+  @Test
+  void premierReleveAtteignantUnKilometrage() {
+    SeriesKilometriques.Serie serie = serie(new int[] {0, 10, 20}, new int[] {0, 100, 300});
+    assertEquals(0, serie.premierAtteignant(0));
+    assertEquals(1, serie.premierAtteignant(100));
+    assertEquals(2, serie.premierAtteignant(101));
+  }
+}
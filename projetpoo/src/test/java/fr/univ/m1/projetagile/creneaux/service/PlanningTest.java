@@ -0,0 +1,90 @@
+package fr.univ.m1.projetagile.creneaux.service;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class PlanningTest {
+
+  private static final List<int[]> AUCUNE = List.of();
+
+  @Test
+  void vehiculeIndisponible() {
+    Planning planning = new Planning(false, 0, List.of(new int[] {0, 100}), AUCUNE);
+    assertFalse(planning.estLibre(10, 20));
+  }
+
+  @Test
+  void sansFenetreDeDisponibilite() {
+    assertFalse(new Planning(true, 0, AUCUNE, AUCUNE).estLibre(10, 20));
+  }
+
+  @Test
+  void bornesDUneFenetre() {
+    Planning planning = new Planning(true, 0, List.of(new int[] {0, 10}), AUCUNE);
+    assertTrue(planning.estLibre(0, 10));
+    assertTrue(planning.estLibre(3, 4));
+    assertFalse(planning.estLibre(0, 11));
+    assertFalse(planning.estLibre(-1, 5));
+    assertFalse(planning.estLibre(10, 12));
+  }
+
+  @Test
+  void fenetresContiguesOuChevauchantesFusionnees() {
+    // Ordre quelconque, intervalle vide ignoré
+    Planning planning = new Planning(true, 0, List.of(new int[] {10, 20}, new int[] {15, 30},
+        new int[] {50, 50}, new int[] {0, 10}), AUCUNE);
+    assertTrue(planning.estLibre(0, 30));
+    assertFalse(planning.estLibre(0, 31));
+  }
+
+  @Test
+  void periodeAChevalSurDeuxFenetresSeparees() {
+    Planning planning =
+        new Planning(true, 0, List.of(new int[] {12, 20}, new int[] {0, 10}), AUCUNE);
+    assertTrue(planning.estLibre(12, 20));
+    assertFalse(planning.estLibre(8, 14));
+    assertFalse(planning.estLibre(10, 12));
+  }
+
+  @Test
+  void occupationsSemiOuvertes() {
+    Planning planning =
+        new Planning(true, 0, List.of(new int[] {0, 100}), List.of(new int[] {10, 20}));
+    assertTrue(planning.estLibre(0, 10));
+    assertTrue(planning.estLibre(20, 30));
+    assertFalse(planning.estLibre(5, 11));
+    assertFalse(planning.estLibre(19, 25));
+    assertFalse(planning.estLibre(12, 15));
+    assertFalse(planning.estLibre(5, 25));
+  }
+
+  @Test
+  void delaiDeRemiseEnEtatAvantEtApres() {
+    Planning planning =
+        new Planning(true, 2, List.of(new int[] {0, 100}), List.of(new int[] {10, 20}));
+    assertTrue(planning.estLibre(0, 8));
+    assertFalse(planning.estLibre(0, 9));
+    assertTrue(planning.estLibre(22, 30));
+    assertFalse(planning.estLibre(21, 30));
+  }
+
+  @Test
+  void occupationsFusionneesDansUnOrdreQuelconque() {
+    Planning planning = new Planning(true, 0, List.of(new int[] {0, 100}),
+        List.of(new int[] {30, 40}, new int[] {10, 20}, new int[] {15, 35}));
+    assertFalse(planning.estLibre(20, 30));
+    assertTrue(planning.estLibre(0, 10));
+    assertTrue(planning.estLibre(40, 50));
+  }
+
+  @Test
+  void creneauLibreEntreDeuxOccupations() {
+    Planning planning = new Planning(true, 1, List.of(new int[] {0, 100}),
+        List.of(new int[] {10, 20}, new int[] {30, 40}));
+    assertTrue(planning.estLibre(21, 29));
+    assertFalse(planning.estLibre(21, 30));
+    assertFalse(planning.estLibre(20, 29));
+  }
+}
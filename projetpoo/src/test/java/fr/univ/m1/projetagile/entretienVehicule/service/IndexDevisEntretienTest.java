@@ -0,0 +1,68 @@
+package fr.univ.m1.projetagile.entretienVehicule.service;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.Test;
+import fr.univ.m1.projetagile.enums.TypeV;
+
+class IndexDevisEntretienTest {
+
+  @Test
+  void insertionTrieeParPrixCroissant() {
+    IndexDevisEntretien.Groupe groupe = IndexDevisEntretien.Groupe.VIDE.avec(1, 10, 30.0)
+        .avec(2, 20, 10.0).avec(3, 30, 20.0).avec(4, 40, 5.0).avec(5, 50, 40.0);
+    assertArrayEquals(new double[] {5.0, 10.0, 20.0, 30.0, 40.0}, groupe.prix);
+    assertArrayEquals(new long[] {4, 2, 3, 1, 5}, groupe.prixIds);
+    assertArrayEquals(new long[] {40, 20, 30, 10, 50}, groupe.entretienIds);
+  }
+
+  @Test
+  void prixEgauxDansLOrdreDInsertion() {
+    IndexDevisEntretien.Groupe groupe = IndexDevisEntretien.Groupe.VIDE.avec(1, 10, 10.0)
+        .avec(2, 20, 20.0).avec(3, 30, 10.0).avec(4, 40, 10.0).avec(5, 50, 20.0);
+    assertArrayEquals(new long[] {1, 3, 4, 2, 5}, groupe.prixIds);
+    assertArrayEquals(new long[] {10, 30, 40, 20, 50}, groupe.entretienIds);
+  }
+
+  @Test
+  void retraitEnDebutMilieuEtFin() {
+    IndexDevisEntretien.Groupe groupe = IndexDevisEntretien.Groupe.VIDE.avec(1, 10, 10.0)
+        .avec(2, 20, 20.0).avec(3, 30, 30.0).avec(4, 40, 40.0);
+
+    IndexDevisEntretien.Groupe sansPremier = groupe.sans(0);
+    assertArrayEquals(new long[] {2, 3, 4}, sansPremier.prixIds);
+    assertArrayEquals(new double[] {20.0, 30.0, 40.0}, sansPremier.prix);
+
+    IndexDevisEntretien.Groupe sansMilieu = groupe.sans(2);
+    assertArrayEquals(new long[] {1, 2, 4}, sansMilieu.prixIds);
+    assertArrayEquals(new long[] {10, 20, 40}, sansMilieu.entretienIds);
+    assertArrayEquals(new double[] {10.0, 20.0, 40.0}, sansMilieu.prix);
+
+    IndexDevisEntretien.Groupe sansDernier = groupe.sans(3);
+    assertArrayEquals(new long[] {1, 2, 3}, sansDernier.prixIds);
+    assertArrayEquals(new double[] {10.0, 20.0, 30.0}, sansDernier.prix);
+  }
+
+  @Test
+  void retraitDuDernierDevis() {
+    IndexDevisEntretien.Groupe groupe = IndexDevisEntretien.Groupe.VIDE.avec(1, 10, 10.0).sans(0);
+    assertEquals(0, groupe.prix.length);
+    assertEquals(0, groupe.prixIds.length);
+  }
+
+  @Test
+  void groupePublieNonModifie() {
+    IndexDevisEntretien.Groupe groupe =
+        IndexDevisEntretien.Groupe.VIDE.avec(1, 10, 10.0).avec(2, 20, 20.0);
+    groupe.avec(3, 30, 15.0);
+    groupe.sans(0);
+    assertArrayEquals(new long[] {1, 2}, groupe.prixIds);
+    assertEquals(0, IndexDevisEntretien.Groupe.VIDE.prix.length);
+  }
+
+  @Test
+  void cleNormaliseLeModele() {
+    assertEquals(IndexDevisEntretien.cle(TypeV.voiture, "clio"),
+        IndexDevisEntretien.cle(TypeV.voiture, "  Clio "));
+  }
+}
@@ -0,0 +1,174 @@
+package fr.univ.m1.projetagile.options.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import fr.univ.m1.projetagile.core.dto.FactureOptionsMensuelleDTO;
+import fr.univ.m1.projetagile.options.persistence.FactureOptionsRepository;
+
+class FacturationOptionsTest {
+
+  private static final YearMonth AVRIL = YearMonth.of(2030, 4);
+  private static final LocalDateTime MI_JANVIER = LocalDateTime.of(2030, 1, 15, 10, 0);
+
+  /**
+   * Repository en mémoire : souscriptions déjà triées par utilisateur, factures émises gardées par
+   * lot.
+   */
+  private static final class RepositoryEnMemoire extends FactureOptionsRepository {
+
+    private final List<Object[]> souscriptions = new ArrayList<>();
+    private final Set<Long> dejaFactures = new HashSet<>();
+    private final List<List<FactureOptionsMensuelleDTO>> lots = new ArrayList<>();
+
+    void souscrire(long utilisateurId, LocalDateTime dateDebut, int periodicite,
+        boolean renouvellement, long optionId, Double prix) {
+      souscriptions.add(
+          new Object[] {utilisateurId, dateDebut, periodicite, renouvellement, optionId, prix});
+    }
+
+    @Override
+    public Set<Long> findUtilisateursFactures(int annee, int mois, long debut, long fin) {
+      return new HashSet<>(dejaFactures);
+    }
+
+    @Override
+    public Stream<Object[]> parcourirSouscriptions(long debut, long fin,
+        LocalDateTime debutMois, LocalDateTime finMois) {
+      return souscriptions.stream();
+    }
+
+    @Override
+    public Map<Long, String> findNoms(Collection<Long> utilisateurIds) {
+      Map<Long, String> noms = new HashMap<>();
+      for (Long id : utilisateurIds) {
+        noms.put(id, "Utilisateur " + id);
+      }
+      return noms;
+    }
+
+    @Override
+    public int insertFacturesManquantes(List<FactureOptionsMensuelleDTO> factures) {
+      lots.add(new ArrayList<>(factures));
+      return factures.size();
+    }
+
+    List<FactureOptionsMensuelleDTO> factures() {
+      List<FactureOptionsMensuelleDTO> factures = new ArrayList<>();
+      lots.forEach(factures::addAll);
+      return factures;
+    }
+  }
+
+  // =======================
+  // Montant du mois
+  // =======================
+
+  @Test
+  void periodesRenouveleesFactureesLeMoisOuEllesCommencent() {
+    assertEquals(30.0, FacturationOptions.montantDuMois(MI_JANVIER, 3, true, 30.0,
+        YearMonth.of(2030, 1)));
+    assertEquals(30.0, FacturationOptions.montantDuMois(MI_JANVIER, 3, true, 30.0, AVRIL));
+    assertEquals(0.0, FacturationOptions.montantDuMois(MI_JANVIER, 3, true, 30.0,
+        YearMonth.of(2030, 2)));
+    assertEquals(0.0, FacturationOptions.montantDuMois(MI_JANVIER, 3, true, 30.0,
+        YearMonth.of(2029, 12)));
+  }
+
+  @Test
+  void sansRenouvellementSeulementLaPremierePeriode() {
+    assertEquals(30.0, FacturationOptions.montantDuMois(MI_JANVIER, 3, false, 30.0,
+        YearMonth.of(2030, 1)));
+    assertEquals(0.0, FacturationOptions.montantDuMois(MI_JANVIER, 3, false, 30.0, AVRIL));
+  }
+
+  @Test
+  void periodiciteNulleCompteePourUnMois() {
+    assertEquals(10.0, FacturationOptions.montantDuMois(MI_JANVIER, 0, true, 10.0,
+        YearMonth.of(2030, 2)));
+  }
+
+  // =======================
+  // Prix d'une période
+  // =======================
+
+  @Test
+  void tarifDeLaPeriodiciteSinonPrixMensuel() {
+    Map<Long, Map<Integer, Double>> tarifs = Map.of(1L, Map.of(3, 25.0));
+    assertEquals(25.0, FacturationOptions.prixPeriode(tarifs, 1L, 3, 10.0));
+    // Pas de tarif pour cette périodicité, ni pour cette option
+    assertEquals(60.0, FacturationOptions.prixPeriode(tarifs, 1L, 6, 10.0));
+    assertEquals(30.0, FacturationOptions.prixPeriode(tarifs, 2L, 3, 10.0));
+    assertEquals(10.0, FacturationOptions.prixPeriode(tarifs, 2L, 0, 10.0));
+    assertEquals(0.0, FacturationOptions.prixPeriode(tarifs, 2L, 3, null));
+  }
+
+  // =======================
+  // Facturation d'une plage
+  // =======================
+
+  @Test
+  void facturesEmisesParLots() {
+    RepositoryEnMemoire repository = new RepositoryEnMemoire();
+    for (long id = 1; id <= 1201; id++) {
+      repository.souscrire(id, MI_JANVIER, 1, true, 1L, 10.0);
+    }
+
+    int emises = new FacturationOptions(repository).facturerPlage(AVRIL, 1, 1202, Map.of());
+    assertEquals(1201, emises);
+    assertEquals(3, repository.lots.size());
+    assertEquals(500, repository.lots.get(0).size());
+    assertEquals(500, repository.lots.get(1).size());
+    assertEquals(201, repository.lots.get(2).size());
+    assertEquals("Utilisateur 1201", repository.lots.get(2).get(200).getNomLoueur());
+  }
+
+  @Test
+  void souscriptionsDUnUtilisateurAdditionnees() {
+    RepositoryEnMemoire repository = new RepositoryEnMemoire();
+    repository.souscrire(1, MI_JANVIER, 1, true, 1L, 10.005);
+    repository.souscrire(1, MI_JANVIER, 3, true, 2L, 5.0);
+    // Période qui ne commence pas en avril : rien à facturer
+    repository.souscrire(2, MI_JANVIER, 2, true, 1L, 10.0);
+
+    new FacturationOptions(repository).facturerPlage(AVRIL, 1, 3, Map.of(2L, Map.of(3, 12.0)));
+    List<FactureOptionsMensuelleDTO> factures = repository.factures();
+    assertEquals(1, factures.size());
+    assertEquals(1L, factures.get(0).getLoueurId());
+    assertEquals(22.01, factures.get(0).getMontantTotalOptions());
+    assertEquals(2030, factures.get(0).getAnnee());
+    assertEquals(4, factures.get(0).getMois());
+  }
+
+  @Test
+  void utilisateursDejaFacturesIgnores() {
+    RepositoryEnMemoire repository = new RepositoryEnMemoire();
+    repository.souscrire(1, MI_JANVIER, 1, true, 1L, 10.0);
+    repository.souscrire(2, MI_JANVIER, 1, true, 1L, 10.0);
+    repository.souscrire(2, MI_JANVIER, 1, true, 2L, 10.0);
+    repository.souscrire(3, MI_JANVIER, 1, true, 1L, 10.0);
+    repository.dejaFactures.add(2L);
+
+    assertEquals(2, new FacturationOptions(repository).facturerPlage(AVRIL, 1, 4, Map.of()));
+    List<Long> factures = new ArrayList<>();
+    repository.factures().forEach(facture -> factures.add(facture.getLoueurId()));
+    assertEquals(List.of(1L, 3L), factures);
+  }
+
+  @Test
+  void plageVide() {
+    RepositoryEnMemoire repository = new RepositoryEnMemoire();
+    assertEquals(0, new FacturationOptions(repository).facturerPlage(AVRIL, 1, 10, Map.of()));
+    assertTrue(repository.lots.isEmpty());
+  }
+}
@@ -0,0 +1,113 @@
+package fr.univ.m1.projetagile.recherche.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.time.LocalDate;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import fr.univ.m1.projetagile.core.entity.Loueur;
+import fr.univ.m1.projetagile.core.entity.Vehicule;
+import fr.univ.m1.projetagile.enums.TypeV;
+import fr.univ.m1.projetagile.recherche.entity.RechercheSauvegardee;
+
+class PercolateurRecherchesTest {
+
+  private static final Loueur LOUEUR = new Loueur("Dupont", "Jean", "jean@example.com", "pass");
+  private static final LocalDate JOUR = LocalDate.of(2030, 6, 10);
+
+  private static Vehicule vehicule(TypeV type, String marque, String ville, Double prixJ) {
+    return new Vehicule(type, marque, "Modèle", "Bleu", ville, prixJ, null);
+  }
+
+  private static PercolateurRecherches.Critere critere(String ville, String marque, TypeV type,
+      Double prixMin, Double prixMax, LocalDate dateDebut, LocalDate dateFin) {
+    return new PercolateurRecherches.Critere(new RechercheSauvegardee(LOUEUR, ville, marque, type,
+        prixMin, prixMax, dateDebut, dateFin));
+  }
+
+  // =======================
+  // Clés de l'index
+  // =======================
+
+  @Test
+  void clesDuVehiculeDeLaPlusPrecisALaPlusLarge() {
+    assertEquals(List.of("paris|voiture", "paris|*", "*|voiture", "*|*"),
+        PercolateurRecherches.cles(vehicule(TypeV.voiture, "Renault", "  Paris ", 40.0)));
+  }
+
+  @Test
+  void vehiculeSansType() {
+    assertEquals(List.of("lyon|*", "lyon|*", "*|*", "*|*"),
+        PercolateurRecherches.cles(vehicule(null, "Renault", "Lyon", 40.0)));
+  }
+
+  @Test
+  void rechercheRangeeDansUneCleDuVehicule() {
+    Vehicule vehicule = vehicule(TypeV.voiture, "Renault", "Paris", 40.0);
+    List<String> cles = PercolateurRecherches.cles(vehicule);
+    assertTrue(cles.contains(PercolateurRecherches.cle(
+        new RechercheSauvegardee(LOUEUR, "PARIS", null, TypeV.voiture, null, null, null, null))));
+    assertTrue(cles.contains(PercolateurRecherches.cle(
+        new RechercheSauvegardee(LOUEUR, " ", null, null, null, null, null, null))));
+    assertTrue(cles.contains(PercolateurRecherches.cle(
+        new RechercheSauvegardee(LOUEUR, null, null, TypeV.voiture, null, null, null, null))));
+    assertFalse(cles.contains(PercolateurRecherches.cle(
+        new RechercheSauvegardee(LOUEUR, "Lyon", null, TypeV.voiture, null, null, null, null))));
+  }
+
+  // =======================
+  // Critères
+  // =======================
+
+  @Test
+  void sansCritereToutCorrespond() {
+    assertTrue(critere(null, null, null, null, null, null, null)
+        .correspond(vehicule(TypeV.voiture, "Renault", "Paris", 40.0), null, null));
+  }
+
+  @Test
+  void marqueContenueSansTenirCompteDeLaCasse() {
+    Vehicule vehicule = vehicule(TypeV.voiture, "Mercedes-Benz", "Paris", 40.0);
+    assertTrue(critere(null, " benz ", null, null, null, null, null)
+        .correspond(vehicule, null, null));
+    assertFalse(critere(null, "Renault", null, null, null, null, null)
+        .correspond(vehicule, null, null));
+    assertFalse(critere(null, "Renault", null, null, null, null, null)
+        .correspond(vehicule(TypeV.voiture, null, "Paris", 40.0), null, null));
+  }
+
+  @Test
+  void typeDifferent() {
+    assertFalse(critere(null, null, TypeV.voiture, null, null, null, null)
+        .correspond(vehicule(TypeV.camion, "Renault", "Paris", 40.0), null, null));
+  }
+
+  @Test
+  void bornesDePrixIncluses() {
+    Vehicule vehicule = vehicule(TypeV.voiture, "Renault", "Paris", 40.0);
+    assertTrue(critere(null, null, null, 40.0, 40.0, null, null).correspond(vehicule, null, null));
+    assertFalse(critere(null, null, null, 40.5, null, null, null)
+        .correspond(vehicule, null, null));
+    assertFalse(critere(null, null, null, null, 39.5, null, null)
+        .correspond(vehicule, null, null));
+    // Sans prix, le véhicule compte pour 0
+    assertFalse(critere(null, null, null, 10.0, null, null, null)
+        .correspond(vehicule(TypeV.voiture, "Renault", "Paris", null), null, null));
+  }
+
+  @Test
+  void periodeRechercheeChevauchantLaPeriodeLiberee() {
+    Vehicule vehicule = vehicule(TypeV.voiture, "Renault", "Paris", 40.0);
+    PercolateurRecherches.Critere critere =
+        critere(null, null, null, null, null, JOUR, JOUR.plusDays(5));
+    assertTrue(critere.correspond(vehicule, JOUR.plusDays(5), JOUR.plusDays(8)));
+    assertTrue(critere.correspond(vehicule, JOUR.minusDays(3), JOUR));
+    assertFalse(critere.correspond(vehicule, JOUR.plusDays(6), JOUR.plusDays(8)));
+    assertFalse(critere.correspond(vehicule, JOUR.minusDays(3), JOUR.minusDays(1)));
+    // Période libérée inconnue ou ouverte
+    assertTrue(critere.correspond(vehicule, null, null));
+    assertTrue(critere.correspond(vehicule, null, JOUR));
+    assertFalse(critere.correspond(vehicule, JOUR.plusDays(6), null));
+  }
+}